@@ -13,6 +13,7 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintStream;
 import java.util.Date;
+import java.util.List;
 import java.util.zip.GZIPOutputStream;
 
 /**
@@ -232,6 +233,16 @@ public abstract class AbstractGenerator
      */
     public abstract String getFilename(int number);
 
+    /**
+     * Return the filename a named sitemap should be stored at, e.g. a segment
+     * of incremental sitemaps.
+     *
+     * @param name
+     *            name of the sitemap file
+     * @return the filename to write the sitemap to.
+     */
+    public abstract String getFilename(String name);
+
     /**
      * Get the filename the index should be written to.
      *
@@ -251,4 +262,20 @@ public abstract class AbstractGenerator
      */
     public abstract void writeIndex(PrintStream output, int sitemapCount)
             throws IOException;
+
+    /**
+     * Write the index file of named sitemaps, e.g. the segments of
+     * incremental sitemaps.
+     *
+     * @param output
+     *            stream to write the index to
+     * @param names
+     *            names of the sitemaps
+     * @param lastMods
+     *            dates the sitemaps were last written, in the same order
+     * @throws IOException
+     *             if an IO error occurs
+     */
+    public abstract void writeIndex(PrintStream output, List<String> names,
+            List<Date> lastMods) throws IOException;
 }
@@ -9,88 +9,59 @@ package org.dspace.app.sitemap;
 
 import java.io.IOException;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Date;
 import java.util.List;
 
-import org.dspace.content.Collection;
-import org.dspace.content.Community;
-import org.dspace.content.Item;
-import org.dspace.content.ItemIterator;
 import org.dspace.core.ConfigurationManager;
+import org.dspace.core.Constants;
 import org.dspace.core.Context;
 
-public class DSpaceObjectsSitemapGenerator implements ISitemapGeneratorPlugin {
+public class DSpaceObjectsSitemapGenerator implements ISitemapSegmentedPlugin {
 
     @Override
     public String addUrls(Context c, boolean makeHTMLMap, boolean makeSitemapOrg, List<String> includes,
 			AbstractGenerator html, AbstractGenerator sitemapsOrg) throws SQLException, IOException {
-		String handleURLStem = ConfigurationManager.getProperty("dspace.url") + "/handle/";
 		StringBuffer objectDetails = new StringBuffer();
-		if (includes.contains("community")) {
-
-			Community[] comms = Community.findAll(c);
-			for (int i = 0; i < comms.length; i++) {
-				String url = handleURLStem + comms[i].getHandle();
+		for (SitemapSegmentSource source : getSources(c, includes)) {
+			int count = source.addUrls(c, makeHTMLMap ? html : null, makeSitemapOrg ? sitemapsOrg : null);
+			objectDetails.append(",").append(source.getType()).append("=").append(count);
+		}
+		return objectDetails.toString();
+	}
 
-				if (makeHTMLMap) {
-					html.addURL(url, null);
-				}
-				if (makeSitemapOrg) {
-					sitemapsOrg.addURL(url, null);
-				}
-			}
+    @Override
+    public List<SitemapSegmentSource> getSources(Context c, List<String> includes) throws SQLException {
+		String handleURLStem = ConfigurationManager.getProperty("dspace.url") + "/handle/";
+		List<SitemapSegmentSource> sources = new ArrayList<SitemapSegmentSource>();
 
-			objectDetails.append(",communities=").append(comms.length);
+		// only the columns of the URLs, without instantiating the objects; one
+		// handle by object, as the latest version of an item also owns the
+		// handles of its versions, {handle}.{version}, which sort after it
+		if (includes.contains("community")) {
+			sources.add(new SitemapSegmentSource("community", handleURLStem,
+					"SELECT c.community_id AS id, MIN(h.handle) AS path, CAST(NULL AS TIMESTAMP) AS last_modified "
+					+ "FROM community c JOIN handle h ON h.resource_type_id = ? AND h.resource_id = c.community_id "
+					+ "GROUP BY c.community_id",
+					Constants.COMMUNITY));
 		}
 
 		if (includes.contains("collection")) {
-			Collection[] colls = Collection.findAll(c);
-			for (int i = 0; i < colls.length; i++) {
-				String url = handleURLStem + colls[i].getHandle();
-
-				if (makeHTMLMap) {
-					html.addURL(url, null);
-				}
-				if (makeSitemapOrg) {
-					sitemapsOrg.addURL(url, null);
-				}
-			}
-			objectDetails.append(",collections=").append(colls.length);
-
+			sources.add(new SitemapSegmentSource("collection", handleURLStem,
+					"SELECT c.collection_id AS id, MIN(h.handle) AS path, CAST(NULL AS TIMESTAMP) AS last_modified "
+					+ "FROM collection c JOIN handle h ON h.resource_type_id = ? AND h.resource_id = c.collection_id "
+					+ "GROUP BY c.collection_id",
+					Constants.COLLECTION));
 		}
 
-		ItemIterator allItems = null;
-		try {
-
-			int itemCount = 0;
-			if (includes.contains("item")) {
-				allItems = Item.findAll(c);
-
-				while (allItems.hasNext()) {
-					Item i = allItems.next();
-					String url = handleURLStem + i.getHandle();
-					Date lastMod = i.getLastModified();
-
-					if (makeHTMLMap) {
-						html.addURL(url, lastMod);
-					}
-					if (makeSitemapOrg) {
-						sitemapsOrg.addURL(url, lastMod);
-					}
-					i.decache();
-
-					itemCount++;
-				}
-				objectDetails.append(",items=").append(itemCount);
-
-			}
-		} finally {
-			if (allItems != null) {
-				allItems.close();
-			}
+		if (includes.contains("item")) {
+			sources.add(new SitemapSegmentSource("item", handleURLStem,
+					"SELECT i.item_id AS id, MIN(h.handle) AS path, i.last_modified AS last_modified "
+					+ "FROM item i JOIN handle h ON h.resource_type_id = ? AND h.resource_id = i.item_id "
+					+ "WHERE i.in_archive = '1' GROUP BY i.item_id, i.last_modified",
+					Constants.ITEM));
 		}
-		return objectDetails.toString();
+		return sources;
 	}
 
     @Override
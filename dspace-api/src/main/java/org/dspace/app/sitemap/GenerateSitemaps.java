@@ -60,6 +60,8 @@ public class GenerateSitemaps {
         options.addOption("b", "no_htmlmap", false, "do not generate a basic HTML sitemap");
         options.addOption("a", "ping_all", false, "ping configured search engines");
         options.addOption("p", "ping", true, "ping specified search engine URL");
+        options.addOption("n", "incremental", false,
+                "only regenerate the sitemap segments whose objects changed since the last run (see sitemap.segment.size)");
 
         CommandLine line = null;
 
@@ -101,7 +103,7 @@ public class GenerateSitemaps {
         
         // Note the negation (CLI options indicate NOT to generate a sitemap)
         if (!line.hasOption('b') || !line.hasOption('s')) {
-            generateSitemaps(!line.hasOption('b'), !line.hasOption('s'), includes);
+            generateSitemaps(!line.hasOption('b'), !line.hasOption('s'), includes, line.hasOption('n'));
         }
 
         
@@ -163,6 +165,22 @@ public class GenerateSitemaps {
      */
     public static void generateSitemaps(boolean makeHTMLMap,
             boolean makeSitemapOrg, List<String> includes) throws SQLException, IOException {
+        generateSitemaps(makeHTMLMap, makeSitemapOrg, includes, false);
+    }
+
+    /**
+     * Generate sitemap.org protocol and/or basic HTML sitemaps, either all
+     * the sitemaps, or incrementally (see {@link IncrementalSitemaps}).
+     * 
+     * @param makeHTMLMap    if {@code true}, generate an HTML sitemap.
+     * @param makeSitemapOrg if {@code true}, generate an sitemap.org sitemap.
+     * @param incremental    if {@code true}, only regenerate the segments
+     *                       whose objects changed.
+     * @throws SQLException if a database error occurs.
+     * @throws IOException  if IO error occurs.
+     */
+    public static void generateSitemaps(boolean makeHTMLMap,
+            boolean makeSitemapOrg, List<String> includes, boolean incremental) throws SQLException, IOException {
         String sitemapStem = ConfigurationManager.getProperty("dspace.url") + "/sitemap";
         String htmlMapStem = ConfigurationManager.getProperty("dspace.url") + "/htmlmap";
 
@@ -188,6 +206,23 @@ public class GenerateSitemaps {
         DSpace dspace = new DSpace();
         List<ISitemapGeneratorPlugin> sitemapPlugins = dspace.getServiceManager().getServicesByType(ISitemapGeneratorPlugin.class);
 
+        if (incremental) {
+            List<SitemapSegmentSource> sources = new ArrayList<SitemapSegmentSource>();
+            for (ISitemapGeneratorPlugin plugin : sitemapPlugins)
+            {
+                if (plugin instanceof ISitemapSegmentedPlugin) {
+                    sources.addAll(((ISitemapSegmentedPlugin) plugin).getSources(c, includes));
+                } else {
+                    log.warn("Sitemap plugin " + plugin.getClass().getName()
+                            + " does not support incremental sitemaps, its URLs are not included");
+                }
+            }
+            String details = new IncrementalSitemaps(outputDir, html, sitemapsOrg).generate(c, sources);
+            log.info(LogManager.getHeader(c, "write_sitemap", "type=incremental" + details));
+            c.abort();
+            return;
+        }
+
         for (ISitemapGeneratorPlugin plugin : sitemapPlugins)
         {
             objectDetails.append(plugin.addUrls(c, makeHTMLMap, makeSitemapOrg,
@@ -11,6 +11,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.util.Date;
+import java.util.List;
 
 /**
  * Class for generating HTML "sitemaps" which contain links to various pages in
@@ -55,6 +56,11 @@ public class HTMLSitemapGenerator extends AbstractGenerator
         return "sitemap" + number + ".html";
     }
 
+    public String getFilename(String name)
+    {
+        return "sitemap" + name + ".html";
+    }
+
     public String getLeadingBoilerPlate()
     {
         return "<!DOCTYPE HTML PUBLIC \"-//W3C//DTD HTML 4.01//EN\" \"http://www.w3.org/TR/html4/strict.dtd\">\n"
@@ -111,4 +117,19 @@ public class HTMLSitemapGenerator extends AbstractGenerator
 
         output.println(getTrailingBoilerPlate());
     }
+
+    public void writeIndex(PrintStream output, List<String> names,
+            List<Date> lastMods) throws IOException
+    {
+        output.println(getLeadingBoilerPlate());
+
+        for (String name : names)
+        {
+            output.print("<li><a href=\"" + indexURLStem + name + indexURLTail
+                    + "\">sitemap " + name);
+            output.print("</a></li>\n");
+        }
+
+        output.println(getTrailingBoilerPlate());
+    }
 }
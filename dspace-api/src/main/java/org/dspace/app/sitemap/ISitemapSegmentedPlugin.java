@@ -0,0 +1,35 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.app.sitemap;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import org.dspace.core.Context;
+
+/**
+ * A sitemap generator plugin whose objects can be listed in incremental
+ * sitemaps (see {@link IncrementalSitemaps}). The plugins which do not
+ * implement it are only used by the full generation.
+ */
+public interface ISitemapSegmentedPlugin extends ISitemapGeneratorPlugin
+{
+    /**
+     * The plugin must return the sources of the URLs to include
+     *
+     * @param c
+     *            dspace context
+     * @param includes
+     *            list of object types to includes in the sitemap (item,
+     *            community, collection, etc.)
+     * @return a source for each included type supported by the plugin
+     * @throws SQLException
+     */
+    List<SitemapSegmentSource> getSources(Context c, List<String> includes)
+            throws SQLException;
+}
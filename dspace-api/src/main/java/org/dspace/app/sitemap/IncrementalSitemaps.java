@@ -0,0 +1,326 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.app.sitemap;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.log4j.Logger;
+import org.dspace.core.ConfigurationManager;
+import org.dspace.core.Context;
+import org.dspace.storage.rdbms.TableRow;
+import org.dspace.storage.rdbms.TableRowIterator;
+
+/**
+ * Maintains sitemaps split into segments, which are regenerated only when
+ * their objects change, instead of regenerating all the sitemaps each time.
+ * <p>
+ * The objects of each type (see {@link SitemapSegmentSource}) are split into
+ * segments of <code>sitemap.segment.size</code> consecutive IDs, each listed
+ * in its own sitemap file, e.g. <code>sitemapitem-12.xml.gz</code> for the
+ * items 120000 to 129999, served with <code>?map=item-12</code>. The
+ * signature of each segment (number of objects, sum of their IDs and last
+ * modification) is kept in <code>sitemap_segments.properties</code> in the
+ * sitemap directory: a segment is written again only if its signature
+ * changed, which takes one aggregate query by type. The index lists all the
+ * segments, with the date each was last written, so that the search engines
+ * only crawl the changed ones.
+ * <p>
+ * The files are written next to their final name, and renamed when
+ * complete, so that the sitemaps can be served while they are updated.
+ */
+public class IncrementalSitemaps
+{
+    /** log4j logger */
+    private static final Logger log = Logger.getLogger(IncrementalSitemaps.class);
+
+    /** name of the file of the segment signatures */
+    static final String STATE_FILENAME = "sitemap_segments.properties";
+
+    /** maximum number of URLs of a sitemaps.org sitemap */
+    private static final int MAX_SEGMENT_SIZE = 50000;
+
+    /** directory of the sitemaps */
+    private final File outputDir;
+
+    /** generators of the enabled formats */
+    private final List<AbstractGenerator> generators = new ArrayList<AbstractGenerator>();
+
+    /** number of consecutive IDs in a segment */
+    private final int segmentSize;
+
+    /**
+     * @param outputDir
+     *            directory to write sitemap files to
+     * @param html
+     *            generator of the html sitemap, or null
+     * @param sitemapsOrg
+     *            generator of the xml sitemaporg, or null
+     */
+    public IncrementalSitemaps(File outputDir, AbstractGenerator html, AbstractGenerator sitemapsOrg)
+    {
+        this.outputDir = outputDir;
+        if (html != null)
+        {
+            generators.add(html);
+        }
+        if (sitemapsOrg != null)
+        {
+            generators.add(sitemapsOrg);
+        }
+        segmentSize = Math.min(MAX_SEGMENT_SIZE,
+                Math.max(1, ConfigurationManager.getIntProperty("sitemap.segment.size", 10000)));
+    }
+
+    /**
+     * Update the segments of the sources, and write the indexes.
+     *
+     * @param c
+     *            dspace context
+     * @param sources
+     *            the sources of the URLs to include
+     * @return details about the segments
+     * @throws SQLException
+     *             if a database error occurs.
+     * @throws IOException
+     *             if IO error occurs.
+     */
+    public String generate(Context c, List<SitemapSegmentSource> sources)
+            throws SQLException, IOException
+    {
+        Properties previous = loadState();
+        Properties state = new Properties();
+        List<String> names = new ArrayList<String>();
+        int written = 0;
+
+        for (SitemapSegmentSource source : sources)
+        {
+            Map<Integer, String> signatures = source.getSignatures(c, segmentSize);
+            for (Map.Entry<Integer, String> signature : signatures.entrySet())
+            {
+                String name = source.getType() + "-" + signature.getKey();
+                if (!signature.getValue().equals(previous.getProperty(name)) || !exists(name))
+                {
+                    writeSegment(c, source, name, signature.getKey());
+                    written++;
+                }
+                state.setProperty(name, signature.getValue());
+                names.add(name);
+            }
+        }
+
+        // the segments whose objects are all gone, or not included any more
+        for (String name : previous.stringPropertyNames())
+        {
+            if (!state.containsKey(name))
+            {
+                log.debug("Deleting sitemap segment " + name);
+                for (AbstractGenerator generator : generators)
+                {
+                    new File(outputDir, generator.getFilename(name)).delete();
+                }
+            }
+        }
+
+        for (AbstractGenerator generator : generators)
+        {
+            writeIndex(generator, names);
+        }
+        saveState(state);
+
+        log.info("Wrote " + written + " of " + names.size() + " sitemap segments");
+        return ",segments=" + names.size() + ",written=" + written;
+    }
+
+    // Whether the files of a segment exist, in all the formats
+    private boolean exists(String name)
+    {
+        for (AbstractGenerator generator : generators)
+        {
+            if (!new File(outputDir, generator.getFilename(name)).exists())
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Write the files of a segment, in all the formats
+    private void writeSegment(Context c, SitemapSegmentSource source, String name, int segment)
+            throws SQLException, IOException
+    {
+        List<PrintStream> outputs = new ArrayList<PrintStream>();
+        boolean complete = false;
+        try
+        {
+            for (AbstractGenerator generator : generators)
+            {
+                PrintStream output = open(generator, generator.getFilename(name));
+                outputs.add(output);
+                output.print(generator.getLeadingBoilerPlate());
+            }
+
+            TableRowIterator rows = source.findSegment(c, segment, segmentSize);
+            try
+            {
+                while (rows.hasNext())
+                {
+                    TableRow row = rows.next();
+                    String url = source.getURL(row);
+                    Date lastMod = source.getLastModified(row);
+                    for (int i = 0; i < generators.size(); i++)
+                    {
+                        outputs.get(i).print(generators.get(i).getURLText(url, lastMod));
+                    }
+                }
+            }
+            finally
+            {
+                rows.close();
+            }
+
+            for (int i = 0; i < generators.size(); i++)
+            {
+                outputs.get(i).print(generators.get(i).getTrailingBoilerPlate());
+            }
+            complete = true;
+        }
+        finally
+        {
+            close(outputs);
+            if (!complete)
+            {
+                for (AbstractGenerator generator : generators)
+                {
+                    getTemporaryFile(generator.getFilename(name)).delete();
+                }
+            }
+        }
+
+        for (AbstractGenerator generator : generators)
+        {
+            commit(generator.getFilename(name));
+        }
+    }
+
+    // Write the index of the segments, with the dates their files were written
+    private void writeIndex(AbstractGenerator generator, List<String> names) throws IOException
+    {
+        List<Date> lastMods = new ArrayList<Date>();
+        for (String name : names)
+        {
+            lastMods.add(new Date(new File(outputDir, generator.getFilename(name)).lastModified()));
+        }
+
+        PrintStream output = open(generator, generator.getIndexFilename());
+        boolean complete = false;
+        try
+        {
+            generator.writeIndex(output, names, lastMods);
+            complete = true;
+        }
+        finally
+        {
+            close(Collections.singletonList(output));
+            if (!complete)
+            {
+                getTemporaryFile(generator.getIndexFilename()).delete();
+            }
+        }
+        commit(generator.getIndexFilename());
+    }
+
+    // Open the temporary file of a sitemap
+    private PrintStream open(AbstractGenerator generator, String filename) throws IOException
+    {
+        OutputStream fo = new FileOutputStream(getTemporaryFile(filename));
+
+        if (generator.useCompression())
+        {
+            fo = new GZIPOutputStream(fo);
+        }
+
+        return new PrintStream(fo, false, "UTF-8");
+    }
+
+    // Close the outputs of sitemaps, which do not report their errors
+    // until then
+    private void close(List<PrintStream> outputs) throws IOException
+    {
+        boolean error = false;
+        for (PrintStream output : outputs)
+        {
+            output.close();
+            error |= output.checkError();
+        }
+        if (error)
+        {
+            throw new IOException("Unable to write sitemap in " + outputDir);
+        }
+    }
+
+    // Replace a sitemap with its temporary file
+    private void commit(String filename) throws IOException
+    {
+        Files.move(getTemporaryFile(filename).toPath(), new File(outputDir, filename).toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private File getTemporaryFile(String filename)
+    {
+        return new File(outputDir, filename + ".tmp");
+    }
+
+    private Properties loadState() throws IOException
+    {
+        Properties state = new Properties();
+        File file = new File(outputDir, STATE_FILENAME);
+        if (file.exists())
+        {
+            InputStream in = new FileInputStream(file);
+            try
+            {
+                state.load(in);
+            }
+            finally
+            {
+                in.close();
+            }
+        }
+        return state;
+    }
+
+    private void saveState(Properties state) throws IOException
+    {
+        OutputStream out = new FileOutputStream(getTemporaryFile(STATE_FILENAME));
+        try
+        {
+            state.store(out, "Signatures of the sitemap segments");
+        }
+        finally
+        {
+            out.close();
+        }
+        commit(STATE_FILENAME);
+    }
+}
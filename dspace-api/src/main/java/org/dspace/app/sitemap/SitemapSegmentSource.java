@@ -0,0 +1,199 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.app.sitemap;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.dspace.core.Context;
+import org.dspace.storage.rdbms.DatabaseManager;
+import org.dspace.storage.rdbms.TableRow;
+import org.dspace.storage.rdbms.TableRowIterator;
+
+/**
+ * The objects of a type listed in the sitemaps (items, communities, a type of
+ * CRIS objects...), read with a query which selects only the columns the
+ * sitemaps need:
+ * <ul>
+ * <li><code>id</code>, the integer ID of the object,</li>
+ * <li><code>path</code>, the end of the URL of the object, after the stem
+ * of the source (e.g. the handle),</li>
+ * <li><code>last_modified</code>, the timestamp of the last modification of
+ * the object, or null if unknown (e.g.
+ * <code>CAST(NULL AS TIMESTAMP) AS last_modified</code>).</li>
+ * </ul>
+ * The objects are read with a streaming query, without instantiating them.
+ * For {@link IncrementalSitemaps}, they are split into segments of
+ * consecutive IDs.
+ */
+public class SitemapSegmentSource
+{
+    /** type of the objects, e.g. item */
+    private final String type;
+
+    /** start of the URLs of the objects */
+    private final String urlStem;
+
+    /** query of the objects */
+    private final String query;
+
+    /** parameters of the query */
+    private final Object[] parameters;
+
+    /**
+     * @param type
+     *            the type of the objects, as in the includes of
+     *            {@link ISitemapGeneratorPlugin#getListTypes}
+     * @param urlStem
+     *            the start of the URLs of the objects, followed by their path
+     * @param query
+     *            the query of the objects, see above
+     * @param parameters
+     *            the parameters of the query
+     */
+    public SitemapSegmentSource(String type, String urlStem, String query, Object... parameters)
+    {
+        this.type = type;
+        this.urlStem = urlStem;
+        this.query = query;
+        this.parameters = parameters;
+    }
+
+    /**
+     * @return the type of the objects
+     */
+    public String getType()
+    {
+        return type;
+    }
+
+    /**
+     * Send the URLs of all the objects to the generators.
+     *
+     * @param c
+     *            dspace context
+     * @param html
+     *            generator of the html sitemap, or null
+     * @param sitemapsOrg
+     *            generator of the xml sitemaporg, or null
+     * @return the number of URLs sent
+     * @throws SQLException
+     * @throws IOException
+     */
+    public int addUrls(Context c, AbstractGenerator html, AbstractGenerator sitemapsOrg)
+            throws SQLException, IOException
+    {
+        int count = 0;
+        TableRowIterator rows = DatabaseManager.queryStreaming(c, query, parameters);
+        try
+        {
+            while (rows.hasNext())
+            {
+                TableRow row = rows.next();
+                String url = getURL(row);
+                Date lastMod = getLastModified(row);
+                if (html != null)
+                {
+                    html.addURL(url, lastMod);
+                }
+                if (sitemapsOrg != null)
+                {
+                    sitemapsOrg.addURL(url, lastMod);
+                }
+                count++;
+            }
+        }
+        finally
+        {
+            rows.close();
+        }
+        return count;
+    }
+
+    /**
+     * Return a signature of the content of each segment, which changes when
+     * an object of the segment is added, removed or modified: the number of
+     * objects, the sum of their IDs and the last modification.
+     *
+     * @param c
+     *            dspace context
+     * @param segmentSize
+     *            the number of consecutive IDs in a segment
+     * @return the signatures, by segment number, for the segments which
+     *         contain objects
+     */
+    Map<Integer, String> getSignatures(Context c, int segmentSize) throws SQLException
+    {
+        // the segment size is an integer, not a user input
+        String segment = "CAST(FLOOR(id / " + segmentSize + ") AS INTEGER)";
+        TableRowIterator rows = DatabaseManager.query(c,
+                "SELECT " + segment + " AS seg, COUNT(*) AS urls, SUM(id) AS ids, "
+                + "MAX(last_modified) AS last_modified FROM (" + query + ") s "
+                + "GROUP BY " + segment, parameters);
+        Map<Integer, String> signatures = new TreeMap<Integer, String>();
+        try
+        {
+            while (rows.hasNext())
+            {
+                TableRow row = rows.next();
+                Date lastMod = row.getDateColumn("last_modified");
+                signatures.put((int) row.getLongColumn("seg"), row.getLongColumn("urls") + "/"
+                        + row.getLongColumn("ids") + "/" + (lastMod != null ? lastMod.getTime() : ""));
+            }
+        }
+        finally
+        {
+            rows.close();
+        }
+        return signatures;
+    }
+
+    /**
+     * Return the objects of a segment, ordered by ID.
+     *
+     * @param c
+     *            dspace context
+     * @param segment
+     *            the segment number
+     * @param segmentSize
+     *            the number of consecutive IDs in a segment
+     * @return the rows of the objects, to be closed
+     */
+    TableRowIterator findSegment(Context c, int segment, int segmentSize) throws SQLException
+    {
+        Object[] segmentParameters = Arrays.copyOf(parameters, parameters.length + 2);
+        segmentParameters[parameters.length] = segment * segmentSize;
+        segmentParameters[parameters.length + 1] = (segment + 1) * segmentSize;
+        return DatabaseManager.queryStreaming(c, "SELECT * FROM (" + query + ") s "
+                + "WHERE id >= ? AND id < ? ORDER BY id", segmentParameters);
+    }
+
+    /**
+     * @param row
+     *            a row of the query
+     * @return the URL of the object
+     */
+    String getURL(TableRow row)
+    {
+        return urlStem + row.getStringColumn("path");
+    }
+
+    /**
+     * @param row
+     *            a row of the query
+     * @return the last modification of the object, or null if unknown
+     */
+    Date getLastModified(TableRow row)
+    {
+        return row.getDateColumn("last_modified");
+    }
+}
@@ -13,6 +13,7 @@ import java.io.PrintStream;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.List;
 
 /**
  * Class for generating <a href="http://sitemaps.org/">Sitemaps</a> to improve
@@ -61,6 +62,11 @@ public class SitemapsOrgGenerator extends AbstractGenerator
         return "sitemap" + number + ".xml.gz";
     }
 
+    public String getFilename(String name)
+    {
+        return "sitemap" + name + ".xml.gz";
+    }
+
     public String getLeadingBoilerPlate()
     {
         return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
@@ -126,4 +132,22 @@ public class SitemapsOrgGenerator extends AbstractGenerator
 
         output.println("</sitemapindex>");
     }
+
+    public void writeIndex(PrintStream output, List<String> names,
+            List<Date> lastMods) throws IOException
+    {
+        output.println("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        output
+                .println("<sitemapindex xmlns=\"http://www.sitemaps.org/schemas/sitemap/0.9\">");
+
+        for (int i = 0; i < names.size(); i++)
+        {
+            output.print("<sitemap><loc>" + indexURLStem + names.get(i)
+                    + indexURLTail + "</loc>");
+            output.print("<lastmod>" + w3dtfFormat.format(lastMods.get(i))
+                    + "</lastmod></sitemap>\n");
+        }
+
+        output.println("</sitemapindex>");
+    }
 }
@@ -9,6 +9,8 @@ package org.dspace.app.util;
 
 import java.io.File;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.xml.sax.SAXException;
 import org.w3c.dom.*;
@@ -36,6 +38,9 @@ import org.dspace.core.ConfigurationManager;
  * supply the value stored in the database if its sibling display value gets
  * selected from a choice list.
  *
+ * Parsed files are shared: use {@link #getInstance()} rather than the
+ * constructors, the file is only parsed again when it changes.
+ *
  * @author  Brian S. Hughes
  * @version $Revision$
  */
@@ -78,13 +83,63 @@ public class DCInputsReader
     private Map<String, List<String>> valuePairs = null;    // Holds display/storage pairs
     
     /**
-     * Mini-cache of last DCInputSet requested. If submissions are not typically
-     * form-interleaved, there will be a modest win.
+     * The DCInputSet of each form, built once the file is parsed.
      */
-    private DCInputSet lastInputSet = null;
+    private Map<String, DCInputSet> inputSets = null;
     
     private Map<String, List<String>> mappedValuePairs = new HashMap<String, List<String>>();
 
+    /** When the parsed file was last modified */
+    private long lastModified = 0;
+
+    /** The shared readers, by absolute path of their file */
+    private static final ConcurrentMap<String, DCInputsReader> readers =
+            new ConcurrentHashMap<String, DCInputsReader>();
+
+    /**
+     * Get the shared reader of the installation form definitions file,
+     * parsing it the first time and again after it changed.
+     *
+     * @return the shared reader, not to be modified
+     * @throws DCInputsReaderException if the file cannot be parsed
+     */
+    public static DCInputsReader getInstance()
+         throws DCInputsReaderException
+    {
+        return getInstance(ConfigurationManager.getProperty("dspace.dir")
+                + File.separator + "config" + File.separator + FORM_DEF_FILE);
+    }
+
+    /**
+     * Get the shared reader of a form definitions file (e.g. the one of a
+     * locale), parsing it the first time and again after it changed.
+     *
+     * @param fileName the form definitions file
+     * @return the shared reader, not to be modified
+     * @throws DCInputsReaderException if the file cannot be parsed
+     */
+    public static DCInputsReader getInstance(String fileName)
+         throws DCInputsReaderException
+    {
+        File file = new File(fileName);
+        String path = file.getAbsolutePath();
+        DCInputsReader reader = readers.get(path);
+        if (reader == null || reader.lastModified != file.lastModified())
+        {
+            synchronized (readers)
+            {
+                reader = readers.get(path);
+                if (reader == null || reader.lastModified != file.lastModified())
+                {
+                    // build the new reader fully before replacing the old one
+                    reader = new DCInputsReader(fileName);
+                    readers.put(path, reader);
+                }
+            }
+        }
+        return reader;
+    }
+
     /**
      * Parse an XML encoded submission forms template file, and create a hashmap
      * containing all the form information. This hashmap will contain three top
@@ -110,6 +165,7 @@ public class DCInputsReader
     private void buildInputs(String fileName)
          throws DCInputsReaderException
     {
+        lastModified = new File(fileName).lastModified();
         whichForms = new HashMap<String, String>();
         formDefns  = new HashMap<String, List<List<Map<String, String>>>>();
         valuePairs = new HashMap<String, List<String>>();
@@ -137,6 +193,14 @@ public class DCInputsReader
         {
                 throw new DCInputsReaderException("Error creating submission forms: "+e);
         }
+
+        // build the input sets once, they are read only
+        inputSets = new HashMap<String, DCInputSet>();
+        for (Map.Entry<String, List<List<Map<String, String>>>> form : formDefns.entrySet())
+        {
+                inputSets.put(form.getKey(), new DCInputSet(form.getKey(),
+                        formHeadings.get(form.getKey()), form.getValue(), valuePairs));
+        }
     }
    
     public Iterator<String> getPairsNameIterator()
@@ -171,20 +235,12 @@ public class DCInputsReader
         {
                 throw new DCInputsReaderException("No form designated as default");
         }
-        // check mini-cache, and return if match
-        if ( lastInputSet != null && lastInputSet.getFormName().equals( formName ) )
-        {
-                return lastInputSet;
-        }
-        // cache miss - construct new DCInputSet
-        List<List<Map<String, String>>> pages = formDefns.get(formName);
-        List<String> headings = formHeadings.get(formName);
-        if ( pages == null )
+        DCInputSet inputSet = inputSets.get(formName);
+        if ( inputSet == null )
         {
                 throw new DCInputsReaderException("Missing the " + formName  + " form");
         }
-        lastInputSet = new DCInputSet(formName, headings, pages, valuePairs);
-        return lastInputSet;
+        return inputSet;
     }
     
     /**
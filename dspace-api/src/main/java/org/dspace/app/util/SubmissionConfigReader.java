@@ -9,6 +9,8 @@ package org.dspace.app.util;
 
 import java.io.File;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import javax.servlet.ServletException;
 import org.xml.sax.SAXException;
 import org.w3c.dom.*;
@@ -80,10 +82,17 @@ public class SubmissionConfigReader
     private Map<String, List<Map<String, String>>> submitDefns = null;
 
     /**
-     * Mini-cache of last SubmissionConfig object requested (so that we don't
-     * always reload from scratch)
+     * Cache of the SubmissionConfig objects built, by submission process
+     * name and workflow flag
      */
-    private SubmissionConfig lastSubmissionConfig = null;
+    private final ConcurrentMap<String, SubmissionConfig> submissionConfigs =
+            new ConcurrentHashMap<String, SubmissionConfig>();
+
+    /** When the parsed file was last modified */
+    private long lastModified = 0;
+
+    /** The shared reader */
+    private static volatile SubmissionConfigReader instance = null;
 
     /**
      * Load Submission Configuration from the
@@ -94,6 +103,37 @@ public class SubmissionConfigReader
         buildInputs(configDir + SUBMIT_DEF_FILE_PREFIX + SUBMIT_DEF_FILE_SUFFIX);
     }
 
+    /**
+     * Get the shared reader of the item-submission.xml configuration file,
+     * parsing it the first time and again after it changed.
+     *
+     * @return the shared reader
+     * @throws ServletException if the file cannot be parsed
+     */
+    public static SubmissionConfigReader getInstance() throws ServletException
+    {
+        SubmissionConfigReader reader = instance;
+        if (reader == null || reader.lastModified != reader.getConfigFile().lastModified())
+        {
+            synchronized (SubmissionConfigReader.class)
+            {
+                reader = instance;
+                if (reader == null || reader.lastModified != reader.getConfigFile().lastModified())
+                {
+                    // build the new reader fully before replacing the old one
+                    reader = new SubmissionConfigReader();
+                    instance = reader;
+                }
+            }
+        }
+        return reader;
+    }
+
+    private File getConfigFile()
+    {
+        return new File(configDir + SUBMIT_DEF_FILE_PREFIX + SUBMIT_DEF_FILE_SUFFIX);
+    }
+
     /**
      * Parse an XML encoded item submission configuration file.
      * <P>
@@ -107,6 +147,7 @@ public class SubmissionConfigReader
      */
     private void buildInputs(String fileName) throws ServletException
     {
+        lastModified = new File(fileName).lastModified();
         collectionToSubmissionConfig = new HashMap<String, String>();
         submitDefns = new HashMap<String, List<Map<String, String>>>();
 
@@ -170,15 +211,15 @@ public class SubmissionConfigReader
         log.debug("Loading submission process config named '" + submitName
                 + "'");
 
-        // check mini-cache, and return if match
-        if (lastSubmissionConfig != null
-                && lastSubmissionConfig.getSubmissionName().equals(submitName)
-                && lastSubmissionConfig.isWorkflow() == isWorkflow)
+        // check cache, and return if match
+        String key = submitName + (isWorkflow ? ":workflow" : "");
+        SubmissionConfig submissionConfig = submissionConfigs.get(key);
+        if (submissionConfig != null)
         {
             log.debug("Found submission process config '" + submitName
                     + "' in cache.");
 
-            return lastSubmissionConfig;
+            return submissionConfig;
         }
 
         // cache miss - construct new SubmissionConfig
@@ -194,13 +235,14 @@ public class SubmissionConfigReader
         log.debug("Submission process config '" + submitName
                 + "' not in cache. Reloading from scratch.");
 
-        lastSubmissionConfig = new SubmissionConfig(submitName, steps,
+        submissionConfig = new SubmissionConfig(submitName, steps,
                 isWorkflow);
+        submissionConfigs.put(key, submissionConfig);
 
         log.debug("Submission process config has "
-                + lastSubmissionConfig.getNumberOfSteps() + " steps listed.");
+                + submissionConfig.getNumberOfSteps() + " steps listed.");
 
-        return lastSubmissionConfig;
+        return submissionConfig;
     }
 
     /**
@@ -122,10 +122,11 @@ public class SubmissionInfo extends HashMap
     	SubmissionInfo subInfo = new SubmissionInfo();
     	
         // load SubmissionConfigReader only the first time
-        // or if we're using a different UI now.
-        if (submissionConfigReader == null)
+        // or if the configuration file changed since.
+        SubmissionConfigReader reader = SubmissionConfigReader.getInstance();
+        if (submissionConfigReader != reader)
         {
-            submissionConfigReader = new SubmissionConfigReader();
+            submissionConfigReader = reader;
             forceReload=true;
         }
 
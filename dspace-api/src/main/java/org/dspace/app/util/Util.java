@@ -406,7 +406,7 @@ public class Util {
         }
 
         // Read the input form file for the specific collection
-        DCInputsReader inputsReader = new DCInputsReader(formFileName);
+        DCInputsReader inputsReader = DCInputsReader.getInstance(formFileName);
 
         DCInputSet inputSet = inputsReader.getInputs(col_handle);
 
@@ -0,0 +1,203 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.authority.orcid;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.core.Response;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+import org.dspace.core.ConfigurationManager;
+
+/**
+ * Throttle of the requests sent to the ORCID API by one client application,
+ * shared by all the threads pushing to ORCID.
+ * <p>
+ * The requests are limited by a token bucket: up to <code>burst</code>
+ * requests are sent at once, then <code>rate</code> requests per second.
+ * A request answered with 429 (too many requests) or a server error is sent
+ * again after a backoff, doubled at each attempt, or after the delay asked
+ * by the Retry-After header if longer.  A request that is not idempotent
+ * (POST) may have been stored by ORCID even though it failed, so it is only
+ * sent again when it was not processed: on 429, or on 503 with Retry-After.
+ * <p>
+ * Configuration (authentication-oauth.cfg):
+ * <pre>
+ * orcid-api.rate = 20
+ * orcid-api.burst = 40
+ * orcid-api.max-retries = 3
+ * orcid-api.retry-backoff = 1000
+ * </pre>
+ */
+public class OrcidRequestThrottle
+{
+    private static final Logger log = Logger.getLogger(OrcidRequestThrottle.class);
+
+    private static final int TOO_MANY_REQUESTS = 429;
+
+    private static final int SERVICE_UNAVAILABLE = 503;
+
+    /** permits added by nanosecond */
+    private final double rate;
+
+    private final double burst;
+
+    private final int maxRetries;
+
+    private final long retryBackoff;
+
+    /** permits available, negative when requests are waiting */
+    private double permits;
+
+    private long refilled;
+
+    /**
+     * @param rate
+     *            the requests per second
+     * @param burst
+     *            the requests that can be sent at once
+     * @param maxRetries
+     *            the times a throttled or failed request is sent again
+     * @param retryBackoff
+     *            the wait before the first retry, in milliseconds
+     */
+    public OrcidRequestThrottle(double rate, int burst, int maxRetries,
+            long retryBackoff)
+    {
+        if (rate <= 0 || burst < 1)
+        {
+            throw new IllegalArgumentException("rate and burst must be positive");
+        }
+        this.rate = rate / TimeUnit.SECONDS.toNanos(1);
+        this.burst = burst;
+        this.maxRetries = maxRetries;
+        this.retryBackoff = retryBackoff;
+        this.permits = burst;
+        this.refilled = System.nanoTime();
+    }
+
+    /**
+     * @return the throttle configured in authentication-oauth.cfg
+     */
+    public static OrcidRequestThrottle fromConfiguration()
+    {
+        String rate = ConfigurationManager.getProperty("authentication-oauth",
+                "orcid-api.rate");
+        return new OrcidRequestThrottle(
+                StringUtils.isNotBlank(rate) ? Double.parseDouble(rate.trim()) : 20,
+                ConfigurationManager.getIntProperty("authentication-oauth",
+                        "orcid-api.burst", 40),
+                ConfigurationManager.getIntProperty("authentication-oauth",
+                        "orcid-api.max-retries", 3),
+                ConfigurationManager.getIntProperty("authentication-oauth",
+                        "orcid-api.retry-backoff", 1000));
+    }
+
+    /**
+     * Wait until a request can be sent.
+     */
+    public void acquire() throws InterruptedException
+    {
+        long wait = reserve(System.nanoTime());
+        if (wait > 0)
+        {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+
+    /**
+     * Take a permit, in advance if none is available.
+     *
+     * @param now
+     *            the current time, in nanoseconds
+     * @return the nanoseconds to wait before using the permit
+     */
+    synchronized long reserve(long now)
+    {
+        if (now > refilled)
+        {
+            permits = Math.min(burst, permits + (now - refilled) * rate);
+            refilled = now;
+        }
+        permits -= 1;
+        return permits >= 0 ? 0 : (long) Math.ceil(-permits / rate);
+    }
+
+    /**
+     * Send an idempotent request (GET, PUT, DELETE) within the rate, sending
+     * it again while it is throttled or fails with a server error, up to the
+     * configured retries.
+     *
+     * @param request
+     *            sends the request; called again for each attempt
+     * @return the response of the last attempt
+     */
+    public Response execute(Callable<Response> request) throws Exception
+    {
+        return execute(request, true);
+    }
+
+    /**
+     * Send a request within the rate, sending it again while it is throttled
+     * or, if idempotent, fails with a server error, up to the configured
+     * retries.
+     *
+     * @param request
+     *            sends the request; called again for each attempt
+     * @param idempotent
+     *            false if sending the request twice may store it twice
+     *            (POST): it is then only sent again on 429, or on 503 with
+     *            Retry-After
+     * @return the response of the last attempt
+     */
+    public Response execute(Callable<Response> request, boolean idempotent)
+            throws Exception
+    {
+        for (int attempt = 0;; attempt++)
+        {
+            acquire();
+            Response response = request.call();
+            int status = response.getStatus();
+            String retryAfter = response.getHeaderString("Retry-After");
+            if (attempt >= maxRetries || !isRetriable(status, retryAfter, idempotent))
+            {
+                return response;
+            }
+
+            long wait = retryBackoff << attempt;
+            if (StringUtils.isNumeric(retryAfter) && StringUtils.isNotEmpty(retryAfter))
+            {
+                wait = Math.max(wait, Long.parseLong(retryAfter) * 1000);
+            }
+            response.close();
+            log.warn("ORCID answered " + status + ", attempt " + (attempt + 1)
+                    + " of " + (maxRetries + 1) + ", retry in " + wait + "ms");
+            Thread.sleep(wait);
+        }
+    }
+
+    /**
+     * @return true if a request answered with the status can be sent again
+     */
+    static boolean isRetriable(int status, String retryAfter, boolean idempotent)
+    {
+        if (status == TOO_MANY_REQUESTS)
+        {
+            return true;
+        }
+        if (idempotent)
+        {
+            return status >= 500;
+        }
+        // the server may have stored the request before failing, unless it
+        // says it was unavailable
+        return status == SERVICE_UNAVAILABLE && StringUtils.isNotBlank(retryAfter);
+    }
+}
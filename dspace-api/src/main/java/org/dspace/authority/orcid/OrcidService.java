@@ -13,6 +13,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 import javax.ws.rs.client.Client;
 import javax.ws.rs.client.ClientBuilder;
@@ -36,6 +37,7 @@ import org.apache.commons.cli.PosixParser;
 import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
 import org.dspace.authority.AuthorityValue;
+import org.dspace.authority.rest.RemoteAuthorityClient;
 import org.dspace.authority.rest.RestSource;
 import org.dspace.content.DCPersonName;
 import org.dspace.core.ConfigurationManager;
@@ -233,6 +235,8 @@ public class OrcidService extends RestSource
 
     private String baseURL;
 
+    private OrcidRequestThrottle throttle;
+
     public static OrcidService getOrcid()
     {
         if (orcid == null)
@@ -521,7 +525,7 @@ public class OrcidService extends RestSource
      * @return
      * @throws IOException
      */
-    public List<Result> search(String query, int page, int pagesize)
+    public List<Result> search(final String query, final int page, final int pagesize)
             throws IOException
     {
         if (query == null || query.isEmpty())
@@ -529,23 +533,39 @@ public class OrcidService extends RestSource
             throw new IllegalArgumentException();
         }
 
-        WebTarget target = restConnector.getClientRest(SEARCH_ENDPOINT);
-        target = target.queryParam("q", query);
-        if (pagesize >= 0)
-        {
-            target = target.queryParam("rows", Integer.toString(pagesize));
-        }
-        if (page >= 0)
-        {
-            target = target.queryParam("start", Integer.toString(page));
+        // the same searches are made while typing in a lookup field
+        List<?> results = (List<?>) RemoteAuthorityClient.getClient("orcid").get(
+                "search?q=" + query + "&rows=" + pagesize + "&start=" + page,
+                new Callable<List<Result>>()
+                {
+                    @Override
+                    public List<Result> call() throws Exception
+                    {
+                        WebTarget target = restConnector.getClientRest(SEARCH_ENDPOINT);
+                        target = target.queryParam("q", query);
+                        if (pagesize >= 0)
+                        {
+                            target = target.queryParam("rows", Integer.toString(pagesize));
+                        }
+                        if (page >= 0)
+                        {
+                            target = target.queryParam("start", Integer.toString(page));
+                        }
+
+                        Builder builder = target.request().accept(APPLICATION_ORCID_XML);
+                        builder = builder.header(HttpHeaders.AUTHORIZATION,
+                                "Bearer " + getMemberSearchToken().getAccess_token());
+                        Search search = builder.get().readEntity(Search.class);
+                        return search.getResult();
+                    }
+                });
+
+        // copied, the callers consume the list
+        List<Result> reader = new ArrayList<Result>();
+        for (Object result : results)
+        {
+            reader.add((Result) result);
         }
-
-        Builder builder = target.request().accept(APPLICATION_ORCID_XML);
-        builder = builder.header(HttpHeaders.AUTHORIZATION,
-                "Bearer " + getMemberSearchToken().getAccess_token());
-        Search search = builder.get().readEntity(Search.class);
-        List<Result> reader = search.getResult();
-        reader = search.getResult();
         return reader;
     }
 
@@ -559,8 +579,17 @@ public class OrcidService extends RestSource
      */
     public OrcidAccessToken getMemberSearchToken() throws IOException
     {
-        String code = READ_PUBLIC_SCOPE;
-        return getAccessToken(code, "scope", "client_credentials");
+        // one token is shared by all the lookups
+        return (OrcidAccessToken) RemoteAuthorityClient.getClient("orcid").get(
+                "token" + READ_PUBLIC_SCOPE, new Callable<OrcidAccessToken>()
+                {
+                    @Override
+                    public OrcidAccessToken call() throws Exception
+                    {
+                        String code = READ_PUBLIC_SCOPE;
+                        return getAccessToken(code, "scope", "client_credentials");
+                    }
+                });
     }
 
     /**
@@ -674,9 +703,12 @@ public class OrcidService extends RestSource
         		{
         			threadResultsMap.put(num, new ArrayList<AuthorityValue>());
         			for (Result result : results) {
-        				threadResultsMap.get(num).add(OrcidAuthorityValue.create(
-        						get(result.getOrcidIdentifier().getUriPath(), null, null)
-        						.readEntity(Record.class)));
+        				try {
+        					threadResultsMap.get(num).add(OrcidAuthorityValue.create(
+        							getCachedRecord(result.getOrcidIdentifier().getUriPath())));
+        				} catch (IOException e) {
+        					log.warn(e.getMessage(), e);
+        				}
         				Thread.yield();
         			}
         		}
@@ -712,6 +744,27 @@ public class OrcidService extends RestSource
         return authorities;
     }
 
+    /**
+     * Get the public record of a search result, kept for a while as the same
+     * researchers are found again and again while typing in a lookup field.
+     * 
+     * @param uriPath
+     * @return
+     * @throws IOException
+     */
+    private Record getCachedRecord(final String uriPath) throws IOException
+    {
+        return (Record) RemoteAuthorityClient.getClient("orcid").get(
+                "record" + uriPath, new Callable<Record>()
+                {
+                    @Override
+                    public Record call() throws Exception
+                    {
+                        return get(uriPath, null, null).readEntity(Record.class);
+                    }
+                });
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -2139,20 +2192,33 @@ public class OrcidService extends RestSource
 
         if (token != null)
         {
-            response = target.request()
+            final Builder builder = target.request()
                     .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
-                    .accept(APPLICATION_ORCID_XML).acceptEncoding("UTF-8")
-                    .get();
+                    .accept(APPLICATION_ORCID_XML).acceptEncoding("UTF-8");
+            response = execute(new Callable<Response>()
+            {
+                @Override
+                public Response call() throws Exception
+                {
+                    return builder.get();
+                }
+            });
         }
         else
         {
             try
             {
-                response = target.request().header(HttpHeaders.AUTHORIZATION,
-                        "Bearer " + getAccessToken(READ_PUBLIC_SCOPE, "scope",
-                                "client_credentials").getAccess_token())
-                        .accept(APPLICATION_ORCID_XML).acceptEncoding("UTF-8")
-                        .get();
+                final Builder builder = target.request().header(HttpHeaders.AUTHORIZATION,
+                        "Bearer " + getMemberSearchToken().getAccess_token())
+                        .accept(APPLICATION_ORCID_XML).acceptEncoding("UTF-8");
+                response = execute(new Callable<Response>()
+                {
+                    @Override
+                    public Response call() throws Exception
+                    {
+                        return builder.get();
+                    }
+                });
             }
             catch (IOException e)
             {
@@ -2179,10 +2245,17 @@ public class OrcidService extends RestSource
     {
         Response response = null;
         WebTarget target = restConnector.getClientRest(endpoint);
-        Builder builder = target.request().accept(APPLICATION_ORCID_XML)
+        final Builder builder = target.request().accept(APPLICATION_ORCID_XML)
                 .acceptEncoding("UTF-8")
                 .header(HttpHeaders.AUTHORIZATION, "Bearer " + token);
-        response = builder.post(entity);
+        response = execute(new Callable<Response>()
+        {
+            @Override
+            public Response call() throws Exception
+            {
+                return builder.post(entity);
+            }
+        }, false);
         log.debug("[POST] " + response.getStatus());
         log.debug("[POST] " + response.getStatusInfo().getReasonPhrase());
 
@@ -2204,10 +2277,17 @@ public class OrcidService extends RestSource
         Response response;
         WebTarget target = restConnector
                 .getClientRest(endpoint + "/" + putCode);
-        Builder builder = target.request().accept(APPLICATION_ORCID_XML)
+        final Builder builder = target.request().accept(APPLICATION_ORCID_XML)
                 .acceptEncoding("UTF-8")
                 .header(HttpHeaders.AUTHORIZATION, "Bearer " + token);
-        response = builder.put(entity);
+        response = execute(new Callable<Response>()
+        {
+            @Override
+            public Response call() throws Exception
+            {
+                return builder.put(entity);
+            }
+        });
         log.debug("[PUT] " + response.getStatus());
         log.debug("[PUT] " + response.getStatusInfo().getReasonPhrase());
 
@@ -2228,16 +2308,67 @@ public class OrcidService extends RestSource
         Response response;
         WebTarget target = restConnector.getClientRest(endpoint
                 + (StringUtils.isNotBlank(putCode) ? ("/" + putCode) : ""));
-        Builder builder = target.request().accept(APPLICATION_ORCID_XML)
+        final Builder builder = target.request().accept(APPLICATION_ORCID_XML)
                 .acceptEncoding("UTF-8")
                 .header(HttpHeaders.AUTHORIZATION, "Bearer " + token);
-        response = builder.delete();
+        response = execute(new Callable<Response>()
+        {
+            @Override
+            public Response call() throws Exception
+            {
+                return builder.delete();
+            }
+        });
         log.debug("[DELETE] " + response.getStatus());
         log.debug("[DELETE] " + response.getStatusInfo().getReasonPhrase());
 
         return response;
     }
 
+    /**
+     * Send an idempotent request to the member API within the rate allowed
+     * to this client, retrying the requests throttled by ORCID.
+     */
+    private Response execute(Callable<Response> request)
+    {
+        return execute(request, true);
+    }
+
+    /**
+     * Send a request to the member API within the rate allowed to this
+     * client, retrying the requests throttled by ORCID; the requests that
+     * are not idempotent are not retried after a server error.
+     */
+    private Response execute(Callable<Response> request, boolean idempotent)
+    {
+        try
+        {
+            return getThrottle().execute(request, idempotent);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        catch (RuntimeException e)
+        {
+            throw e;
+        }
+        catch (Exception e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private synchronized OrcidRequestThrottle getThrottle()
+    {
+        if (throttle == null)
+        {
+            throttle = OrcidRequestThrottle.fromConfiguration();
+        }
+        return throttle;
+    }
+
     public String retrievePutCode(Response response) throws Exception
     {
         StatusType status = response.getStatusInfo();
@@ -35,6 +35,9 @@ public class RESTConnector {
     private String url;
 
     private ClientConfig clientConfig = null;
+
+    /** shared by the requests, JAX-RS clients are heavy to build */
+    private Client client = null;
     
     public RESTConnector(String url) {
         this.url = url;
@@ -52,11 +55,17 @@ public class RESTConnector {
     			targetUrl = targetUrl.substring(0, targetUrl.length() - split[split.length-1].length() -1);
     		}
     	}
-    	Client client = ClientBuilder.newClient(getClientConfig());
-    	WebTarget target = client.target(targetUrl).path(path);
+    	WebTarget target = getClient().target(targetUrl).path(path);
     	return target;
     }
     
+	private synchronized Client getClient() {
+		if (this.client == null) {
+			this.client = ClientBuilder.newClient(getClientConfig());
+		}
+		return client;
+	}
+
 	public ClientConfig getClientConfig() {
 		if(this.clientConfig == null) {
 	        ConfigurationService configurationService = new DSpace().getConfigurationService();
@@ -0,0 +1,291 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.authority.rest;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.http.HttpHost;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+import org.apache.log4j.Logger;
+import org.dspace.core.ConfigurationManager;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Client of a remote authority source (e.g. VIAF, SHERPA/RoMEO, ORCID),
+ * shared by the lookups of the whole application.
+ * <p>
+ * The HTTP requests of all the sources go through one pool of keep-alive
+ * connections.  Each source has its own timeout, its own limit of
+ * concurrent requests and its own cache of responses: identical requests
+ * made while one is in progress wait for its response instead of being
+ * sent again, responses are kept for a while and so are failures, for a
+ * shorter while, so that a slow or broken service is not queried again
+ * on each keystroke of an autocomplete field.
+ * <p>
+ * Configuration (dspace.cfg), each key but the connection pool sizes can
+ * be set for one source as <code>authority.remote.&lt;source&gt;.*</code>:
+ * <pre>
+ * authority.remote.max-connections = 40
+ * authority.remote.max-connections-per-host = 10
+ * authority.remote.timeout = 5000
+ * authority.remote.max-concurrent = 10
+ * authority.remote.cache.size = 1000
+ * authority.remote.cache.ttl = 3600
+ * authority.remote.cache.negative-ttl = 60
+ * </pre>
+ */
+public class RemoteAuthorityClient
+{
+    private static final Logger log = Logger.getLogger(RemoteAuthorityClient.class);
+
+    /** the clients, by source */
+    private static final ConcurrentMap<String, RemoteAuthorityClient> clients =
+            new ConcurrentHashMap<String, RemoteAuthorityClient>();
+
+    /** the HTTP client shared by all the sources */
+    private static CloseableHttpClient httpClient = null;
+
+    /** a cached response, or failure */
+    private static final class Entry
+    {
+        private final Object value;
+
+        private final IOException failure;
+
+        private final long expires;
+
+        Entry(Object value, IOException failure, long ttl)
+        {
+            this.value = value;
+            this.failure = failure;
+            this.expires = System.currentTimeMillis() + ttl;
+        }
+    }
+
+    private final String source;
+
+    private final int timeout;
+
+    private final long ttl;
+
+    private final long negativeTtl;
+
+    private final Semaphore permits;
+
+    private final RequestConfig requestConfig;
+
+    private final Cache<String, Entry> cache;
+
+    private RemoteAuthorityClient(String source)
+    {
+        this.source = source;
+        this.timeout = getIntProperty(source, "timeout", 5000);
+        this.ttl = getIntProperty(source, "cache.ttl", 3600) * 1000L;
+        this.negativeTtl = getIntProperty(source, "cache.negative-ttl", 60) * 1000L;
+        this.permits = new Semaphore(getIntProperty(source, "max-concurrent", 10), true);
+        this.requestConfig = RequestConfig.custom()
+                .setConnectTimeout(timeout)
+                .setConnectionRequestTimeout(timeout)
+                .setSocketTimeout(timeout)
+                .build();
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(getIntProperty(source, "cache.size", 1000))
+                .expireAfterWrite(Math.max(ttl, negativeTtl), TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    /**
+     * Get the client of a remote source.
+     *
+     * @param source
+     *            the name of the source, used in the configuration keys
+     * @return the client shared by all the lookups of the source
+     */
+    public static RemoteAuthorityClient getClient(String source)
+    {
+        RemoteAuthorityClient client = clients.get(source);
+        if (client == null)
+        {
+            client = new RemoteAuthorityClient(source);
+            RemoteAuthorityClient previous = clients.putIfAbsent(source, client);
+            if (previous != null)
+            {
+                client = previous;
+            }
+        }
+        return client;
+    }
+
+    /**
+     * GET a URL of the source.
+     *
+     * @param url
+     *            the URL, query string included
+     * @return the body of the response
+     * @throws IOException
+     *             if the request failed, timed out or did not return 200 OK,
+     *             now or recently
+     */
+    public String get(final String url) throws IOException
+    {
+        return (String) get(url, new Callable<Object>()
+        {
+            @Override
+            public Object call() throws Exception
+            {
+                HttpGet get = new HttpGet(url);
+                get.setConfig(requestConfig);
+                log.debug("Querying " + source + ", URL=" + url);
+                CloseableHttpResponse response = getHttpClient().execute(get);
+                try
+                {
+                    int status = response.getStatusLine().getStatusCode();
+                    if (status != 200)
+                    {
+                        EntityUtils.consume(response.getEntity());
+                        throw new IOException(source + " answered " + status + " to " + url);
+                    }
+                    return EntityUtils.toString(response.getEntity(), "UTF-8");
+                }
+                finally
+                {
+                    response.close();
+                }
+            }
+        });
+    }
+
+    /**
+     * Get a response of the source, with the caching and limits of this
+     * client, for the sources queried through another library.
+     *
+     * @param key
+     *            the key identifying the request in the cache
+     * @param loader
+     *            sends the request; any exception it throws is cached as a
+     *            failure and rethrown as an IOException
+     * @return the result of the loader, shared by the callers using the
+     *         same key: it must not be modified
+     * @throws IOException
+     *             if the loader failed, now or recently, or if too many
+     *             requests are in progress
+     */
+    public Object get(String key, final Callable<?> loader) throws IOException
+    {
+        Entry entry = cache.getIfPresent(key);
+        if (entry != null && entry.expires < System.currentTimeMillis())
+        {
+            cache.asMap().remove(key, entry);
+            entry = null;
+        }
+        if (entry == null)
+        {
+            try
+            {
+                // concurrent calls for the same key wait for this one
+                entry = cache.get(key, new Callable<Entry>()
+                {
+                    @Override
+                    public Entry call() throws Exception
+                    {
+                        return load(loader);
+                    }
+                });
+            }
+            catch (ExecutionException e)
+            {
+                // not cached, see load()
+                if (e.getCause() instanceof IOException)
+                {
+                    throw (IOException) e.getCause();
+                }
+                throw new IOException(e.getCause());
+            }
+        }
+
+        if (entry.failure != null)
+        {
+            throw new IOException(entry.failure.getMessage(), entry.failure);
+        }
+        return entry.value;
+    }
+
+    /**
+     * Drop the cached responses of the source.
+     */
+    public void clear()
+    {
+        cache.invalidateAll();
+    }
+
+    private Entry load(Callable<?> loader) throws IOException, InterruptedException
+    {
+        if (!permits.tryAcquire(timeout, TimeUnit.MILLISECONDS))
+        {
+            throw new IOException("Too many requests in progress to " + source);
+        }
+        try
+        {
+            return new Entry(loader.call(), null, ttl);
+        }
+        catch (Exception e)
+        {
+            log.warn("Request to " + source + " failed: " + e.getMessage());
+            IOException failure = e instanceof IOException ? (IOException) e : new IOException(e);
+            return new Entry(null, failure, negativeTtl);
+        }
+        finally
+        {
+            permits.release();
+        }
+    }
+
+    private static synchronized CloseableHttpClient getHttpClient()
+    {
+        if (httpClient == null)
+        {
+            PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+            connectionManager.setMaxTotal(ConfigurationManager.getIntProperty(
+                    "authority.remote.max-connections", 40));
+            connectionManager.setDefaultMaxPerRoute(ConfigurationManager.getIntProperty(
+                    "authority.remote.max-connections-per-host", 10));
+
+            HttpClientBuilder builder = HttpClientBuilder.create()
+                    .setConnectionManager(connectionManager);
+            String proxyHost = ConfigurationManager.getProperty("http.proxy.host");
+            if (StringUtils.isNotBlank(proxyHost))
+            {
+                builder.setProxy(new HttpHost(proxyHost,
+                        ConfigurationManager.getIntProperty("http.proxy.port", 80)));
+            }
+            httpClient = builder.build();
+        }
+        return httpClient;
+    }
+
+    private static int getIntProperty(String source, String name, int defaultValue)
+    {
+        return ConfigurationManager.getIntProperty("authority.remote." + source + "." + name,
+                ConfigurationManager.getIntProperty("authority.remote." + name, defaultValue));
+    }
+}
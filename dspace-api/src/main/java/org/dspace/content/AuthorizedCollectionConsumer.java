@@ -0,0 +1,58 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.content;
+
+import org.dspace.core.Context;
+import org.dspace.event.Consumer;
+import org.dspace.event.Event;
+
+/**
+ * Drops the in-memory index of the authorized collections once a change to
+ * the policies of collections or communities, to the hierarchy, or a group
+ * or e-person deletion has been committed.
+ *
+ * Recommended filter:  Community|Collection+Create|Delete|Add|Remove|Modify|Modify_Metadata:Group|EPerson+Delete
+ *
+ * @see AuthorizedCollectionIndex
+ */
+public class AuthorizedCollectionConsumer implements Consumer
+{
+    /** true if the current batch of events may change the index */
+    private boolean policiesChanged = false;
+
+    public void initialize()
+        throws Exception
+    {
+
+    }
+
+    public void consume(Context context, Event event)
+        throws Exception
+    {
+        if (AuthorizedCollectionIndex.isPolicyChange(event))
+        {
+            policiesChanged = true;
+        }
+    }
+
+    public void end(Context context)
+        throws Exception
+    {
+        if (policiesChanged)
+        {
+            AuthorizedCollectionIndex.invalidate();
+            policiesChanged = false;
+        }
+    }
+
+    public void finish(Context context)
+        throws Exception
+    {
+
+    }
+}
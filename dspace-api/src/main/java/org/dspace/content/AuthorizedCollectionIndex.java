@@ -0,0 +1,384 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.content;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.dspace.authorize.AuthorizeManager;
+import org.dspace.core.ConfigurationManager;
+import org.dspace.core.Constants;
+import org.dspace.core.Context;
+import org.dspace.eperson.EPerson;
+import org.dspace.eperson.Group;
+import org.dspace.event.Event;
+import org.dspace.storage.rdbms.DatabaseManager;
+
+/**
+ * In-memory index of the groups and e-people allowed to ADD to, WRITE or
+ * ADMIN each collection, resolved from the <code>resourcepolicy</code>
+ * table, used by {@link Collection#findAuthorized} instead of checking the
+ * policies of every collection.
+ * <p>
+ * ADMIN on a collection, or on one of the communities above it, allows all
+ * three actions, as in {@link AuthorizeManager}.  The collections are found
+ * below the communities with the {@link CommunityHierarchy} snapshot; the
+ * index is not used when the snapshot is not available.  The collections of
+ * the user are then those indexed under their groups (as given by
+ * {@link Group#allMemberGroupIDs}, so through the group2groupcache table)
+ * and under the user.  Collections in more than one community, for which the
+ * inherited ADMIN depends on the first community, are checked with
+ * {@link AuthorizeManager}.
+ * <p>
+ * The index is dropped when a policy of a collection or community is
+ * committed, or when the hierarchy or the groups change (see
+ * {@link AuthorizedCollectionConsumer}).  Contexts holding such changes,
+ * not committed yet, don't use the index.  Changes made by other JVMs are
+ * picked up when the index is reloaded, at most every
+ * <code>collection.authorized-index.refresh</code> seconds.
+ * <p>
+ * Configuration:
+ * <pre>
+ *   collection.authorized-index.enabled = true
+ *   collection.authorized-index.refresh = 300
+ * </pre>
+ */
+final class AuthorizedCollectionIndex
+{
+    /** log4j logger */
+    private static final Logger log = Logger.getLogger(AuthorizedCollectionIndex.class);
+
+    /** the current index, null if not loaded */
+    private static volatile AuthorizedCollectionIndex index = null;
+
+    /** incremented each time the index is dropped */
+    private static volatile long generation = 0;
+
+    /** when the index was loaded */
+    private final long loaded = System.currentTimeMillis();
+
+    /** the grants of each group */
+    private final Map<Integer, List<Grant>> groupGrants = new HashMap<Integer, List<Grant>>();
+
+    /** the grants of each e-person */
+    private final Map<Integer, List<Grant>> epersonGrants = new HashMap<Integer, List<Grant>>();
+
+    /** collections in more than one community, below a community ADMIN policy */
+    private final Set<Integer> ambiguous = new HashSet<Integer>();
+
+    /**
+     * An action allowed on some collections by one policy.
+     */
+    private static final class Grant
+    {
+        private final int action;
+
+        private final Timestamp start;
+
+        private final Timestamp end;
+
+        private final int[] collectionIDs;
+
+        private Grant(int action, Timestamp start, Timestamp end, int[] collectionIDs)
+        {
+            this.action = action;
+            this.start = start;
+            this.end = end;
+            this.collectionIDs = collectionIDs;
+        }
+
+        /**
+         * @return true if the grant allows the action now, as
+         *         {@link org.dspace.authorize.ResourcePolicy#isDateValid}
+         */
+        private boolean allows(int actionID, long now)
+        {
+            return (action == actionID || action == Constants.ADMIN)
+                    && (start == null || now >= start.getTime())
+                    && (end == null || now <= end.getTime());
+        }
+    }
+
+    private AuthorizedCollectionIndex()
+    {
+    }
+
+    /**
+     * @return true if the index is enabled in the configuration
+     */
+    static boolean isEnabled()
+    {
+        return ConfigurationManager.getBooleanProperty("collection.authorized-index.enabled", false);
+    }
+
+    /**
+     * Find the collections on which the current user can perform an action.
+     *
+     * @param c
+     *            context of the caller, with the current user
+     * @param actionID
+     *            ADD, WRITE or ADMIN
+     * @return the IDs of the collections, or null if the index cannot be
+     *         used for this context or action and the policies must be
+     *         checked one by one
+     * @throws SQLException
+     *             if the index cannot be loaded
+     */
+    static Set<Integer> getAuthorizedIDs(Context c, int actionID)
+            throws SQLException
+    {
+        if (!isEnabled() || c.ignoreAuthorization()
+                || (actionID != Constants.ADD && actionID != Constants.WRITE
+                    && actionID != Constants.ADMIN)
+                || hasPolicyChanges(c))
+        {
+            return null;
+        }
+
+        AuthorizedCollectionIndex current = getIndex(c);
+        if (current == null)
+        {
+            return null;
+        }
+
+        long now = System.currentTimeMillis();
+        Set<Integer> result = new HashSet<Integer>();
+        EPerson user = c.getCurrentUser();
+        if (user != null)
+        {
+            current.collect(current.epersonGrants.get(user.getID()), actionID, now, result);
+        }
+        for (Integer groupID : Group.allMemberGroupIDs(c, user))
+        {
+            current.collect(current.groupGrants.get(groupID), actionID, now, result);
+        }
+
+        for (Integer collectionID : current.ambiguous)
+        {
+            if (!result.contains(collectionID))
+            {
+                Collection collection = Collection.find(c, collectionID);
+                if (collection != null
+                        && AuthorizeManager.authorizeActionBoolean(c, collection, actionID))
+                {
+                    result.add(collectionID);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Drop the index, it is loaded again on the next use.
+     */
+    static synchronized void invalidate()
+    {
+        generation++;
+        index = null;
+    }
+
+    /**
+     * @return true if the event may change the index: a policy of a
+     *         community or collection (which fires a MODIFY event on it), a
+     *         change of the hierarchy, or a deleted group or e-person
+     */
+    static boolean isPolicyChange(Event event)
+    {
+        int subject = event.getSubjectType();
+        if (subject == Constants.GROUP || subject == Constants.EPERSON)
+        {
+            return event.getEventType() == Event.DELETE;
+        }
+        return (subject == Constants.COMMUNITY || subject == Constants.COLLECTION)
+                && (event.getEventType() == Event.MODIFY
+                    || CommunityHierarchy.isStructural(event));
+    }
+
+    private static boolean hasPolicyChanges(Context c)
+    {
+        if (c.hasEvents())
+        {
+            for (Event event : c.getEvents())
+            {
+                if (isPolicyChange(event))
+                {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void collect(List<Grant> grants, int actionID, long now, Set<Integer> result)
+    {
+        if (grants != null)
+        {
+            for (Grant grant : grants)
+            {
+                if (grant.allows(actionID, now))
+                {
+                    for (int collectionID : grant.collectionIDs)
+                    {
+                        result.add(Integer.valueOf(collectionID));
+                    }
+                }
+            }
+        }
+    }
+
+    private static AuthorizedCollectionIndex getIndex(Context c) throws SQLException
+    {
+        AuthorizedCollectionIndex current = index;
+        long refresh = ConfigurationManager.getLongProperty("collection.authorized-index.refresh", 300) * 1000;
+        if (current != null && System.currentTimeMillis() - current.loaded < refresh)
+        {
+            return current;
+        }
+
+        long loading;
+        synchronized (AuthorizedCollectionIndex.class)
+        {
+            loading = generation;
+        }
+        CommunityHierarchy hierarchy = CommunityHierarchy.getSnapshot(c);
+        if (hierarchy == null)
+        {
+            return null;
+        }
+        current = load(hierarchy);
+        synchronized (AuthorizedCollectionIndex.class)
+        {
+            // don't publish an index read while a change was being committed
+            if (loading == generation)
+            {
+                index = current;
+            }
+        }
+        return current;
+    }
+
+    // Read the policies of the collections and communities, on their own
+    // connection so that only committed rows are seen
+    private static AuthorizedCollectionIndex load(CommunityHierarchy hierarchy)
+            throws SQLException
+    {
+        AuthorizedCollectionIndex loading = new AuthorizedCollectionIndex();
+        int count = 0;
+
+        Connection connection = null;
+        PreparedStatement statement = null;
+        ResultSet rs = null;
+        try
+        {
+            connection = DatabaseManager.getConnection();
+            statement = connection.prepareStatement(
+                    "SELECT resource_type_id, resource_id, action_id, epersongroup_id, eperson_id, "
+                    + "start_date, end_date FROM resourcepolicy "
+                    + "WHERE (resource_type_id = ? AND action_id IN (?, ?, ?)) "
+                    + "OR (resource_type_id = ? AND action_id = ?)");
+            statement.setInt(1, Constants.COLLECTION);
+            statement.setInt(2, Constants.ADD);
+            statement.setInt(3, Constants.WRITE);
+            statement.setInt(4, Constants.ADMIN);
+            statement.setInt(5, Constants.COMMUNITY);
+            statement.setInt(6, Constants.ADMIN);
+            rs = statement.executeQuery();
+            while (rs.next())
+            {
+                int resourceID = rs.getInt(2);
+                int[] collectionIDs;
+                if (rs.getInt(1) == Constants.COLLECTION)
+                {
+                    collectionIDs = new int[] { resourceID };
+                }
+                else
+                {
+                    collectionIDs = loading.inheritAdmin(hierarchy, resourceID);
+                }
+
+                Grant grant = new Grant(rs.getInt(3), rs.getTimestamp(6),
+                        rs.getTimestamp(7), collectionIDs);
+                int groupID = rs.getInt(4);
+                if (!rs.wasNull())
+                {
+                    add(loading.groupGrants, groupID, grant);
+                }
+                int epersonID = rs.getInt(5);
+                if (!rs.wasNull())
+                {
+                    add(loading.epersonGrants, epersonID, grant);
+                }
+                count++;
+            }
+        }
+        finally
+        {
+            if (rs != null)
+            {
+                rs.close();
+            }
+            if (statement != null)
+            {
+                statement.close();
+            }
+            if (connection != null)
+            {
+                DatabaseManager.freeConnection(connection);
+            }
+        }
+
+        log.debug("Loaded authorized collection index: " + count + " policies for "
+                + loading.groupGrants.size() + " groups and "
+                + loading.epersonGrants.size() + " e-people");
+        return loading;
+    }
+
+    // The collections inheriting the ADMIN policy of a community: those of
+    // its subtree, except the ones in more than one community
+    private int[] inheritAdmin(CommunityHierarchy hierarchy, int communityID)
+    {
+        int[] below = hierarchy.getAllCollectionIDs(communityID);
+        int[] inherited = new int[below.length];
+        int count = 0;
+        for (int collectionID : below)
+        {
+            if (hierarchy.getOwningCommunityIDs(collectionID).length > 1)
+            {
+                ambiguous.add(Integer.valueOf(collectionID));
+            }
+            else
+            {
+                inherited[count++] = collectionID;
+            }
+        }
+        int[] result = new int[count];
+        System.arraycopy(inherited, 0, result, 0, count);
+        return result;
+    }
+
+    private static void add(Map<Integer, List<Grant>> grants, int id, Grant grant)
+    {
+        List<Grant> list = grants.get(id);
+        if (list == null)
+        {
+            list = new ArrayList<Grant>();
+            grants.put(id, list);
+        }
+        list.add(grant);
+    }
+}
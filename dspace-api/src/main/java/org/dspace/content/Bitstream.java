@@ -51,6 +51,9 @@ public class Bitstream extends DSpaceObject
     /** Flag set when data is modified, for events */
     private boolean modified;
 
+    /** The first bytes of the bits, if created in this context */
+    private byte[] header;
+
     /**
      * Private constructor for creating a Bitstream object based on the contents
      * of a DB table row.
@@ -200,8 +203,9 @@ public class Bitstream extends DSpaceObject
     static Bitstream create(Context context, InputStream is)
             throws IOException, SQLException
     {
-        // Store the bits
-        int bitstreamID = BitstreamStorageManager.store(context, is);
+        // Store the bits, keeping their first bytes to recognise the format
+        SniffingInputStream sniffer = new SniffingInputStream(is);
+        int bitstreamID = BitstreamStorageManager.store(context, sniffer);
 
         log.info(LogManager.getHeader(context, "create_bitstream",
                 "bitstream_id=" + bitstreamID));
@@ -209,6 +213,7 @@ public class Bitstream extends DSpaceObject
         // Set the format to "unknown"
         Bitstream bitstream = find(context, bitstreamID);
         bitstream.setFormat(null);
+        bitstream.header = sniffer.getHeader();
 
         context.addEvent(new Event(Event.CREATE, Constants.BITSTREAM, 
                 bitstreamID, null, bitstream.getIdentifiers(context)));
@@ -216,6 +221,15 @@ public class Bitstream extends DSpaceObject
         return bitstream;
     }
 
+    /**
+     * @return the first bytes of the bits, or null if the bitstream was not
+     *         created in this context
+     */
+    byte[] getHeader()
+    {
+        return header;
+    }
+
     /**
      * Register a new bitstream, with a new ID.  The checksum and file size
      * are calculated.  This method is not public, and does not check
@@ -197,6 +197,59 @@ public class Collection extends DSpaceObject implements IGlobalSearchResult
         return new Collection(context, row);
     }
 
+    /**
+     * Load collections by ID, in the given order, with one query for each
+     * chunk of collections not already in the context cache.
+     */
+    static Collection[] find(Context context, int[] collectionIDs) throws SQLException
+    {
+        Map<Integer, Collection> found = new HashMap<Integer, Collection>();
+        List<Integer> missing = new ArrayList<Integer>();
+        for (int id : collectionIDs)
+        {
+            Collection fromCache = (Collection) context.fromCache(Collection.class, id);
+            if (fromCache != null)
+            {
+                found.put(id, fromCache);
+            }
+            else
+            {
+                missing.add(id);
+            }
+        }
+
+        for (int start = 0; start < missing.size(); start += 500)
+        {
+            List<Integer> chunk = missing.subList(start, Math.min(missing.size(), start + 500));
+            TableRowIterator tri = DatabaseManager.queryTable(context, "collection",
+                    "SELECT * FROM collection WHERE collection_id IN ("
+                            + StringUtils.join(chunk, ",") + ")");
+            try
+            {
+                while (tri.hasNext())
+                {
+                    Collection collection = new Collection(context, tri.next());
+                    found.put(collection.getID(), collection);
+                }
+            }
+            finally
+            {
+                tri.close();
+            }
+        }
+
+        List<Collection> collectionList = new ArrayList<Collection>();
+        for (int id : collectionIDs)
+        {
+            // skip the collections deleted meanwhile
+            if (found.containsKey(id))
+            {
+                collectionList.add(found.get(id));
+            }
+        }
+        return collectionList.toArray(new Collection[collectionList.size()]);
+    }
+
     /**
      * Create a new collection, with a new ID. This method is not public, and
      * does not check authorisation.
@@ -480,7 +533,7 @@ public class Collection extends DSpaceObject implements IGlobalSearchResult
                 + "collection2item.collection_id= ? "
                 + "AND item.in_archive='1'";
 
-        TableRowIterator rows = DatabaseManager.queryTable(ourContext, "item",
+        TableRowIterator rows = DatabaseManager.queryTableStreaming(ourContext, "item",
                 myQuery,getID());
 
         return new ItemIterator(ourContext, rows);
@@ -526,7 +579,7 @@ public class Collection extends DSpaceObject implements IGlobalSearchResult
                 + "item.item_id=collection2item.item_id AND "
                 + "collection2item.collection_id= ? ";
 
-        TableRowIterator rows = DatabaseManager.queryTable(ourContext, "item",
+        TableRowIterator rows = DatabaseManager.queryTableStreaming(ourContext, "item",
                 myQuery,getID());
 
         return new ItemIterator(ourContext, rows);
@@ -1593,6 +1646,38 @@ public class Collection extends DSpaceObject implements IGlobalSearchResult
 
         Collection[] myCollections = null;
 
+        // administrators are authorized on every collection
+        if (AuthorizeManager.isAdmin(context))
+        {
+            return comm != null ? comm.getCollections() : findAll(context);
+        }
+
+        // use the index of the policies when enabled
+        Set<Integer> authorizedIDs = AuthorizedCollectionIndex.getAuthorizedIDs(context, actionID);
+        if (authorizedIDs != null && comm != null)
+        {
+            for (Collection collection : comm.getCollections())
+            {
+                if (authorizedIDs.contains(collection.getID()))
+                {
+                    myResults.add(collection);
+                }
+            }
+            return myResults.toArray(new Collection[myResults.size()]);
+        }
+        else if (authorizedIDs != null)
+        {
+            int[] ids = new int[authorizedIDs.size()];
+            int i = 0;
+            for (Integer id : authorizedIDs)
+            {
+                ids[i++] = id;
+            }
+            myResults.addAll(Arrays.asList(find(context, ids)));
+            Collections.sort(myResults, new CollectionComparator());
+            return myResults.toArray(new Collection[myResults.size()]);
+        }
+
         if (comm != null)
         {
             myCollections = comm.getCollections();
@@ -1878,7 +1963,13 @@ public class Collection extends DSpaceObject implements IGlobalSearchResult
     public static class CollectionComparator implements Comparator<Collection> {
         @Override
         public int compare(Collection collection1, Collection collection2) {
-            return collection1.getName().compareTo(collection2.getName());
+            // collections without a name last
+            String name1 = collection1.getName();
+            String name2 = collection2.getName();
+            if (name1 == null || name2 == null) {
+                return name1 == null ? (name2 == null ? 0 : 1) : -1;
+            }
+            return name1.compareTo(name2);
         }
     }
 
@@ -851,6 +851,21 @@ public class Community extends DSpaceObject implements IGlobalSearchResult
      */
     public Community[] getAllParents() throws SQLException
     {
+        CommunityHierarchy hierarchy = CommunityHierarchy.getSnapshot(ourContext);
+        if (hierarchy != null && hierarchy.contains(Constants.COMMUNITY, getID()))
+        {
+            List<Community> parents = new ArrayList<Community>();
+            for (int parentID : hierarchy.getParentCommunityIDs(getID()))
+            {
+                Community parent = Community.find(ourContext, parentID);
+                if (parent != null)
+                {
+                    parents.add(parent);
+                }
+            }
+            return parents.toArray(new Community[parents.size()]);
+        }
+
         List<Community> parentList = new ArrayList<Community>();
         Community parent = getParentCommunity();
 
@@ -875,6 +890,12 @@ public class Community extends DSpaceObject implements IGlobalSearchResult
 
     public Collection[] getAllCollections() throws SQLException
     {
+        CommunityHierarchy hierarchy = CommunityHierarchy.getSnapshot(ourContext);
+        if (hierarchy != null && hierarchy.contains(Constants.COMMUNITY, getID()))
+        {
+            return Collection.find(ourContext, hierarchy.getAllCollectionIDs(getID()));
+        }
+
         List<Collection> collectionList = new ArrayList<Collection>();
         for (Community subcommunity : getSubcommunities())
         {
@@ -0,0 +1,483 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.content;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang.ArrayUtils;
+import org.apache.log4j.Logger;
+import org.dspace.core.ConfigurationManager;
+import org.dspace.core.Constants;
+import org.dspace.core.Context;
+import org.dspace.event.Event;
+import org.dspace.storage.rdbms.DatabaseManager;
+import org.dspace.storage.rdbms.TableRow;
+import org.dspace.storage.rdbms.TableRowIterator;
+
+/**
+ * Immutable snapshot of the tree of communities and collections: the IDs of
+ * the parents and children of each community and collection, the ancestors
+ * of each community and the collections below it, and the names and handles,
+ * read with a few queries and shared by all the threads.
+ * <p>
+ * The snapshot is dropped by the {@link CommunityHierarchyConsumer} when a
+ * structural change is committed, and built again on the next request.  A
+ * context holding uncommitted structural changes gets no snapshot, so that
+ * the callers read the database as before.  Changes committed by other
+ * processes (e.g. command line tools) are seen when the snapshot is older
+ * than <code>hierarchy.snapshot.max-age</code> seconds.
+ * <p>
+ * The children are sorted by name, as by the database queries of
+ * {@link Community}.
+ */
+public final class CommunityHierarchy
+{
+    private static final Logger log = Logger.getLogger(CommunityHierarchy.class);
+
+    private static final int[] NONE = new int[0];
+
+    /** the current snapshot, null when it must be built again */
+    private static volatile CommunityHierarchy snapshot;
+
+    /** increased by each invalidation, to drop snapshots built meanwhile */
+    private static final AtomicLong generation = new AtomicLong();
+
+    private static final Object lock = new Object();
+
+    private final long built = System.currentTimeMillis();
+
+    private final int[] topCommunities;
+
+    /** community ID to the IDs of its ancestors, the nearest first */
+    private final Map<Integer, int[]> ancestors = new HashMap<Integer, int[]>();
+
+    /** community ID to the IDs of its sub-communities */
+    private final Map<Integer, int[]> subcommunities = new HashMap<Integer, int[]>();
+
+    /** community ID to the IDs of its collections */
+    private final Map<Integer, int[]> collections = new HashMap<Integer, int[]>();
+
+    /** community ID to the IDs of the collections of its whole subtree */
+    private final Map<Integer, int[]> allCollections = new HashMap<Integer, int[]>();
+
+    /** collection ID to the IDs of its communities */
+    private final Map<Integer, int[]> owners = new HashMap<Integer, int[]>();
+
+    /** names by type and ID */
+    private final Map<Long, String> names = new HashMap<Long, String>();
+
+    /** handles by type and ID */
+    private final Map<Long, String> handles = new HashMap<Long, String>();
+
+    private CommunityHierarchy(Context context) throws SQLException
+    {
+        List<Integer> communityIDs = queryIDs(context,
+                "SELECT community_id FROM community", "community_id");
+        List<Integer> collectionIDs = queryIDs(context,
+                "SELECT collection_id FROM collection", "collection_id");
+
+        int titleField = MetadataField.findByElement(context,
+                MetadataSchema.find(context, MetadataSchema.DC_SCHEMA).getSchemaID(),
+                "title", null).getFieldID();
+        TableRowIterator tri = DatabaseManager.query(context,
+                "SELECT resource_type_id, resource_id, text_value FROM metadatavalue "
+                        + "WHERE metadata_field_id = ? AND resource_type_id IN (?, ?) "
+                        + "ORDER BY resource_type_id, resource_id, place",
+                titleField, Constants.COMMUNITY, Constants.COLLECTION);
+        try
+        {
+            while (tri.hasNext())
+            {
+                TableRow row = tri.next();
+                Long key = key(row.getIntColumn("resource_type_id"),
+                        row.getIntColumn("resource_id"));
+                if (!names.containsKey(key))
+                {
+                    names.put(key, row.getStringColumn("text_value"));
+                }
+            }
+        }
+        finally
+        {
+            tri.close();
+        }
+
+        tri = DatabaseManager.query(context,
+                "SELECT resource_type_id, resource_id, handle FROM handle "
+                        + "WHERE resource_type_id IN (?, ?) AND resource_id IS NOT NULL",
+                Constants.COMMUNITY, Constants.COLLECTION);
+        try
+        {
+            while (tri.hasNext())
+            {
+                TableRow row = tri.next();
+                handles.put(key(row.getIntColumn("resource_type_id"),
+                        row.getIntColumn("resource_id")),
+                        row.getStringColumn("handle"));
+            }
+        }
+        finally
+        {
+            tri.close();
+        }
+
+        Map<Integer, List<Integer>> children = new HashMap<Integer, List<Integer>>();
+        Map<Integer, Integer> parents = new HashMap<Integer, Integer>();
+        tri = DatabaseManager.query(context,
+                "SELECT parent_comm_id, child_comm_id FROM community2community");
+        try
+        {
+            while (tri.hasNext())
+            {
+                TableRow row = tri.next();
+                int parent = row.getIntColumn("parent_comm_id");
+                int child = row.getIntColumn("child_comm_id");
+                add(children, parent, child);
+                parents.put(child, parent);
+            }
+        }
+        finally
+        {
+            tri.close();
+        }
+
+        Map<Integer, List<Integer>> communityCollections = new HashMap<Integer, List<Integer>>();
+        Map<Integer, List<Integer>> collectionOwners = new HashMap<Integer, List<Integer>>();
+        tri = DatabaseManager.query(context,
+                "SELECT community_id, collection_id FROM community2collection");
+        try
+        {
+            while (tri.hasNext())
+            {
+                TableRow row = tri.next();
+                int community = row.getIntColumn("community_id");
+                int collection = row.getIntColumn("collection_id");
+                add(communityCollections, community, collection);
+                add(collectionOwners, collection, community);
+            }
+        }
+        finally
+        {
+            tri.close();
+        }
+
+        List<Integer> top = new ArrayList<Integer>();
+        for (Integer id : communityIDs)
+        {
+            subcommunities.put(id, sortedByName(Constants.COMMUNITY, children.get(id)));
+            collections.put(id, sortedByName(Constants.COLLECTION, communityCollections.get(id)));
+
+            List<Integer> path = new ArrayList<Integer>();
+            Integer parent = parents.get(id);
+            while (parent != null && !path.contains(parent) && !parent.equals(id))
+            {
+                path.add(parent);
+                parent = parents.get(parent);
+            }
+            ancestors.put(id, ArrayUtils.toPrimitive(path.toArray(new Integer[path.size()])));
+            if (path.isEmpty())
+            {
+                top.add(id);
+            }
+        }
+        topCommunities = sortedByName(Constants.COMMUNITY, top);
+
+        for (Integer id : collectionIDs)
+        {
+            List<Integer> communities = collectionOwners.get(id);
+            owners.put(id, communities == null ? NONE
+                    : ArrayUtils.toPrimitive(communities.toArray(new Integer[communities.size()])));
+        }
+
+        for (Integer id : communityIDs)
+        {
+            Set<Integer> subtree = new LinkedHashSet<Integer>();
+            addCollections(id, subtree, new LinkedHashSet<Integer>());
+            allCollections.put(id, ArrayUtils.toPrimitive(subtree.toArray(new Integer[subtree.size()])));
+        }
+    }
+
+    /**
+     * Get the snapshot of the hierarchy, building it if needed.
+     *
+     * @param context
+     *            the context used to build the snapshot
+     * @return the snapshot, or null if disabled or if the context holds
+     *         uncommitted changes to communities or collections
+     */
+    public static CommunityHierarchy getSnapshot(Context context)
+            throws SQLException
+    {
+        if (!ConfigurationManager.getBooleanProperty("hierarchy.snapshot.enabled", true)
+                || hasStructuralChanges(context))
+        {
+            return null;
+        }
+
+        CommunityHierarchy current = snapshot;
+        if (current == null || current.isExpired())
+        {
+            synchronized (lock)
+            {
+                current = snapshot;
+                if (current == null || current.isExpired())
+                {
+                    long started = generation.get();
+                    current = new CommunityHierarchy(context);
+                    if (generation.get() == started)
+                    {
+                        snapshot = current;
+                    }
+                    log.debug("Built the snapshot of the community hierarchy in "
+                            + (System.currentTimeMillis() - current.built) + "ms");
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Drop the current snapshot, after a change of the hierarchy.
+     */
+    public static void invalidate()
+    {
+        generation.incrementAndGet();
+        snapshot = null;
+    }
+
+    /**
+     * @return true if the event changes the hierarchy, or the names or
+     *         handles of the communities and collections
+     */
+    static boolean isStructural(Event event)
+    {
+        int subject = event.getSubjectType();
+        if (subject != Constants.COMMUNITY && subject != Constants.COLLECTION)
+        {
+            return false;
+        }
+        switch (event.getEventType())
+        {
+        case Event.CREATE:
+        case Event.DELETE:
+        case Event.MODIFY_METADATA:
+            return true;
+        case Event.ADD:
+        case Event.REMOVE:
+            return event.getObjectType() == Constants.COMMUNITY
+                    || event.getObjectType() == Constants.COLLECTION;
+        default:
+            return false;
+        }
+    }
+
+    private static boolean hasStructuralChanges(Context context)
+    {
+        if (context.hasEvents())
+        {
+            for (Event event : context.getEvents())
+            {
+                if (isStructural(event))
+                {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean isExpired()
+    {
+        int maxAge = ConfigurationManager.getIntProperty("hierarchy.snapshot.max-age", 300);
+        return maxAge > 0 && System.currentTimeMillis() - built > maxAge * 1000L;
+    }
+
+    /**
+     * @return the IDs of the top-level communities
+     */
+    public int[] getTopCommunityIDs()
+    {
+        return topCommunities.clone();
+    }
+
+    /**
+     * @return the IDs of the ancestors of a community, the parent first, as
+     *         {@link Community#getAllParents()}
+     */
+    public int[] getParentCommunityIDs(int communityID)
+    {
+        return get(ancestors, communityID);
+    }
+
+    /**
+     * @return the IDs of the communities holding a collection and of their
+     *         ancestors, as {@link Collection#getCommunities()}
+     */
+    public int[] getCommunityIDs(int collectionID)
+    {
+        List<Integer> result = new ArrayList<Integer>();
+        for (int owner : get(owners, collectionID))
+        {
+            result.add(owner);
+            for (int ancestor : get(ancestors, owner))
+            {
+                result.add(ancestor);
+            }
+        }
+        return ArrayUtils.toPrimitive(result.toArray(new Integer[result.size()]));
+    }
+
+    /**
+     * @return the IDs of the communities directly holding a collection
+     */
+    public int[] getOwningCommunityIDs(int collectionID)
+    {
+        return get(owners, collectionID);
+    }
+
+    /**
+     * @return the IDs of the sub-communities of a community
+     */
+    public int[] getSubcommunityIDs(int communityID)
+    {
+        return get(subcommunities, communityID);
+    }
+
+    /**
+     * @return the IDs of the collections of a community
+     */
+    public int[] getCollectionIDs(int communityID)
+    {
+        return get(collections, communityID);
+    }
+
+    /**
+     * @return the IDs of the collections of a community and of its
+     *         sub-communities, as {@link Community#getAllCollections()}
+     */
+    public int[] getAllCollectionIDs(int communityID)
+    {
+        return get(allCollections, communityID);
+    }
+
+    /**
+     * @return true if the snapshot holds the community or collection
+     */
+    public boolean contains(int type, int id)
+    {
+        return type == Constants.COMMUNITY ? ancestors.containsKey(id)
+                : type == Constants.COLLECTION && owners.containsKey(id);
+    }
+
+    /**
+     * @return the name (dc.title) of a community or collection, null if none
+     */
+    public String getName(int type, int id)
+    {
+        return names.get(key(type, id));
+    }
+
+    /**
+     * @return the handle of a community or collection, null if none
+     */
+    public String getHandle(int type, int id)
+    {
+        return handles.get(key(type, id));
+    }
+
+    private void addCollections(int communityID, Set<Integer> result,
+            Set<Integer> visited)
+    {
+        if (!visited.add(communityID))
+        {
+            return;
+        }
+        for (int sub : get(subcommunities, communityID))
+        {
+            addCollections(sub, result, visited);
+        }
+        for (int collection : get(collections, communityID))
+        {
+            result.add(collection);
+        }
+    }
+
+    private int[] sortedByName(final int type, List<Integer> ids)
+    {
+        if (ids == null)
+        {
+            return NONE;
+        }
+        // nulls last, as the ORDER BY of the database
+        Collections.sort(ids, new Comparator<Integer>()
+        {
+            @Override
+            public int compare(Integer a, Integer b)
+            {
+                String nameA = names.get(key(type, a));
+                String nameB = names.get(key(type, b));
+                if (nameA == null || nameB == null)
+                {
+                    return nameA == null ? (nameB == null ? 0 : 1) : -1;
+                }
+                return nameA.compareTo(nameB);
+            }
+        });
+        return ArrayUtils.toPrimitive(ids.toArray(new Integer[ids.size()]));
+    }
+
+    private static int[] get(Map<Integer, int[]> map, int id)
+    {
+        int[] ids = map.get(id);
+        return ids == null ? NONE : ids.clone();
+    }
+
+    private static List<Integer> queryIDs(Context context, String query,
+            String column) throws SQLException
+    {
+        List<Integer> ids = new ArrayList<Integer>();
+        TableRowIterator tri = DatabaseManager.query(context, query);
+        try
+        {
+            while (tri.hasNext())
+            {
+                ids.add(tri.next().getIntColumn(column));
+            }
+        }
+        finally
+        {
+            tri.close();
+        }
+        return ids;
+    }
+
+    private static void add(Map<Integer, List<Integer>> map, int key, int value)
+    {
+        List<Integer> values = map.get(key);
+        if (values == null)
+        {
+            values = new ArrayList<Integer>();
+            map.put(key, values);
+        }
+        values.add(value);
+    }
+
+    private static Long key(int type, int id)
+    {
+        return Long.valueOf(((long) type << 32) | (id & 0xffffffffL));
+    }
+}
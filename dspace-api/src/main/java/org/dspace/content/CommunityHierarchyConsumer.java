@@ -0,0 +1,56 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.content;
+
+import org.dspace.core.Context;
+import org.dspace.event.Consumer;
+import org.dspace.event.Event;
+
+/**
+ * Drops the snapshot of the {@link CommunityHierarchy} when communities or
+ * collections are created, deleted, moved or renamed.  It must come before
+ * the consumers using the hierarchy, e.g. discovery.
+ *
+ * Recommended filter:  Community|Collection+Create|Delete|Add|Remove|Modify_Metadata
+ */
+public class CommunityHierarchyConsumer implements Consumer
+{
+    /** true if the current batch of events changes the hierarchy */
+    private boolean changed = false;
+
+    public void initialize()
+        throws Exception
+    {
+
+    }
+
+    public void consume(Context ctx, Event event)
+        throws Exception
+    {
+        if (CommunityHierarchy.isStructural(event))
+        {
+            changed = true;
+        }
+    }
+
+    public void end(Context ctx)
+        throws Exception
+    {
+        if (changed)
+        {
+            CommunityHierarchy.invalidate();
+            changed = false;
+        }
+    }
+
+    public void finish(Context ctx)
+        throws Exception
+    {
+
+    }
+}
@@ -25,6 +25,7 @@ import org.dspace.content.authority.Choices;
 import org.dspace.content.authority.MetadataAuthorityManager;
 import org.dspace.core.Constants;
 import org.dspace.core.Context;
+import org.dspace.core.LogManager;
 import org.dspace.discovery.IGlobalSearchResult;
 import org.dspace.eperson.EPerson;
 import org.dspace.eperson.Group;
@@ -136,8 +137,25 @@ public abstract class DSpaceObject implements IGlobalSearchResult
             }
         }
 
-        // Now the precalculations are done, iterate through the existing metadata
-        // looking for matches
+        // Index the in memory values by field and place: a database row can
+        // only be kept for the value with the same field and place
+        Map<Long,Integer> valueIndex = new HashMap<Long,Integer>(getMetadata().size() * 4 / 3 + 1);
+        for (int dcIdx = 0; dcIdx < getMetadata().size(); dcIdx++)
+        {
+            Long key = metadataKey(dcFields[dcIdx].getFieldID(), placeNum[dcIdx]);
+            if (!valueIndex.containsKey(key))
+            {
+                valueIndex.put(key, Integer.valueOf(dcIdx));
+            }
+        }
+
+        // Now the precalculations are done, compare the existing metadata
+        // with the in memory values, collecting the changes to write
+        List<TableRow> deletedRows = new ArrayList<TableRow>();
+        List<TableRow> updatedRows = new ArrayList<TableRow>();
+        List<TableRow> insertedRows = new ArrayList<TableRow>();
+        int unchanged = 0;
+
         TableRowIterator tri = retrieveMetadata();
         if (tri != null)
         {
@@ -146,97 +164,36 @@ public abstract class DSpaceObject implements IGlobalSearchResult
                 while (tri.hasNext())
                 {
                     TableRow tr = tri.next();
-                    // Assume that we will remove this row, unless we get a match
-                    boolean removeRow = true;
+                    Integer match = valueIndex.get(metadataKey(tr.getIntColumn("metadata_field_id"), tr.getIntColumn("place")));
 
-                    // Go through the in-memory metadata, unless we've already decided to keep this row
-                    for (int dcIdx = 0; dcIdx < getMetadata().size() && removeRow; dcIdx++)
+                    // If no in memory value has this field and place, or it
+                    // is already stored in another row, delete this row
+                    if (match == null || storedDC[match.intValue()])
                     {
-                        // Only process if this metadata has not already been matched to something in the DB
-                        if (!storedDC[dcIdx])
-                        {
-                            boolean matched = true;
-                            Metadatum dcv   = getMetadata().get(dcIdx);
-
-                            // Check the metadata field is the same
-                            if (matched && dcFields[dcIdx].getFieldID() != tr.getIntColumn("metadata_field_id"))
-                            {
-                                matched = false;
-                            }
-
-                            // Check the place is the same
-                            if (matched && placeNum[dcIdx] != tr.getIntColumn("place"))
-                            {
-                                matched = false;
-                            }
-
-                            // Check the text is the same
-                            if (matched)
-                            {
-                                String text = tr.getStringColumn("text_value");
-                                if (dcv.value == null && text == null)
-                                {
-                                    matched = true;
-                                }
-                                else if (dcv.value != null && dcv.value.equals(text))
-                                {
-                                    matched = true;
-                                }
-                                else
-                                {
-                                    matched = false;
-                                }
-                            }
-
-                            // Check the language is the same
-                            if (matched)
-                            {
-                                String lang = tr.getStringColumn("text_lang");
-                                if (dcv.language == null && lang == null)
-                                {
-                                    matched = true;
-                                }
-                                else if (dcv.language != null && dcv.language.equals(lang))
-                                {
-                                    matched = true;
-                                }
-                                else
-                                {
-                                    matched = false;
-                                }
-                            }
-
-                            // check that authority and confidence match
-                            if (matched)
-                            {
-                                String auth = tr.getStringColumn("authority");
-                                int conf = tr.getIntColumn("confidence");
-                                if (!((dcv.authority == null && auth == null) ||
-                                        (dcv.authority != null && auth != null && dcv.authority.equals(auth))
-                                                && dcv.confidence == conf))
-                                {
-                                    matched = false;
-                                }
-                            }
+                        deletedRows.add(tr);
+                        continue;
+                    }
 
-                            // If the db record is identical to the in memory values
-                            if (matched)
-                            {
-                                // Flag that the metadata is already in the DB
-                                storedDC[dcIdx] = true;
+                    int dcIdx = match.intValue();
+                    Metadatum dcv = getMetadata().get(dcIdx);
+                    storedDC[dcIdx] = true;
 
-                                // Flag that we are not going to remove the row
-                                removeRow = false;
-                            }
-                        }
+                    // If the db record is identical to the in memory values
+                    // there is nothing to do, otherwise rewrite it in place
+                    if (StringUtils.equals(dcv.value, tr.getStringColumn("text_value"))
+                            && StringUtils.equals(dcv.language, tr.getStringColumn("text_lang"))
+                            && StringUtils.equals(dcv.authority, tr.getStringColumn("authority"))
+                            && (dcv.authority == null || dcv.confidence == tr.getIntColumn("confidence")))
+                    {
+                        unchanged++;
                     }
-
-                    // If after processing all the metadata values, we didn't find a match
-                    // delete this row from the DB
-                    if (removeRow)
+                    else
                     {
-                        DatabaseManager.delete(ourContext, tr);
-                        modifiedMetadata = true;
+                        tr.setColumn("text_value", dcv.value);
+                        tr.setColumn("text_lang", dcv.language);
+                        tr.setColumn("authority", dcv.authority);
+                        tr.setColumn("confidence", dcv.confidence);
+                        updatedRows.add(tr);
                     }
                 }
             }
@@ -244,8 +201,6 @@ public abstract class DSpaceObject implements IGlobalSearchResult
             {
                 tri.close();
             }
-
-
         }
 
         // Add missing in-memory DC
@@ -256,21 +211,33 @@ public abstract class DSpaceObject implements IGlobalSearchResult
             {
                 Metadatum dcv = getMetadata().get(dcIdx);
 
-                // Write Metadatum
-                MetadataValue metadata = new MetadataValue();
-                metadata.setResourceId(getID());
-                metadata.setResourceTypeId(getType());
-                metadata.setFieldId(dcFields[dcIdx].getFieldID());
-                metadata.setValue(dcv.value);
-                metadata.setLanguage(dcv.language);
-                metadata.setPlace(placeNum[dcIdx]);
-                metadata.setAuthority(dcv.authority);
-                metadata.setConfidence(dcv.confidence);
-                metadata.create(ourContext);
-                modifiedMetadata = true;
+                TableRow row = DatabaseManager.row("MetadataValue");
+                row.setColumn("resource_id", getID());
+                row.setColumn("resource_type_id", getType());
+                row.setColumn("metadata_field_id", dcFields[dcIdx].getFieldID());
+                row.setColumn("text_value", dcv.value);
+                row.setColumn("text_lang", dcv.language);
+                row.setColumn("place", placeNum[dcIdx]);
+                row.setColumn("authority", dcv.authority);
+                row.setColumn("confidence", dcv.confidence);
+                insertedRows.add(row);
             }
         }
 
+        // Write the changes, as JDBC batches
+        DatabaseManager.delete(ourContext, deletedRows);
+        DatabaseManager.update(ourContext, updatedRows);
+        DatabaseManager.insert(ourContext, insertedRows);
+
+        if (!deletedRows.isEmpty() || !updatedRows.isEmpty() || !insertedRows.isEmpty())
+        {
+            modifiedMetadata = true;
+        }
+
+        log.info(LogManager.getHeader(ourContext, "update_metadata", getTypeText().toLowerCase() + "_id=" + getID()
+                + ",unchanged=" + unchanged + ",deleted=" + deletedRows.size()
+                + ",updated=" + updatedRows.size() + ",inserted=" + insertedRows.size()));
+
         if(modifiedMetadata) {
             ourContext.addEvent(new Event(Event.MODIFY_METADATA, getType(), getID(), getDetails(), getIdentifiers(ourContext)));
             modifiedMetadata = false;
@@ -488,6 +455,14 @@ public abstract class DSpaceObject implements IGlobalSearchResult
 
     public abstract void updateLastModified();
 
+    /**
+     * Key of a metadata value, by field and place, for updateMetadata().
+     */
+    private static Long metadataKey(int fieldID, int place)
+    {
+        return Long.valueOf(((long) fieldID << 32) | (place & 0xffffffffL));
+    }
+
     private TableRowIterator retrieveMetadata() throws SQLException
     {
         return DatabaseManager.queryTable(ourContext, "MetadataValue",
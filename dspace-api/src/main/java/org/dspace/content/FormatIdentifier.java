@@ -7,6 +7,7 @@
  */
 package org.dspace.content;
 
+import java.nio.charset.StandardCharsets;
 import java.sql.SQLException;
 
 import org.dspace.core.Context;
@@ -24,6 +25,27 @@ import org.dspace.storage.rdbms.TableRowIterator;
  */
 public class FormatIdentifier
 {
+    /**
+     * Signatures recognised by {@link #sniffFormat}: the offset of the
+     * signature, the signature, and the MIME type of the format in the
+     * registry.  Only formats whose signature is not shared by other formats
+     * of the registry (e.g. ZIP for the Office Open XML formats) are listed.
+     */
+    private static final Object[][] SIGNATURES = {
+        { 0, ascii("%PDF-"), "application/pdf" },
+        { 0, new byte[] { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n' }, "image/png" },
+        { 0, new byte[] { (byte) 0xff, (byte) 0xd8, (byte) 0xff }, "image/jpeg" },
+        { 0, ascii("GIF87a"), "image/gif" },
+        { 0, ascii("GIF89a"), "image/gif" },
+        { 0, new byte[] { 'I', 'I', 42, 0 }, "image/tiff" },
+        { 0, new byte[] { 'M', 'M', 0, 42 }, "image/tiff" },
+        { 0, ascii("%!PS"), "application/postscript" },
+        { 0, ascii("{\\rtf"), "text/richtext" },
+        { 0, ascii("<?xml"), "text/xml" },
+        { 8, ascii("WAVE"), "audio/x-wav" },
+        { 8, ascii("AIFF"), "audio/x-aiff" },
+    };
+
     /**
      * Attempt to identify the format of a particular bitstream. If the format
      * is unknown, null is returned.
@@ -43,6 +65,81 @@ public class FormatIdentifier
         return guessFormat(context, filename);
     }
     
+    /**
+     * Attempt to identify the format of a new bitstream, from its name and
+     * else from its content (see {@link #sniffFormat}).  The content is only
+     * used for the bitstreams created in the same context, whose first bytes
+     * were kept while they were stored, so the bits are not read again.
+     * 
+     * @param bitstream
+     *            the bitstream to identify the format of
+     * 
+     * @return a format from the bitstream format registry, or null
+     */
+    public static BitstreamFormat identifyFormat(Context context,
+            Bitstream bitstream) throws SQLException
+    {
+        BitstreamFormat format = guessFormat(context, bitstream);
+        if (format == null)
+        {
+            format = sniffFormat(context, bitstream);
+        }
+        return format;
+    }
+
+    /**
+     * Attempt to identify the format of a new bitstream from the signature
+     * at the start of its content, e.g. for files without extension.
+     * 
+     * @param bitstream
+     *            the bitstream to identify the format of
+     * 
+     * @return a format from the bitstream format registry, or null if the
+     *         content is not recognised, or the bitstream was not created in
+     *         this context
+     */
+    public static BitstreamFormat sniffFormat(Context context,
+            Bitstream bitstream) throws SQLException
+    {
+        String mimeType = sniffMIMEType(bitstream.getHeader());
+        return (mimeType != null) ? BitstreamFormat.findByMIMEType(context, mimeType) : null;
+    }
+
+    /**
+     * @return the MIME type of the first signature found at the start of a
+     *         content, or null
+     */
+    static String sniffMIMEType(byte[] header)
+    {
+        if (header == null)
+        {
+            return null;
+        }
+        for (Object[] signature : SIGNATURES)
+        {
+            int offset = (Integer) signature[0];
+            byte[] bytes = (byte[]) signature[1];
+            if (header.length >= offset + bytes.length)
+            {
+                boolean match = true;
+                for (int i = 0; i < bytes.length && match; i++)
+                {
+                    match = header[offset + i] == bytes[i];
+                }
+                if (match)
+                {
+                    return (String) signature[2];
+                }
+            }
+        }
+        return null;
+    }
+
+    private static byte[] ascii(String signature)
+    {
+        return signature.getBytes(StandardCharsets.US_ASCII);
+    }
+
     /**
      * Attempt to identify the format of a particular file by filename. If the format
      * is unknown, null is returned.
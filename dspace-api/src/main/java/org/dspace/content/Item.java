@@ -230,7 +230,7 @@ public class Item extends DSpaceObject implements BrowsableDSpaceObject
     {
         String myQuery = "SELECT * FROM item WHERE in_archive='1'";
 
-        TableRowIterator rows = DatabaseManager.queryTable(context, "item", myQuery);
+        TableRowIterator rows = DatabaseManager.queryTableStreaming(context, "item", myQuery);
 
         return new ItemIterator(context, rows);
     }
@@ -248,7 +248,7 @@ public class Item extends DSpaceObject implements BrowsableDSpaceObject
     {
         String myQuery = "SELECT * FROM item WHERE in_archive='1' or withdrawn='1'";
 
-        TableRowIterator rows = DatabaseManager.queryTable(context, "item", myQuery);
+        TableRowIterator rows = DatabaseManager.queryTableStreaming(context, "item", myQuery);
 
         return new ItemIterator(context, rows);
 	}
@@ -256,12 +256,12 @@ public class Item extends DSpaceObject implements BrowsableDSpaceObject
     public static List<Integer> findAllItemIDsUnfiltered(Context context)
             throws SQLException
     {
-        String myQuery = "SELECT * FROM item WHERE in_archive='1' or withdrawn='1'";
+        String myQuery = "SELECT item_id FROM item WHERE in_archive='1' or withdrawn='1'";
         TableRowIterator rows = null;
         List<Integer> result = new ArrayList<Integer>();
         try
         {
-            rows = DatabaseManager.query(context, myQuery);
+            rows = DatabaseManager.queryStreaming(context, myQuery);
             while (rows.hasNext())
             {
                 TableRow row = rows.next();
@@ -286,7 +286,7 @@ public class Item extends DSpaceObject implements BrowsableDSpaceObject
         List<Integer> result = new ArrayList<Integer>();
         try
         {
-            rows = DatabaseManager.query(context, myQuery);
+            rows = DatabaseManager.queryStreaming(context, myQuery);
             while (rows.hasNext())
             {
                 TableRow row = rows.next();
@@ -0,0 +1,110 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.content;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.dspace.core.Constants;
+import org.dspace.core.Context;
+import org.dspace.event.Consumer;
+import org.dspace.event.Event;
+
+/**
+ * Increases the version stamps of the objects changed by the committed
+ * events, see {@link ObjectStamps}.  A change to a bundle or a bitstream
+ * also changes the stamp of the items holding it, and a change to a logo
+ * the stamp of its community or collection.
+ *
+ * Recommended filter:  All+All
+ */
+public class ObjectStampConsumer implements Consumer
+{
+    /** the objects changed by the current batch of events */
+    private Set<Long> changed = new HashSet<Long>();
+
+    public void initialize()
+        throws Exception
+    {
+
+    }
+
+    public void consume(Context ctx, Event event)
+        throws Exception
+    {
+        int type = event.getSubjectType();
+        int id = event.getSubjectID();
+        add(type, id);
+
+        if (event.getEventType() == Event.DELETE)
+        {
+            // the containers send their own REMOVE events
+            return;
+        }
+
+        if (type == Constants.BUNDLE)
+        {
+            Bundle bundle = Bundle.find(ctx, id);
+            if (bundle != null)
+            {
+                addItems(bundle);
+            }
+        }
+        else if (type == Constants.BITSTREAM)
+        {
+            Bitstream bitstream = Bitstream.find(ctx, id);
+            if (bitstream != null)
+            {
+                Bundle[] bundles = bitstream.getBundles();
+                for (Bundle bundle : bundles)
+                {
+                    add(Constants.BUNDLE, bundle.getID());
+                    addItems(bundle);
+                }
+                if (bundles.length == 0)
+                {
+                    // community or collection logo
+                    DSpaceObject parent = bitstream.getParentObject();
+                    if (parent != null)
+                    {
+                        add(parent.getType(), parent.getID());
+                    }
+                }
+            }
+        }
+    }
+
+    public void end(Context ctx)
+        throws Exception
+    {
+        for (Long key : changed)
+        {
+            ObjectStamps.changed((int) (key.longValue() >>> 32), (int) key.longValue());
+        }
+        changed.clear();
+    }
+
+    public void finish(Context ctx)
+        throws Exception
+    {
+
+    }
+
+    private void addItems(Bundle bundle) throws Exception
+    {
+        for (Item item : bundle.getItems())
+        {
+            add(Constants.ITEM, item.getID());
+        }
+    }
+
+    private void add(int type, int id)
+    {
+        changed.add(Long.valueOf(((long) type << 32) | (id & 0xffffffffL)));
+    }
+}
@@ -0,0 +1,119 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.content;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * In-memory version stamps of DSpace objects, increased each time a change
+ * to an object (or to one of its parts, e.g. the bitstreams of an item) is
+ * committed.  The stamps are fed by the {@link ObjectStampConsumer} and let
+ * caches check whether an object changed without loading it.
+ * <p>
+ * A stamp is made of the start time of this JVM and of a counter, so
+ * stamps are never reused after a restart.  Only the changes committed in
+ * this JVM are seen: caches of objects changed by other processes (e.g.
+ * command line tools) must rely on database values such as the last
+ * modification date of items.
+ * <p>
+ * The stamps of at most {@link #MAX_STAMPS} objects are kept, the least
+ * recently used ones are forgotten first.  An object without a stamp gets
+ * the highest stamp forgotten among the objects of its slot (a hash of the
+ * type and ID), so that a forgotten object never gets back an older stamp;
+ * the other objects of the slot get a new stamp too, which only costs them
+ * an extra cache miss.
+ */
+public final class ObjectStamps
+{
+    /** start of this JVM, to tell the stamps of successive runs apart */
+    private static final long epoch = System.currentTimeMillis();
+
+    /** maximum number of stamps kept */
+    static final int MAX_STAMPS = 100000;
+
+    /** source of the stamps */
+    private static long sequence = 0;
+
+    /** number of slots of the forgotten stamps, a power of 2 */
+    private static final int FORGOTTEN_SLOTS = 1 << 16;
+
+    /** highest stamp forgotten by slot, the stamp of the objects without one */
+    private static final long[] forgotten = new long[FORGOTTEN_SLOTS];
+
+    /** stamp of the changed objects, by type and ID, least recently used first */
+    private static final Map<Long, Long> stamps = new LinkedHashMap<Long, Long>(16, 0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest)
+        {
+            if (size() > MAX_STAMPS)
+            {
+                int slot = slot(eldest.getKey());
+                forgotten[slot] = Math.max(forgotten[slot], eldest.getValue().longValue());
+                return true;
+            }
+            return false;
+        }
+    };
+
+    private ObjectStamps()
+    {
+    }
+
+    /**
+     * Get the version stamp of an object.
+     *
+     * @param type
+     *            the type of the object, see {@link org.dspace.core.Constants}
+     * @param id
+     *            the ID of the object
+     * @return the stamp, to be compared for equality only
+     */
+    public static synchronized String getStamp(int type, int id)
+    {
+        Long key = key(type, id);
+        Long stamp = stamps.get(key);
+        return epoch + "." + (stamp == null ? forgotten[slot(key)] : stamp.longValue());
+    }
+
+    /**
+     * Get the version stamp of an object.
+     *
+     * @param dso
+     *            the object
+     * @return the stamp, to be compared for equality only
+     */
+    public static String getStamp(DSpaceObject dso)
+    {
+        return getStamp(dso.getType(), dso.getID());
+    }
+
+    /**
+     * Record a change of an object.
+     *
+     * @param type
+     *            the type of the object, see {@link org.dspace.core.Constants}
+     * @param id
+     *            the ID of the object
+     */
+    public static synchronized void changed(int type, int id)
+    {
+        stamps.put(key(type, id), Long.valueOf(++sequence));
+    }
+
+    private static Long key(int type, int id)
+    {
+        return Long.valueOf(((long) type << 32) | (id & 0xffffffffL));
+    }
+
+    private static int slot(Long key)
+    {
+        return key.hashCode() & (FORGOTTEN_SLOTS - 1);
+    }
+}
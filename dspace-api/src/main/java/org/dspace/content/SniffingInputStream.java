@@ -0,0 +1,81 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.content;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Keeps the first bytes read from a stream, so that the format of a new
+ * bitstream can be recognised from its content (see
+ * {@link FormatIdentifier#sniffFormat}) without reading it again.
+ */
+final class SniffingInputStream extends FilterInputStream
+{
+    /** number of bytes kept */
+    static final int HEADER_SIZE = 64;
+
+    private final byte[] header = new byte[HEADER_SIZE];
+
+    private int length = 0;
+
+    SniffingInputStream(InputStream in)
+    {
+        super(in);
+    }
+
+    /**
+     * @return the first bytes read, fewer than {@link #HEADER_SIZE} if the
+     *         stream is shorter
+     */
+    byte[] getHeader()
+    {
+        return Arrays.copyOf(header, length);
+    }
+
+    @Override
+    public int read() throws IOException
+    {
+        int b = super.read();
+        if (b >= 0 && length < HEADER_SIZE)
+        {
+            header[length++] = (byte) b;
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException
+    {
+        int n = super.read(b, off, len);
+        if (n > 0 && length < HEADER_SIZE)
+        {
+            int kept = Math.min(n, HEADER_SIZE - length);
+            System.arraycopy(b, off, header, length, kept);
+            length += kept;
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException
+    {
+        // the bytes skipped would be missing from the header
+        byte[] buffer = new byte[(int) Math.min(n, 8192)];
+        int read = read(buffer, 0, buffer.length);
+        return read < 0 ? 0 : read;
+    }
+
+    @Override
+    public boolean markSupported()
+    {
+        return false;
+    }
+}
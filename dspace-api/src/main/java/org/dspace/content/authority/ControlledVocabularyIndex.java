@@ -0,0 +1,312 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.content.authority;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.dspace.text.filter.DecomposeDiactritics;
+import org.dspace.text.filter.LowerCaseAndTrim;
+import org.dspace.text.filter.StripDiacritics;
+import org.dspace.text.filter.TextFilter;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * The terms of a controlled vocabulary file, compiled into arrays and a
+ * sorted index of the words of their labels.
+ * <p>
+ * Labels are folded (accents stripped, lower cased) and split into words.
+ * A query matches a term when each of its words is the beginning of a word
+ * of the term label, e.g. "hist relig" matches "History of religion".
+ * Matches are returned in the order of the vocabulary file.
+ * <p>
+ * The hierarchical labels (the labels of the ancestors and of the term,
+ * joined by the delimiter) are built once when the file is read.  Instances
+ * are immutable and shared by the threads of the application.
+ */
+final class ControlledVocabularyIndex
+{
+    /** the filters folding labels and queries */
+    private static final TextFilter[] filters = new TextFilter[] {
+        new DecomposeDiactritics(),
+        new StripDiacritics(),
+        new LowerCaseAndTrim()
+    };
+
+    /** term attributes, by position in the vocabulary file */
+    private final String[] ids;
+    private final String[] labels;
+    private final String[] hierarchies;
+
+    /** position of the terms having an id */
+    private final Map<String, Integer> positions;
+
+    /** the distinct words of the labels, sorted */
+    private final String[] words;
+
+    /** the positions of the terms using each word, ascending */
+    private final int[][] postings;
+
+    /** modification time of the file read */
+    private final long lastModified;
+
+    private ControlledVocabularyIndex(List<String[]> terms, long lastModified)
+    {
+        int size = terms.size();
+        this.ids = new String[size];
+        this.labels = new String[size];
+        this.hierarchies = new String[size];
+        this.positions = new HashMap<String, Integer>();
+        this.lastModified = lastModified;
+
+        TreeMap<String, List<Integer>> index = new TreeMap<String, List<Integer>>();
+        for (int i = 0; i < size; i++)
+        {
+            String[] term = terms.get(i);
+            ids[i] = term[0];
+            labels[i] = term[1];
+            hierarchies[i] = term[2];
+            if (ids[i] != null && !positions.containsKey(ids[i]))
+            {
+                positions.put(ids[i], Integer.valueOf(i));
+            }
+
+            for (String word : split(labels[i]))
+            {
+                List<Integer> posting = index.get(word);
+                if (posting == null)
+                {
+                    posting = new ArrayList<Integer>(1);
+                    index.put(word, posting);
+                }
+                if (posting.isEmpty() || posting.get(posting.size() - 1).intValue() != i)
+                {
+                    posting.add(Integer.valueOf(i));
+                }
+            }
+        }
+
+        this.words = index.keySet().toArray(new String[index.size()]);
+        this.postings = new int[words.length][];
+        for (int w = 0; w < words.length; w++)
+        {
+            List<Integer> posting = index.get(words[w]);
+            postings[w] = new int[posting.size()];
+            for (int j = 0; j < postings[w].length; j++)
+            {
+                postings[w][j] = posting.get(j).intValue();
+            }
+        }
+    }
+
+    /**
+     * Read a vocabulary file.
+     *
+     * @param file
+     *            the vocabulary file
+     * @param delimiter
+     *            the delimiter of the hierarchical labels
+     * @return the compiled vocabulary
+     * @throws IOException if the file cannot be read or parsed
+     */
+    static ControlledVocabularyIndex load(File file, String delimiter)
+        throws IOException
+    {
+        long lastModified = file.lastModified();
+        return load(new InputSource(file.toURI().toString()), delimiter, lastModified);
+    }
+
+    /**
+     * Read a vocabulary document.
+     *
+     * @param source
+     *            the vocabulary document
+     * @param delimiter
+     *            the delimiter of the hierarchical labels
+     * @param lastModified
+     *            the modification time of the document
+     * @return the compiled vocabulary
+     * @throws IOException if the document cannot be read or parsed
+     */
+    static ControlledVocabularyIndex load(InputSource source, final String delimiter, long lastModified)
+        throws IOException
+    {
+        final List<String[]> terms = new ArrayList<String[]>();
+        DefaultHandler handler = new DefaultHandler()
+        {
+            /** the hierarchical labels of the open nodes, "" at the root */
+            private final List<String> open = new ArrayList<String>();
+
+            @Override
+            public void startElement(String uri, String localName, String qName, Attributes attributes)
+            {
+                if (!"node".equals(qName))
+                {
+                    return;
+                }
+                String parent = open.isEmpty() ? "" : open.get(open.size() - 1);
+                String label = attributes.getValue("label");
+                if (label == null)
+                {
+                    // unlabelled nodes are not terms and add nothing to the hierarchy
+                    open.add(parent);
+                    return;
+                }
+                String hierarchy = parent.length() == 0 ? label : parent + delimiter + label;
+                open.add(hierarchy);
+                terms.add(new String[] { attributes.getValue("id"), label, hierarchy });
+            }
+
+            @Override
+            public void endElement(String uri, String localName, String qName)
+            {
+                if ("node".equals(qName))
+                {
+                    open.remove(open.size() - 1);
+                }
+            }
+        };
+
+        try
+        {
+            SAXParserFactory.newInstance().newSAXParser().parse(source, handler);
+        }
+        catch (ParserConfigurationException e)
+        {
+            throw new IOException(e);
+        }
+        catch (SAXException e)
+        {
+            throw new IOException(e);
+        }
+        return new ControlledVocabularyIndex(terms, lastModified);
+    }
+
+    /**
+     * Find the terms matching a query.
+     *
+     * @param query
+     *            the words to look for, null or blank for all the terms
+     * @return the positions of the matching terms
+     */
+    BitSet find(String query)
+    {
+        BitSet found = new BitSet(labels.length);
+        List<String> queryWords = query == null ? null : split(query);
+        if (queryWords == null || queryWords.isEmpty())
+        {
+            found.set(0, labels.length);
+            return found;
+        }
+
+        for (int q = 0; q < queryWords.size(); q++)
+        {
+            String prefix = queryWords.get(q);
+            BitSet matches = new BitSet(labels.length);
+            // the words starting with the prefix are contiguous in the sorted array
+            int from = Arrays.binarySearch(words, prefix);
+            if (from < 0)
+            {
+                from = -from - 1;
+            }
+            for (int w = from; w < words.length && words[w].startsWith(prefix); w++)
+            {
+                for (int position : postings[w])
+                {
+                    matches.set(position);
+                }
+            }
+
+            if (q == 0)
+            {
+                found = matches;
+            }
+            else
+            {
+                found.and(matches);
+            }
+            if (found.isEmpty())
+            {
+                break;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Get the position of a term.
+     *
+     * @param id
+     *            the id of the term
+     * @return the position of the first term having this id, or -1
+     */
+    int getPosition(String id)
+    {
+        Integer position = id == null ? null : positions.get(id);
+        return position == null ? -1 : position.intValue();
+    }
+
+    String getId(int position)
+    {
+        return ids[position];
+    }
+
+    String getLabel(int position)
+    {
+        return labels[position];
+    }
+
+    String getHierarchy(int position)
+    {
+        return hierarchies[position];
+    }
+
+    int size()
+    {
+        return labels.length;
+    }
+
+    long getLastModified()
+    {
+        return lastModified;
+    }
+
+    /**
+     * Fold a text and split it into words.
+     */
+    static List<String> split(String text)
+    {
+        String folded = text;
+        for (TextFilter filter : filters)
+        {
+            folded = filter.filter(folded);
+        }
+        List<String> result = new ArrayList<String>();
+        for (String word : folded.split("[^\\p{L}\\p{N}]+"))
+        {
+            if (word.length() > 0)
+            {
+                result.add(word);
+            }
+        }
+        return result;
+    }
+}
@@ -82,7 +82,7 @@ public class DCInputAuthority extends SelfNamedPlugin implements ChoiceAuthority
                     try
                     {
                         dcInputsReader.put(locale.getLanguage(),
-                                new DCInputsReader(I18nUtil
+                                DCInputsReader.getInstance(I18nUtil
                                         .getInputFormsFileName(locale)));
                     }
                     catch (DCInputsReaderException e)
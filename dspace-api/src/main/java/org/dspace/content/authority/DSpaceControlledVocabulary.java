@@ -9,18 +9,14 @@ package org.dspace.content.authority;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.io.File;
+import java.io.IOException;
 
 import org.apache.commons.lang.ArrayUtils;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
-
-import org.xml.sax.InputSource;
 
 import org.apache.log4j.Logger;
 
@@ -47,6 +43,11 @@ import org.dspace.core.SelfNamedPlugin;
  *   vocabulary.plugin._plugin_.hierarchy.suggest = <true|false>  # Display entire hierarchy in the suggestion list.  Default: TRUE
  *   vocabulary.plugin._plugin_.delimiter = "<string>"              # Delimiter to use when building hierarchy strings. Default: "::"
  *
+ * The vocabulary files are read once into a {@link ControlledVocabularyIndex}
+ * shared by all the instances, and read again when they change.  A text
+ * matches a term when each of its words begins a word of the term label,
+ * ignoring case and accents.
+ *
  *
  * @author Michael B. Klein
  *
@@ -56,13 +57,14 @@ public class DSpaceControlledVocabulary extends SelfNamedPlugin implements Choic
 {
 
     private static Logger log = Logger.getLogger(DSpaceControlledVocabulary.class);
-    private static String xpathTemplate = "//node[contains(translate(@label,'ABCDEFGHIJKLMNOPQRSTUVWXYZ','abcdefghijklmnopqrstuvwxyz'),'%s')]";
-    private final static String xpathTemplate_ALL = "//node";
-    private static String idTemplate = "//node[@id = '%s']";
     private static String pluginNames[] = null;
 
+    /** the compiled vocabularies, by file path */
+    private static final ConcurrentMap<String, ControlledVocabularyIndex> vocabularies =
+            new ConcurrentHashMap<String, ControlledVocabularyIndex>();
+
     private String vocabularyName = null;
-    private InputSource vocabulary = null;
+    private File vocabularyFile = null;
     private Boolean suggestHierarchy = true;
     private Boolean storeHierarchy = true;
     private String hierarchyDelimiter = "::";
@@ -109,7 +111,7 @@ public class DSpaceControlledVocabulary extends SelfNamedPlugin implements Choic
 
     private void init()
     {
-    	if (vocabulary == null)
+    	if (vocabularyFile == null)
         {
         	log.info("Initializing " + this.getClass().getName());
         	vocabularyName = this.getPluginInstanceName();
@@ -122,108 +124,86 @@ public class DSpaceControlledVocabulary extends SelfNamedPlugin implements Choic
             {
             	hierarchyDelimiter = configuredDelimiter.replaceAll("(^\"|\"$)","");
             }
-        	String filename = vocabulariesPath + vocabularyName + ".xml";
-        	log.info("Loading " + filename);
-            vocabulary = new InputSource(filename);
+            vocabularyFile = new File(vocabulariesPath + vocabularyName + ".xml");
     	}
     }
 
-    private String buildString(Node node)
+    /**
+     * Get the compiled vocabulary, reading the file the first time and again
+     * after it changed.
+     *
+     * @return the vocabulary, or null if the file cannot be read
+     */
+    private ControlledVocabularyIndex getVocabulary()
     {
-    	if (node.getNodeType() == Node.DOCUMENT_NODE)
+        init();
+        String key = vocabularyFile.getPath() + "|" + hierarchyDelimiter;
+        ControlledVocabularyIndex vocabulary = vocabularies.get(key);
+        if (vocabulary == null || vocabulary.getLastModified() != vocabularyFile.lastModified())
         {
-    		return("");
-    	}
-        else
-        {
-    		String parentValue = buildString(node.getParentNode());
-    		Node currentLabel = node.getAttributes().getNamedItem("label");
-    		if (currentLabel != null)
+            synchronized (vocabularies)
             {
-    			String currentValue = currentLabel.getNodeValue();
-    			if (parentValue.equals(""))
-                {
-    				return currentValue;
-    			}
-                else
+                vocabulary = vocabularies.get(key);
+                if (vocabulary == null || vocabulary.getLastModified() != vocabularyFile.lastModified())
                 {
-    				return(parentValue + this.hierarchyDelimiter + currentValue);
-    			}
-    		}
-            else
-            {
-    			return(parentValue);
-    		}
-    	}
+                    log.info("Loading " + vocabularyFile.getPath());
+                    try
+                    {
+                        vocabulary = ControlledVocabularyIndex.load(vocabularyFile, hierarchyDelimiter);
+                        vocabularies.put(key, vocabulary);
+                        log.info("Loaded " + vocabulary.size() + " terms from " + vocabularyFile.getPath());
+                    }
+                    catch (IOException e)
+                    {
+                        log.error("Cannot read the vocabulary " + vocabularyFile.getPath(), e);
+                    }
+                }
+            }
+        }
+        return vocabulary;
+    }
+
+    private Choice getChoice(ControlledVocabularyIndex vocabulary, int position)
+    {
+        String hierarchy = vocabulary.getHierarchy(position);
+        String label = vocabulary.getLabel(position);
+        return new Choice(vocabulary.getId(position),
+                this.storeHierarchy ? hierarchy : label,
+                this.suggestHierarchy ? hierarchy : label);
     }
 
     @Override
     public Choices getMatches(String field, String text, int collection, int start, int limit, String locale)
     {
-    	init();
     	log.debug("Getting matches for '" + text + "'");
-    	String xpathExpression;
-    	
-    	if (text != null) {
-    		xpathExpression = String.format(xpathTemplate, text.replaceAll("'", "&apos;").toLowerCase());
-    	}
-    	else {
-    		xpathExpression = xpathTemplate_ALL;
+    	ControlledVocabularyIndex vocabulary = getVocabulary();
+    	if (vocabulary == null)
+    	{
+    		return new Choices(true);
     	}
-    	XPath xpath = XPathFactory.newInstance().newXPath();
-    	Choice[] choices;
-    	try {
-            NodeList results = (NodeList) xpath.evaluate(xpathExpression,
-                    vocabulary, XPathConstants.NODESET);
-            String[] authorities = new String[results.getLength()];
-            String[] values = new String[results.getLength()];
-            String[] labels = new String[results.getLength()];
-            for (int i = 0; i < results.getLength(); i++)
+
+        BitSet found = vocabulary.find(text);
+        List<Choice> choices = new ArrayList<Choice>();
+        int skipped = 0;
+        for (int i = found.nextSetBit(0); i >= 0; i = found.nextSetBit(i + 1))
+        {
+            if (skipped < start)
             {
-                Node node = results.item(i);
-                String hierarchy = this.buildString(node);
-                if (this.suggestHierarchy)
-                {
-                    labels[i] = hierarchy;
-                }
-                else
-                {
-                    labels[i] = node.getAttributes().getNamedItem("label").getNodeValue();
-                }
-                if (this.storeHierarchy)
-                {
-                    values[i] = hierarchy;
-                }
-                else
-                {
-                    values[i] = node.getAttributes().getNamedItem("label").getNodeValue();
-                }
-                Node idAttr = node.getAttributes().getNamedItem("id");
-                if (null != idAttr) // 'id' is optional
-                    authorities[i] = idAttr.getNodeValue();
+                skipped++;
+                continue;
             }
-            int resultCount = labels.length - start;
-            if ((limit > 0) && (resultCount > limit)) // limit = 0 means no limit
-                resultCount = limit;
-            choices = new Choice[resultCount];
-            if (resultCount > 0)
+            if (limit > 0 && choices.size() >= limit) // limit = 0 means no limit
             {
-                for (int i = 0; i < resultCount; i++)
-                {
-                    choices[i] = new Choice(authorities[start + i], values[start
-                            + i], labels[start + i]);
-                }
+                break;
             }
-    	} catch(XPathExpressionException e) {
-    		choices = new Choice[0];
-    	}
-    	return new Choices(choices, 0, choices.length, Choices.CF_AMBIGUOUS, false);
+            choices.add(getChoice(vocabulary, i));
+        }
+    	return new Choices(choices.toArray(new Choice[choices.size()]), 0, choices.size(), Choices.CF_AMBIGUOUS, false);
     }
 
     @Override
     public Choices getBestMatch(String field, String text, int collection, String locale)
     {
-    	init();
     	log.debug("Getting best match for '" + text + "'");
         return getMatches(field, text, collection, 0, 2, locale);
     }
@@ -231,15 +211,13 @@ public class DSpaceControlledVocabulary extends SelfNamedPlugin implements Choic
     @Override
     public String getLabel(String field, String key, String locale)
     {
-    	init();
-    	String xpathExpression = String.format(idTemplate, key);
-    	XPath xpath = XPathFactory.newInstance().newXPath();
-    	try {
-    		Node node = (Node)xpath.evaluate(xpathExpression, vocabulary, XPathConstants.NODE);
-    		return node.getAttributes().getNamedItem("label").getNodeValue();
-    	} catch(XPathExpressionException e) {
+    	ControlledVocabularyIndex vocabulary = getVocabulary();
+    	int position = vocabulary == null ? -1 : vocabulary.getPosition(key);
+    	if (position < 0)
+    	{
     		return("");
     	}
+    	return vocabulary.getLabel(position);
     }
 
 	@Override
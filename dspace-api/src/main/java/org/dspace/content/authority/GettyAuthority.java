@@ -7,11 +7,7 @@
  */
 package org.dspace.content.authority;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -20,14 +16,10 @@ import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
 
 import org.apache.commons.lang.StringUtils;
-import org.apache.http.HttpResponse;
-import org.apache.http.client.ClientProtocolException;
-import org.apache.http.client.HttpClient;
-import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.utils.URLEncodedUtils;
-import org.apache.http.impl.client.DefaultHttpClient;
 import org.apache.http.message.BasicNameValuePair;
 import org.apache.log4j.Logger;
+import org.dspace.authority.rest.RemoteAuthorityClient;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
@@ -55,27 +47,13 @@ public abstract class GettyAuthority implements ChoiceAuthority {
         args.add(new BasicNameValuePair("_equivalent","false"));
         args.add(new BasicNameValuePair("form", "/sparql"));
 		
-		HttpClient hc = new DefaultHttpClient();
         String srUrl = gettyURL + "?" + URLEncodedUtils.format(args, "UTF8");
-        HttpGet get = new HttpGet(srUrl);
-		
-        
+
         try
         {
-        	URL url = new URL(srUrl);
-        	InputStream is = url.openStream();
-        	StringBuffer sb = new StringBuffer();
-        	BufferedReader in = new BufferedReader(
-            new InputStreamReader(url.openStream()));
+            String body = RemoteAuthorityClient.getClient("getty").get(srUrl);
 
-            String inputLine;
-            while ((inputLine = in.readLine()) != null){
-                sb.append(inputLine);
-            } 
-            in.close();
-        
-        
-            JSONObject ob = new JSONObject(sb.toString());
+            JSONObject ob = new JSONObject(body);
             JSONArray bindings = ob.getJSONObject("results").getJSONArray("bindings");
             
             Choice[] results = new Choice[bindings.length()];
@@ -114,17 +92,10 @@ public abstract class GettyAuthority implements ChoiceAuthority {
     		
     		return new Choices(results, 0, results.length, Choices.CF_ACCEPTED, false);
             
-        } catch (ClientProtocolException e) {
-			
-			log.error(e.getMessage(), e);
-		} catch (IOException e) {
+        } catch (IOException e) {
 
 			log.error(e.getMessage(), e);		
 		}
-        finally
-        {
-            get.releaseConnection();
-        }
         return null;
     }
 	
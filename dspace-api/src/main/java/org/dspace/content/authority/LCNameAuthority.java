@@ -8,6 +8,7 @@
 package org.dspace.content.authority;
 
 import java.io.IOException;
+import java.io.StringReader;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.List;
@@ -24,15 +25,11 @@ import org.xml.sax.SAXParseException;
 
 import org.apache.log4j.Logger;
 
+import org.dspace.authority.rest.RemoteAuthorityClient;
 import org.dspace.core.ConfigurationManager;
 import org.dspace.content.DCPersonName;
 
-import org.apache.http.HttpEntity;
-import org.apache.http.HttpResponse;
-import org.apache.http.client.HttpClient;
-import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.utils.URIBuilder;
-import org.apache.http.impl.client.DefaultHttpClient;
 
 /**
  * Sample personal name authority based on Library of Congress Name Authority
@@ -155,59 +152,52 @@ public class LCNameAuthority implements ChoiceAuthority
             log.error("SRU query failed: ", e);
             return new Choices(true);
         }
-        HttpGet get = new HttpGet(sruUri);
-
         log.debug("Trying SRU query, URL=" + sruUri);
 
         // 2. web request
         try
         {
-            HttpClient hc = new DefaultHttpClient();
-            HttpResponse response = hc.execute(get);
-            if (response.getStatusLine().getStatusCode() == 200)
+            String body = RemoteAuthorityClient.getClient("lcname").get(sruUri.toString());
+            SAXParserFactory spf = SAXParserFactory.newInstance();
+            SAXParser sp = spf.newSAXParser();
+            XMLReader xr = sp.getXMLReader();
+            SRUHandler handler = new SRUHandler();
+
+            // XXX FIXME: should turn off validation here explicitly, but
+            //  it seems to be off by default.
+            xr.setFeature("http://xml.org/sax/features/namespaces", true);
+            xr.setContentHandler(handler);
+            xr.setErrorHandler(handler);
+            xr.parse(new InputSource(new StringReader(body)));
+
+            // this probably just means more results available..
+            if (handler.hits != handler.result.size())
             {
-                SAXParserFactory spf = SAXParserFactory.newInstance();
-                SAXParser sp = spf.newSAXParser();
-                XMLReader xr = sp.getXMLReader();
-                SRUHandler handler = new SRUHandler();
-
-                // XXX FIXME: should turn off validation here explicitly, but
-                //  it seems to be off by default.
-                xr.setFeature("http://xml.org/sax/features/namespaces", true);
-                xr.setContentHandler(handler);
-                xr.setErrorHandler(handler);
-                HttpEntity responseBody = response.getEntity();
-                xr.parse(new InputSource(responseBody.getContent()));
-
-                // this probably just means more results available..
-                if (handler.hits != handler.result.size())
-                {
-                    log.warn("Discrepency in results, result.length=" + handler.result.size() +
-                            ", yet expected results=" + handler.hits);
-                }
-                boolean more = handler.hits > (start + handler.result.size());
+                log.warn("Discrepency in results, result.length=" + handler.result.size() +
+                        ", yet expected results=" + handler.hits);
+            }
+            boolean more = handler.hits > (start + handler.result.size());
 
-                // XXX add non-auth option; perhaps the UI should do this?
-                // XXX it's really a policy matter if they allow unauth result.
-                   // XXX good, stop it.
-                // handler.result.add(new Choice("", text, "Non-Authority: \""+text+"\""));
+            // XXX add non-auth option; perhaps the UI should do this?
+            // XXX it's really a policy matter if they allow unauth result.
+               // XXX good, stop it.
+            // handler.result.add(new Choice("", text, "Non-Authority: \""+text+"\""));
 
-                int confidence;
-                if (handler.hits == 0)
-                {
-                    confidence = Choices.CF_NOTFOUND;
-                }
-                else if (handler.hits == 1)
-                {
-                    confidence = Choices.CF_UNCERTAIN;
-                }
-                else
-                {
-                    confidence = Choices.CF_AMBIGUOUS;
-                }
-                return new Choices(handler.result.toArray(new Choice[handler.result.size()]),
-                                   start, handler.hits, confidence, more);
+            int confidence;
+            if (handler.hits == 0)
+            {
+                confidence = Choices.CF_NOTFOUND;
+            }
+            else if (handler.hits == 1)
+            {
+                confidence = Choices.CF_UNCERTAIN;
             }
+            else
+            {
+                confidence = Choices.CF_AMBIGUOUS;
+            }
+            return new Choices(handler.result.toArray(new Choice[handler.result.size()]),
+                               start, handler.hits, confidence, more);
         }
         catch (IOException e)
         {
@@ -224,11 +214,6 @@ public class LCNameAuthority implements ChoiceAuthority
             log.warn("Failed parsing SRU result: ", e);
             return new Choices(true);
         }
-        finally
-        {
-            get.releaseConnection();
-        }
-        return new Choices(true);
     }
 
     /**
@@ -8,6 +8,7 @@
 package org.dspace.content.authority;
 
 import java.io.IOException;
+import java.io.StringReader;
 import java.util.List;
 import javax.xml.parsers.SAXParserFactory;
 import javax.xml.parsers.SAXParser;
@@ -21,13 +22,10 @@ import org.xml.sax.SAXParseException;
 
 import org.apache.log4j.Logger;
 
+import org.dspace.authority.rest.RemoteAuthorityClient;
 import org.dspace.core.ConfigurationManager;
 
-import org.apache.http.HttpResponse;
-import org.apache.http.client.HttpClient;
-import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.utils.URLEncodedUtils;
-import org.apache.http.impl.client.DefaultHttpClient;
 import org.apache.http.message.BasicNameValuePair;
 
 /**
@@ -96,43 +94,38 @@ public abstract class SHERPARoMEOProtocol implements ChoiceAuthority
     protected Choices query(String result, String label, String authority,
                             List<BasicNameValuePair> args, int start, int limit)
     {
-        HttpClient hc = new DefaultHttpClient();
         String srUrl = url + "?" + URLEncodedUtils.format(args, "UTF8");
-        HttpGet get = new HttpGet(srUrl);
 
         log.debug("Trying SHERPA/RoMEO Query, URL=" + srUrl);
 
         try
         {
-            HttpResponse response = hc.execute(get);
-            if (response.getStatusLine().getStatusCode() == 200)
-            {
-                SAXParserFactory spf = SAXParserFactory.newInstance();
-                SAXParser sp = spf.newSAXParser();
-                XMLReader xr = sp.getXMLReader();
-                SRHandler handler = new SRHandler(result, label, authority);
+            String body = RemoteAuthorityClient.getClient("sherpa").get(srUrl);
+            SAXParserFactory spf = SAXParserFactory.newInstance();
+            SAXParser sp = spf.newSAXParser();
+            XMLReader xr = sp.getXMLReader();
+            SRHandler handler = new SRHandler(result, label, authority);
 
-                // XXX FIXME: should turn off validation here explicitly, but
-                //  it seems to be off by default.
-                xr.setFeature("http://xml.org/sax/features/namespaces", true);
-                xr.setContentHandler(handler);
-                xr.setErrorHandler(handler);
-                xr.parse(new InputSource(response.getEntity().getContent()));
-                int confidence;
-                if (handler.total == 0)
-                {
-                    confidence = Choices.CF_NOTFOUND;
-                }
-                else if (handler.total == 1)
-                {
-                    confidence = Choices.CF_UNCERTAIN;
-                }
-                else
-                {
-                    confidence = Choices.CF_AMBIGUOUS;
-                }
-                return new Choices(handler.result, start, handler.total, confidence, false);
+            // XXX FIXME: should turn off validation here explicitly, but
+            //  it seems to be off by default.
+            xr.setFeature("http://xml.org/sax/features/namespaces", true);
+            xr.setContentHandler(handler);
+            xr.setErrorHandler(handler);
+            xr.parse(new InputSource(new StringReader(body)));
+            int confidence;
+            if (handler.total == 0)
+            {
+                confidence = Choices.CF_NOTFOUND;
+            }
+            else if (handler.total == 1)
+            {
+                confidence = Choices.CF_UNCERTAIN;
             }
+            else
+            {
+                confidence = Choices.CF_AMBIGUOUS;
+            }
+            return new Choices(handler.result, start, handler.total, confidence, false);
         }
         catch (IOException e)
         {
@@ -149,11 +142,6 @@ public abstract class SHERPARoMEOProtocol implements ChoiceAuthority
             log.warn("Failed parsing SHERPA/RoMEO result: ", e);
             return null;
         }
-        finally
-        {
-            get.releaseConnection();
-        }
-        return null;
     }
 
     // SAX handler to grab SHERPA/RoMEO (and eventually other details) from result
@@ -7,12 +7,7 @@
  */
 package org.dspace.content.authority;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.net.MalformedURLException;
-import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -20,6 +15,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.http.client.utils.URLEncodedUtils;
 import org.apache.http.message.BasicNameValuePair;
 import org.apache.log4j.Logger;
+import org.dspace.authority.rest.RemoteAuthorityClient;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
@@ -43,20 +39,10 @@ public class VIAFAuthority implements ChoiceAuthority {
 		args.add(new BasicNameValuePair("query", text));
         String sUrl = viafurl + "?" + URLEncodedUtils.format(args, "UTF8");
         try {
-			URL url = new URL(sUrl);
-        	InputStream is = url.openStream();
-        	StringBuffer sb = new StringBuffer();
-        	BufferedReader in = new BufferedReader(
-            new InputStreamReader(url.openStream()));
+            String body = RemoteAuthorityClient.getClient("viaf").get(sUrl);
 
-            String inputLine;
-            while ((inputLine = in.readLine()) != null){
-                sb.append(inputLine);
-            }
-            in.close();
-            
             //VIAF responds a json with duplicate keys? must remove them as they are unused
-            String str= sb.toString().replaceAll("\"bav\":\"adv\\d+\",", "").replaceAll("\"dnb\":\"\\d+\",", "");
+            String str= body.replaceAll("\"bav\":\"adv\\d+\",", "").replaceAll("\"dnb\":\"\\d+\",", "");
             JSONObject ob = new JSONObject(str);
             JSONArray results = ob.getJSONArray("result");
             
@@ -71,8 +57,6 @@ public class VIAFAuthority implements ChoiceAuthority {
             }
             
             return new Choices(choices, 0, choices.length, Choices.CF_ACCEPTED, false);
-		} catch (MalformedURLException e) {
-			log.error(e.getMessage(),e);
 		} catch (IOException e) {
 			log.error(e.getMessage(),e);
 		} 
@@ -12,6 +12,9 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
 import org.apache.commons.lang.ArrayUtils;
 import org.dspace.authorize.AuthorizeException;
 import org.dspace.content.Metadatum;
@@ -30,7 +33,7 @@ import org.jdom.Namespace;
  * @version $Revision: 1 $
  */
 public class DIMDisseminationCrosswalk
-    implements DisseminationCrosswalk
+    implements XMLStreamDisseminationCrosswalk
 {
     // Non-existant XSD schema
     public static final String DIM_XSD = "null";
@@ -92,6 +95,47 @@ public class DIMDisseminationCrosswalk
 	    return result;
 	}
 
+    public void disseminateElement(DSpaceObject dso, XMLStreamWriter writer) throws CrosswalkException, IOException, SQLException, AuthorizeException
+    {
+        if (dso.getType() != Constants.ITEM)
+        {
+            throw new CrosswalkObjectNotSupported("DIMDisseminationCrosswalk can only crosswalk an Item.");
+        }
+        Item item = (Item)dso;
+
+        Metadatum[] dc = item.getMetadata(Item.ANY, Item.ANY, Item.ANY, Item.ANY);
+        try
+        {
+            XMLStreamCrosswalkUtils.writeStartElement(writer, DIM_NS, "dim");
+            for (int i = 0; i < dc.length; i++)
+            {
+                writer.writeStartElement(DIM_NS.getPrefix(), "field", DIM_NS.getURI());
+                writer.writeAttribute("mdschema", dc[i].schema);
+                writer.writeAttribute("element", dc[i].element);
+                if (dc[i].qualifier != null)
+                {
+                    writer.writeAttribute("qualifier", dc[i].qualifier);
+                }
+                if (dc[i].language != null)
+                {
+                    writer.writeAttribute("lang", dc[i].language);
+                }
+                XMLStreamCrosswalkUtils.writeCharacters(writer, dc[i].value);
+                writer.writeEndElement();
+            }
+            writer.writeEndElement();
+        }
+        catch (XMLStreamException e)
+        {
+            throw new CrosswalkInternalException("Failed writing DIM: " + e.getMessage(), e);
+        }
+    }
+
+    public void disseminateList(DSpaceObject dso, XMLStreamWriter writer) throws CrosswalkException, IOException, SQLException, AuthorizeException
+    {
+        disseminateElement(dso, writer);
+    }
+
     /* Only interested in disseminating items at this time */
     public boolean canDisseminate(DSpaceObject dso)
     {
@@ -8,11 +8,18 @@
 package org.dspace.content.crosswalk;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
 import org.apache.commons.lang.ArrayUtils;
 import org.dspace.authorize.AuthorizeException;
 import org.dspace.content.DSpaceObject;
@@ -40,7 +47,7 @@ import org.jdom.input.SAXBuilder;
  * @version $Revision$
  */
 public class METSDisseminationCrosswalk
-    implements DisseminationCrosswalk
+    implements XMLStreamDisseminationCrosswalk
 {
     // Plugin Name of METS packager to use for manifest;
     // maybe make  this configurable.
@@ -68,6 +75,8 @@ public class METSDisseminationCrosswalk
     private static final String schemaLocation =
         METS_NS.getURI()+" "+METS_XSD;
 
+    private static final XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+
     @Override
     public Namespace[] getNamespaces()
     {
@@ -94,6 +103,80 @@ public class METSDisseminationCrosswalk
     public Element disseminateElement(DSpaceObject dso)
         throws CrosswalkException,
                IOException, SQLException, AuthorizeException
+    {
+        File tempFile = disseminateToFile(dso);
+        try
+        {
+            //Return just the root Element of the METS file
+            SAXBuilder builder = new SAXBuilder();
+            Document metsDocument = builder.build(tempFile);
+            return metsDocument.getRootElement();
+        }
+        catch (JDOMException je)
+        {
+            throw new MetadataValidationException("Error parsing METS (see wrapped error message for more details) ",je);
+        }
+        finally
+        {
+            tempFile.delete();
+        }
+    }
+
+    @Override
+    public void disseminateList(DSpaceObject dso, XMLStreamWriter writer)
+        throws CrosswalkException,
+               IOException, SQLException, AuthorizeException
+    {
+        disseminateElement(dso, writer);
+    }
+
+    /**
+     * Copy the METS manifest to the writer as it is read from the packager
+     * output, without building a document tree.
+     */
+    @Override
+    public void disseminateElement(DSpaceObject dso, XMLStreamWriter writer)
+        throws CrosswalkException,
+               IOException, SQLException, AuthorizeException
+    {
+        File tempFile = disseminateToFile(dso);
+        InputStream in = null;
+        XMLStreamReader reader = null;
+        try
+        {
+            in = new FileInputStream(tempFile);
+            reader = inputFactory.createXMLStreamReader(in);
+            XMLStreamCrosswalkUtils.copy(reader, writer);
+        }
+        catch (XMLStreamException xe)
+        {
+            throw new MetadataValidationException("Error copying METS (see wrapped error message for more details) ",xe);
+        }
+        finally
+        {
+            if (reader != null)
+            {
+                try
+                {
+                    reader.close();
+                }
+                catch (XMLStreamException xe)
+                {
+                    // nothing to do, the stream is closed below
+                }
+            }
+            if (in != null)
+            {
+                in.close();
+            }
+            tempFile.delete();
+        }
+    }
+
+    // Run the METS packager, in manifest only mode, to a temporary file
+    private File disseminateToFile(DSpaceObject dso)
+        throws CrosswalkException,
+               IOException, SQLException, AuthorizeException
     {
         if (!canDisseminate(dso))
         {
@@ -108,6 +191,7 @@ public class METSDisseminationCrosswalk
         }
 
         Context context = null;
+        File tempFile = null;
         try
         {
             // Set the manifestOnly=true param so we just get METS document (and not content files, etc)
@@ -118,28 +202,21 @@ public class METSDisseminationCrosswalk
             String tempDirectory = (ConfigurationManager.getProperty("upload.temp.dir") != null)
                 ? ConfigurationManager.getProperty("upload.temp.dir") : System.getProperty("java.io.tmpdir"); 
 
-            File tempFile = File.createTempFile("METSDissemination" + dso.hashCode(), null, new File(tempDirectory));
+            tempFile = File.createTempFile("METSDissemination" + dso.hashCode(), null, new File(tempDirectory));
             tempFile.deleteOnExit();
 
             // Disseminate METS to temp file
             context = new Context();
             dip.disseminate(context, dso, pparams, tempFile);
             context.complete();
-
-            try
-            {
-                //Return just the root Element of the METS file
-                SAXBuilder builder = new SAXBuilder();
-                Document metsDocument = builder.build(tempFile);
-                return metsDocument.getRootElement();
-            }
-            catch (JDOMException je)
-            {
-                throw new MetadataValidationException("Error parsing METS (see wrapped error message for more details) ",je);
-            }
+            return tempFile;
         }
         catch (PackageException pe)
         {
+            if (tempFile != null)
+            {
+                tempFile.delete();
+            }
             throw new CrosswalkInternalException("Failed making METS manifest in packager (see wrapped error message for more details) ",pe);
         }
         finally {
@@ -20,6 +20,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
 import org.apache.commons.lang.ArrayUtils;
 import org.apache.log4j.Logger;
 import org.dspace.authorize.AuthorizeException;
@@ -79,7 +82,7 @@ import org.jdom.xpath.XPath;
  * @version $Revision$
  */
 public class MODSDisseminationCrosswalk extends SelfNamedPlugin
-    implements DisseminationCrosswalk
+    implements XMLStreamDisseminationCrosswalk
 {
     /** log4j category */
     private static Logger log = Logger.getLogger(MODSDisseminationCrosswalk.class);
@@ -328,95 +331,173 @@ public class MODSDisseminationCrosswalk extends SelfNamedPlugin
     private List<Element> disseminateListInternal(DSpaceObject dso, boolean addSchema)
         throws CrosswalkException, IOException, SQLException, AuthorizeException
     {
-        Metadatum[] dcvs = null;
+        Metadatum[] dcvs = getMetadata(dso);
+        initMap();
+
+        List<Element> result = new ArrayList<Element>(dcvs.length);
+
+        for(int i=0; i < dcvs.length; i++)
+        {
+            Element me = crosswalkValue(dcvs[i], addSchema);
+            if (me != null)
+            {
+                result.add(me);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Write object's metadata in MODS format, as a list of XML structure
+     * nodes, building one metadata value at a time.
+     */
+    public void disseminateList(DSpaceObject dso, XMLStreamWriter writer)
+        throws CrosswalkException,
+               IOException, SQLException, AuthorizeException
+    {
+        disseminateListInternal(dso, writer, true);
+    }
+
+    /**
+     * Write the MODS document of an Item, Collection, or Community,
+     * building one metadata value at a time.
+     */
+    public void disseminateElement(DSpaceObject dso, XMLStreamWriter writer)
+        throws CrosswalkException,
+               IOException, SQLException, AuthorizeException
+    {
+        Metadatum[] dcvs = getMetadata(dso);
+        try
+        {
+            XMLStreamCrosswalkUtils.writeStartElement(writer, MODS_NS, "mods");
+            XMLStreamCrosswalkUtils.writeSchemaLocation(writer, schemaLocation);
+            writeValues(dcvs, writer, false);
+            writer.writeEndElement();
+        }
+        catch (XMLStreamException e)
+        {
+            throw new CrosswalkInternalException("Failed writing MODS: " + e.getMessage(), e);
+        }
+    }
+
+    private void disseminateListInternal(DSpaceObject dso, XMLStreamWriter writer, boolean addSchema)
+        throws CrosswalkException, IOException, SQLException, AuthorizeException
+    {
+        try
+        {
+            writeValues(getMetadata(dso), writer, addSchema);
+        }
+        catch (XMLStreamException e)
+        {
+            throw new CrosswalkInternalException("Failed writing MODS: " + e.getMessage(), e);
+        }
+    }
+
+    private void writeValues(Metadatum[] dcvs, XMLStreamWriter writer, boolean addSchema)
+        throws CrosswalkInternalException, XMLStreamException
+    {
+        initMap();
+        for (int i = 0; i < dcvs.length; i++)
+        {
+            Element me = crosswalkValue(dcvs[i], addSchema);
+            if (me != null)
+            {
+                XMLStreamCrosswalkUtils.writeElement(writer, me);
+            }
+        }
+    }
+
+    private Metadatum[] getMetadata(DSpaceObject dso)
+        throws CrosswalkObjectNotSupported
+    {
         if (dso.getType() == Constants.ITEM)
         {
-            dcvs = item2Metadata((Item) dso);
+            return item2Metadata((Item) dso);
         }
         else if (dso.getType() == Constants.COLLECTION)
         {
-            dcvs = collection2Metadata((Collection) dso);
+            return collection2Metadata((Collection) dso);
         }
         else if (dso.getType() == Constants.COMMUNITY)
         {
-            dcvs = community2Metadata((Community) dso);
+            return community2Metadata((Community) dso);
         }
         else if (dso.getType() == Constants.SITE)
         {
-            dcvs = site2Metadata((Site) dso);
+            return site2Metadata((Site) dso);
         }
         else
         {
             throw new CrosswalkObjectNotSupported(
                     "MODSDisseminationCrosswalk can only crosswalk Items, Collections, or Communities");
         }
-        initMap();
+    }
 
-        List<Element> result = new ArrayList<Element>(dcvs.length);
+    /**
+     * Build the MODS element of a single metadata value from its mapping,
+     * or return null if the field is not mapped.
+     */
+    private Element crosswalkValue(Metadatum dcv, boolean addSchema)
+    {
+        String qdc = dcv.schema + "." + dcv.element;
+        if (dcv.qualifier != null)
+        {
+            qdc += "." + dcv.qualifier;
+        }
+        String value = dcv.value;
 
-        for(int i=0; i < dcvs.length; i++)
+        modsTriple trip = modsMap.get(qdc);
+        if (trip == null)
+        {
+            log.warn("WARNING: " + getPluginInstanceName() + ": No MODS mapping for \"" + qdc + "\"");
+            return null;
+        }
+
+        try
         {
-            String qdc = dcvs[i].schema + "." + dcvs[i].element;
-            if (dcvs[i].qualifier != null)
+            Element me = (Element)trip.xml.clone();
+            if (addSchema)
             {
-                qdc += "." + dcvs[i].qualifier;
+                me.setAttribute("schemaLocation", schemaLocation, XSI_NS);
             }
-            String value = dcvs[i].value;
-
-            modsTriple trip = modsMap.get(qdc);
-            if (trip == null)
+            Iterator ni = trip.xpath.selectNodes(me).iterator();
+            if (!ni.hasNext())
             {
-                log.warn("WARNING: " + getPluginInstanceName() + ": No MODS mapping for \"" + qdc + "\"");
+                log.warn("XPath \"" + trip.xpath.getXPath() +
+                        "\" found no elements in \"" +
+                        outputUgly.outputString(me) +
+                        "\", qdc=" + qdc);
             }
-            else
+            while (ni.hasNext())
             {
-                try
+                Object what = ni.next();
+                if (what instanceof Element)
                 {
-                    Element me = (Element)trip.xml.clone();
-                    if (addSchema)
-                    {
-                        me.setAttribute("schemaLocation", schemaLocation, XSI_NS);
-                    }
-                    Iterator ni = trip.xpath.selectNodes(me).iterator();
-                    if (!ni.hasNext())
-                    {
-                        log.warn("XPath \"" + trip.xpath.getXPath() +
-                                "\" found no elements in \"" +
-                                outputUgly.outputString(me) +
-                                "\", qdc=" + qdc);
-                    }
-                    while (ni.hasNext())
-                    {
-                        Object what = ni.next();
-                        if (what instanceof Element)
-                        {
-                            ((Element) what).setText(checkedString(value));
-                        }
-                        else if (what instanceof Attribute)
-                        {
-                            ((Attribute) what).setValue(checkedString(value));
-                        }
-                        else if (what instanceof Text)
-                        {
-                            ((Text) what).setText(checkedString(value));
-                        }
-                        else
-                        {
-                            log.warn("Got unknown object from XPath, class=" + what.getClass().getName());
-                        }
-                    }
-                    result.add(me);
+                    ((Element) what).setText(checkedString(value));
                 }
-                catch (JDOMException je)
+                else if (what instanceof Attribute)
                 {
-                    log.error("Error following XPath in modsTriple: context="+
-                        outputUgly.outputString(trip.xml)+
-                        ", xpath="+trip.xpath.getXPath()+", exception="+
-                        je.toString());
+                    ((Attribute) what).setValue(checkedString(value));
+                }
+                else if (what instanceof Text)
+                {
+                    ((Text) what).setText(checkedString(value));
+                }
+                else
+                {
+                    log.warn("Got unknown object from XPath, class=" + what.getClass().getName());
                 }
             }
+            return me;
+        }
+        catch (JDOMException je)
+        {
+            log.error("Error following XPath in modsTriple: context="+
+                outputUgly.outputString(trip.xml)+
+                ", xpath="+trip.xpath.getXPath()+", exception="+
+                je.toString());
+            return null;
         }
-        return result;
     }
 
     /**
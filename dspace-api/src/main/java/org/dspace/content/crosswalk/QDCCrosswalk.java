@@ -19,6 +19,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
 import org.apache.commons.lang.ArrayUtils;
 import org.apache.log4j.Logger;
 import org.dspace.authorize.AuthorizeException;
@@ -90,7 +93,7 @@ import org.jdom.input.SAXBuilder;
  * @version $Revision$
  */
 public class QDCCrosswalk extends SelfNamedPlugin
-    implements DisseminationCrosswalk, IngestionCrosswalk
+    implements XMLStreamDisseminationCrosswalk, IngestionCrosswalk
 {
     /** log4j category */
     private static Logger log = Logger.getLogger(QDCCrosswalk.class);
@@ -356,38 +359,106 @@ public class QDCCrosswalk extends SelfNamedPlugin
         List<Element> result = new ArrayList<Element>(dc.length);
         for (int i = 0; i < dc.length; i++)
         {
-            // Compose qualified DC name - schema.element[.qualifier]
-            // e.g. "dc.title", "dc.subject.lcc", "lom.Classification.Keyword"
-            String qdc = dc[i].schema+"."+
-                         ((dc[i].qualifier == null) ? dc[i].element
-                            : (dc[i].element + "." + dc[i].qualifier));
+            Element qe = crosswalkValue(dc[i], addSchema);
+            if (qe != null)
+            {
+                result.add(qe);
+            }
+        }
+        return result;
+    }
 
-            Element elt = qdc2element.get(qdc);
+    // Build the QDC element for a single metadata value, or null if unmapped
+    private Element crosswalkValue(Metadatum dcv, boolean addSchema)
+    {
+        // Compose qualified DC name - schema.element[.qualifier]
+        // e.g. "dc.title", "dc.subject.lcc", "lom.Classification.Keyword"
+        String qdc = dcv.schema+"."+
+                     ((dcv.qualifier == null) ? dcv.element
+                        : (dcv.element + "." + dcv.qualifier));
 
-            // only complain about missing elements in the DC schema:
-            if (elt == null)
+        Element elt = qdc2element.get(qdc);
+
+        // only complain about missing elements in the DC schema:
+        if (elt == null)
+        {
+            if (dcv.schema.equals(MetadataSchema.DC_SCHEMA))
             {
-                if (dc[i].schema.equals(MetadataSchema.DC_SCHEMA))
-                {
-                    log.warn("WARNING: " + myName + ": No QDC mapping for \"" + qdc + "\"");
-                }
+                log.warn("WARNING: " + myName + ": No QDC mapping for \"" + qdc + "\"");
             }
-            else
+            return null;
+        }
+
+        Element qe = (Element)elt.clone();
+        qe.setText(dcv.value);
+        if (addSchema && schemaLocation != null)
+        {
+            qe.setAttribute("schemaLocation", schemaLocation, XSI_NS);
+        }
+        if (dcv.language != null)
+        {
+            qe.setAttribute("lang", dcv.language, Namespace.XML_NAMESPACE);
+        }
+        return qe;
+    }
+
+    public void disseminateList(DSpaceObject dso, XMLStreamWriter writer)
+        throws CrosswalkException,
+               IOException, SQLException, AuthorizeException
+    {
+        disseminateListInternal(dso, writer, true);
+    }
+
+    // Write the QDC element of each metadata value as soon as it is built
+    private void disseminateListInternal(DSpaceObject dso, XMLStreamWriter writer, boolean addSchema)
+        throws CrosswalkException,
+               IOException, SQLException, AuthorizeException
+    {
+        if (dso.getType() != Constants.ITEM)
+        {
+            throw new CrosswalkObjectNotSupported("QDCCrosswalk can only crosswalk an Item.");
+        }
+        Item item = (Item)dso;
+        init();
+
+        Metadatum[] dc = item.getMetadata(Item.ANY, Item.ANY, Item.ANY, Item.ANY);
+        try
+        {
+            for (int i = 0; i < dc.length; i++)
             {
-                Element qe = (Element)elt.clone();
-                qe.setText(dc[i].value);
-                if (addSchema && schemaLocation != null)
-                {
-                    qe.setAttribute("schemaLocation", schemaLocation, XSI_NS);
-                }
-                if (dc[i].language != null)
+                Element qe = crosswalkValue(dc[i], addSchema);
+                if (qe != null)
                 {
-                    qe.setAttribute("lang", dc[i].language, Namespace.XML_NAMESPACE);
+                    XMLStreamCrosswalkUtils.writeElement(writer, qe);
                 }
-                result.add(qe);
             }
         }
-        return result;
+        catch (XMLStreamException e)
+        {
+            throw new CrosswalkInternalException("Failed writing QDC: " + e.getMessage(), e);
+        }
+    }
+
+    public void disseminateElement(DSpaceObject dso, XMLStreamWriter writer)
+        throws CrosswalkException,
+               IOException, SQLException, AuthorizeException
+    {
+        if (dso.getType() != Constants.ITEM)
+        {
+            throw new CrosswalkObjectNotSupported("QDCCrosswalk can only crosswalk an Item.");
+        }
+        init();
+        try
+        {
+            XMLStreamCrosswalkUtils.writeStartElement(writer, DCTERMS_NS, "qualifieddc");
+            XMLStreamCrosswalkUtils.writeSchemaLocation(writer, schemaLocation);
+            disseminateListInternal(dso, writer, false);
+            writer.writeEndElement();
+        }
+        catch (XMLStreamException e)
+        {
+            throw new CrosswalkInternalException("Failed writing QDC: " + e.getMessage(), e);
+        }
     }
 
     public Element disseminateElement(DSpaceObject dso)
@@ -0,0 +1,554 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.content.crosswalk;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.sql.SQLException;
+import java.util.List;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.apache.log4j.Logger;
+import org.dspace.authorize.AuthorizeException;
+import org.dspace.content.DSpaceObject;
+import org.jdom.Attribute;
+import org.jdom.CDATA;
+import org.jdom.Comment;
+import org.jdom.Element;
+import org.jdom.Namespace;
+import org.jdom.ProcessingInstruction;
+import org.jdom.Text;
+import org.jdom.Verifier;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Static utilities to run dissemination crosswalks against a StAX
+ * <code>XMLStreamWriter</code> or an <code>OutputStream</code>.
+ * <p>
+ * Crosswalks implementing {@link XMLStreamDisseminationCrosswalk} write
+ * directly to the stream; for all the others the JDOM result is serialized
+ * element by element.
+ */
+public class XMLStreamCrosswalkUtils
+{
+    /** log4j category */
+    private static final Logger log = Logger.getLogger(XMLStreamCrosswalkUtils.class);
+
+    private static final XMLOutputFactory outputFactory = XMLOutputFactory.newInstance();
+
+    /**
+     * Woodstox property checking that a document has a single root, which
+     * the list form of a crosswalk does not have.
+     */
+    private static final String VALIDATE_STRUCTURE = "com.ctc.wstx.outputValidateStructure";
+
+    /** factory of the writers of XML fragments */
+    private static final XMLOutputFactory fragmentFactory = XMLOutputFactory.newInstance();
+    static
+    {
+        if (fragmentFactory.isPropertySupported(VALIDATE_STRUCTURE))
+        {
+            fragmentFactory.setProperty(VALIDATE_STRUCTURE, Boolean.FALSE);
+        }
+    }
+
+    /** Default constructor */
+    private XMLStreamCrosswalkUtils() { }
+
+    /**
+     * Create a StAX writer sending UTF-8 encoded XML to the stream.
+     *
+     * @param out the stream to write to
+     * @return a new writer, which the caller must close
+     * @throws CrosswalkInternalException if the writer cannot be created
+     */
+    public static XMLStreamWriter createWriter(OutputStream out)
+        throws CrosswalkInternalException
+    {
+        try
+        {
+            return outputFactory.createXMLStreamWriter(out, "UTF-8");
+        }
+        catch (XMLStreamException e)
+        {
+            throw new CrosswalkInternalException("Cannot create XML writer: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Crosswalk the object to the writer, using the streaming methods when
+     * the crosswalk supports them.
+     *
+     * @param xwalk the crosswalk to run
+     * @param dso the object to crosswalk
+     * @param writer where to write the result
+     * @param list if true write the elements of the list form
+     *  (<code>disseminateList</code>), otherwise write the root element
+     *  (<code>disseminateElement</code>)
+     */
+    public static void disseminate(DisseminationCrosswalk xwalk, DSpaceObject dso,
+            XMLStreamWriter writer, boolean list)
+        throws CrosswalkException, IOException, SQLException, AuthorizeException
+    {
+        if (xwalk instanceof XMLStreamDisseminationCrosswalk)
+        {
+            XMLStreamDisseminationCrosswalk sxwalk = (XMLStreamDisseminationCrosswalk) xwalk;
+            if (list)
+            {
+                sxwalk.disseminateList(dso, writer);
+            }
+            else
+            {
+                sxwalk.disseminateElement(dso, writer);
+            }
+            return;
+        }
+
+        try
+        {
+            if (list)
+            {
+                List<Element> elements = xwalk.disseminateList(dso);
+                if (elements != null)
+                {
+                    for (Element element : elements)
+                    {
+                        writeElement(writer, element);
+                    }
+                }
+            }
+            else
+            {
+                Element root = xwalk.disseminateElement(dso);
+                if (root != null)
+                {
+                    writeElement(writer, root);
+                }
+            }
+        }
+        catch (XMLStreamException e)
+        {
+            throw new CrosswalkInternalException("Failed writing XML: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Crosswalk the object to a complete UTF-8 XML document (the root
+     * element form) on the output stream. The stream is not closed.
+     *
+     * @param xwalk the crosswalk to run
+     * @param dso the object to crosswalk
+     * @param out where to write the document
+     */
+    public static void disseminate(DisseminationCrosswalk xwalk, DSpaceObject dso, OutputStream out)
+        throws CrosswalkException, IOException, SQLException, AuthorizeException
+    {
+        XMLStreamWriter writer = createWriter(out);
+        try
+        {
+            writer.writeStartDocument("UTF-8", "1.0");
+            disseminate(xwalk, dso, writer, false);
+            writer.writeEndDocument();
+            writer.flush();
+        }
+        catch (XMLStreamException e)
+        {
+            throw new CrosswalkInternalException("Failed writing XML: " + e.getMessage(), e);
+        }
+        finally
+        {
+            try
+            {
+                writer.close();
+            }
+            catch (XMLStreamException e)
+            {
+                log.warn("Error closing XML writer", e);
+            }
+        }
+    }
+
+    /**
+     * Crosswalk the object to an XML fragment held in a String, without
+     * building the intermediate JDOM tree when the crosswalk supports
+     * streaming.
+     *
+     * @param xwalk the crosswalk to run
+     * @param dso the object to crosswalk
+     * @param list true for the list form, false for the root element form
+     * @return the serialized XML fragment, empty if the crosswalk produced
+     *  nothing
+     */
+    public static String disseminateToString(DisseminationCrosswalk xwalk, DSpaceObject dso, boolean list)
+        throws CrosswalkException, IOException, SQLException, AuthorizeException
+    {
+        StringWriter result = new StringWriter();
+        try
+        {
+            XMLStreamWriter writer = fragmentFactory.createXMLStreamWriter(result);
+            disseminate(xwalk, dso, writer, list);
+            writer.close();
+        }
+        catch (XMLStreamException e)
+        {
+            throw new CrosswalkInternalException("Failed writing XML: " + e.getMessage(), e);
+        }
+        return result.toString();
+    }
+
+    /**
+     * Write a start tag, declaring its namespace if not already in scope.
+     *
+     * @param writer the StAX writer
+     * @param ns namespace of the element
+     * @param name local name of the element
+     */
+    public static void writeStartElement(XMLStreamWriter writer, Namespace ns, String name)
+        throws XMLStreamException
+    {
+        // check before writing the tag: writers bind the prefix of the
+        // element itself as soon as the start tag is written
+        boolean bound = isBound(writer, ns);
+        writer.writeStartElement(ns.getPrefix(), name, ns.getURI());
+        if (!bound)
+        {
+            writeNamespace(writer, ns);
+        }
+    }
+
+    /**
+     * Declare the namespace on the current element unless the writer
+     * already binds its prefix to the same URI.
+     *
+     * @param writer the StAX writer, positioned just after a start tag
+     * @param ns the namespace to declare
+     */
+    public static void declareNamespace(XMLStreamWriter writer, Namespace ns)
+        throws XMLStreamException
+    {
+        if (!isBound(writer, ns))
+        {
+            writeNamespace(writer, ns);
+        }
+    }
+
+    private static boolean isBound(XMLStreamWriter writer, Namespace ns)
+    {
+        if (Namespace.XML_NAMESPACE.getPrefix().equals(ns.getPrefix()))
+        {
+            return true;
+        }
+        String bound = writer.getNamespaceContext().getNamespaceURI(ns.getPrefix());
+        return bound == null ? ns.getURI().length() == 0 : bound.equals(ns.getURI());
+    }
+
+    private static void writeNamespace(XMLStreamWriter writer, Namespace ns)
+        throws XMLStreamException
+    {
+        if (ns.getPrefix().length() == 0)
+        {
+            writer.writeDefaultNamespace(ns.getURI());
+        }
+        else
+        {
+            writer.writeNamespace(ns.getPrefix(), ns.getURI());
+        }
+    }
+
+    /**
+     * Write an <code>xsi:schemaLocation</code> attribute on the current
+     * element.
+     *
+     * @param writer the StAX writer, positioned just after a start tag
+     * @param schemaLocation value of the attribute, nothing is written if null
+     */
+    public static void writeSchemaLocation(XMLStreamWriter writer, String schemaLocation)
+        throws XMLStreamException
+    {
+        if (schemaLocation != null)
+        {
+            declareNamespace(writer, DisseminationCrosswalk.XSI_NS);
+            writer.writeAttribute(DisseminationCrosswalk.XSI_NS.getPrefix(),
+                    DisseminationCrosswalk.XSI_NS.getURI(), "schemaLocation", schemaLocation);
+        }
+    }
+
+    /**
+     * Write the text, excising characters which are not allowed in XML
+     * (i.e. low control chars). Null values are ignored.
+     *
+     * @param writer the StAX writer
+     * @param value the text to write
+     */
+    public static void writeCharacters(XMLStreamWriter writer, String value)
+        throws XMLStreamException
+    {
+        if (value != null)
+        {
+            writer.writeCharacters(checkedString(value));
+        }
+    }
+
+    /**
+     * Serialize a JDOM element, with all its content, to the writer.
+     *
+     * @param writer the StAX writer
+     * @param element the element to write
+     */
+    public static void writeElement(XMLStreamWriter writer, Element element)
+        throws XMLStreamException
+    {
+        writeStartElement(writer, element.getNamespace(), element.getName());
+        for (Object ns : element.getAdditionalNamespaces())
+        {
+            declareNamespace(writer, (Namespace) ns);
+        }
+        for (Object o : element.getAttributes())
+        {
+            Attribute attribute = (Attribute) o;
+            Namespace ns = attribute.getNamespace();
+            if (ns.getURI().length() == 0)
+            {
+                writer.writeAttribute(attribute.getName(), attribute.getValue());
+            }
+            else
+            {
+                declareNamespace(writer, ns);
+                writer.writeAttribute(ns.getPrefix(), ns.getURI(), attribute.getName(), attribute.getValue());
+            }
+        }
+        for (Object content : element.getContent())
+        {
+            if (content instanceof Element)
+            {
+                writeElement(writer, (Element) content);
+            }
+            else if (content instanceof CDATA)
+            {
+                writer.writeCData(((CDATA) content).getText());
+            }
+            else if (content instanceof Text)
+            {
+                writer.writeCharacters(((Text) content).getText());
+            }
+            else if (content instanceof Comment)
+            {
+                writer.writeComment(((Comment) content).getText());
+            }
+            else if (content instanceof ProcessingInstruction)
+            {
+                ProcessingInstruction pi = (ProcessingInstruction) content;
+                writer.writeProcessingInstruction(pi.getTarget(), pi.getData());
+            }
+        }
+        writer.writeEndElement();
+    }
+
+    /**
+     * Copy the content of a document read with StAX to the writer,
+     * without the start/end document events.
+     *
+     * @param reader the StAX reader, positioned at the start of the document
+     * @param writer the StAX writer
+     */
+    public static void copy(XMLStreamReader reader, XMLStreamWriter writer)
+        throws XMLStreamException
+    {
+        while (reader.hasNext())
+        {
+            switch (reader.next())
+            {
+                case XMLStreamConstants.START_ELEMENT:
+                    String prefix = reader.getPrefix() == null ? "" : reader.getPrefix();
+                    String uri = reader.getNamespaceURI() == null ? "" : reader.getNamespaceURI();
+                    writeStartElement(writer, Namespace.getNamespace(prefix, uri), reader.getLocalName());
+                    for (int i = 0; i < reader.getNamespaceCount(); i++)
+                    {
+                        String nsPrefix = reader.getNamespacePrefix(i);
+                        declareNamespace(writer, Namespace.getNamespace(nsPrefix == null ? "" : nsPrefix,
+                                reader.getNamespaceURI(i)));
+                    }
+                    for (int i = 0; i < reader.getAttributeCount(); i++)
+                    {
+                        String attrUri = reader.getAttributeNamespace(i);
+                        if (attrUri == null || attrUri.length() == 0)
+                        {
+                            writer.writeAttribute(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+                        }
+                        else
+                        {
+                            writer.writeAttribute(reader.getAttributePrefix(i), attrUri,
+                                    reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+                        }
+                    }
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    writer.writeEndElement();
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.SPACE:
+                    writer.writeCharacters(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                    break;
+                case XMLStreamConstants.CDATA:
+                    writer.writeCData(reader.getText());
+                    break;
+                case XMLStreamConstants.COMMENT:
+                    writer.writeComment(reader.getText());
+                    break;
+                case XMLStreamConstants.PROCESSING_INSTRUCTION:
+                    writer.writeProcessingInstruction(reader.getPITarget(), reader.getPIData());
+                    break;
+                default:
+                    // start/end document, DTD, entity references: nothing to copy
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Return a SAX handler forwarding the content it receives (but not the
+     * start and end of document) to the StAX writer, e.g. to send the result
+     * of an XSLT transformation to the writer.
+     *
+     * @param writer the StAX writer
+     * @return the SAX handler
+     */
+    public static DefaultHandler contentHandler(final XMLStreamWriter writer)
+    {
+        return new DefaultHandler()
+        {
+            @Override
+            public void startElement(String uri, String localName, String qName, Attributes atts)
+                throws SAXException
+            {
+                try
+                {
+                    int colon = qName.indexOf(':');
+                    String prefix = colon > 0 ? qName.substring(0, colon) : "";
+                    String name = localName == null || localName.length() == 0
+                            ? qName.substring(colon + 1) : localName;
+                    writeStartElement(writer, Namespace.getNamespace(prefix, uri == null ? "" : uri), name);
+                    for (int i = 0; i < atts.getLength(); i++)
+                    {
+                        String aqName = atts.getQName(i);
+                        if (aqName.equals("xmlns") || aqName.startsWith("xmlns:"))
+                        {
+                            continue;
+                        }
+                        String auri = atts.getURI(i);
+                        if (auri == null || auri.length() == 0)
+                        {
+                            writer.writeAttribute(aqName, atts.getValue(i));
+                        }
+                        else
+                        {
+                            int acolon = aqName.indexOf(':');
+                            Namespace ans = Namespace.getNamespace(acolon > 0 ? aqName.substring(0, acolon) : "", auri);
+                            declareNamespace(writer, ans);
+                            writer.writeAttribute(ans.getPrefix(), auri, aqName.substring(acolon + 1), atts.getValue(i));
+                        }
+                    }
+                }
+                catch (XMLStreamException e)
+                {
+                    throw new SAXException(e);
+                }
+            }
+
+            @Override
+            public void endElement(String uri, String localName, String qName)
+                throws SAXException
+            {
+                try
+                {
+                    writer.writeEndElement();
+                }
+                catch (XMLStreamException e)
+                {
+                    throw new SAXException(e);
+                }
+            }
+
+            @Override
+            public void characters(char[] ch, int start, int length)
+                throws SAXException
+            {
+                try
+                {
+                    writer.writeCharacters(ch, start, length);
+                }
+                catch (XMLStreamException e)
+                {
+                    throw new SAXException(e);
+                }
+            }
+
+            @Override
+            public void ignorableWhitespace(char[] ch, int start, int length)
+                throws SAXException
+            {
+                characters(ch, start, length);
+            }
+
+            @Override
+            public void processingInstruction(String target, String data)
+                throws SAXException
+            {
+                try
+                {
+                    writer.writeProcessingInstruction(target, data);
+                }
+                catch (XMLStreamException e)
+                {
+                    throw new SAXException(e);
+                }
+            }
+        };
+    }
+
+    /**
+     * Return string with non-XML characters (i.e. low control chars) excised.
+     *
+     * @param value the string to check, may be null
+     * @return the string, without invalid characters
+     */
+    public static String checkedString(String value)
+    {
+        if (value == null)
+        {
+            return null;
+        }
+        String reason = Verifier.checkCharacterData(value);
+        if (reason == null)
+        {
+            return value;
+        }
+        if (log.isDebugEnabled())
+        {
+            log.debug("Filtering out non-XML characters in string, reason=" + reason);
+        }
+        StringBuilder result = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); ++i)
+        {
+            char c = value.charAt(i);
+            if (Verifier.isXMLCharacter((int)c))
+            {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,72 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.content.crosswalk;
+
+import java.io.IOException;
+import java.sql.SQLException;
+
+import javax.xml.stream.XMLStreamWriter;
+
+import org.dspace.authorize.AuthorizeException;
+import org.dspace.content.DSpaceObject;
+
+/**
+ * Dissemination Crosswalk plugin able to write its result directly to a
+ * StAX <code>XMLStreamWriter</code>, instead of building it as a JDOM tree.
+ * <p>
+ * The results are the same as the ones of the JDOM based methods of
+ * {@link DisseminationCrosswalk}, but only one metadata value at a time is
+ * held in memory, which matters for objects with thousands of values or
+ * large documents (e.g. METS manifests).  Callers should use
+ * {@link XMLStreamCrosswalkUtils} which falls back to the JDOM methods for
+ * crosswalks not implementing this interface.
+ * <p>
+ * The methods write XML content only: the caller is responsible for the
+ * start and end of the document.  Namespace declarations are written on the
+ * emitted elements when not already bound in the writer.
+ *
+ * @see XMLStreamCrosswalkUtils
+ */
+public interface XMLStreamDisseminationCrosswalk extends DisseminationCrosswalk
+{
+    /**
+     * Execute crosswalk, writing the list of XML elements which
+     * {@link DisseminationCrosswalk#disseminateList(DSpaceObject)} would
+     * return.
+     *
+     * @param dso the  DSpace Object whose metadata to export.
+     * @param writer the StAX writer to send the elements to.
+     *
+     * @throws CrosswalkInternalException (<code>CrosswalkException</code>) failure of the crosswalk itself, including errors writing the XML.
+     * @throws CrosswalkObjectNotSupported (<code>CrosswalkException</code>) Cannot crosswalk this kind of DSpace object.
+     * @throws IOException  I/O failure in services this calls
+     * @throws SQLException  Database failure in services this calls
+     * @throws AuthorizeException current user not authorized for this operation.
+     */
+    public void disseminateList(DSpaceObject dso, XMLStreamWriter writer)
+        throws CrosswalkException, IOException, SQLException,
+               AuthorizeException;
+
+    /**
+     * Execute crosswalk, writing the root XML element which
+     * {@link DisseminationCrosswalk#disseminateElement(DSpaceObject)} would
+     * return.
+     *
+     * @param dso the  DSpace Object whose metadata to export.
+     * @param writer the StAX writer to send the element to.
+     *
+     * @throws CrosswalkInternalException (<code>CrosswalkException</code>) failure of the crosswalk itself, including errors writing the XML.
+     * @throws CrosswalkObjectNotSupported (<code>CrosswalkException</code>) Cannot crosswalk this kind of DSpace object.
+     * @throws IOException  I/O failure in services this calls
+     * @throws SQLException  Database failure in services this calls
+     * @throws AuthorizeException current user not authorized for this operation.
+     */
+    public void disseminateElement(DSpaceObject dso, XMLStreamWriter writer)
+        throws CrosswalkException, IOException, SQLException,
+               AuthorizeException;
+}
@@ -12,6 +12,11 @@ import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.List;
 
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamSource;
+
 import org.apache.log4j.Logger;
 import org.dspace.core.ConfigurationManager;
 import org.dspace.core.SelfNamedPlugin;
@@ -125,13 +130,16 @@ public abstract class XSLTCrosswalk extends SelfNamedPlugin
     private File transformerFile = null;
     private long transformerLastModified = 0;
 
+    private Templates templates = null;
+    private long templatesLastModified = 0;
+
     /**
-     * Initialize the Transformation stylesheet from configured stylesheet file.
+     * Find the configured stylesheet file.
      * @param direction the direction of xwalk, either "submission" or
      *    "dissemination"
-     * @return transformer or null if there was error initializing.
+     * @return the stylesheet file or null if it is not configured.
      */
-    protected XSLTransformer getTransformer(String direction)
+    private File getTransformerFile(String direction)
     {
         if (transformerFile == null)
         {
@@ -156,6 +164,21 @@ public abstract class XSLTCrosswalk extends SelfNamedPlugin
                 transformerFile = new File(parent, fname);
             }
         }
+        return transformerFile;
+    }
+
+    /**
+     * Initialize the Transformation stylesheet from configured stylesheet file.
+     * @param direction the direction of xwalk, either "submission" or
+     *    "dissemination"
+     * @return transformer or null if there was error initializing.
+     */
+    protected XSLTransformer getTransformer(String direction)
+    {
+        if (getTransformerFile(direction) == null)
+        {
+            return null;
+        }
 
         // load if first time, or reload if stylesheet changed:
         if (transformer == null ||
@@ -175,4 +198,40 @@ public abstract class XSLTCrosswalk extends SelfNamedPlugin
         }
         return transformer;
     }
+
+    /**
+     * Compile the configured stylesheet as JAXP <code>Templates</code>, for
+     * transformations which do not go through a JDOM document (e.g. to a
+     * SAX or StAX result).  The compiled stylesheet is thread-safe, and
+     * is reloaded like the transformer when the file changes.
+     * @param direction the direction of xwalk, either "submission" or
+     *    "dissemination"
+     * @return templates or null if there was error initializing.
+     */
+    protected synchronized Templates getTemplates(String direction)
+    {
+        if (getTransformerFile(direction) == null)
+        {
+            return null;
+        }
+
+        // load if first time, or reload if stylesheet changed:
+        if (templates == null ||
+            transformerFile.lastModified() > templatesLastModified)
+        {
+            try
+            {
+                log.debug((templates == null ? "Compiling " : "Recompiling")+
+                          getPluginInstanceName()+" XSLT stylesheet from "+transformerFile.toString());
+                long lastModified = transformerFile.lastModified();
+                templates = TransformerFactory.newInstance().newTemplates(new StreamSource(transformerFile));
+                templatesLastModified = lastModified;
+            }
+            catch (TransformerConfigurationException e)
+            {
+                log.error("Failed to initialize XSLTCrosswalk("+getPluginInstanceName()+"):"+e.toString());
+            }
+        }
+        return templates;
+    }
 }
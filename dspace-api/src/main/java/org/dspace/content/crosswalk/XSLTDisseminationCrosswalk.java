@@ -16,6 +16,12 @@ import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.List;
 
+import javax.xml.stream.XMLStreamWriter;
+import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.sax.SAXResult;
+
 import org.apache.commons.lang.ArrayUtils;
 import org.apache.log4j.Logger;
 import org.dspace.authorize.AuthorizeException;
@@ -39,6 +45,7 @@ import org.jdom.Namespace;
 import org.jdom.Verifier;
 import org.jdom.output.Format;
 import org.jdom.output.XMLOutputter;
+import org.jdom.transform.JDOMSource;
 import org.jdom.transform.XSLTransformException;
 import org.jdom.transform.XSLTransformer;
 
@@ -73,7 +80,7 @@ import org.jdom.transform.XSLTransformer;
  */
 public class XSLTDisseminationCrosswalk
     extends XSLTCrosswalk
-    implements DisseminationCrosswalk
+    implements XMLStreamDisseminationCrosswalk
 {
     /** log4j category */
     private static Logger log = Logger.getLogger(XSLTDisseminationCrosswalk.class);
@@ -248,6 +255,56 @@ public class XSLTDisseminationCrosswalk
         }
     }
 
+    /**
+     * Disseminate the DSpace item, collection, or community, sending the
+     * result of the transformation directly to the writer.
+     *
+     * @see XMLStreamDisseminationCrosswalk
+     */
+    public void disseminateElement(DSpaceObject dso, XMLStreamWriter writer)
+        throws CrosswalkException,
+               IOException, SQLException, AuthorizeException
+    {
+        transform(new JDOMSource(new Document(createDIM(dso))), writer);
+    }
+
+    /**
+     * Disseminate the DSpace item, collection, or community, sending the
+     * result of the transformation directly to the writer.
+     *
+     * @see XMLStreamDisseminationCrosswalk
+     */
+    public void disseminateList(DSpaceObject dso, XMLStreamWriter writer)
+        throws CrosswalkException,
+               IOException, SQLException, AuthorizeException
+    {
+        transform(new JDOMSource(createDIM(dso).getChildren()), writer);
+    }
+
+    // apply the compiled stylesheet, without building the result as a tree
+    private void transform(Source source, XMLStreamWriter writer)
+        throws CrosswalkException
+    {
+        init();
+
+        Templates templates = getTemplates(DIRECTION);
+        if (templates == null)
+        {
+            throw new CrosswalkInternalException("Failed to initialize transformer, probably error loading stylesheet.");
+        }
+
+        try
+        {
+            templates.newTransformer().transform(source,
+                    new SAXResult(XMLStreamCrosswalkUtils.contentHandler(writer)));
+        }
+        catch (TransformerException e)
+        {
+            log.error("Got error: "+e.toString());
+            throw new CrosswalkInternalException("XSL translation failed: "+e.toString(), e);
+        }
+    }
+
     /**
      * Determine is this crosswalk can dessiminate the given object.
      *
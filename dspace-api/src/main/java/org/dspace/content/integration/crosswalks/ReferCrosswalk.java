@@ -133,7 +133,7 @@ public class ReferCrosswalk extends SelfNamedPlugin
 	        }
 
 	        // Read the input form file for the specific collection
-	        DCInputsReader inputsReader = new DCInputsReader(formFileName);
+	        DCInputsReader inputsReader = DCInputsReader.getInstance(formFileName);
 
 	        DCInputSet inputSet = inputsReader.getInputs(col_handle);
 	        aliasForm = inputSet.getFormName();
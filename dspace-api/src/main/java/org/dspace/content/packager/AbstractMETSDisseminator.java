@@ -8,11 +8,12 @@
 package org.dspace.content.packager;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -53,6 +54,7 @@ import java.io.FileOutputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 
+import org.apache.commons.io.output.DeferredFileOutputStream;
 import org.apache.log4j.Logger;
 
 import org.dspace.app.util.Util;
@@ -70,6 +72,8 @@ import org.dspace.content.crosswalk.CrosswalkException;
 import org.dspace.content.crosswalk.CrosswalkObjectNotSupported;
 import org.dspace.content.crosswalk.DisseminationCrosswalk;
 import org.dspace.content.crosswalk.StreamDisseminationCrosswalk;
+import org.dspace.content.crosswalk.XMLStreamCrosswalkUtils;
+import org.dspace.content.crosswalk.XMLStreamDisseminationCrosswalk;
 import org.dspace.core.ConfigurationManager;
 import org.dspace.core.Constants;
 import org.dspace.core.Context;
@@ -123,9 +127,19 @@ public abstract class AbstractMETSDisseminator
     // JDOM xml output writer - indented format for readability.
     private static XMLOutputter outputter = new XMLOutputter(Format.getPrettyFormat());
 
+    /**
+     * Size above which the output of a stream crosswalk is spooled to a
+     * temporary file instead of being held in memory.
+     */
+    private static final int SPOOL_THRESHOLD = 1024 * 1024;
+
     // for gensym()
     private int idCounter = 1;
 
+    // crosswalk output base64 encoded in a manifest-only package, read when
+    // the manifest is written and closed after
+    private List<InputStream> manifestStreams = new ArrayList<InputStream>();
+
     /**
      * Default date/time (in milliseconds since epoch) to set for Zip Entries
      * for DSpace Objects which don't have a Last Modified date.  If we don't
@@ -169,6 +183,7 @@ public abstract class AbstractMETSDisseminator
             {
                 is.close();
             }
+            extraFiles.clear();
         }
     }
 
@@ -245,13 +260,20 @@ public abstract class AbstractMETSDisseminator
             // Generate a true manifest-only "package", no external files/data & no need to zip up
             if (params != null && params.getBooleanProperty("manifestOnly", false))
             {
-                Mets manifest = makeManifest(context, dso, params, null);
-                //only validate METS if specified (default = true)
-                if(params.getBooleanProperty("validate", true))
+                try
+                {
+                    Mets manifest = makeManifest(context, dso, params, null);
+                    //only validate METS if specified (default = true)
+                    if(params.getBooleanProperty("validate", true))
+                    {
+                        manifest.validate(new MetsValidator());
+                    }
+                    manifest.write(new MetsWriter(outStream));
+                }
+                finally
                 {
-                    manifest.validate(new MetsValidator());
+                    closeManifestStreams();
                 }
-                manifest.write(new MetsWriter(outStream));
             }
             else
             {
@@ -315,6 +337,23 @@ public abstract class AbstractMETSDisseminator
 
         // map of extra streams to put in Zip (these are located during makeManifest())
         MdStreamCache extraStreams = new MdStreamCache();
+        try
+        {
+            writeZipContents(context, dso, params, pkg, lmTime, extraStreams);
+        }
+        finally
+        {
+            // the streams not copied into the Zip, e.g. after an error
+            extraStreams.close();
+        }
+    }
+
+    private void writeZipContents(Context context, DSpaceObject dso,
+            PackageParameters params, OutputStream pkg, long lmTime,
+            MdStreamCache extraStreams)
+            throws PackageValidationException, CrosswalkException, MetsException,
+            AuthorizeException, SQLException, IOException
+    {
         ZipOutputStream zip = new ZipOutputStream(pkg);
         zip.setComment("METS archive created by DSpace " + Util.getSourceVersion());
         Mets manifest = makeManifest(context, dso, params, extraStreams);
@@ -656,10 +695,18 @@ public abstract class AbstractMETSDisseminator
                         }
 
                         // Disseminate crosswalk output to an outputstream
-                        ByteArrayOutputStream disseminateOutput = new ByteArrayOutputStream();
-                        sxwalk.disseminate(context, dso, disseminateOutput);
+                        DeferredFileOutputStream disseminateOutput = new DeferredFileOutputStream(
+                                SPOOL_THRESHOLD, "METSDissemination", null, getSpoolDirectory());
+                        try
+                        {
+                            sxwalk.disseminate(context, dso, disseminateOutput);
+                        }
+                        finally
+                        {
+                            disseminateOutput.close();
+                        }
                         // Convert output to an inputstream, so we can write to manifest or Zip file
-                        ByteArrayInputStream crosswalkedStream = new ByteArrayInputStream(disseminateOutput.toByteArray());
+                        InputStream crosswalkedStream = spooledInputStream(disseminateOutput);
 
                         //If we are capturing extra files to put into a Zip package
                         if(extraStreams!=null)
@@ -693,6 +740,7 @@ public abstract class AbstractMETSDisseminator
                             // Now, create our <binData> and add base64 encoded contents to it.
                             BinData binData = new BinData();
                             Base64 base64 = new Base64(crosswalkedStream);
+                            manifestStreams.add(crosswalkedStream);
                             binData.getContent().add(base64);
                             mdWrap.getContent().add(binData);
                             mdSec.getContent().add(mdWrap);
@@ -1326,6 +1374,68 @@ public abstract class AbstractMETSDisseminator
         return null;
     }
 
+    // temporary directory for crosswalk output too large to keep in memory
+    private static File getSpoolDirectory()
+    {
+        String tempDirectory = ConfigurationManager.getProperty("upload.temp.dir");
+        return new File(tempDirectory != null ? tempDirectory : System.getProperty("java.io.tmpdir"));
+    }
+
+    // close the streams of the <binData> elements once the manifest is written
+    private void closeManifestStreams()
+        throws IOException
+    {
+        try
+        {
+            for (InputStream is : manifestStreams)
+            {
+                is.close();
+            }
+        }
+        finally
+        {
+            manifestStreams.clear();
+        }
+    }
+
+    // read back the spooled crosswalk output; a temporary file is deleted
+    // when the stream is closed (see MdStreamCache.close() and
+    // closeManifestStreams())
+    private static InputStream spooledInputStream(DeferredFileOutputStream spool)
+        throws IOException
+    {
+        if (spool.isInMemory())
+        {
+            return new ByteArrayInputStream(spool.getData());
+        }
+        final File spoolFile = spool.getFile();
+        return new FileInputStream(spoolFile)
+        {
+            private boolean closed = false;
+
+            @Override
+            public void close() throws IOException
+            {
+                if (closed)
+                {
+                    return;
+                }
+                closed = true;
+                try
+                {
+                    super.close();
+                }
+                finally
+                {
+                    if (!spoolFile.delete())
+                    {
+                        log.warn("Unable to delete temporary file " + spoolFile);
+                    }
+                }
+            }
+        };
+    }
+
     // Get result from crosswalk plugin and add it to the document,
     // including namespaces and schema.
     // returns the new/modified element upon success.
@@ -1355,7 +1465,16 @@ public abstract class AbstractMETSDisseminator
 
             // add result of crosswalk
             PreformedXML pXML = null;
-            if (xwalk.preferList())
+            if (xwalk instanceof XMLStreamDisseminationCrosswalk)
+            {
+                // serialize straight from the crosswalk, without the JDOM tree
+                String res = XMLStreamCrosswalkUtils.disseminateToString(xwalk, dso, xwalk.preferList());
+                if (res.length() > 0)
+                {
+                    pXML = new PreformedXML(res);
+                }
+            }
+            else if (xwalk.preferList())
             {
                 List<Element> res = xwalk.disseminateList(dso);
                 if (!(res == null || res.isEmpty()))
@@ -7,6 +7,8 @@
  */
 package org.dspace.core;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.ArrayList;
@@ -32,6 +34,7 @@ import org.dspace.event.Dispatcher;
 import org.dspace.event.Event;
 import org.dspace.event.EventManager;
 import org.dspace.storage.rdbms.DatabaseManager;
+import org.dspace.storage.rdbms.DatabaseStatistics;
 
 /**
  * Class representing the context of a particular DSpace operation. This stores
@@ -98,6 +101,12 @@ public class Context
 
     /** Autocommit */
     private boolean isAutoCommit;
+
+    /** Resources to close with the context, e.g. streamed queries */
+    private List<Closeable> resources = null;
+
+    /** Actions to run once the changes of the context are committed */
+    private List<Runnable> commitActions = null;
     
     /** options */
     private short options = 0;
@@ -115,6 +124,9 @@ public class Context
      * system check
      */
     private Stack<String> itemWrapperCallHistory;
+
+    /** identifier of the context in the database statistics */
+    private long statisticsID;
     
     
     /**
@@ -154,6 +166,7 @@ public class Context
         // Obtain a non-auto-committing connection
         connection = DatabaseManager.getConnection();
         connection.setAutoCommit(false);
+        statisticsID = DatabaseStatistics.contextOpened();
 
 		// This is one heck of a bottleneck, most visitors were just
 		// outsider/robots, they should be
@@ -198,6 +211,127 @@ public class Context
 		connection.setAutoCommit(b);
 	isAutoCommit = b;
     }
+
+    /**
+     * @return true if the connection of the context is in auto-commit mode,
+     *         i.e. nothing has been written with it which is not committed
+     */
+    public boolean isAutoCommit()
+    {
+        return isAutoCommit;
+    }
+
+    /**
+     * Register a resource held on behalf of this context, such as a query
+     * streamed on its own database connection, to be closed when the context
+     * is completed or aborted if it has not been closed before.
+     *
+     * @param resource
+     *            the resource to close with the context
+     */
+    public void addResource(Closeable resource)
+    {
+        if (resources == null)
+        {
+            resources = new LinkedList<Closeable>();
+        }
+        resources.add(resource);
+    }
+
+    /**
+     * Forget a resource registered with {@link #addResource}, once closed.
+     *
+     * @param resource
+     *            the resource closed
+     */
+    public void removeResource(Closeable resource)
+    {
+        if (resources != null)
+        {
+            resources.remove(resource);
+        }
+    }
+
+    /**
+     * Register an action to run once the changes made with this context are
+     * committed, before the events are dispatched, e.g. to drop the cached
+     * copies of the rows changed.  The actions are dropped if the context is
+     * aborted.
+     *
+     * @param action
+     *            the action to run after the next commit
+     */
+    public void addCommitAction(Runnable action)
+    {
+        if (commitActions == null)
+        {
+            commitActions = new LinkedList<Runnable>();
+        }
+        commitActions.add(action);
+    }
+
+    /**
+     * Get an action waiting for the next commit.
+     *
+     * @param type
+     *            the class of the action
+     * @return the first action of the class registered with
+     *         {@link #addCommitAction} since the last commit, or null
+     */
+    public <T extends Runnable> T getCommitAction(Class<T> type)
+    {
+        if (commitActions != null)
+        {
+            for (Runnable action : commitActions)
+            {
+                if (type.isInstance(action))
+                {
+                    return type.cast(action);
+                }
+            }
+        }
+        return null;
+    }
+
+    private void runCommitActions()
+    {
+        if (commitActions != null)
+        {
+            List<Runnable> running = commitActions;
+            commitActions = null;
+            for (Runnable action : running)
+            {
+                try
+                {
+                    action.run();
+                }
+                catch (RuntimeException e)
+                {
+                    log.error("Error running " + action + " after commit", e);
+                }
+            }
+        }
+    }
+
+    private void closeResources()
+    {
+        if (resources != null)
+        {
+            List<Closeable> closing = resources;
+            resources = null;
+            for (Closeable resource : closing)
+            {
+                try
+                {
+                    resource.close();
+                }
+                catch (IOException e)
+                {
+                    log.warn("Cannot close " + resource, e);
+                }
+            }
+        }
+    }
     /**
      * Set the current user. Authentication must have been performed by the
      * caller - this call does not attempt any authentication.
@@ -407,10 +541,17 @@ public class Context
         }
         finally
         {
+            closeResources();
+
             // Free the DB connection
             // If connection is closed or null, this is a no-op
             DatabaseManager.freeConnection(connection);
+            if (connection != null)
+            {
+                DatabaseStatistics.contextClosed(statisticsID, false);
+            }
             connection = null;
+            commitActions = null;
             clearCache();
         }
     }
@@ -455,11 +596,13 @@ public class Context
 				if (!isAutoCommit) {
 					connection.commit();
 				}
+				runCommitActions();
 				dispatcher.dispatch(this);
 			} else {
 				if (!isAutoCommit) {
 					connection.commit();
 				}
+				runCommitActions();
 			}
 
 		}
@@ -574,6 +717,7 @@ public class Context
         }
         finally
         {
+            closeResources();
             try
             {
                 // Free the DB connection
@@ -584,8 +728,13 @@ public class Context
             {
                 log.error("Exception aborting context", ex);
             }
+            if (connection != null)
+            {
+                DatabaseStatistics.contextClosed(statisticsID, false);
+            }
             connection = null;
             events = null;
+            commitActions = null;
             clearCache();
         }
     }
@@ -744,6 +893,7 @@ public class Context
          */
         if (connection != null)
         {
+            DatabaseStatistics.contextClosed(statisticsID, true);
             abort();
         }
 
@@ -48,7 +48,7 @@ public class RequiredMetadata extends AbstractCurationTask
         super.init(curator, taskId);
         try
         {
-            reader = new DCInputsReader();
+            reader = DCInputsReader.getInstance();
         }
         catch (DCInputsReaderException dcrE)
         {
@@ -0,0 +1,146 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.curate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.dspace.content.Bundle;
+import org.dspace.content.Item;
+import org.dspace.core.ConfigurationManager;
+import org.dspace.core.Constants;
+import org.dspace.core.Context;
+import org.dspace.core.PluginManager;
+import org.dspace.event.Consumer;
+import org.dspace.event.Event;
+
+/**
+ * Queues the processing of new files (thumbnails, text extraction, virus
+ * scan...) as curation tasks, instead of running it in the request which
+ * uploaded them: the items installed in the archive, and the archived items
+ * to which files are added in the ORIGINAL bundle (e.g. through the REST
+ * API), are queued with the tasks of <code>upload.tasks</code> in the
+ * <code>upload.queue</code> queue of curate.cfg, processed by
+ * <code>dspace curate -q</code>.  Does nothing if no task is configured.
+ *
+ * Recommended filter:  Item+Install:Bundle+Add
+ */
+public class UploadCurationConsumer implements Consumer
+{
+    /** log4j logger */
+    private static final Logger log = Logger.getLogger(UploadCurationConsumer.class);
+
+    /** handles of the items to process, in the current batch of events */
+    private Set<String> handles = new HashSet<String>();
+
+    public void initialize()
+        throws Exception
+    {
+
+    }
+
+    public void consume(Context ctx, Event event)
+        throws Exception
+    {
+        if (getTasks().isEmpty())
+        {
+            return;
+        }
+
+        if (event.getSubjectType() == Constants.ITEM
+                && event.getEventType() == Event.INSTALL)
+        {
+            Item item = Item.find(ctx, event.getSubjectID());
+            if (item != null && item.getHandle() != null)
+            {
+                handles.add(item.getHandle());
+            }
+        }
+        else if (event.getSubjectType() == Constants.BUNDLE
+                && event.getEventType() == Event.ADD
+                && event.getObjectType() == Constants.BITSTREAM)
+        {
+            // only uploads, not the files added by the tasks themselves
+            Bundle bundle = Bundle.find(ctx, event.getSubjectID());
+            if (bundle != null && Constants.CONTENT_BUNDLE_NAME.equals(bundle.getName()))
+            {
+                for (Item item : bundle.getItems())
+                {
+                    if (item.isArchived() && item.getHandle() != null)
+                    {
+                        handles.add(item.getHandle());
+                    }
+                }
+            }
+        }
+    }
+
+    public void end(Context ctx)
+        throws Exception
+    {
+        if (handles.isEmpty())
+        {
+            return;
+        }
+
+        try
+        {
+            TaskQueue queue = (TaskQueue) PluginManager.getSinglePlugin("curate", TaskQueue.class);
+            if (queue == null)
+            {
+                log.error("curate - no TaskQueue implemented");
+                return;
+            }
+
+            String queueName = ConfigurationManager.getProperty("curate", "upload.queue");
+            if (queueName == null)
+            {
+                queueName = "upload";
+            }
+            String eperson = (ctx.getCurrentUser() != null) ? ctx.getCurrentUser().getEmail() : "";
+            long now = System.currentTimeMillis();
+            List<String> tasks = getTasks();
+            Set<TaskQueueEntry> entries = new HashSet<TaskQueueEntry>();
+            for (String handle : handles)
+            {
+                entries.add(new TaskQueueEntry(eperson, now, tasks, handle));
+            }
+            queue.enqueue(queueName, entries);
+        }
+        finally
+        {
+            handles.clear();
+        }
+    }
+
+    public void finish(Context ctx)
+        throws Exception
+    {
+
+    }
+
+    private static List<String> getTasks()
+    {
+        List<String> tasks = new ArrayList<String>();
+        String config = ConfigurationManager.getProperty("curate", "upload.tasks");
+        if (config != null)
+        {
+            for (String task : config.split(","))
+            {
+                if (task.trim().length() > 0)
+                {
+                    tasks.add(task.trim());
+                }
+            }
+        }
+        return tasks;
+    }
+}
@@ -24,6 +24,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -72,6 +73,7 @@ import org.dspace.content.Bitstream;
 import org.dspace.content.Bundle;
 import org.dspace.content.Collection;
 import org.dspace.content.Community;
+import org.dspace.content.CommunityHierarchy;
 import org.dspace.content.DSpaceObject;
 import org.dspace.content.Item;
 import org.dspace.content.ItemIterator;
@@ -739,20 +741,48 @@ public class SolrServiceImpl implements SearchService, IndexingService {
 
 
     /**
+     * @param context the DSpace context
      * @param myitem the item for which our locations are to be retrieved
      * @return a list containing the identifiers of the communities & collections
      * @throws SQLException sql exception
      */
-    protected List<String> getItemLocations(Item myitem)
+    protected List<String> getItemLocations(Context context, Item myitem)
             throws SQLException {
         List<String> locations = new Vector<String>();
 
+        // the communities from the snapshot of the hierarchy, if it holds
+        // all the collections of the item
+        CommunityHierarchy hierarchy = CommunityHierarchy.getSnapshot(context);
+        Collection[] collections = myitem.getCollections();
+        Set<Integer> communityIDs = hierarchy != null ? new LinkedHashSet<Integer>() : null;
+        for (int i = 0; communityIDs != null && i < collections.length; i++)
+        {
+            if (!hierarchy.contains(Constants.COLLECTION, collections[i].getID()))
+            {
+                communityIDs = null;
+                break;
+            }
+            for (int communityID : hierarchy.getCommunityIDs(collections[i].getID()))
+            {
+                communityIDs.add(communityID);
+            }
+        }
+        if (communityIDs != null)
+        {
+            for (Integer communityID : communityIDs)
+            {
+                locations.add("m" + communityID);
+            }
+            for (Collection collection : collections)
+            {
+                locations.add("l" + collection.getID());
+            }
+            return locations;
+        }
+
         // build list of community ids
         Community[] communities = myitem.getCommunities();
 
-        // build list of collection ids
-        Collection[] collections = myitem.getCollections();
-
         // now put those into strings
         int i = 0;
 
@@ -769,8 +799,18 @@ public class SolrServiceImpl implements SearchService, IndexingService {
         return locations;
     }
 
-    protected List<String> getCollectionLocations(Collection target) throws SQLException {
+    protected List<String> getCollectionLocations(Context context, Collection target) throws SQLException {
         List<String> locations = new Vector<String>();
+        CommunityHierarchy hierarchy = CommunityHierarchy.getSnapshot(context);
+        if (hierarchy != null && hierarchy.contains(Constants.COLLECTION, target.getID()))
+        {
+            for (int communityID : hierarchy.getCommunityIDs(target.getID()))
+            {
+                locations.add("m" + communityID);
+            }
+            return locations;
+        }
+
         // build list of community ids
         Community[] communities = target.getCommunities();
 
@@ -783,10 +823,20 @@ public class SolrServiceImpl implements SearchService, IndexingService {
         return locations;
     }
 
-    protected List<String> getCommunityLocations(Community target)
+    protected List<String> getCommunityLocations(Context context, Community target)
             throws SQLException
     {
         List<String> locations = new Vector<String>();
+        CommunityHierarchy hierarchy = CommunityHierarchy.getSnapshot(context);
+        if (hierarchy != null && hierarchy.contains(Constants.COMMUNITY, target.getID()))
+        {
+            for (int communityID : hierarchy.getParentCommunityIDs(target.getID()))
+            {
+                locations.add("m" + communityID);
+            }
+            return locations;
+        }
+
         // build list of community ids
         Community[] communities = target.getAllParents();
 
@@ -860,7 +910,7 @@ public class SolrServiceImpl implements SearchService, IndexingService {
             throws SQLException, IOException
     {
         
-        List<String> locations = getCommunityLocations(community);
+        List<String> locations = getCommunityLocations(context, community);
         
         // Create Document
         SolrInputDocument doc = buildDocument(Constants.COMMUNITY,
@@ -915,7 +965,7 @@ public class SolrServiceImpl implements SearchService, IndexingService {
      */
     protected void buildDocument(Context context, Collection collection)
     throws SQLException, IOException {
-        List<String> locations = getCollectionLocations(collection);
+        List<String> locations = getCollectionLocations(context, collection);
 
         // Create Lucene Document
         SolrInputDocument doc = buildDocument(Constants.COLLECTION, collection.getID(),
@@ -1003,7 +1053,7 @@ public class SolrServiceImpl implements SearchService, IndexingService {
         }
 
         // get the location string (for searching by collection & community)
-        List<String> locations = getItemLocations(item);
+        List<String> locations = getItemLocations(context, item);
 
         SolrInputDocument doc = buildDocument(Constants.ITEM, item.getID(), handle,
                 locations);
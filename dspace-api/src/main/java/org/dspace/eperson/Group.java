@@ -7,6 +7,7 @@
  */
 package org.dspace.eperson;
 
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -492,6 +493,14 @@ public class Group extends DSpaceObject
 
         // all the users are members of the anonymous group 
         groupIDs.add(Integer.valueOf(0));
+
+        // use the in-memory copy of group2groupcache when available
+        Set<Integer> parentIDs = GroupClosureIndex.getAncestors(c, groupIDs);
+        if (parentIDs != null)
+        {
+            groupIDs.addAll(parentIDs);
+            return groupIDs;
+        }
         
         // now we have all owning groups, also grab all parents of owning groups
         // yes, I know this could have been done as one big query and a union,
@@ -1080,15 +1089,19 @@ public class Group extends DSpaceObject
                 "DELETE FROM EPersonGroup2EPerson WHERE eperson_group_id= ? ",
                 getID());
 
-        // remove any group2groupcache entries
+        // Now remove any group2group assignments
         DatabaseManager.updateQuery(ourContext,
-                "DELETE FROM group2groupcache WHERE parent_id= ? OR child_id= ? ",
+                "DELETE FROM group2group WHERE parent_id= ? OR child_id= ? ",
                 getID(),getID());
 
-        // Now remove any group2group assignments
+        // the groups we belonged to may have lost some descendants
+        updateGroupCache();
+
+        // remove any group2groupcache entries left
         DatabaseManager.updateQuery(ourContext,
-                "DELETE FROM group2group WHERE parent_id= ? OR child_id= ? ",
+                "DELETE FROM group2groupcache WHERE parent_id= ? OR child_id= ? ",
                 getID(),getID());
+        GroupClosureIndex.changed(ourContext);
 
         // Delete the Dublin Core
         removeMetadataFromDatabase();
@@ -1212,26 +1225,54 @@ public class Group extends DSpaceObject
         // Redo Group mappings if they've changed
         if (groupsChanged)
         {
-            // Remove any existing mappings
-            DatabaseManager.updateQuery(ourContext,
-                    "delete from group2group where parent_id= ? ",
+            // Find out which mappings were added or removed
+            Set<Integer> removed = new HashSet<Integer>();
+            TableRowIterator tri = DatabaseManager.queryTable(ourContext, "group2group",
+                    "SELECT * FROM group2group WHERE parent_id= ? ",
                     getID());
+            try
+            {
+                while (tri.hasNext())
+                {
+                    removed.add(Integer.valueOf(tri.next().getIntColumn("child_id")));
+                }
+            }
+            finally
+            {
+                tri.close();
+            }
 
-            // Add new mappings
-            Iterator<Group> i = groups.iterator();
+            Set<Integer> added = new HashSet<Integer>();
+            for (Group g : groups)
+            {
+                Integer childID = Integer.valueOf(g.getID());
+                if (!removed.remove(childID))
+                {
+                    added.add(childID);
+                }
+            }
 
-            while (i.hasNext())
+            for (Integer childID : removed)
             {
-                Group g = i.next();
+                DatabaseManager.updateQuery(ourContext,
+                        "DELETE FROM group2group WHERE parent_id= ? AND child_id= ? ",
+                        getID(), childID);
+            }
 
+            for (Integer childID : added)
+            {
                 TableRow mappingRow = DatabaseManager.row("group2group");
                 mappingRow.setColumn("parent_id", getID());
-                mappingRow.setColumn("child_id", g.getID());
+                mappingRow.setColumn("child_id", childID.intValue());
                 DatabaseManager.insert(ourContext, mappingRow);
             }
 
             // groups changed, now change group cache
-            rethinkGroupCache();
+            if (!added.isEmpty() || !removed.isEmpty())
+            {
+                updateGroupCache();
+                GroupClosureIndex.changed(ourContext);
+            }
 
             groupsChanged = false;
         }
@@ -1289,122 +1330,239 @@ public class Group extends DSpaceObject
         return null;
     }
 
+    /** Number of statements sent to the database in a single JDBC batch */
+    private static final int BATCH_SIZE = 500;
+
+    /** Maximum number of values in a single SQL "IN" list */
+    private static final int IN_LIST_SIZE = 500;
+
     /**
-     * Regenerate the group cache AKA the group2groupcache table in the database -
-     * meant to be called when a group is added or removed from another group
-     * 
+     * Bring the group cache AKA the group2groupcache table in the database up
+     * to date, after the direct members of this group have changed.
+     * <p>
+     * Only the relations of this group and of the groups it belongs to
+     * (directly or not) can change, so only their descendants are computed
+     * again, walking the group2group table from them; the cache rows which
+     * are no longer valid are deleted, and the missing ones inserted.
      */
-    private void rethinkGroupCache() throws SQLException
+    private void updateGroupCache() throws SQLException
     {
-        // read in the group2group table
-        TableRowIterator tri = DatabaseManager.queryTable(ourContext, "group2group",
-                "SELECT * FROM group2group");
-
-        Map<Integer,Set<Integer>> parents = new HashMap<Integer,Set<Integer>>();
-
+        // the groups whose descendants may have changed
+        Set<Integer> affected = new HashSet<Integer>();
+        affected.add(Integer.valueOf(getID()));
+        TableRowIterator tri = DatabaseManager.queryTable(ourContext, "group2groupcache",
+                "SELECT * FROM group2groupcache WHERE child_id= ? ",
+                getID());
         try
         {
             while (tri.hasNext())
             {
-                TableRow row = (TableRow) tri.next();
-
-                Integer parentID = Integer.valueOf(row.getIntColumn("parent_id"));
-                Integer childID = Integer.valueOf(row.getIntColumn("child_id"));
+                affected.add(Integer.valueOf(tri.next().getIntColumn("parent_id")));
+            }
+        }
+        finally
+        {
+            tri.close();
+        }
 
-                // if parent doesn't have an entry, create one
-                if (!parents.containsKey(parentID))
+        // read the part of group2group reachable from them, one level at a time
+        Map<Integer,Set<Integer>> children = new HashMap<Integer,Set<Integer>>();
+        Set<Integer> toLoad = new HashSet<Integer>(affected);
+        while (!toLoad.isEmpty())
+        {
+            Map<Integer,Set<Integer>> level = queryPairs("group2group", "parent_id", "child_id", toLoad);
+            children.putAll(level);
+            for (Integer id : toLoad)
+            {
+                if (!children.containsKey(id))
                 {
-                    Set<Integer> children = new HashSet<Integer>();
-
-                    // add child id to the list
-                    children.add(childID);
-                    parents.put(parentID, children);
+                    children.put(id, new HashSet<Integer>());
                 }
-                else
+            }
+            toLoad = new HashSet<Integer>();
+            for (Set<Integer> levelChildren : level.values())
+            {
+                for (Integer child : levelChildren)
                 {
-                    // parent has an entry, now add the child to the parent's record
-                    // of children
-                    Set<Integer> children =  parents.get(parentID);
-                    children.add(childID);
+                    if (!children.containsKey(child))
+                    {
+                        toLoad.add(child);
+                    }
                 }
             }
         }
-        finally
+
+        // compare the new closure of the affected groups with the cache
+        Map<Integer,Set<Integer>> cached = queryPairs("group2groupcache", "parent_id", "child_id", affected);
+        Map<Integer,Set<Integer>> descendants = new HashMap<Integer,Set<Integer>>();
+        List<int[]> toDelete = new ArrayList<int[]>();
+        List<TableRow> toInsert = new ArrayList<TableRow>();
+        for (Integer parent : affected)
         {
-            // close the TableRowIterator to free up resources
-            if (tri != null)
+            Set<Integer> expected = getDescendants(children, descendants, parent);
+            Set<Integer> current = cached.get(parent);
+            if (current == null)
             {
-                tri.close();
+                current = new HashSet<Integer>();
+            }
+            for (Integer child : current)
+            {
+                if (!expected.contains(child))
+                {
+                    toDelete.add(new int[] { parent.intValue(), child.intValue() });
+                }
+            }
+            for (Integer child : expected)
+            {
+                if (!current.contains(child))
+                {
+                    TableRow row = DatabaseManager.row("group2groupcache");
+                    row.setColumn("parent_id", parent.intValue());
+                    row.setColumn("child_id", child.intValue());
+                    toInsert.add(row);
+                }
             }
         }
 
-        // now parents is a hash of all of the IDs of groups that are parents
-        // and each hash entry is a hash of all of the IDs of children of those
-        // parent groups
-        // so now to establish all parent,child relationships we can iterate
-        // through the parents hash
-        for (Map.Entry<Integer, Set<Integer>> parent : parents.entrySet())
-        {
-            Set<Integer> myChildren = getChildren(parents, parent.getKey());
-            parent.getValue().addAll(myChildren);
-        }
+        executeBatch("DELETE FROM group2groupcache WHERE parent_id= ? AND child_id= ? ", toDelete);
+        DatabaseManager.insert(ourContext, toInsert);
 
-        // empty out group2groupcache table
-        DatabaseManager.updateQuery(ourContext,
-                "DELETE FROM group2groupcache WHERE id >= 0");
+        log.debug(LogManager.getHeader(ourContext, "update_group_cache", "group_id=" + getID()
+                + ",affected_groups=" + affected.size() + ",deleted=" + toDelete.size()
+                + ",inserted=" + toInsert.size()));
+    }
 
-        // write out new one
-        for (Map.Entry<Integer, Set<Integer>> parent : parents.entrySet())
+    /**
+     * Read a parent,child table for a set of parents.
+     *
+     * @param table
+     *            group2group or group2groupcache
+     * @param parentColumn
+     *            the column holding the parent ID
+     * @param childColumn
+     *            the column holding the child ID
+     * @param parents
+     *            the parents to look for
+     * @return Map whose keys are the parents found, and values their children
+     */
+    private Map<Integer,Set<Integer>> queryPairs(String table, String parentColumn,
+            String childColumn, Set<Integer> parents) throws SQLException
+    {
+        Map<Integer,Set<Integer>> result = new HashMap<Integer,Set<Integer>>();
+        List<Integer> ids = new ArrayList<Integer>(parents);
+        for (int start = 0; start < ids.size(); start += IN_LIST_SIZE)
         {
-            int parentID = parent.getKey().intValue();
+            List<Integer> chunk = ids.subList(start, Math.min(ids.size(), start + IN_LIST_SIZE));
+            StringBuilder query = new StringBuilder("SELECT * FROM ").append(table)
+                    .append(" WHERE ").append(parentColumn).append(" IN (");
+            for (int i = 0; i < chunk.size(); i++)
+            {
+                query.append(i == 0 ? "?" : ",?");
+            }
+            query.append(")");
 
-            for (Integer child : parent.getValue())
+            TableRowIterator tri = DatabaseManager.queryTable(ourContext, table,
+                    query.toString(), chunk.toArray());
+            try
+            {
+                while (tri.hasNext())
+                {
+                    TableRow row = tri.next();
+                    Integer parentID = Integer.valueOf(row.getIntColumn(parentColumn));
+                    Set<Integer> children = result.get(parentID);
+                    if (children == null)
+                    {
+                        children = new HashSet<Integer>();
+                        result.put(parentID, children);
+                    }
+                    children.add(Integer.valueOf(row.getIntColumn(childColumn)));
+                }
+            }
+            finally
             {
-                TableRow row = DatabaseManager.row("group2groupcache");
+                tri.close();
+            }
+        }
+        return result;
+    }
 
-                row.setColumn("parent_id", parentID);
-                row.setColumn("child_id", child);
+    /**
+     * Run a statement with two integer parameters for each pair, sending them
+     * to the database in batches.
+     *
+     * @param sql
+     *            the statement
+     * @param pairs
+     *            the parameters
+     */
+    private void executeBatch(String sql, List<int[]> pairs) throws SQLException
+    {
+        if (pairs.isEmpty())
+        {
+            return;
+        }
 
-                DatabaseManager.insert(ourContext, row);
+        PreparedStatement statement = ourContext.getDBConnection().prepareStatement(sql);
+        try
+        {
+            int pending = 0;
+            for (int[] pair : pairs)
+            {
+                statement.setInt(1, pair[0]);
+                statement.setInt(2, pair[1]);
+                statement.addBatch();
+                if (++pending == BATCH_SIZE)
+                {
+                    statement.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0)
+            {
+                statement.executeBatch();
             }
         }
+        finally
+        {
+            statement.close();
+        }
     }
 
     /**
-     * Used recursively to generate a map of ALL of the children of the given
-     * parent
+     * Used recursively to generate a set of ALL of the children of the given
+     * parent.  The results are remembered, so that each group is walked only
+     * once.
      * 
      * @param parents
      *            Map of parent,child relationships
+     * @param descendants
+     *            Map of the results already computed
      * @param parent
      *            the parent you're interested in
-     * @return Map whose keys are all of the children of a parent
+     * @return Set of all of the children of a parent
      */
-    private Set<Integer> getChildren(Map<Integer,Set<Integer>> parents, Integer parent)
+    private Set<Integer> getDescendants(Map<Integer,Set<Integer>> parents,
+            Map<Integer,Set<Integer>> descendants, Integer parent)
     {
-        Set<Integer> myChildren = new HashSet<Integer>();
-
-        // degenerate case, this parent has no children
-        if (!parents.containsKey(parent))
+        Set<Integer> myChildren = descendants.get(parent);
+        if (myChildren != null)
         {
             return myChildren;
         }
 
-        // got this far, so we must have children
-        Set<Integer> children =  parents.get(parent);
-
-        // now iterate over all of the children
-        Iterator<Integer> i = children.iterator();
+        myChildren = new HashSet<Integer>();
+        // guard against cycles, which the UI should never allow
+        descendants.put(parent, myChildren);
 
-        while (i.hasNext())
+        Set<Integer> children = parents.get(parent);
+        if (children != null)
         {
-            Integer childID = i.next();
-
-            // add this child's ID to our return set
-            myChildren.add(childID);
-
-            // and now its children
-            myChildren.addAll(getChildren(parents, childID));
+            for (Integer childID : children)
+            {
+                // add this child's ID and its children to our return set
+                myChildren.add(childID);
+                myChildren.addAll(getDescendants(parents, descendants, childID));
+            }
         }
 
         return myChildren;
@@ -0,0 +1,60 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.eperson;
+
+import org.dspace.core.Constants;
+import org.dspace.core.Context;
+import org.dspace.event.Consumer;
+import org.dspace.event.Event;
+
+/**
+ * Drops the in-memory group closure index once a change to the group
+ * hierarchy has been committed.
+ *
+ * Recommended filter:  Group+Add|Remove|Delete
+ *
+ * @see GroupClosureIndex
+ */
+public class GroupClosureConsumer implements Consumer
+{
+    /** true if the current batch of events changed the hierarchy */
+    private boolean hierarchyChanged = false;
+
+    public void initialize()
+        throws Exception
+    {
+
+    }
+
+    public void consume(Context context, Event event)
+        throws Exception
+    {
+        if (event.getSubjectType() == Constants.GROUP
+                && (event.getEventType() == Event.DELETE
+                    || event.getObjectType() == Constants.GROUP))
+        {
+            hierarchyChanged = true;
+        }
+    }
+
+    public void end(Context context)
+        throws Exception
+    {
+        if (hierarchyChanged)
+        {
+            GroupClosureIndex.committed(context);
+            hierarchyChanged = false;
+        }
+    }
+
+    public void finish(Context context)
+        throws Exception
+    {
+
+    }
+}
@@ -0,0 +1,234 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.eperson;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import org.apache.log4j.Logger;
+import org.dspace.core.ConfigurationManager;
+import org.dspace.core.Context;
+import org.dspace.storage.rdbms.DatabaseManager;
+
+/**
+ * In-memory copy of the group2groupcache table (the transitive closure of
+ * group membership), used by {@link Group#allMemberGroupIDs} and therefore
+ * by every <code>Group.isMember</code> check, instead of querying the
+ * table each time.
+ * <p>
+ * The index is only read from committed data, and is dropped whenever a
+ * group hierarchy change is committed in this JVM (see
+ * {@link GroupClosureConsumer}).  Contexts which changed the hierarchy but
+ * are not committed yet read the database, to see their own changes.
+ * Changes made by other JVMs (e.g. command line tools) are picked up when
+ * the index is reloaded, at most every
+ * <code>group.closure.cache.refresh</code> seconds.
+ * <p>
+ * Configuration:
+ * <pre>
+ *   group.closure.cache.enabled = true
+ *   group.closure.cache.refresh = 300
+ * </pre>
+ */
+final class GroupClosureIndex
+{
+    /** log4j logger */
+    private static final Logger log = Logger.getLogger(GroupClosureIndex.class);
+
+    /** the current index, null if not loaded */
+    private static volatile Map<Integer, int[]> ancestors = null;
+
+    /** when the current index was loaded */
+    private static volatile long loaded = 0;
+
+    /** incremented each time the index is dropped */
+    private static volatile long generation = 0;
+
+    /** contexts holding uncommitted group hierarchy changes */
+    private static final Map<Context, Boolean> changedContexts =
+            Collections.synchronizedMap(new WeakHashMap<Context, Boolean>());
+
+    private GroupClosureIndex()
+    {
+    }
+
+    /**
+     * @return true if the index is enabled in the configuration
+     */
+    static boolean isEnabled()
+    {
+        return ConfigurationManager.getBooleanProperty("group.closure.cache.enabled", false);
+    }
+
+    /**
+     * Find all the groups having (directly or through other groups) one of
+     * the given groups as a member.
+     *
+     * @param c
+     *            context of the caller
+     * @param groupIDs
+     *            IDs of the member groups
+     * @return IDs of the parent groups, or null if the index cannot be used
+     *         for this context and the database must be queried
+     * @throws SQLException
+     *             if the index cannot be loaded
+     */
+    static Set<Integer> getAncestors(Context c, Collection<Integer> groupIDs)
+            throws SQLException
+    {
+        if (!isEnabled() || changedContexts.containsKey(c))
+        {
+            return null;
+        }
+
+        Map<Integer, int[]> index = getIndex();
+        Set<Integer> result = new HashSet<Integer>();
+        for (Integer groupID : groupIDs)
+        {
+            int[] parents = index.get(groupID);
+            if (parents != null)
+            {
+                for (int parent : parents)
+                {
+                    result.add(Integer.valueOf(parent));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Record that the group hierarchy was changed in the given context: until
+     * it is committed the context bypasses the index.
+     *
+     * @param c
+     *            the context holding the change
+     */
+    static void changed(Context c)
+    {
+        changedContexts.put(c, Boolean.TRUE);
+    }
+
+    /**
+     * Drop the index after a change has been committed (or aborted) in the
+     * given context.  The index is loaded again on the next use.
+     *
+     * @param c
+     *            the context which held the change
+     */
+    static void committed(Context c)
+    {
+        changedContexts.remove(c);
+        invalidate();
+    }
+
+    /**
+     * Drop the index, it is loaded again on the next use.
+     */
+    static synchronized void invalidate()
+    {
+        generation++;
+        ancestors = null;
+    }
+
+    private static Map<Integer, int[]> getIndex() throws SQLException
+    {
+        Map<Integer, int[]> index = ancestors;
+        long refresh = ConfigurationManager.getLongProperty("group.closure.cache.refresh", 300) * 1000;
+        if (index != null && System.currentTimeMillis() - loaded < refresh)
+        {
+            return index;
+        }
+
+        long loading;
+        synchronized (GroupClosureIndex.class)
+        {
+            loading = generation;
+        }
+        index = load();
+        synchronized (GroupClosureIndex.class)
+        {
+            // don't publish an index read while a change was being committed
+            if (loading == generation)
+            {
+                ancestors = index;
+                loaded = System.currentTimeMillis();
+            }
+        }
+        return index;
+    }
+
+    // Read the whole group2groupcache table, on its own connection so that
+    // only committed rows are seen
+    private static Map<Integer, int[]> load() throws SQLException
+    {
+        Map<Integer, Set<Integer>> parents = new HashMap<Integer, Set<Integer>>();
+        int count = 0;
+
+        Connection connection = null;
+        PreparedStatement statement = null;
+        ResultSet rs = null;
+        try
+        {
+            connection = DatabaseManager.getConnection();
+            statement = connection.prepareStatement("SELECT parent_id, child_id FROM group2groupcache");
+            rs = statement.executeQuery();
+            while (rs.next())
+            {
+                Integer childID = Integer.valueOf(rs.getInt(2));
+                Set<Integer> childParents = parents.get(childID);
+                if (childParents == null)
+                {
+                    childParents = new HashSet<Integer>();
+                    parents.put(childID, childParents);
+                }
+                childParents.add(Integer.valueOf(rs.getInt(1)));
+                count++;
+            }
+        }
+        finally
+        {
+            if (rs != null)
+            {
+                rs.close();
+            }
+            if (statement != null)
+            {
+                statement.close();
+            }
+            if (connection != null)
+            {
+                DatabaseManager.freeConnection(connection);
+            }
+        }
+
+        Map<Integer, int[]> index = new HashMap<Integer, int[]>(parents.size() * 4 / 3 + 1);
+        for (Map.Entry<Integer, Set<Integer>> entry : parents.entrySet())
+        {
+            int[] ids = new int[entry.getValue().size()];
+            int i = 0;
+            for (Integer id : entry.getValue())
+            {
+                ids[i++] = id.intValue();
+            }
+            index.put(entry.getKey(), ids);
+        }
+
+        log.debug("Loaded group closure index: " + count + " relations for " + index.size() + " groups");
+        return index;
+    }
+}
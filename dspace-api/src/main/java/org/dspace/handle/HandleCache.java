@@ -0,0 +1,379 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.handle;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+import org.dspace.core.ConfigurationManager;
+import org.dspace.core.Context;
+import org.dspace.storage.rdbms.DatabaseManager;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Bounded cache of the <code>handle</code> table, in both directions: from
+ * a handle to the type and ID of its object, and from the type and ID of an
+ * object to its handle.  The type and ID are packed in a single
+ * <code>long</code>, see {@link #key(int, int)}.
+ * <p>
+ * Only existing handles are cached, so handles created by other processes
+ * are found at once.  {@link HandleManager} drops the entries of the
+ * handles it creates or unbinds, and the identifier providers those of the
+ * handle rows they change (see {@link HandleManager#uncache}), once when
+ * changed and again once the context is committed: a request resolving the
+ * handle meanwhile reads, and may cache, the mapping still committed.  A
+ * context holding uncommitted handle changes neither reads nor fills the
+ * cache, so an aborted context leaves nothing behind.  Entries expire after
+ * <code>handle.cache.ttl</code> seconds, for the changes made by other
+ * processes, e.g. a new handle prefix.
+ * <p>
+ * Configuration:
+ * <pre>
+ *   handle.cache.enabled = true
+ *   handle.cache.size = 100000
+ *   handle.cache.ttl = 3600
+ *   handle.cache.preload = false
+ * </pre>
+ */
+final class HandleCache
+{
+    /** log4j logger */
+    private static final Logger log = Logger.getLogger(HandleCache.class);
+
+    /** the type and ID of a handle which is not bound to an object */
+    static final long UNBOUND = key(-1, -1);
+
+    /** the cache, null until first used or if disabled */
+    private static volatile HandleCache instance = null;
+
+    /** incremented each time an entry is dropped, to stop the preload */
+    private static final AtomicLong generation = new AtomicLong();
+
+    /** handle to the packed type and ID of its object */
+    private final Cache<String, Long> objects;
+
+    /** packed type and ID of an object to its handle */
+    private final Cache<Long, String> handles;
+
+    private final int size;
+
+    private HandleCache(int size, long ttl)
+    {
+        this.size = size;
+        this.objects = CacheBuilder.newBuilder().maximumSize(size)
+                .expireAfterWrite(ttl, TimeUnit.SECONDS).build();
+        this.handles = CacheBuilder.newBuilder().maximumSize(size)
+                .expireAfterWrite(ttl, TimeUnit.SECONDS).build();
+    }
+
+    /**
+     * @return the cache, or null if disabled in the configuration
+     */
+    static HandleCache getInstance()
+    {
+        HandleCache cache = instance;
+        if (cache == null && ConfigurationManager.getBooleanProperty("handle.cache.enabled", true))
+        {
+            synchronized (HandleCache.class)
+            {
+                cache = instance;
+                if (cache == null)
+                {
+                    cache = new HandleCache(
+                            ConfigurationManager.getIntProperty("handle.cache.size", 100000),
+                            ConfigurationManager.getLongProperty("handle.cache.ttl", 3600));
+                    instance = cache;
+                    if (ConfigurationManager.getBooleanProperty("handle.cache.preload", false))
+                    {
+                        cache.startPreload();
+                    }
+                }
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * @param context
+     *            the context resolving handles
+     * @return the cache, or null if disabled in the configuration or if the
+     *         context holds uncommitted changes of the handle table
+     */
+    static HandleCache getInstance(Context context)
+    {
+        if (context != null && context.getCommitAction(Invalidation.class) != null)
+        {
+            return null;
+        }
+        return getInstance();
+    }
+
+    /**
+     * @return the number of invalidations so far, to be read before the
+     *         database and passed to the put methods
+     */
+    long generation()
+    {
+        return generation.get();
+    }
+
+    /**
+     * Pack the type and ID of an object in a single value.
+     */
+    static long key(int type, int id)
+    {
+        return ((long) type << 32) | (id & 0xffffffffL);
+    }
+
+    /**
+     * @return the type of an object from its packed type and ID
+     */
+    static int type(long key)
+    {
+        return (int) (key >> 32);
+    }
+
+    /**
+     * @return the ID of an object from its packed type and ID
+     */
+    static int id(long key)
+    {
+        return (int) key;
+    }
+
+    /**
+     * @return the packed type and ID of the object of a handle,
+     *         {@link #UNBOUND} if the handle exists but is not bound, or null
+     *         if not cached
+     */
+    Long getObject(String handle)
+    {
+        return objects.getIfPresent(handle);
+    }
+
+    /**
+     * @return the handle of an object, or null if not cached
+     */
+    String getHandle(int type, int id)
+    {
+        return handles.getIfPresent(key(type, id));
+    }
+
+    /**
+     * Cache the object of a handle, unless an entry was dropped since the
+     * database was read.
+     *
+     * @param started
+     *            the {@link #generation()} read before the database
+     */
+    void putObject(String handle, long object, long started)
+    {
+        objects.put(handle, object);
+        if (generation.get() != started)
+        {
+            // may be older than the change: the next lookup reads it again
+            objects.invalidate(handle);
+        }
+    }
+
+    /**
+     * Cache the handle of an object, unless an entry was dropped since the
+     * database was read.
+     *
+     * @param started
+     *            the {@link #generation()} read before the database
+     */
+    void putHandle(int type, int id, String handle, long started)
+    {
+        handles.put(key(type, id), handle);
+        if (generation.get() != started)
+        {
+            handles.invalidate(key(type, id));
+        }
+    }
+
+    /**
+     * Drop a handle, and the object it is bound to in the cache.
+     */
+    void removeHandle(String handle)
+    {
+        generation.incrementAndGet();
+        Long object = objects.getIfPresent(handle);
+        objects.invalidate(handle);
+        if (object != null)
+        {
+            handles.invalidate(object);
+        }
+    }
+
+    /**
+     * Drop the handle of an object.
+     */
+    void removeObject(int type, int id)
+    {
+        generation.incrementAndGet();
+        handles.invalidate(key(type, id));
+    }
+
+    /**
+     * Drop a handle and the object it was bound to, now and again once the
+     * context changing them is committed.
+     *
+     * @param context
+     *            the context changing the handle table
+     * @param handle
+     *            the handle changed, or null
+     * @param object
+     *            the packed type and ID of the object changed, or null
+     */
+    void remove(Context context, String handle, Long object)
+    {
+        if (handle != null)
+        {
+            removeHandle(handle);
+        }
+        if (object != null)
+        {
+            removeObject(type(object), id(object));
+        }
+        if (context != null && !context.isAutoCommit())
+        {
+            Invalidation pending = context.getCommitAction(Invalidation.class);
+            if (pending == null)
+            {
+                pending = new Invalidation();
+                context.addCommitAction(pending);
+            }
+            if (handle != null)
+            {
+                pending.handles.add(handle);
+            }
+            if (object != null)
+            {
+                pending.objects.add(object);
+            }
+        }
+    }
+
+    /**
+     * The handles and objects changed by a context, dropped from the cache
+     * once it is committed.
+     */
+    static final class Invalidation implements Runnable
+    {
+        private final Set<String> handles = new HashSet<String>();
+
+        private final Set<Long> objects = new HashSet<Long>();
+
+        @Override
+        public void run()
+        {
+            HandleCache cache = instance;
+            if (cache == null)
+            {
+                return;
+            }
+            for (String handle : handles)
+            {
+                cache.removeHandle(handle);
+            }
+            for (Long object : objects)
+            {
+                cache.removeObject(type(object), id(object));
+            }
+        }
+    }
+
+    // Load the bound handles in the background, in both directions, up to
+    // the size of the cache, stopping if an entry is dropped meanwhile
+    private void startPreload()
+    {
+        Thread preload = new Thread("handle-cache-preload")
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    preload();
+                }
+                catch (SQLException e)
+                {
+                    log.warn("Cannot preload the handle cache", e);
+                }
+            }
+        };
+        preload.setDaemon(true);
+        preload.start();
+    }
+
+    private void preload() throws SQLException
+    {
+        long started = generation.get();
+        long count = 0;
+
+        Connection connection = null;
+        PreparedStatement statement = null;
+        ResultSet rs = null;
+        try
+        {
+            connection = DatabaseManager.getConnection();
+            statement = connection.prepareStatement(
+                    "SELECT handle, resource_type_id, resource_id FROM handle "
+                    + "WHERE resource_id IS NOT NULL");
+            statement.setFetchSize(1000);
+            rs = statement.executeQuery();
+            while (rs.next() && count < size)
+            {
+                if (generation.get() != started)
+                {
+                    log.info("Handle cache preload stopped by a change after "
+                            + count + " handles");
+                    return;
+                }
+                String handle = rs.getString(1);
+                long object = key(rs.getInt(2), rs.getInt(3));
+                objects.asMap().putIfAbsent(handle, object);
+
+                // as HandleManager.findHandle, prefer the handle which is not
+                // the one of a version
+                String current = handles.getIfPresent(object);
+                if (current == null || !HandleManager.isVersionHandle(handle))
+                {
+                    handles.put(object, handle);
+                }
+                count++;
+            }
+        }
+        finally
+        {
+            if (rs != null)
+            {
+                rs.close();
+            }
+            if (statement != null)
+            {
+                statement.close();
+            }
+            if (connection != null)
+            {
+                DatabaseManager.freeConnection(connection);
+            }
+        }
+        log.info("Preloaded " + count + " handles");
+    }
+}
@@ -67,9 +67,7 @@ public class HandleManager
     public static String resolveToURL(Context context, String handle)
             throws SQLException
     {
-        TableRow dbhandle = findHandleInternal(context, handle);
-
-        if (dbhandle == null)
+        if (findObjectKey(context, handle) == null)
         {
             return null;
         }
@@ -122,9 +120,7 @@ public class HandleManager
         {
             handle = handle.substring(1);
         }
-        TableRow dbhandle = findHandleInternal(context, handle);
-        
-        return (null == dbhandle) ? null : handle;
+        return (null == findObjectKey(context, handle)) ? null : handle;
     }
 
     /**
@@ -187,6 +183,7 @@ public class HandleManager
         handle.setColumn("resource_type_id", dso.getType());
         handle.setColumn("resource_id", dso.getID());
         DatabaseManager.update(context, handle);
+        uncache(context, handle);
 
         if (log.isDebugEnabled())
         {
@@ -255,6 +252,7 @@ public class HandleManager
         handle.setColumn("resource_type_id", dso.getType());
         handle.setColumn("resource_id", dso.getID());
         DatabaseManager.update(context, handle);
+        uncache(context, handle);
 
         if (log.isDebugEnabled())
         {
@@ -282,6 +280,7 @@ public class HandleManager
             while (rows.hasNext())
             {
                 TableRow row = rows.next();
+                uncache(context, row);
                 //Only set the "resouce_id" column to null when unbinding a handle.
                 // We want to keep around the "resource_type_id" value, so that we
                 // can verify during a restore whether the same *type* of resource
@@ -319,9 +318,9 @@ public class HandleManager
     public static DSpaceObject resolveToObject(Context context, String handle)
             throws IllegalStateException, SQLException
     {
-        TableRow dbhandle = findHandleInternal(context, handle);
+        Long object = findObjectKey(context, handle);
 
-        if (dbhandle == null)
+        if (object == null)
         {
             //If this is the Site-wide Handle, return Site object
             if (handle.equals(Site.getSiteHandle()))
@@ -335,16 +334,15 @@ public class HandleManager
         // check if handle was allocated previously, but is currently not
         // associated with a DSpaceObject
         // (this may occur when 'unbindHandle()' is called for an obj that was removed)
-        if ((dbhandle.isColumnNull("resource_type_id"))
-                || (dbhandle.isColumnNull("resource_id")))
+        if (object.longValue() == HandleCache.UNBOUND)
         {
             //if handle has been unbound, just return null (as this will result in a PageNotFound)
             return null;
         }
 
         // What are we looking at here?
-        int handletypeid = dbhandle.getIntColumn("resource_type_id");
-        int resourceID = dbhandle.getIntColumn("resource_id");
+        int handletypeid = HandleCache.type(object);
+        int resourceID = HandleCache.id(object);
 
         if (handletypeid == Constants.ITEM)
         {
@@ -401,36 +399,92 @@ public class HandleManager
     public static String findHandle(Context context, DSpaceObject dso)
             throws SQLException
     {
+        HandleCache cache = HandleCache.getInstance(context);
+        long started = 0;
+        if (cache != null)
+        {
+            String cached = cache.getHandle(dso.getType(), dso.getID());
+            if (cached != null)
+            {
+                return cached;
+            }
+            started = cache.generation();
+        }
+
         TableRowIterator rows = getInternalHandles(context, dso.getType(), dso.getID());
-        if (rows == null || !rows.hasNext())
+        try
         {
-            if (dso.getType() == Constants.SITE)
+            if (rows == null || !rows.hasNext())
             {
-                return Site.getSiteHandle();
+                if (dso.getType() == Constants.SITE)
+                {
+                    return Site.getSiteHandle();
+                }
+                else
+                {
+                    return null;
+                }
             }
             else
             {
-                return null;
+                //TODO: Move this code away from the HandleManager & into the Identifier provider
+                //Attempt to retrieve a handle that does NOT look like {handle.part}/{handle.part}.{version}
+                String result = rows.next().getStringColumn("handle");
+                while (rows.hasNext())
+                {
+                    TableRow row = rows.next();
+                    //Ensure that the handle doesn't look like this 12346/213.{version}
+                    //If we find a match that indicates that we have a proper handle
+                    if(!isVersionHandle(row.getStringColumn("handle")))
+                    {
+                        result = row.getStringColumn("handle");
+                    }
+                }
+
+                if (cache != null)
+                {
+                    cache.putHandle(dso.getType(), dso.getID(), result, started);
+                }
+                return result;
             }
         }
-        else
+        finally
         {
-            //TODO: Move this code away from the HandleManager & into the Identifier provider
-            //Attempt to retrieve a handle that does NOT look like {handle.part}/{handle.part}.{version}
-            String result = rows.next().getStringColumn("handle");
-            while (rows.hasNext())
+            if (rows != null)
             {
-                TableRow row = rows.next();
-                //Ensure that the handle doesn't look like this 12346/213.{version}
-                //If we find a match that indicates that we have a proper handle
-                if(!row.getStringColumn("handle").matches(".*/.*\\.\\d+"))
-                {
-                    result = row.getStringColumn("handle");
-                }
+                rows.close();
             }
+        }
+    }
 
-            return result;
+    /**
+     * Drop the cached resolution of a handle, and of the object it is bound
+     * to, when its row of the handle table is changed outside of this class
+     * (e.g. by an identifier provider).  To be called with the row as
+     * changed, and also before the change if the row was bound to another
+     * object.  The entries are dropped again once the context is committed,
+     * and the context does not use the cache until then.
+     *
+     * @param context
+     *            the context changing the row
+     * @param row
+     *            the row of the handle table
+     */
+    public static void uncache(Context context, TableRow row)
+    {
+        HandleCache cache = HandleCache.getInstance();
+        if (cache == null)
+        {
+            return;
         }
+        String handle = row.isColumnNull("handle") ? null : row.getStringColumn("handle");
+        Long object = null;
+        if (!row.isColumnNull("resource_type_id") && !row.isColumnNull("resource_id"))
+        {
+            object = HandleCache.key(row.getIntColumn("resource_type_id"),
+                    row.getIntColumn("resource_id"));
+        }
+        cache.remove(context, handle, object);
     }
 
     /**
@@ -513,6 +567,63 @@ public class HandleManager
 	return DatabaseManager.queryTable(context, "Handle", sql, type, id);
     }
 
+    /**
+     * Find the object a handle is bound to, from the cache or else from the
+     * database.
+     *
+     * @param context
+     *            DSpace context
+     * @param handle
+     *            The handle to resolve
+     * @return The packed type and ID of the object (see
+     *         {@link HandleCache#key}), {@link HandleCache#UNBOUND} if the
+     *         handle is not bound, or null if the handle doesn't exist
+     * @exception SQLException
+     *                If a database error occurs
+     */
+    private static Long findObjectKey(Context context, String handle)
+            throws SQLException
+    {
+        HandleCache cache = HandleCache.getInstance(context);
+        Long object = (cache == null || handle == null) ? null : cache.getObject(handle);
+        if (object != null)
+        {
+            return object;
+        }
+        long started = cache == null ? 0 : cache.generation();
+
+        TableRow dbhandle = findHandleInternal(context, handle);
+        if (dbhandle == null)
+        {
+            return null;
+        }
+
+        if (dbhandle.isColumnNull("resource_type_id")
+                || dbhandle.isColumnNull("resource_id"))
+        {
+            object = HandleCache.UNBOUND;
+        }
+        else
+        {
+            object = HandleCache.key(dbhandle.getIntColumn("resource_type_id"),
+                    dbhandle.getIntColumn("resource_id"));
+        }
+        if (cache != null)
+        {
+            cache.putObject(handle, object, started);
+        }
+        return object;
+    }
+
+    /**
+     * @return true if the handle looks like the handle of a version of an
+     *         item, {handle.part}/{handle.part}.{version}
+     */
+    static boolean isVersionHandle(String handle)
+    {
+        return handle.matches(".*/.*\\.\\d+");
+    }
+
     /**
      * Find the database row corresponding to handle.
      *
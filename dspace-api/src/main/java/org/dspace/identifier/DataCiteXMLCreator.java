@@ -11,9 +11,8 @@ package org.dspace.identifier;
 import org.apache.log4j.Logger;
 import org.dspace.content.DSpaceObject;
 import org.dspace.content.crosswalk.DisseminationCrosswalk;
+import org.dspace.content.crosswalk.XMLStreamCrosswalkUtils;
 import org.dspace.core.PluginManager;
-import org.jdom.Element;
-import org.jdom.output.XMLOutputter;
 
 /**
  * Provide XML based metadata crosswalk for EZID Identifier provider module.
@@ -56,10 +55,10 @@ public class DataCiteXMLCreator
             return null;
         }
 
-        Element root = null;
         try
         {
-            root = xwalk.disseminateElement(dso);
+            // streamed without JDOM tree when the crosswalk supports it
+            return XMLStreamCrosswalkUtils.disseminateToString(xwalk, dso, false);
         }
         catch (Exception e)
         {
@@ -69,10 +68,6 @@ public class DataCiteXMLCreator
             return null;
         }
 
-        XMLOutputter xOut = new XMLOutputter();
-
-        return xOut.outputString(root);
-
     }
 
     /**
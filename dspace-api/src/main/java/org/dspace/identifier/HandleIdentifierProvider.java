@@ -14,6 +14,7 @@ import org.dspace.core.ConfigurationManager;
 import org.dspace.core.Constants;
 import org.dspace.core.Context;
 import org.dspace.core.LogManager;
+import org.dspace.handle.HandleManager;
 import org.dspace.storage.rdbms.DatabaseManager;
 import org.dspace.storage.rdbms.TableRow;
 import org.springframework.stereotype.Component;
@@ -239,6 +240,7 @@ public class HandleIdentifierProvider extends IdentifierProvider {
         TableRow row = getHandleInternal(context, dso.getType(), dso.getID());
         if (row != null)
         {
+            HandleManager.uncache(context, row);
             //Only set the "resouce_id" column to null when unbinding a handle.
             // We want to keep around the "resource_type_id" value, so that we
             // can verify during a restore whether the same *type* of resource
@@ -356,10 +358,13 @@ public class HandleIdentifierProvider extends IdentifierProvider {
     }
 
     protected String modifyHandleRecord(Context context, DSpaceObject dso, TableRow handle, String handleId) throws SQLException {
+        // the row may be moved from another object
+        HandleManager.uncache(context, handle);
         handle.setColumn("handle", handleId);
         handle.setColumn("resource_type_id", dso.getType());
         handle.setColumn("resource_id", dso.getID());
         DatabaseManager.update(context, handle);
+        HandleManager.uncache(context, handle);
 
         if (log.isDebugEnabled())
         {
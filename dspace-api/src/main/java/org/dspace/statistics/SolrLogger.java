@@ -29,6 +29,11 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.servlet.http.HttpServletRequest;
 
@@ -58,6 +63,7 @@ import org.apache.solr.common.SolrDocumentList;
 import org.apache.solr.common.SolrInputDocument;
 import org.apache.solr.common.luke.FieldFlag;
 import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.params.CursorMarkParams;
 import org.apache.solr.common.params.FacetParams;
 import org.apache.solr.common.params.MapSolrParams;
 import org.apache.solr.common.params.ModifiableSolrParams;
@@ -1278,6 +1284,18 @@ public class SolrLogger
         }
     }
 
+    /**
+     * Move the usage events of each past year from the main statistics core
+     * to a core of its own, <code>statistics-YYYY</code>.  The documents of
+     * a year are read with a cursor, <code>shard.batch</code> at a time, and
+     * added to the core of the year as they are read; then they are deleted
+     * from the main core.  Up to <code>shard.threads</code> years are moved
+     * at the same time.
+     * <p>
+     * An interrupted run can be started again: the years already moved are
+     * no longer in the main core, and moving the documents of a year again
+     * replaces those already added, by their unique key.
+     */
     public void shardSolrIndex() throws IOException, SolrServerException {
         /*
         Start by faceting by year so we can include each year in a separate core !
@@ -1295,101 +1313,134 @@ public class SolrLogger
         yearRangeQuery.add(FacetParams.FACET_RANGE_GAP, "+1YEAR");
         yearRangeQuery.add(FacetParams.FACET_MINCOUNT, String.valueOf(1));
 
-        //Create a temp directory to store our files in !
-        File tempDirectory = new File(ConfigurationManager.getProperty("dspace.dir") + File.separator + "temp" + File.separator);
-        tempDirectory.mkdirs();
-
-
         QueryResponse queryResponse = getSolr().query(yearRangeQuery);
         //We only have one range query !
         List<RangeFacet.Count> yearResults = queryResponse.getFacetRanges().get(0).getCounts();
-        for (RangeFacet.Count count : yearResults) {
-            long totalRecords = count.getCount();
-
-            //Create a range query from this !
-            //We start with out current year
-            DCDate dcStart = new DCDate(count.getValue());
-            Calendar endDate = Calendar.getInstance();
-            //Advance one year for the start of the next one !
-            endDate.setTime(dcStart.toDate());
-            endDate.add(Calendar.YEAR, 1);
-            DCDate dcEndDate = new DCDate(endDate.getTime());
-
-
-            StringBuilder filterQuery = new StringBuilder();
-            filterQuery.append("time:([");
-            filterQuery.append(ClientUtils.escapeQueryChars(dcStart.toString()));
-            filterQuery.append(" TO ");
-            filterQuery.append(ClientUtils.escapeQueryChars(dcEndDate.toString()));
-            filterQuery.append("]");
-            //The next part of the filter query excludes the content from midnight of the next year !
-            filterQuery.append(" NOT ").append(ClientUtils.escapeQueryChars(dcEndDate.toString()));
-            filterQuery.append(")");
-
-
-            Map<String, String> yearQueryParams = new HashMap<String, String>();
-            yearQueryParams.put(CommonParams.Q, "*:*");
-            yearQueryParams.put(CommonParams.ROWS, String.valueOf(10000));
-            yearQueryParams.put(CommonParams.FQ, filterQuery.toString());
-            yearQueryParams.put(CommonParams.WT, "csv");
-
-            //Tell SOLR how to escape and separate the values of multi-valued fields
-            yearQueryParams.put("csv.escape", "\\");
-            yearQueryParams.put("csv.mv.separator", MULTIPLE_VALUES_SPLITTER);
-            
-            //Start by creating a new core
-            String coreName = "statistics-" + dcStart.getYearUTC();
-            HttpSolrServer statisticsYearServer = createCore(getSolr(), coreName);
 
-            System.out.println("Moving: " + totalRecords + " into core " + coreName);
-            log.info("Moving: " + totalRecords + " records into core " + coreName);
-
-            List<File> filesToUpload = new ArrayList<File>();
-            for(int i = 0; i < totalRecords; i+=10000){
-                String solrRequestUrl = getSolr().getBaseURL() + "/select";
-                solrRequestUrl = generateURL(solrRequestUrl, yearQueryParams);
-
-                HttpGet get = new HttpGet(solrRequestUrl);
-                HttpResponse response = new DefaultHttpClient().execute(get);
-                InputStream csvInputstream = response.getEntity().getContent();
-                //Write the csv ouput to a file !
-                File csvFile = new File(tempDirectory.getPath() + File.separatorChar + "temp." + dcStart.getYearUTC() + "." + i + ".csv");
-                FileUtils.copyInputStreamToFile(csvInputstream, csvFile);
-                filesToUpload.add(csvFile);
-
-                //Add 10000 & start over again
-                yearQueryParams.put(CommonParams.START, String.valueOf((i + 10000)));
+        int threads = Math.max(1, ConfigurationManager.getIntProperty(CFG_STAT_MODULE, "shard.threads", 1));
+        final int batchSize = ConfigurationManager.getIntProperty(CFG_STAT_MODULE, "shard.batch", 10000);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try
+        {
+            List<Future<Void>> moves = new ArrayList<Future<Void>>();
+            for (RangeFacet.Count count : yearResults) {
+                final long totalRecords = count.getCount();
+
+                //Create a range query from this !
+                //We start with out current year
+                final DCDate dcStart = new DCDate(count.getValue());
+                Calendar endDate = Calendar.getInstance();
+                //Advance one year for the start of the next one !
+                endDate.setTime(dcStart.toDate());
+                endDate.add(Calendar.YEAR, 1);
+                DCDate dcEndDate = new DCDate(endDate.getTime());
+
+                StringBuilder filterQuery = new StringBuilder();
+                filterQuery.append("time:([");
+                filterQuery.append(ClientUtils.escapeQueryChars(dcStart.toString()));
+                filterQuery.append(" TO ");
+                filterQuery.append(ClientUtils.escapeQueryChars(dcEndDate.toString()));
+                filterQuery.append("]");
+                //The next part of the filter query excludes the content from midnight of the next year !
+                filterQuery.append(" NOT ").append(ClientUtils.escapeQueryChars(dcEndDate.toString()));
+                filterQuery.append(")");
+                final String yearFilter = filterQuery.toString();
+
+                moves.add(executor.submit(new Callable<Void>()
+                {
+                    @Override
+                    public Void call() throws Exception
+                    {
+                        moveYear("statistics-" + dcStart.getYearUTC(), yearFilter, totalRecords, batchSize);
+                        return null;
+                    }
+                }));
             }
 
-            Set<String> multivaluedFields = getMultivaluedFieldNames();
-            
-            for (File tempCsv : filesToUpload) {
-                //Upload the data in the csv files to our new solr core
-                ContentStreamUpdateRequest contentStreamUpdateRequest = new ContentStreamUpdateRequest("/update/csv");
-                contentStreamUpdateRequest.setParam("stream.contentType", "text/plain;charset=utf-8");
-                contentStreamUpdateRequest.setParam("escape", "\\");
-                contentStreamUpdateRequest.setParam("skip", "_version_");
-                contentStreamUpdateRequest.setAction(AbstractUpdateRequest.ACTION.COMMIT, true, true);
-                contentStreamUpdateRequest.addFile(tempCsv, "text/plain;charset=utf-8");
-
-                //Add parsing directives for the multivalued fields so that they are stored as separate values instead of one value
-                for (String multivaluedField : multivaluedFields) {
-                    contentStreamUpdateRequest.setParam("f." + multivaluedField + ".split", Boolean.TRUE.toString());
-                    contentStreamUpdateRequest.setParam("f." + multivaluedField + ".separator", MULTIPLE_VALUES_SPLITTER);
+            for (Future<Void> move : moves)
+            {
+                try
+                {
+                    move.get();
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while sharding the statistics core", e);
+                }
+                catch (ExecutionException e)
+                {
+                    if (e.getCause() instanceof SolrServerException)
+                    {
+                        throw (SolrServerException) e.getCause();
+                    }
+                    if (e.getCause() instanceof IOException)
+                    {
+                        throw (IOException) e.getCause();
+                    }
+                    throw new IOException(e.getCause());
                 }
-                statisticsYearServer.request(contentStreamUpdateRequest);
             }
-            statisticsYearServer.commit(true, true);
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
 
+    // Copy the documents of one year to its own core with a cursor, then
+    // delete them from the main core
+    private void moveYear(String coreName, String yearFilter, long totalRecords, int batchSize)
+            throws IOException, SolrServerException
+    {
+        //Start by creating a new core
+        HttpSolrServer statisticsYearServer = createCore(getSolr(), coreName);
 
-            //Delete contents of this year from our year query !
-            getSolr().deleteByQuery(filterQuery.toString());
-            getSolr().commit(true, true);
+        System.out.println("Moving: " + totalRecords + " into core " + coreName);
+        log.info("Moving: " + totalRecords + " records into core " + coreName);
 
-            log.info("Moved " + totalRecords + " records into core: " + coreName);
+        SolrQuery yearQuery = new SolrQuery("*:*");
+        yearQuery.addFilterQuery(yearFilter);
+        yearQuery.setRows(batchSize);
+        // a cursor needs a sort on the unique key
+        yearQuery.setSort("uid", SolrQuery.ORDER.asc);
+
+        String cursorMark = CursorMarkParams.CURSOR_MARK_START;
+        long moved = 0;
+        while (true)
+        {
+            yearQuery.set(CursorMarkParams.CURSOR_MARK_PARAM, cursorMark);
+            QueryResponse response = getSolr().query(yearQuery);
+
+            SolrDocumentList documents = response.getResults();
+            if (!documents.isEmpty())
+            {
+                List<SolrInputDocument> batch = new ArrayList<SolrInputDocument>(documents.size());
+                for (SolrDocument document : documents)
+                {
+                    SolrInputDocument input = ClientUtils.toSolrInputDocument(document);
+                    input.removeField("_version_");
+                    batch.add(input);
+                }
+                statisticsYearServer.add(batch);
+                moved += batch.size();
+                log.info("Moved " + moved + " of " + totalRecords + " records into core " + coreName);
+            }
+
+            String nextCursorMark = response.getNextCursorMark();
+            if (nextCursorMark == null || nextCursorMark.equals(cursorMark))
+            {
+                break;
+            }
+            cursorMark = nextCursorMark;
         }
+        statisticsYearServer.commit(true, true);
+
+        //Delete contents of this year from our year query !
+        getSolr().deleteByQuery(yearFilter);
+        getSolr().commit(true, true);
 
-        FileUtils.deleteDirectory(tempDirectory);
+        log.info("Moved " + moved + " records into core: " + coreName);
     }
 
     private HttpSolrServer createCore(HttpSolrServer solr, String coreName) throws IOException, SolrServerException {
@@ -0,0 +1,720 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.storage.bitstore;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+import org.dspace.core.ConfigurationManager;
+import org.dspace.core.Utils;
+import org.dspace.storage.rdbms.TableRow;
+
+import edu.sdsc.grid.io.FileFactory;
+import edu.sdsc.grid.io.GeneralFile;
+
+/**
+ * Bounded cache of bitstreams in a local directory, in front of the asset
+ * stores, for asset stores on slow volumes (e.g. a network attached archive).
+ * <p>
+ * The bitstreams are cached by internal ID, whatever their asset store, in
+ * the same directory layout as a local asset store.  A bitstream not cached
+ * is read from its asset store, and copied to the cache while it is read;
+ * the copy is only kept if it has the size and the MD5 checksum recorded for
+ * the bitstream, and if the bitstream was read to the end.  The least
+ * recently read bitstreams are dropped once the cache is larger than
+ * <code>assetstore.cache.size</code> megabytes.  Registered bitstreams are
+ * not cached.
+ * <p>
+ * Bitstreams can also be copied ahead of their first read, in the
+ * background, see {@link BitstreamCacheConsumer}.  The hits, misses and
+ * evictions are exported over JMX as <code>org.dspace:type=BitstreamCache</code>.
+ * <p>
+ * Configuration:
+ * <pre>
+ *   assetstore.cache.dir = /local/assetstore-cache
+ *   assetstore.cache.size = 1024
+ *   assetstore.cache.prefetch.threads = 1
+ * </pre>
+ */
+public class BitstreamCache implements BitstreamCacheMBean
+{
+    /** log4j logger */
+    private static final Logger log = Logger.getLogger(BitstreamCache.class);
+
+    /** JMX name used to export the statistics */
+    public static final String MBEAN_NAME = "org.dspace:type=BitstreamCache";
+
+    /** suffix of the copies not complete yet */
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    /** maximum number of bitstreams waiting to be prefetched */
+    private static final int PREFETCH_QUEUE = 10000;
+
+    /** the cache, null if disabled */
+    private static volatile BitstreamCache instance = null;
+
+    /** true once the configuration has been read */
+    private static volatile boolean configured = false;
+
+    private final File directory;
+
+    private final long maxSize;
+
+    /** length of the cached bitstreams by internal ID, least recently read first */
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<String, Long>(16, 0.75f, true);
+
+    /** internal IDs of the bitstreams being copied */
+    private final Set<String> filling = new HashSet<String>();
+
+    /** size of the cached bitstreams */
+    private long size = 0;
+
+    private final ThreadPoolExecutor prefetcher;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong fills = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong prefetches = new AtomicLong();
+
+    /**
+     * Create a cache, with the bitstreams already in its directory.
+     *
+     * @param directory
+     *            the directory of the cache, created if needed
+     * @param maxSize
+     *            the maximum size of the cache (bytes)
+     * @param prefetchThreads
+     *            the number of bitstreams prefetched at the same time
+     */
+    BitstreamCache(File directory, long maxSize, int prefetchThreads)
+    {
+        this.directory = directory;
+        this.maxSize = maxSize;
+        this.prefetcher = new ThreadPoolExecutor(prefetchThreads, prefetchThreads,
+                60, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(PREFETCH_QUEUE),
+                new ThreadFactory()
+                {
+                    @Override
+                    public Thread newThread(Runnable r)
+                    {
+                        Thread thread = new Thread(r, "bitstream-cache-prefetch");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                },
+                new ThreadPoolExecutor.DiscardPolicy());
+        this.prefetcher.allowCoreThreadTimeOut(true);
+
+        if (!directory.isDirectory() && !directory.mkdirs())
+        {
+            log.error("Cannot create the bitstream cache directory " + directory);
+        }
+        load();
+    }
+
+    /**
+     * @return the cache, or null if <code>assetstore.cache.dir</code> is not
+     *         configured
+     */
+    static BitstreamCache getInstance()
+    {
+        if (!configured)
+        {
+            synchronized (BitstreamCache.class)
+            {
+                if (!configured)
+                {
+                    String dir = ConfigurationManager.getProperty("assetstore.cache.dir");
+                    if (StringUtils.isNotBlank(dir))
+                    {
+                        BitstreamCache cache = new BitstreamCache(new File(dir.trim()),
+                                ConfigurationManager.getLongProperty("assetstore.cache.size", 1024) * 1024 * 1024,
+                                Math.max(1, ConfigurationManager.getIntProperty("assetstore.cache.prefetch.threads", 1)));
+                        cache.register();
+                        instance = cache;
+                    }
+                    configured = true;
+                }
+            }
+        }
+        return instance;
+    }
+
+    private void register()
+    {
+        try
+        {
+            MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(MBEAN_NAME);
+            if (!mbs.isRegistered(name))
+            {
+                mbs.registerMBean(this, name);
+            }
+        }
+        catch (Exception e)
+        {
+            // JMX is only a view on the statistics, don't fail because of it
+            log.warn("Unable to register " + MBEAN_NAME, e);
+        }
+    }
+
+    /**
+     * Read a bitstream from the cache, or else from its asset store, copying
+     * it to the cache while it is read.
+     *
+     * @param bitstream
+     *            the row of the bitstream
+     * @param source
+     *            the file of the bitstream in its asset store
+     * @return the stream of bits
+     * @throws IOException
+     *             if the bitstream cannot be read from its asset store
+     */
+    InputStream retrieve(TableRow bitstream, GeneralFile source) throws IOException
+    {
+        String key = getKey(bitstream);
+        if (key == null)
+        {
+            return FileFactory.newFileInputStream(source);
+        }
+
+        File cached = lookup(key, bitstream.getLongColumn("size_bytes"));
+        if (cached != null)
+        {
+            try
+            {
+                InputStream in = new FileInputStream(cached);
+                hits.incrementAndGet();
+                return in;
+            }
+            catch (FileNotFoundException e)
+            {
+                // evicted meanwhile
+                remove(key);
+            }
+        }
+        misses.incrementAndGet();
+        return fill(bitstream, key, FileFactory.newFileInputStream(source));
+    }
+
+    /**
+     * Copy a bitstream to the cache in the background, unless already cached.
+     *
+     * @param bitstream
+     *            the row of the bitstream
+     * @param source
+     *            the file of the bitstream in its asset store
+     */
+    void prefetch(final TableRow bitstream, final GeneralFile source)
+    {
+        final String key = getKey(bitstream);
+        if (key == null)
+        {
+            return;
+        }
+        prefetcher.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                if (lookup(key, bitstream.getLongColumn("size_bytes")) != null)
+                {
+                    return;
+                }
+                InputStream in = null;
+                try
+                {
+                    in = fill(bitstream, key, FileFactory.newFileInputStream(source));
+                    if (in instanceof FillingInputStream)
+                    {
+                        byte[] buffer = new byte[8192];
+                        while (in.read(buffer) >= 0)
+                        {
+                            // the stream copies what is read
+                        }
+                        prefetches.incrementAndGet();
+                    }
+                }
+                catch (IOException e)
+                {
+                    log.warn("Cannot prefetch bitstream " + key, e);
+                }
+                finally
+                {
+                    if (in != null)
+                    {
+                        try
+                        {
+                            in.close();
+                        }
+                        catch (IOException e)
+                        {
+                            log.debug("Cannot close bitstream " + key, e);
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Drop a bitstream from the cache, e.g. once deleted from its asset store.
+     *
+     * @param internalId
+     *            the internal ID of the bitstream
+     */
+    void remove(String internalId)
+    {
+        synchronized (this)
+        {
+            Long length = entries.remove(internalId);
+            if (length == null)
+            {
+                return;
+            }
+            size -= length;
+        }
+        getFile(internalId).delete();
+    }
+
+    // The internal ID of a bitstream which can be cached, or null
+    private String getKey(TableRow bitstream)
+    {
+        String internalId = bitstream.getStringColumn("internal_id");
+        if (internalId == null || BitstreamStorageManager.isRegisteredBitstream(internalId))
+        {
+            return null;
+        }
+        // as the asset store, ignore any path
+        internalId = internalId.substring(internalId.lastIndexOf(File.separator) + 1);
+        return internalId.length() < 6 ? null : internalId;
+    }
+
+    private File getFile(String key)
+    {
+        return new File(directory, BitstreamStorageManager.getIntermediatePath(key) + key);
+    }
+
+    // The cached file of a bitstream, or null if not cached or not valid
+    private File lookup(String key, long expectedSize)
+    {
+        synchronized (this)
+        {
+            if (entries.get(key) == null)
+            {
+                return null;
+            }
+        }
+        File cached = getFile(key);
+        if (!cached.isFile() || (expectedSize >= 0 && cached.length() != expectedSize))
+        {
+            remove(key);
+            return null;
+        }
+        // keep the order of use after a restart
+        cached.setLastModified(System.currentTimeMillis());
+        return cached;
+    }
+
+    // Wrap the stream of a bitstream to copy it to the cache while read, if
+    // it fits and is not being copied already
+    private InputStream fill(TableRow bitstream, String key, InputStream in)
+    {
+        long expectedSize = bitstream.getLongColumn("size_bytes");
+        if (key == null || expectedSize > maxSize)
+        {
+            return in;
+        }
+        synchronized (this)
+        {
+            if (!filling.add(key))
+            {
+                return in;
+            }
+        }
+
+        File target = getFile(key);
+        File temp = new File(target.getPath() + "." + UUID.randomUUID() + TEMP_SUFFIX);
+        try
+        {
+            MessageDigest digest = null;
+            String checksum = bitstream.getStringColumn("checksum");
+            if (checksum != null && "MD5".equalsIgnoreCase(bitstream.getStringColumn("checksum_algorithm")))
+            {
+                digest = MessageDigest.getInstance("MD5");
+            }
+            if (!target.getParentFile().isDirectory() && !target.getParentFile().mkdirs())
+            {
+                throw new IOException("Cannot create " + target.getParentFile());
+            }
+            return new FillingInputStream(in, key, temp, target, digest, checksum, expectedSize);
+        }
+        catch (IOException | NoSuchAlgorithmException e)
+        {
+            log.warn("Cannot cache bitstream " + key, e);
+            endFill(key);
+            return in;
+        }
+    }
+
+    private synchronized void endFill(String key)
+    {
+        filling.remove(key);
+    }
+
+    // Add a complete copy to the cache, and make room for it
+    private void commit(String key, File temp, File target, long length) throws IOException
+    {
+        Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        fills.incrementAndGet();
+
+        List<String> evicted = new ArrayList<String>();
+        synchronized (this)
+        {
+            Long previous = entries.put(key, length);
+            size += length - (previous == null ? 0 : previous);
+
+            Iterator<Map.Entry<String, Long>> eldest = entries.entrySet().iterator();
+            while (size > maxSize && eldest.hasNext())
+            {
+                Map.Entry<String, Long> entry = eldest.next();
+                if (!entry.getKey().equals(key))
+                {
+                    size -= entry.getValue();
+                    evicted.add(entry.getKey());
+                    eldest.remove();
+                }
+            }
+        }
+        for (String dropped : evicted)
+        {
+            getFile(dropped).delete();
+            evictions.incrementAndGet();
+        }
+    }
+
+    // Index the files already in the cache directory, oldest first, and
+    // delete the incomplete copies
+    private void load()
+    {
+        final List<File> files = new ArrayList<File>();
+        try
+        {
+            Files.walkFileTree(directory.toPath(), new SimpleFileVisitor<Path>()
+            {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException
+                {
+                    if (file.getFileName().toString().endsWith(TEMP_SUFFIX))
+                    {
+                        Files.deleteIfExists(file);
+                    }
+                    else if (attrs.isRegularFile())
+                    {
+                        files.add(file.toFile());
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+        catch (IOException e)
+        {
+            log.warn("Cannot read the bitstream cache directory " + directory, e);
+        }
+
+        Collections.sort(files, new Comparator<File>()
+        {
+            @Override
+            public int compare(File f1, File f2)
+            {
+                long m1 = f1.lastModified();
+                long m2 = f2.lastModified();
+                return m1 < m2 ? -1 : (m1 == m2 ? 0 : 1);
+            }
+        });
+        synchronized (this)
+        {
+            for (File file : files)
+            {
+                long length = file.length();
+                entries.put(file.getName(), length);
+                size += length;
+            }
+        }
+        log.info("Bitstream cache " + directory + ": " + files.size() + " bitstreams, "
+                + size + " bytes");
+    }
+
+    /**
+     * Copies the bits read to a temporary file, added to the cache if the
+     * stream is read to the end and the copy has the expected size and
+     * checksum.
+     */
+    private class FillingInputStream extends FilterInputStream
+    {
+        private final String key;
+
+        private final File temp;
+
+        private final File target;
+
+        private final MessageDigest digest;
+
+        private final String checksum;
+
+        private final long expectedSize;
+
+        private OutputStream out;
+
+        private long length = 0;
+
+        private FillingInputStream(InputStream in, String key, File temp, File target,
+                MessageDigest digest, String checksum, long expectedSize) throws IOException
+        {
+            super(in);
+            this.key = key;
+            this.temp = temp;
+            this.target = target;
+            this.digest = digest;
+            this.checksum = checksum;
+            this.expectedSize = expectedSize;
+            this.out = new FileOutputStream(temp);
+        }
+
+        @Override
+        public int read() throws IOException
+        {
+            int b = super.read();
+            if (b >= 0)
+            {
+                copy(new byte[] { (byte) b }, 0, 1);
+            }
+            else
+            {
+                finish();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException
+        {
+            int n = super.read(b, off, len);
+            if (n > 0)
+            {
+                copy(b, off, n);
+            }
+            else if (n < 0)
+            {
+                finish();
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException
+        {
+            // the copy would not be complete
+            abandon();
+            return super.skip(n);
+        }
+
+        @Override
+        public boolean markSupported()
+        {
+            return false;
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            try
+            {
+                super.close();
+            }
+            finally
+            {
+                abandon();
+            }
+        }
+
+        private void copy(byte[] b, int off, int len)
+        {
+            if (out == null)
+            {
+                return;
+            }
+            try
+            {
+                out.write(b, off, len);
+                if (digest != null)
+                {
+                    digest.update(b, off, len);
+                }
+                length += len;
+            }
+            catch (IOException e)
+            {
+                // e.g. cache volume full, keep serving the bits
+                log.warn("Cannot cache bitstream " + key, e);
+                abandon();
+            }
+        }
+
+        private void finish()
+        {
+            if (out == null)
+            {
+                return;
+            }
+            try
+            {
+                out.close();
+                out = null;
+                if ((expectedSize >= 0 && length != expectedSize)
+                        || (digest != null && !checksum.equalsIgnoreCase(Utils.toHex(digest.digest()))))
+                {
+                    failures.incrementAndGet();
+                    log.warn("Not caching bitstream " + key + ": the copy does not match its size or checksum");
+                    temp.delete();
+                }
+                else
+                {
+                    commit(key, temp, target, length);
+                }
+            }
+            catch (IOException e)
+            {
+                log.warn("Cannot cache bitstream " + key, e);
+                temp.delete();
+            }
+            finally
+            {
+                endFill(key);
+            }
+        }
+
+        private void abandon()
+        {
+            if (out == null)
+            {
+                return;
+            }
+            try
+            {
+                out.close();
+            }
+            catch (IOException e)
+            {
+                log.debug("Cannot close the copy of bitstream " + key, e);
+            }
+            out = null;
+            temp.delete();
+            endFill(key);
+        }
+    }
+
+    @Override
+    public long getHitCount()
+    {
+        return hits.get();
+    }
+
+    @Override
+    public long getMissCount()
+    {
+        return misses.get();
+    }
+
+    @Override
+    public double getHitRatio()
+    {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    @Override
+    public long getFillCount()
+    {
+        return fills.get();
+    }
+
+    @Override
+    public long getChecksumFailureCount()
+    {
+        return failures.get();
+    }
+
+    @Override
+    public long getEvictionCount()
+    {
+        return evictions.get();
+    }
+
+    @Override
+    public long getPrefetchCount()
+    {
+        return prefetches.get();
+    }
+
+    @Override
+    public synchronized int getEntryCount()
+    {
+        return entries.size();
+    }
+
+    @Override
+    public synchronized long getSize()
+    {
+        return size;
+    }
+
+    @Override
+    public long getMaxSize()
+    {
+        return maxSize;
+    }
+}
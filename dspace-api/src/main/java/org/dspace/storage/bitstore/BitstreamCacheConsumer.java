@@ -0,0 +1,141 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.storage.bitstore;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.dspace.content.Bitstream;
+import org.dspace.content.Bundle;
+import org.dspace.content.Item;
+import org.dspace.core.Constants;
+import org.dspace.core.Context;
+import org.dspace.event.Consumer;
+import org.dspace.event.Event;
+
+/**
+ * Copies the bitstreams most likely to be read soon to the local
+ * {@link BitstreamCache}, in the background: the primary bitstream (or else
+ * the first bitstream) of the ORIGINAL bundle and the thumbnails of the
+ * items installed in the archive, and the thumbnails added later to archived
+ * items, e.g. by the media filters.  Does nothing if the cache is not
+ * configured.
+ *
+ * Recommended filter:  Item+Install:Bundle+Add
+ */
+public class BitstreamCacheConsumer implements Consumer
+{
+    /** log4j logger */
+    private static final Logger log = Logger.getLogger(BitstreamCacheConsumer.class);
+
+    /** items installed in the current batch of events */
+    private Set<Integer> items = new HashSet<Integer>();
+
+    /** bitstreams added to thumbnail bundles in the current batch of events */
+    private Set<Integer> thumbnails = new HashSet<Integer>();
+
+    public void initialize()
+        throws Exception
+    {
+
+    }
+
+    public void consume(Context ctx, Event event)
+        throws Exception
+    {
+        if (!BitstreamStorageManager.isCacheEnabled())
+        {
+            return;
+        }
+
+        if (event.getSubjectType() == Constants.ITEM
+                && event.getEventType() == Event.INSTALL)
+        {
+            items.add(event.getSubjectID());
+        }
+        else if (event.getSubjectType() == Constants.BUNDLE
+                && event.getEventType() == Event.ADD
+                && event.getObjectType() == Constants.BITSTREAM)
+        {
+            Bundle bundle = Bundle.find(ctx, event.getSubjectID());
+            if (bundle != null && "THUMBNAIL".equals(bundle.getName()))
+            {
+                for (Item item : bundle.getItems())
+                {
+                    if (item.isArchived())
+                    {
+                        thumbnails.add(event.getObjectID());
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    public void end(Context ctx)
+        throws Exception
+    {
+        try
+        {
+            for (Integer id : items)
+            {
+                Item item = Item.find(ctx, id);
+                if (item != null)
+                {
+                    for (Bundle bundle : item.getBundles("ORIGINAL"))
+                    {
+                        prefetchPrimary(ctx, bundle);
+                    }
+                    for (Bundle bundle : item.getBundles("THUMBNAIL"))
+                    {
+                        for (Bitstream bitstream : bundle.getBitstreams())
+                        {
+                            thumbnails.add(bitstream.getID());
+                        }
+                    }
+                }
+            }
+            for (Integer id : thumbnails)
+            {
+                BitstreamStorageManager.prefetch(ctx, id);
+            }
+        }
+        catch (Exception e)
+        {
+            // prefetching is only an optimisation
+            log.warn("Cannot prefetch the bitstreams of the installed items", e);
+        }
+        finally
+        {
+            items.clear();
+            thumbnails.clear();
+        }
+    }
+
+    public void finish(Context ctx)
+        throws Exception
+    {
+
+    }
+
+    private void prefetchPrimary(Context ctx, Bundle bundle) throws Exception
+    {
+        int primary = bundle.getPrimaryBitstreamID();
+        if (primary < 0)
+        {
+            Bitstream[] bitstreams = bundle.getBitstreams();
+            if (bitstreams.length == 0)
+            {
+                return;
+            }
+            primary = bitstreams[0].getID();
+        }
+        BitstreamStorageManager.prefetch(ctx, primary);
+    }
+}
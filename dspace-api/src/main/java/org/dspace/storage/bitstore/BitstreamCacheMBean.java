@@ -0,0 +1,67 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.storage.bitstore;
+
+/**
+ * JMX view of the local bitstream cache, see {@link BitstreamCache}.
+ */
+public interface BitstreamCacheMBean
+{
+    /**
+     * @return the number of bitstreams read from the cache
+     */
+    long getHitCount();
+
+    /**
+     * @return the number of bitstreams read from their asset store because
+     *         they were not cached
+     */
+    long getMissCount();
+
+    /**
+     * @return the ratio of the reads served from the cache, between 0 and 1
+     */
+    double getHitRatio();
+
+    /**
+     * @return the number of bitstreams copied to the cache
+     */
+    long getFillCount();
+
+    /**
+     * @return the number of copies discarded because their checksum or size
+     *         did not match the bitstream
+     */
+    long getChecksumFailureCount();
+
+    /**
+     * @return the number of bitstreams dropped from the cache to make room
+     */
+    long getEvictionCount();
+
+    /**
+     * @return the number of bitstreams copied to the cache ahead of their
+     *         first read
+     */
+    long getPrefetchCount();
+
+    /**
+     * @return the number of bitstreams in the cache
+     */
+    int getEntryCount();
+
+    /**
+     * @return the size of the bitstreams in the cache (bytes)
+     */
+    long getSize();
+
+    /**
+     * @return the maximum size of the cache (bytes)
+     */
+    long getMaxSize();
+}
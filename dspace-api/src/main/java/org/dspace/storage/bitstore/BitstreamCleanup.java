@@ -0,0 +1,432 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.storage.bitstore;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+import org.dspace.core.Context;
+import org.dspace.storage.rdbms.DatabaseManager;
+import org.dspace.storage.rdbms.TableRow;
+
+import com.google.common.util.concurrent.Futures;
+
+import edu.sdsc.grid.io.GeneralFile;
+
+/**
+ * Deletes the bitstreams marked deleted, for
+ * {@link BitstreamStorageManager#cleanup}.
+ * <p>
+ * The deleted bitstreams are read by ranges of IDs.  The files of each range
+ * are deleted concurrently, with a pool of threads per asset store, and then
+ * the rows of the range are deleted with a few statements and committed.  A
+ * file is kept while a bitstream not deleted has the same internal ID (e.g.
+ * a version), and deleted once all of them are.  Files modified less than
+ * an hour ago may still be being stored: they and their rows are kept until
+ * the next run.  Shared files (see <code>assetstore.content-addressed</code>)
+ * are deleted at the end, once no bitstream references them.
+ */
+final class BitstreamCleanup
+{
+    /** log4j log */
+    private static final Logger log = Logger.getLogger(BitstreamCleanup.class);
+
+    /** maximum number of values in an IN list */
+    private static final int IN_LIMIT = 500;
+
+    /** outcome of a file which must be kept with its row, for now */
+    private static final long KEEP = -1;
+
+    /** outcome of a file which does not exist */
+    private static final long MISSING = -2;
+
+    private final boolean deleteDbRecords;
+
+    private final boolean verbose;
+
+    private final int threads;
+
+    private final int batchSize;
+
+    /** pools deleting the files, by asset store number */
+    private final Map<Integer, ExecutorService> pools = new HashMap<Integer, ExecutorService>();
+
+    private long rowsDeleted = 0;
+
+    private long filesDeleted = 0;
+
+    private long bytesReclaimed = 0;
+
+    /**
+     * @param deleteDbRecords
+     *            false to delete the files only, and leave the rows
+     * @param verbose
+     *            true to print each deletion
+     * @param threads
+     *            the number of files deleted at the same time in each asset
+     *            store
+     * @param batchSize
+     *            the number of bitstream IDs read at a time
+     */
+    BitstreamCleanup(boolean deleteDbRecords, boolean verbose, int threads, int batchSize)
+    {
+        this.deleteDbRecords = deleteDbRecords;
+        this.verbose = verbose;
+        this.threads = Math.max(1, threads);
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Delete the bitstreams marked deleted, and the shared files no longer
+     * referenced.
+     */
+    void run() throws SQLException, IOException
+    {
+        Context context = null;
+        try
+        {
+            context = new Context();
+
+            TableRow range = DatabaseManager.querySingle(context,
+                    "SELECT MIN(bitstream_id) AS low, MAX(bitstream_id) AS high, COUNT(*) AS total "
+                    + "FROM bitstream WHERE deleted = '1'");
+            long total = range.getLongColumn("total");
+            if (total > 0)
+            {
+                int high = range.getIntColumn("high");
+                report("Cleaning up " + total + " deleted bitstreams, IDs "
+                        + range.getIntColumn("low") + " to " + high);
+                for (int low = range.getIntColumn("low"); low <= high; low += batchSize)
+                {
+                    cleanupRange(context, low, (int) Math.min((long) low + batchSize - 1, high));
+                    context.commit();
+                    report("Cleaned up to ID " + Math.min((long) low + batchSize - 1, high)
+                            + " of " + high + ": " + rowsDeleted + " rows and "
+                            + filesDeleted + " files deleted, " + bytesReclaimed
+                            + " bytes reclaimed");
+                }
+            }
+
+            cleanupShared(context);
+
+            context.complete();
+            report("Cleanup done: " + rowsDeleted + " rows and " + filesDeleted
+                    + " files deleted, " + bytesReclaimed + " bytes reclaimed");
+        }
+        // Aborting will leave the rows of the current range around, even if
+        // their files are deleted. This is OK; deleting them next time
+        // around will be a no-op.
+        catch (SQLException | IOException e)
+        {
+            if (verbose)
+            {
+                System.err.println("Error: " + e.getMessage());
+            }
+            if (context != null)
+            {
+                context.abort();
+            }
+            throw e;
+        }
+        finally
+        {
+            for (ExecutorService pool : pools.values())
+            {
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    // Delete the files, then the rows, of the deleted bitstreams of a range
+    private void cleanupRange(Context context, int low, int high)
+            throws SQLException, IOException
+    {
+        List<TableRow> rows = DatabaseManager.queryTable(context, "bitstream",
+                "SELECT * FROM bitstream WHERE deleted = '1' AND bitstream_id >= ? "
+                + "AND bitstream_id <= ? ORDER BY bitstream_id", low, high).toList();
+        if (rows.isEmpty())
+        {
+            return;
+        }
+
+        List<String> internalIds = new ArrayList<String>();
+        for (TableRow row : rows)
+        {
+            String internalId = row.getStringColumn("internal_id");
+            if (internalId != null)
+            {
+                internalIds.add(internalId);
+            }
+        }
+        // files of bitstreams still in use, or shared, are not deleted here
+        Set<String> kept = findInternalIds(context,
+                "SELECT DISTINCT internal_id FROM bitstream "
+                + "WHERE (deleted IS NULL OR deleted <> '1') AND internal_id IN ", internalIds);
+        List<String> sharedIds = new ArrayList<String>();
+        for (String internalId : internalIds)
+        {
+            if (BitstreamStorageManager.isShared(internalId))
+            {
+                sharedIds.add(internalId);
+            }
+        }
+        kept.addAll(findInternalIds(context,
+                "SELECT internal_id FROM bitstream_blob WHERE internal_id IN ", sharedIds));
+
+        List<Integer> deletable = new ArrayList<Integer>();
+        Map<Integer, Future<Long>> outcomes = new HashMap<Integer, Future<Long>>();
+        Set<String> deleting = new HashSet<String>();
+        for (TableRow row : rows)
+        {
+            int id = row.getIntColumn("bitstream_id");
+            String internalId = row.getStringColumn("internal_id");
+            if (internalId == null || kept.contains(internalId)
+                    || BitstreamStorageManager.isRegisteredBitstream(internalId)
+                    || !deleting.add(internalId))
+            {
+                // do not delete registered bitstreams, nor the same file twice
+                deletable.add(id);
+            }
+            else
+            {
+                outcomes.put(id, submit(row));
+            }
+        }
+
+        for (Map.Entry<Integer, Future<Long>> outcome : outcomes.entrySet())
+        {
+            long result = get(outcome.getValue());
+            if (result != KEEP)
+            {
+                deletable.add(outcome.getKey());
+            }
+            if (result >= 0)
+            {
+                filesDeleted++;
+                bytesReclaimed += result;
+            }
+        }
+
+        if (deleteDbRecords)
+        {
+            deleteRows(context, deletable);
+        }
+    }
+
+    // Delete the file of a bitstream on the pool of its asset store
+    private Future<Long> submit(final TableRow row) throws IOException
+    {
+        final GeneralFile file = BitstreamStorageManager.getFile(row);
+        if (file == null)
+        {
+            return Futures.immediateFuture(MISSING);
+        }
+
+        int storeNumber = row.getIntColumn("store_number");
+        ExecutorService pool = pools.get(storeNumber);
+        if (pool == null)
+        {
+            pool = Executors.newFixedThreadPool(threads);
+            pools.put(storeNumber, pool);
+        }
+        return pool.submit(new Callable<Long>()
+        {
+            @Override
+            public Long call()
+            {
+                return deleteFile(file, row.getStringColumn("internal_id"));
+            }
+        });
+    }
+
+    // Delete a file, unless too recent, and return its length
+    private long deleteFile(GeneralFile file, String internalId)
+    {
+        if (!file.exists())
+        {
+            return MISSING;
+        }
+        // This is a small chance that this is a file which is
+        // being stored -- get it next time.
+        if (BitstreamStorageManager.isRecent(file))
+        {
+            log.debug("file is recent");
+            return KEEP;
+        }
+
+        long length = file.length();
+        boolean success = file.delete();
+
+        String message = ("Deleted file " + file.getAbsolutePath()
+                + " with result " + success);
+        if (log.isDebugEnabled())
+        {
+            log.debug(message);
+        }
+        if (verbose)
+        {
+            System.out.println(message);
+        }
+        if (!success)
+        {
+            // keep the row, to try again next time
+            return KEEP;
+        }
+
+        BitstreamCache cache = BitstreamCache.getInstance();
+        if (cache != null)
+        {
+            cache.remove(internalId);
+        }
+        BitstreamStorageManager.deleteParents(file);
+        return length;
+    }
+
+    // Delete the rows of bitstreams and their checksum history
+    private void deleteRows(Context context, List<Integer> ids) throws SQLException
+    {
+        for (int start = 0; start < ids.size(); start += IN_LIMIT)
+        {
+            List<Integer> chunk = ids.subList(start, Math.min(start + IN_LIMIT, ids.size()));
+            Object[] parameters = chunk.toArray();
+            String in = placeholders(chunk.size());
+
+            DatabaseManager.updateQuery(context,
+                    "DELETE FROM checksum_history WHERE bitstream_id IN " + in, parameters);
+            DatabaseManager.updateQuery(context,
+                    "DELETE FROM most_recent_checksum WHERE bitstream_id IN " + in, parameters);
+            rowsDeleted += DatabaseManager.updateQuery(context,
+                    "DELETE FROM bitstream WHERE bitstream_id IN " + in, parameters);
+            if (verbose)
+            {
+                System.out.println(" - Deleted bitstream records from database (IDs: " + chunk + ")");
+            }
+        }
+    }
+
+    /**
+     * Delete the shared files no longer referenced by any bitstream.  The
+     * rows of a batch are deleted before their files, and committed after,
+     * so that a new bitstream sharing one of the files at the same time
+     * waits for the deletion and stores the file again.  The rows of the
+     * files which are kept (too recent, or not deletable) are inserted
+     * again before the commit, to try again next time.
+     */
+    private void cleanupShared(Context context) throws SQLException, IOException
+    {
+        List<TableRow> unreferenced = DatabaseManager.query(context,
+                "SELECT internal_id, store_number, size_bytes FROM bitstream_blob WHERE ref_count <= 0")
+                .toList();
+        if (unreferenced.isEmpty())
+        {
+            return;
+        }
+        report("Cleaning up " + unreferenced.size() + " unreferenced shared files");
+
+        for (int start = 0; start < unreferenced.size(); start += batchSize)
+        {
+            Map<TableRow, Future<Long>> outcomes = new LinkedHashMap<TableRow, Future<Long>>();
+            for (TableRow row : unreferenced.subList(start,
+                    Math.min(start + batchSize, unreferenced.size())))
+            {
+                if (DatabaseManager.updateQuery(context,
+                        "DELETE FROM bitstream_blob WHERE internal_id = ? AND ref_count <= 0",
+                        row.getStringColumn("internal_id")) == 1)
+                {
+                    outcomes.put(row, submit(row));
+                }
+            }
+            for (Map.Entry<TableRow, Future<Long>> outcome : outcomes.entrySet())
+            {
+                long result = get(outcome.getValue());
+                if (result == KEEP)
+                {
+                    TableRow row = outcome.getKey();
+                    DatabaseManager.updateQuery(context,
+                            "INSERT INTO bitstream_blob (internal_id, store_number, size_bytes, ref_count) "
+                            + "VALUES (?, ?, ?, 0)",
+                            row.getStringColumn("internal_id"), row.getIntColumn("store_number"),
+                            row.getLongColumn("size_bytes"));
+                }
+                else if (result >= 0)
+                {
+                    filesDeleted++;
+                    bytesReclaimed += result;
+                }
+            }
+            context.commit();
+        }
+    }
+
+    private static Set<String> findInternalIds(Context context, String query,
+            List<String> internalIds) throws SQLException
+    {
+        Set<String> found = new HashSet<String>();
+        for (int start = 0; start < internalIds.size(); start += IN_LIMIT)
+        {
+            List<String> chunk = internalIds.subList(start,
+                    Math.min(start + IN_LIMIT, internalIds.size()));
+            List<TableRow> rows = DatabaseManager.query(context,
+                    query + placeholders(chunk.size()), chunk.toArray()).toList();
+            for (TableRow row : rows)
+            {
+                found.add(row.getStringColumn("internal_id"));
+            }
+        }
+        return found;
+    }
+
+    private static String placeholders(int count)
+    {
+        StringBuilder in = new StringBuilder("(");
+        for (int i = 0; i < count; i++)
+        {
+            in.append(i == 0 ? "?" : ", ?");
+        }
+        return in.append(")").toString();
+    }
+
+    private static long get(Future<Long> outcome) throws IOException
+    {
+        try
+        {
+            return outcome.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while deleting files", e);
+        }
+        catch (ExecutionException e)
+        {
+            throw new IOException("Cannot delete file", e.getCause());
+        }
+    }
+
+    private void report(String message)
+    {
+        log.info(message);
+        if (verbose)
+        {
+            System.out.println(message);
+        }
+    }
+}
@@ -15,11 +15,10 @@ import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.sql.SQLException;
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
+import java.util.regex.Pattern;
 
 import org.apache.log4j.Logger;
-import org.dspace.checker.BitstreamInfoDAO;
 import org.dspace.core.ConfigurationManager;
 import org.dspace.core.Context;
 import org.dspace.core.Utils;
@@ -108,6 +107,12 @@ public class BitstreamStorageManager
 	 */
 	private static final String REGISTERED_FLAG = "-R";
 
+    /** Digest of the content of the shared bitstreams */
+    private static final String CONTENT_DIGEST = "SHA-256";
+
+    /** Internal IDs of the shared files: the hexadecimal digest of their content */
+    private static final Pattern SHARED_ID = Pattern.compile("[0-9a-f]{64}");
+
     /* Read in the asset stores from the config. */
     static
     {
@@ -235,6 +240,12 @@ public class BitstreamStorageManager
      * and some or all of the bits have also been stored.
      * </ul>
      * 
+     * <p>
+     * If <code>assetstore.content-addressed</code> is true, bits already
+     * stored for another bitstream are not stored again: both bitstreams
+     * share the same file, see {@link #share}.
+     * </p>
+     * 
      * @param context
      *            The current context
      * @param is
@@ -314,7 +325,23 @@ public class BitstreamStorageManager
             log.warn("Caught NoSuchAlgorithmException", nsae);
         }
 
-        Utils.bufferedCopy(dis, fos);
+        // and the address of the content, if shared
+        DigestInputStream content = null;
+
+        // Store new bitstreams once per content, see share()
+        if (dis != null && ConfigurationManager.getBooleanProperty("assetstore.content-addressed", false))
+        {
+            try
+            {
+                content = new DigestInputStream(dis, MessageDigest.getInstance(CONTENT_DIGEST));
+            }
+            catch (NoSuchAlgorithmException nsae)
+            {
+                log.warn("Caught NoSuchAlgorithmException", nsae);
+            }
+        }
+
+        Utils.bufferedCopy(content != null ? content : dis, fos);
         fos.close();
         is.close();
 
@@ -326,6 +353,12 @@ public class BitstreamStorageManager
                     .digest()));
             bitstream.setColumn("checksum_algorithm", "MD5");
         }
+
+        if (content != null)
+        {
+            file = share(context, bitstream, file,
+                    Utils.toHex(content.getMessageDigest().digest()));
+        }
         
         bitstream.setColumn("deleted", false);
         DatabaseManager.update(context, bitstream);
@@ -537,8 +570,56 @@ public class BitstreamStorageManager
         TableRow bitstream = DatabaseManager.find(context, "bitstream", id);
 
 		GeneralFile file = getFile(bitstream);
+		if (file == null)
+		{
+			return null;
+		}
 
-		return (file != null) ? FileFactory.newFileInputStream(file) : null;
+		BitstreamCache cache = BitstreamCache.getInstance();
+		if (cache != null)
+		{
+			return cache.retrieve(bitstream, file);
+		}
+		return FileFactory.newFileInputStream(file);
+    }
+
+    /**
+     * Copy a bitstream to the local cache in the background, so that its
+     * first read does not hit its asset store.  Nothing is done if the cache
+     * is not configured (<code>assetstore.cache.dir</code>).
+     *
+     * @param context
+     *            The current context
+     * @param id
+     *            The ID of the bitstream to prefetch
+     * @exception IOException
+     *                If a problem occurs while locating the bits
+     * @exception SQLException
+     *                If a problem occurs accessing the RDBMS
+     */
+    public static void prefetch(Context context, int id)
+            throws SQLException, IOException
+    {
+        BitstreamCache cache = BitstreamCache.getInstance();
+        if (cache == null)
+        {
+            return;
+        }
+
+        TableRow bitstream = DatabaseManager.find(context, "bitstream", id);
+        GeneralFile file = (bitstream != null) ? getFile(bitstream) : null;
+        if (file != null)
+        {
+            cache.prefetch(bitstream, file);
+        }
+    }
+
+    /**
+     * @return true if bitstreams are cached in a local directory
+     */
+    public static boolean isCacheEnabled()
+    {
+        return BitstreamCache.getInstance() != null;
     }
 
     /**
@@ -562,6 +643,18 @@ public class BitstreamStorageManager
      */
     public static void delete(Context context, int id) throws SQLException
     {
+        // Release the shared file, if any, once
+        TableRow bitstream = DatabaseManager.querySingle(context,
+                "select internal_id from Bitstream where bitstream_id = ? and deleted = '0'",
+                id);
+        if (bitstream != null && isShared(bitstream.getStringColumn("internal_id")))
+        {
+            DatabaseManager.updateQuery(context,
+                    "update bitstream_blob set ref_count = ref_count - 1 where internal_id = "
+                    + "(select internal_id from Bitstream where bitstream_id = ? and deleted = '0')",
+                    id);
+        }
+
         DatabaseManager.updateQuery(context,
                 "update Bundle set primary_bitstream_id=null where primary_bitstream_id = ? ",
                 id);
@@ -573,8 +666,8 @@ public class BitstreamStorageManager
 
     /**
      * Clean up the bitstream storage area. This method deletes any bitstreams
-     * which are more than 1 hour old and marked deleted. The deletions cannot
-     * be undone.
+     * which are more than 1 hour old and marked deleted, and the shared files
+     * no longer referenced by any bitstream. The deletions cannot be undone.
      * 
      * @param deleteDbRecords if true deletes the database records otherwise it
      * 	           only deletes the files and directories in the assetstore  
@@ -585,164 +678,205 @@ public class BitstreamStorageManager
      */
     public static void cleanup(boolean deleteDbRecords, boolean verbose) throws SQLException, IOException
     {
-        Context context = null;
-        BitstreamInfoDAO bitstreamInfoDAO = new BitstreamInfoDAO();
-        int commitCounter = 0;
-
-        try
-        {
-            context = new Context();
-
-            String myQuery = "select * from Bitstream where deleted = '1'";
-
-            List<TableRow> storage = DatabaseManager.queryTable(context, "Bitstream", myQuery)
-                    .toList();
-
-            for (Iterator<TableRow> iterator = storage.iterator(); iterator.hasNext();)
-            {
-                TableRow row = iterator.next();
-                int bid = row.getIntColumn("bitstream_id");
+        cleanup(deleteDbRecords, verbose, 1, 1000);
+    }
 
-				GeneralFile file = getFile(row);
+    /**
+     * Clean up the bitstream storage area, as {@link #cleanup(boolean, boolean)},
+     * reading the deleted bitstreams by ranges of IDs and deleting their files
+     * concurrently in each asset store.  The database records of each range
+     * are deleted together and committed.
+     * 
+     * @param deleteDbRecords if true deletes the database records otherwise it
+     * 	           only deletes the files and directories in the assetstore  
+     * @param verbose if true prints each deletion and the progress
+     * @param threads the number of files deleted at the same time in each
+     *             assetstore
+     * @param batchSize the number of bitstream IDs read at a time
+     * @exception IOException
+     *                If a problem occurs while cleaning up
+     * @exception SQLException
+     *                If a problem occurs accessing the RDBMS
+     */
+    public static void cleanup(boolean deleteDbRecords, boolean verbose,
+            int threads, int batchSize) throws SQLException, IOException
+    {
+        new BitstreamCleanup(deleteDbRecords, verbose, threads, batchSize).run();
+    }
 
-                // Make sure entries which do not exist are removed
-                if (file == null || !file.exists())
-                {
-                    log.debug("file is null");
-                    if (deleteDbRecords)
-                    {
-                        log.debug("deleting record");
-                        if (verbose)
-                        {
-                            System.out.println(" - Deleting bitstream information (ID: " + bid + ")");
-                        }
-                        bitstreamInfoDAO.deleteBitstreamInfoWithHistory(bid);
-                        if (verbose)
-                        {
-                            System.out.println(" - Deleting bitstream record from database (ID: " + bid + ")");
-                        }
-                        DatabaseManager.delete(context, "Bitstream", bid);
-                    }
-                    continue;
-                }
+    /**
+     *
+     * @param context
+     * @param id of the bitstream to clone.
+     * @return id of the clone bitstream.
+     * @throws SQLException
+     */
+    public static int clone(Context context, int id) throws SQLException
+    {
+        TableRow row = DatabaseManager.find(context, "bitstream", id);
+        row.setColumn("bitstream_id", -1);
+        DatabaseManager.insert(context, row);
 
-                // This is a small chance that this is a file which is
-                // being stored -- get it next time.
-                if (isRecent(file))
-                {
-                	log.debug("file is recent");
-                    continue;
-                }
+        // The clone shares the file, count the new reference if it is shared
+        if (!row.getBooleanColumn("deleted") && isShared(row.getStringColumn("internal_id")))
+        {
+            DatabaseManager.updateQuery(context,
+                    "update bitstream_blob set ref_count = ref_count + 1 where internal_id = ?",
+                    row.getStringColumn("internal_id"));
+        }
+        return row.getIntColumn("bitstream_id");
+    }
 
-                if (deleteDbRecords)
-                {
-                    log.debug("deleting db record");
-                    if (verbose)
-                    {
-                        System.out.println(" - Deleting bitstream information (ID: " + bid + ")");
-                    }
-                    bitstreamInfoDAO.deleteBitstreamInfoWithHistory(bid);
-                    if (verbose)
-                    {
-                        System.out.println(" - Deleting bitstream record from database (ID: " + bid + ")");
-                    }
-                    DatabaseManager.delete(context, "Bitstream", bid);
-                }
 
-				if (isRegisteredBitstream(row.getStringColumn("internal_id"))) {
-				    continue;			// do not delete registered bitstreams
-				}
+    ////////////////////////////////////////
+    // Internal methods
+    ////////////////////////////////////////
 
+    /**
+     * Return true if this internal ID is the address of a shared file, see
+     * {@link #share}, listed in the <code>bitstream_blob</code> table.  The
+     * other bitstreams have random decimal internal IDs, or registered paths.
+     *
+     * @param internalId
+     *            The internal ID of a bitstream
+     * @return True if the file of the bitstream is shared
+     */
+    static boolean isShared(String internalId)
+    {
+        return internalId != null && SHARED_ID.matcher(internalId).matches();
+    }
 
-                // Since versioning allows for multiple bitstreams, check if the internal identifier isn't used on another place
-                TableRow duplicateBitRow = DatabaseManager.querySingleTable(context, "Bitstream", "SELECT * FROM Bitstream WHERE internal_id = ? AND bitstream_id <> ?", row.getStringColumn("internal_id"), bid);
-                if(duplicateBitRow == null)
-                {
-                    boolean success = file.delete();
-
-                    String message = ("Deleted bitstream " + bid + " (file "
-                                + file.getAbsolutePath() + ") with result "
-                                + success);
-                    if (log.isDebugEnabled())
-                    {
-                        log.debug(message);
-                    }
-                    if (verbose)
-                    {
-                        System.out.println(message);
-                    }
-
-                    // if the file was deleted then
-                    // try deleting the parents
-                    // Otherwise the cleanup script is set to
-                    // leave the db records then the file
-                    // and directories have already been deleted
-                    // if this is turned off then it still looks like the
-                    // file exists
-                    if( success )
-                    {
-                        deleteParents(file);
-                    }
-                }
+    /**
+     * Share the file of a new bitstream with the other bitstreams having the
+     * same content.  The shared files are named after the digest of their
+     * content, and listed in the <code>bitstream_blob</code> table with the
+     * number of bitstreams referencing them, which is incremented in the
+     * context of the new bitstream.  If the content is already stored, the
+     * new file is deleted, otherwise it is moved to its shared name.
+     * <p>
+     * The row of a shared file is locked by the increment until the context
+     * is completed, and deleted by {@link #cleanup} only when not referenced,
+     * before deleting the file; so the file cannot be deleted while it is
+     * shared with a new bitstream.
+     *
+     * @param context
+     *            The context of the new bitstream
+     * @param bitstream
+     *            The row of the new bitstream, whose internal ID and store
+     *            number are set to those of the shared file
+     * @param file
+     *            The new file
+     * @param address
+     *            The digest of the content
+     * @return The shared file
+     */
+    private static GeneralFile share(Context context, TableRow bitstream,
+            GeneralFile file, String address) throws SQLException, IOException
+    {
+        long size = file.length();
+        for (int attempt = 0; attempt < 3; attempt++)
+        {
+            // Make sure the shared file is listed, it may be deleted by the
+            // cleanup until referenced
+            int storeNumber = listShared(address, size);
+            if (storeNumber < 0
+                    || DatabaseManager.updateQuery(context,
+                            "update bitstream_blob set ref_count = ref_count + 1 where internal_id = ?",
+                            address) != 1)
+            {
+                continue;
+            }
 
-                // Make sure to commit our outstanding work every 100
-                // iterations. Otherwise you risk losing the entire transaction
-                // if we hit an exception, which isn't useful at all for large
-                // amounts of bitstreams.
-                commitCounter++;
-                if (commitCounter % 100 == 0)
+            String tempId = bitstream.getStringColumn("internal_id");
+            bitstream.setColumn("internal_id", address);
+            bitstream.setColumn("store_number", storeNumber);
+            GeneralFile shared = getFile(bitstream);
+            if (shared.exists() && shared.length() == size)
+            {
+                file.delete();
+                deleteParents(file);
+                if (log.isDebugEnabled())
                 {
-                	System.out.print("Committing changes to the database...");
-                    context.commit();
-                    System.out.println(" Done!");
+                    log.debug("Bitstream " + tempId + " shares file " + address);
                 }
+                return shared;
             }
 
-            context.complete();
-        }
-        // Aborting will leave the DB objects around, even if the
-        // bitstreams are deleted. This is OK; deleting them next
-        // time around will be a no-op.
-        catch (SQLException sqle)
-        {
-            if (verbose)
+            // Not stored yet, or lost: the new file is moved in the incoming
+            // asset store
+            if (storeNumber != incoming)
             {
-                System.err.println("Error: " + sqle.getMessage());
+                DatabaseManager.updateQuery(context,
+                        "update bitstream_blob set store_number = ? where internal_id = ?",
+                        incoming, address);
+                bitstream.setColumn("store_number", incoming);
+                shared = getFile(bitstream);
             }
-            context.abort();
-            throw sqle;
-        }
-        catch (IOException ioe)
-        {
-            if (verbose)
+            GeneralFile parent = shared.getParentFile();
+            if (!parent.exists())
+            {
+                parent.mkdirs();
+            }
+            if (shared.exists())
             {
-                System.err.println("Error: " + ioe.getMessage());
+                shared.delete();
             }
-            context.abort();
-            throw ioe;
+            if (!file.renameTo(shared))
+            {
+                throw new IOException("Cannot move " + file.getAbsolutePath()
+                        + " to " + shared.getAbsolutePath());
+            }
+            deleteParents(file);
+            return shared;
         }
+        throw new IOException("Cannot share the file of bitstream "
+                + bitstream.getStringColumn("internal_id"));
     }
 
     /**
+     * List a shared file in the <code>bitstream_blob</code> table, without
+     * references, using a separate DB connection so that the row is
+     * committed even if the context of the new bitstream is aborted.
      *
-     * @param context
-     * @param id of the bitstream to clone.
-     * @return id of the clone bitstream.
-     * @throws SQLException
+     * @return the store number of the shared file, or -1 if it was listed
+     *         at the same time by another bitstream and must be read again
      */
-    public static int clone(Context context, int id) throws SQLException
+    private static int listShared(String address, long size) throws SQLException
     {
-        TableRow row = DatabaseManager.find(context, "bitstream", id);
-        row.setColumn("bitstream_id", -1);
-        DatabaseManager.insert(context, row);
-        return row.getIntColumn("bitstream_id");
+        Context tempContext = null;
+        try
+        {
+            tempContext = new Context();
+            TableRow blob = DatabaseManager.querySingle(tempContext,
+                    "select store_number from bitstream_blob where internal_id = ?",
+                    address);
+            int storeNumber = incoming;
+            if (blob != null)
+            {
+                storeNumber = blob.getIntColumn("store_number");
+            }
+            else
+            {
+                DatabaseManager.updateQuery(tempContext,
+                        "insert into bitstream_blob (internal_id, store_number, size_bytes, ref_count) "
+                        + "values (?, ?, ?, 0)",
+                        address, incoming, size);
+            }
+            tempContext.complete();
+            return storeNumber;
+        }
+        catch (SQLException sqle)
+        {
+            if (tempContext != null)
+            {
+                tempContext.abort();
+            }
+            // e.g. listed at the same time by another bitstream
+            log.warn("Cannot list shared file " + address, sqle);
+            return -1;
+        }
     }
 
-
-    ////////////////////////////////////////
-    // Internal methods
-    ////////////////////////////////////////
-
     /**
      * Return true if this file is too recent to be deleted, false otherwise.
      * 
@@ -750,7 +884,7 @@ public class BitstreamStorageManager
      *            The file to check
      * @return True if this file is too recent to be deleted
      */
-    private static boolean isRecent(GeneralFile file)
+    static boolean isRecent(GeneralFile file)
     {
         long lastmod = file.lastModified();
         long now = new java.util.Date().getTime();
@@ -770,7 +904,7 @@ public class BitstreamStorageManager
      * @param file
      *            The file with parent directories to delete
      */
-    private static synchronized void deleteParents(GeneralFile file)
+    static synchronized void deleteParents(GeneralFile file)
     {
         if (file == null )
         {
@@ -809,7 +943,7 @@ public class BitstreamStorageManager
      * @exception IOException
      *                If a problem occurs while determining the file
      */
-    private static GeneralFile getFile(TableRow bitstream) throws IOException
+    static GeneralFile getFile(TableRow bitstream) throws IOException
     {
         // Check that bitstream is not null
         if (bitstream == null)
@@ -891,7 +1025,7 @@ public class BitstreamStorageManager
 	 *            The internal_id
 	 * @return The path based on the id without leading or trailing separators
 	 */
-	private static String getIntermediatePath(String iInternalId) {
+	static String getIntermediatePath(String iInternalId) {
 		StringBuffer buf = new StringBuffer();
 		for (int i = 0; i < directoryLevels; i++) {
 			int digits = i * digitsPerLevel;
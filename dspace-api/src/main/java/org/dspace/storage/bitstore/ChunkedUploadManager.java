@@ -0,0 +1,414 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.storage.bitstore;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import org.apache.log4j.Logger;
+import org.dspace.core.ConfigurationManager;
+import org.dspace.core.Context;
+
+/**
+ * Stages the bits of large bitstreams uploaded in several chunks, so that an
+ * interrupted upload can be resumed from the last chunk received instead of
+ * being sent again.  The bitstream is created from the staged bits once the
+ * last chunk is received, see {@link #open}.
+ * <p>
+ * Each upload belongs to the e-person who started it, and to an item.  Its
+ * chunks must be sent in order: a chunk is appended only if its offset is
+ * the number of bytes received so far ({@link Upload#getOffset}), so a chunk
+ * sent twice is detected.  A chunk which would make the upload larger than
+ * <code>upload.chunked.max-size</code> bytes (by default
+ * <code>upload.max</code>, negative for no limit) is rejected.  The uploads
+ * without chunk received for <code>upload.chunked.max-age</code> hours
+ * expire: they are not found any more, and are deleted when uploads are
+ * started, found or appended to, at most once a minute.
+ * <p>
+ * Configuration:
+ * <pre>
+ *   upload.chunked.dir = ${upload.temp.dir}/chunked
+ *   upload.chunked.max-age = 24
+ *   upload.chunked.max-size = ${upload.max}
+ * </pre>
+ */
+public final class ChunkedUploadManager
+{
+    /** log4j log */
+    private static final Logger log = Logger.getLogger(ChunkedUploadManager.class);
+
+    /** suffix of the staged bits */
+    private static final String PART_SUFFIX = ".part";
+
+    /** suffix of the description of an upload */
+    private static final String INFO_SUFFIX = ".properties";
+
+    /** upload IDs are UUIDs, nothing else is a file name of the staging area */
+    private static final Pattern ID_PATTERN = Pattern.compile("[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}");
+
+    /** milliseconds between two purges of the expired uploads */
+    private static final long PURGE_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+
+    /** time of the next purge of the expired uploads */
+    private static final AtomicLong nextPurge = new AtomicLong();
+
+    /**
+     * Thrown when a chunk would make an upload larger than the limit.
+     */
+    public static final class UploadTooLargeException extends IOException
+    {
+        private static final long serialVersionUID = 1L;
+
+        private UploadTooLargeException(String message)
+        {
+            super(message);
+        }
+    }
+
+    /**
+     * An upload in progress.
+     */
+    public static final class Upload
+    {
+        private final String id;
+
+        private final int itemID;
+
+        private final String name;
+
+        private final long offset;
+
+        private Upload(String id, int itemID, String name, long offset)
+        {
+            this.id = id;
+            this.itemID = itemID;
+            this.name = name;
+            this.offset = offset;
+        }
+
+        /**
+         * @return the ID of the upload
+         */
+        public String getID()
+        {
+            return id;
+        }
+
+        /**
+         * @return the ID of the item the bitstream is uploaded to
+         */
+        public int getItemID()
+        {
+            return itemID;
+        }
+
+        /**
+         * @return the name of the bitstream, may be null
+         */
+        public String getName()
+        {
+            return name;
+        }
+
+        /**
+         * @return the number of bytes received so far, which is the offset
+         *         of the next chunk
+         */
+        public long getOffset()
+        {
+            return offset;
+        }
+    }
+
+    /** Not instantiable */
+    private ChunkedUploadManager()
+    {
+    }
+
+    /**
+     * Start an upload for the current user.
+     *
+     * @param context
+     *            the current context, with the user uploading
+     * @param itemID
+     *            the ID of the item the bitstream is uploaded to
+     * @param name
+     *            the name of the bitstream, may be null
+     * @return the upload, without bytes received
+     * @throws IOException
+     *             if the upload cannot be staged
+     */
+    public static Upload start(Context context, int itemID, String name) throws IOException
+    {
+        if (context.getCurrentUser() == null)
+        {
+            throw new IllegalStateException("Chunked uploads need an authenticated user");
+        }
+        File dir = getDirectory();
+        if (!dir.isDirectory() && !dir.mkdirs())
+        {
+            throw new IOException("Cannot create " + dir);
+        }
+        purgeExpired(dir, true);
+
+        String id = UUID.randomUUID().toString();
+        Properties info = new Properties();
+        info.setProperty("eperson", String.valueOf(context.getCurrentUser().getID()));
+        info.setProperty("item", String.valueOf(itemID));
+        if (name != null)
+        {
+            info.setProperty("name", name);
+        }
+        OutputStream out = new FileOutputStream(new File(dir, id + INFO_SUFFIX));
+        try
+        {
+            info.store(out, null);
+        }
+        finally
+        {
+            out.close();
+        }
+        if (!new File(dir, id + PART_SUFFIX).createNewFile())
+        {
+            throw new IOException("Upload " + id + " already exists");
+        }
+
+        log.info("Started chunked upload " + id + " to item " + itemID);
+        return new Upload(id, itemID, name, 0);
+    }
+
+    /**
+     * Find an upload of the current user.
+     *
+     * @param context
+     *            the current context, with the user uploading
+     * @param id
+     *            the ID of the upload
+     * @return the upload, or null if it does not exist, has expired or
+     *         belongs to another user
+     * @throws IOException
+     *             if the upload cannot be read
+     */
+    public static Upload find(Context context, String id) throws IOException
+    {
+        if (id == null || !ID_PATTERN.matcher(id).matches() || context.getCurrentUser() == null)
+        {
+            return null;
+        }
+        File dir = getDirectory();
+        purgeExpired(dir, false);
+        File infoFile = new File(dir, id + INFO_SUFFIX);
+        File part = new File(dir, id + PART_SUFFIX);
+        if (!infoFile.isFile() || !part.isFile()
+                || System.currentTimeMillis() - part.lastModified() > getMaxAge())
+        {
+            return null;
+        }
+
+        Properties info = new Properties();
+        InputStream in = new FileInputStream(infoFile);
+        try
+        {
+            info.load(in);
+        }
+        finally
+        {
+            in.close();
+        }
+        if (!String.valueOf(context.getCurrentUser().getID()).equals(info.getProperty("eperson")))
+        {
+            return null;
+        }
+        return new Upload(id, Integer.parseInt(info.getProperty("item")),
+                info.getProperty("name"), part.length());
+    }
+
+    /**
+     * Append a chunk to an upload, if it starts where the bytes received so
+     * far end.
+     *
+     * @param upload
+     *            the upload, see {@link #find}
+     * @param offset
+     *            the offset of the chunk in the bitstream
+     * @param chunk
+     *            the bytes of the chunk
+     * @return the upload, with the chunk received
+     * @throws IllegalArgumentException
+     *             if the offset is not the number of bytes received so far,
+     *             e.g. if the chunk was already received; nothing is appended
+     * @throws UploadTooLargeException
+     *             if the chunk would make the upload larger than the limit;
+     *             nothing is appended
+     * @throws IOException
+     *             if the chunk cannot be staged
+     */
+    public static Upload append(Upload upload, long offset, InputStream chunk) throws IOException
+    {
+        File dir = getDirectory();
+        purgeExpired(dir, false);
+        File part = new File(dir, upload.getID() + PART_SUFFIX);
+        if (!part.isFile())
+        {
+            throw new FileNotFoundException("Upload " + upload.getID() + " has expired");
+        }
+        long maxSize = getMaxSize();
+        FileOutputStream out = new FileOutputStream(part, true);
+        try
+        {
+            // one chunk at a time, even from concurrent requests
+            FileChannel channel = out.getChannel();
+            FileLock lock = channel.lock();
+            try
+            {
+                long received = channel.size();
+                if (received != offset)
+                {
+                    throw new IllegalArgumentException("Upload " + upload.getID() + " expects offset "
+                            + received + ", not " + offset);
+                }
+                try
+                {
+                    copy(chunk, out, maxSize < 0 ? Long.MAX_VALUE : maxSize - received);
+                }
+                catch (IOException e)
+                {
+                    // drop the incomplete or rejected chunk, so that it can
+                    // be sent again
+                    channel.truncate(received);
+                    if (e instanceof UploadTooLargeException)
+                    {
+                        throw new UploadTooLargeException("Upload " + upload.getID()
+                                + " would exceed " + maxSize + " bytes");
+                    }
+                    throw e;
+                }
+                return new Upload(upload.getID(), upload.getItemID(), upload.getName(), channel.size());
+            }
+            finally
+            {
+                lock.release();
+            }
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    // Copy a chunk, failing as soon as more than the bytes left are read
+    private static void copy(InputStream in, OutputStream out, long left) throws IOException
+    {
+        byte[] buffer = new byte[8192];
+        int count;
+        while ((count = in.read(buffer)) != -1)
+        {
+            left -= count;
+            if (left < 0)
+            {
+                throw new UploadTooLargeException("Upload too large");
+            }
+            out.write(buffer, 0, count);
+        }
+    }
+
+    /**
+     * @param upload
+     *            the upload, see {@link #find}
+     * @return the bytes received, e.g. to create the bitstream once the last
+     *         chunk is received
+     * @throws IOException
+     *             if the staged bits cannot be read
+     */
+    public static InputStream open(Upload upload) throws IOException
+    {
+        return new FileInputStream(new File(getDirectory(), upload.getID() + PART_SUFFIX));
+    }
+
+    /**
+     * Delete an upload, once its bitstream is created or if it is cancelled.
+     *
+     * @param upload
+     *            the upload, see {@link #find}
+     */
+    public static void delete(Upload upload)
+    {
+        delete(getDirectory(), upload.getID());
+    }
+
+    private static void delete(File dir, String id)
+    {
+        new File(dir, id + PART_SUFFIX).delete();
+        new File(dir, id + INFO_SUFFIX).delete();
+    }
+
+    // Delete the uploads without chunk received for too long, at most once
+    // a minute unless forced
+    private static void purgeExpired(File dir, boolean force)
+    {
+        long now = System.currentTimeMillis();
+        long next = nextPurge.get();
+        if ((!force && now < next) || !nextPurge.compareAndSet(next, now + PURGE_INTERVAL))
+        {
+            return;
+        }
+        long maxAge = getMaxAge();
+        File[] files = dir.listFiles();
+        if (files == null)
+        {
+            return;
+        }
+        for (File file : files)
+        {
+            String name = file.getName();
+            if (name.endsWith(PART_SUFFIX) && now - file.lastModified() > maxAge)
+            {
+                String id = name.substring(0, name.length() - PART_SUFFIX.length());
+                log.info("Deleting expired chunked upload " + id);
+                delete(dir, id);
+            }
+        }
+    }
+
+    private static long getMaxAge()
+    {
+        return TimeUnit.HOURS.toMillis(
+                ConfigurationManager.getIntProperty("upload.chunked.max-age", 24));
+    }
+
+    private static long getMaxSize()
+    {
+        String maxSize = ConfigurationManager.getProperty("upload.chunked.max-size");
+        return maxSize != null ? Long.parseLong(maxSize.trim())
+                : ConfigurationManager.getLongProperty("upload.max", -1);
+    }
+
+    private static File getDirectory()
+    {
+        String dir = ConfigurationManager.getProperty("upload.chunked.dir");
+        if (dir == null)
+        {
+            String temp = ConfigurationManager.getProperty("upload.temp.dir");
+            dir = (temp != null ? temp : System.getProperty("java.io.tmpdir"))
+                    + File.separator + "chunked";
+        }
+        return new File(dir);
+    }
+}
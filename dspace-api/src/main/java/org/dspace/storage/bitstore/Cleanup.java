@@ -48,6 +48,8 @@ public class Cleanup
 
             options.addOption("l", "leave", false, "Leave database records but delete file from assetstore");
             options.addOption("v", "verbose", false, "Provide verbose output");
+            options.addOption("t", "threads", true, "Number of files deleted at the same time in each assetstore (default 1)");
+            options.addOption("b", "batch", true, "Number of bitstream IDs read at a time (default 1000)");
             options.addOption("h", "help", false, "Help");
             
             try
@@ -75,7 +77,27 @@ public class Cleanup
                 deleteDbRecords = false;    
             }
            	log.debug("leave db records = " + deleteDbRecords);
-            BitstreamStorageManager.cleanup(deleteDbRecords, line.hasOption('v'));
+
+            int threads = 1;
+            int batchSize = 1000;
+            try
+            {
+                if (line.hasOption('t'))
+                {
+                    threads = Integer.parseInt(line.getOptionValue('t'));
+                }
+                if (line.hasOption('b'))
+                {
+                    batchSize = Integer.parseInt(line.getOptionValue('b'));
+                }
+            }
+            catch (NumberFormatException e)
+            {
+                log.fatal(e);
+                printHelp(options);
+                System.exit(1);
+            }
+            BitstreamStorageManager.cleanup(deleteDbRecords, line.hasOption('v'), threads, batchSize);
             
             System.exit(0);
         }
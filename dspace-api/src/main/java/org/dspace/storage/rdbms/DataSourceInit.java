@@ -37,6 +37,17 @@ public class DataSourceInit {
 
         try
         {
+            // Use an alternative pool implementation, if one is configured
+            String providerClass = ConfigurationManager.getProperty("db.pool.provider");
+            if (StringUtils.isNotBlank(providerClass))
+            {
+                DataSourceProvider provider = (DataSourceProvider) Class
+                        .forName(providerClass.trim()).newInstance();
+                log.info("Creating DB pool with " + providerClass);
+                dataSource = provider.createDataSource();
+                return dataSource;
+            }
+
             // Register basic JDBC driver
             Class driverClass = Class.forName(ConfigurationManager
                     .getProperty("db.driver"));
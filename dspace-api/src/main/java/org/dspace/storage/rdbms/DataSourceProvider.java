@@ -0,0 +1,31 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.storage.rdbms;
+
+import javax.sql.DataSource;
+
+/**
+ * Creates the connection pool used by DSpace when no JNDI DataSource is
+ * available. The default implementation is the commons-dbcp pool built by
+ * {@link DataSourceInit}; an alternative pool can be plugged in by setting
+ * <code>db.pool.provider</code> to the name of a class implementing this
+ * interface (with a public no-argument constructor). Implementations should
+ * read the standard <code>db.*</code> properties from the
+ * ConfigurationManager.
+ */
+public interface DataSourceProvider
+{
+    /**
+     * Build a new, ready to use, connection pool.
+     *
+     * @return the pooled DataSource
+     * @throws Exception
+     *             if the pool cannot be created
+     */
+    DataSource createDataSource() throws Exception;
+}
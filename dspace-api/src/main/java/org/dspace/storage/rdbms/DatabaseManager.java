@@ -26,11 +26,14 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Pattern;
 
 import javax.naming.InitialContext;
@@ -57,7 +60,11 @@ public class DatabaseManager
     /** True if initialization has been done */
     private static boolean initialized = false;
 
-    private static Map<String, String> insertSQL = new HashMap<String, String>();
+    /** The insert/update/delete statements of each table, by canonical table name */
+    private static ConcurrentMap<String, TableStatements> statements = new ConcurrentHashMap<String, TableStatements>();
+
+    /** Maximum number of rows sent to the database in a single JDBC batch */
+    private static final int BATCH_SIZE = 500;
 
     private static boolean isOracle = false;
     private static boolean isPostgres = false;
@@ -95,7 +102,7 @@ public class DatabaseManager
      * A map of database column information. The key is the table name, a
      * String; the value is an array of ColumnInfo objects.
      */
-    private static Map<String, Map<String, ColumnInfo>> info = new HashMap<String, Map<String, ColumnInfo>>();
+    private static ConcurrentMap<String, Map<String, ColumnInfo>> info = new ConcurrentHashMap<String, Map<String, ColumnInfo>>();
 
     /**
      * Protected Constructor to prevent instantiation except by derived classes.
@@ -238,9 +245,12 @@ public class DatabaseManager
 
             loadParameters(statement, parameters);
 
+            long start = System.nanoTime();
             TableRowIterator retTRI = new TableRowIterator(statement.executeQuery(), canonicalize(table));
+            DatabaseStatistics.recordStatement(query, start, -1);
 
             retTRI.setStatement(statement);
+            retTRI.setQuery(query);
             return retTRI;
         }
         catch (SQLException sqle)
@@ -299,9 +309,12 @@ public class DatabaseManager
         {
             loadParameters(statement,parameters);
 
+            long start = System.nanoTime();
             TableRowIterator retTRI = new TableRowIterator(statement.executeQuery());
+            DatabaseStatistics.recordStatement(query, start, -1);
 
             retTRI.setStatement(statement);
+            retTRI.setQuery(query);
             return retTRI;
         }
         catch (SQLException sqle)
@@ -323,6 +336,152 @@ public class DatabaseManager
         }
     }
 
+    /**
+     * Return an iterator with the results of a query on a table, read from
+     * the database <code>db.stream.fetchsize</code> rows at a time while
+     * iterating, instead of all at once.  Use it for the scans which may
+     * return more rows than fit in memory, e.g. all the items.
+     * <p>
+     * The query runs on its own read-only connection, released when the
+     * iterator is closed, or else when the context is completed or aborted,
+     * so that the context can commit meanwhile.  That connection only sees
+     * committed rows: if the context has a transaction in progress, or if
+     * streaming is disabled, this is {@link #queryTable}.
+     *
+     * @param context
+     *            The context object
+     * @param table
+     *            The name of the table which results
+     * @param query
+     *            The SQL query
+     * @param parameters
+     *            A set of SQL parameters to be included in query. The order of
+     *            the parameters must correspond to the order of their reference
+     *            within the query.
+     * @return A TableRowIterator with the results of the query
+     * @exception SQLException
+     *                If a database error occurs
+     */
+    public static TableRowIterator queryTableStreaming(Context context, String table,
+            String query, Object... parameters) throws SQLException
+    {
+        if (!isStreaming(context))
+        {
+            return queryTable(context, table, query, parameters);
+        }
+        return stream(context, canonicalize(table), query, parameters);
+    }
+
+    /**
+     * Return an iterator with the results of the query, read from the
+     * database <code>db.stream.fetchsize</code> rows at a time while
+     * iterating, see {@link #queryTableStreaming}.
+     *
+     * @param context
+     *            The context object
+     * @param query
+     *            The SQL query
+     * @param parameters
+     *            A set of SQL parameters to be included in query. The order of
+     *            the parameters must correspond to the order of their reference
+     *            within the query.
+     * @return A TableRowIterator with the results of the query
+     * @exception SQLException
+     *                If a database error occurs
+     */
+    public static TableRowIterator queryStreaming(Context context, String query,
+            Object... parameters) throws SQLException
+    {
+        if (!isStreaming(context))
+        {
+            return query(context, query, parameters);
+        }
+        return stream(context, null, query, parameters);
+    }
+
+    private static boolean isStreaming(Context context)
+    {
+        return ConfigurationManager.getIntProperty("db.stream.fetchsize", 0) > 0
+                && context.isAutoCommit();
+    }
+
+    private static TableRowIterator stream(Context context, String table,
+            String query, Object... parameters) throws SQLException
+    {
+        if (log.isDebugEnabled())
+        {
+            log.debug("Streaming query \"" + query + "\"  with parameters: "
+                    + Arrays.toString(parameters));
+        }
+
+        Connection connection = getConnection();
+        PreparedStatement statement = null;
+        try
+        {
+            // PostgreSQL only reads the results with a cursor, a batch at a
+            // time, in a transaction
+            connection.setAutoCommit(false);
+            connection.setReadOnly(true);
+            statement = connection.prepareStatement(query,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(ConfigurationManager.getIntProperty("db.stream.fetchsize", 0));
+            loadParameters(statement, parameters);
+
+            long start = System.nanoTime();
+            TableRowIterator retTRI = (table == null)
+                    ? new TableRowIterator(statement.executeQuery())
+                    : new TableRowIterator(statement.executeQuery(), table);
+            DatabaseStatistics.recordStatement(query, start, -1);
+
+            retTRI.setStatement(statement);
+            retTRI.setQuery(query);
+            retTRI.setConnection(context, connection);
+            return retTRI;
+        }
+        catch (SQLException sqle)
+        {
+            if (statement != null)
+            {
+                try
+                {
+                    statement.close();
+                }
+                catch (SQLException s)
+                {
+                    log.error("SQL query stream close Error - ", s);
+                }
+            }
+            releaseStreamingConnection(connection);
+            log.error("SQL query stream Error - ", sqle);
+            throw sqle;
+        }
+    }
+
+    /**
+     * End the transaction of a streamed query and return its connection to
+     * the pool, as it was obtained.
+     *
+     * @param connection
+     *            The connection of the streamed query
+     */
+    static void releaseStreamingConnection(Connection connection)
+    {
+        try
+        {
+            connection.rollback();
+            connection.setReadOnly(false);
+            connection.setAutoCommit(true);
+        }
+        catch (SQLException e)
+        {
+            log.warn("Cannot reset the connection of a streamed query", e);
+        }
+        finally
+        {
+            freeConnection(connection);
+        }
+    }
+
     
     /**
      * Return an iterator with the results of the query.
@@ -366,9 +525,12 @@ public class DatabaseManager
         {
             loadParameters(statement,params.toArray());
 
+            long start = System.nanoTime();
             TableRowIterator retTRI = new TableRowIterator(statement.executeQuery());
+            DatabaseStatistics.recordStatement(query.toString(), start, -1);
 
             retTRI.setStatement(statement);
+            retTRI.setQuery(query.toString());
             return retTRI;
         }
         catch (SQLException sqle)
@@ -512,7 +674,10 @@ public class DatabaseManager
         	statement = context.getDBConnection().prepareStatement(query);
         	loadParameters(statement, parameters);
 
-        	return statement.executeUpdate();
+            long start = System.nanoTime();
+            int rows = statement.executeUpdate();
+            DatabaseStatistics.recordStatement(query, start, rows);
+            return rows;
         } catch (SQLException e) {
             log.error("SQL query updateQuery Error - ", e);
             throw e;
@@ -705,7 +870,10 @@ public class DatabaseManager
         try
         {
             if (dsource != null) {
-                return dsource.getConnection();
+                long start = System.nanoTime();
+                Connection connection = dsource.getConnection();
+                DatabaseStatistics.recordBorrow(start);
+                return connection;
             }
 
             return null;
@@ -811,38 +979,13 @@ public class DatabaseManager
      */
     public static int update(Context context, TableRow row) throws SQLException
     {
-        String table = row.getTable();
-
-        StringBuilder sql = new StringBuilder().append("update ").append(table)
-                .append(" set ");
-
-        List<ColumnInfo> columns = new ArrayList<ColumnInfo>();
-        ColumnInfo pk = getPrimaryKeyColumnInfo(context, table);
-        Collection<ColumnInfo> info = getColumnInfo(context, table);
-
-        String separator = "";
-        for (ColumnInfo col : info)
-        {
-            // Only update this column if it has changed
-            if (!col.isPrimaryKey())
-            {
-                if (row.hasColumnChanged(col.getName()))
-                {
-                    sql.append(separator).append(col.getName()).append(" = ?");
-                    columns.add(col);
-                    separator = ", ";
-                }
-            }
-        }
+        TableStatements.Template update = getTableStatements(context, row.getTable()).getUpdate(row);
 
         // Only execute the update if there is anything to update
-        if (columns.size() > 0)
+        if (update != null)
         {
-            sql.append(" where ").append(pk.getName()).append(" = ?");
-            columns.add(pk);
-
 	    context.setAutoCommit(false);
-            return executeUpdate(context.getDBConnection(), sql.toString(), columns, row);
+            return executeUpdate(context.getDBConnection(), update.getSQL(), update.getColumns(), row);
         }
 
         return 1;
@@ -876,6 +1019,129 @@ public class DatabaseManager
         return delete(context, row.getTable(), row.getIntColumn(pk));
     }
 
+    /**
+     * Add new rows to the RDBMS, sending them in JDBC batches.  The primary
+     * keys of the new rows are allocated first, then set in the rows as
+     * {@link #insert(Context, TableRow)} does.
+     *
+     * @param context
+     *            Current DSpace context
+     * @param rows
+     *            The rows to insert, of any tables
+     * @exception SQLException
+     *                If a database error occurs
+     */
+    public static void insert(Context context, List<TableRow> rows) throws SQLException
+    {
+        if (rows.isEmpty())
+        {
+            return;
+        }
+        context.setAutoCommit(false);
+
+        for (List<TableRow> tableRows : byTable(rows))
+        {
+            TableStatements table = getTableStatements(context, tableRows.get(0).getTable());
+            ColumnInfo pk = table.getPrimaryKey();
+            if (pk != null)
+            {
+                int[] ids = nextIDs(context, table.getTable(), tableRows.size());
+                for (int i = 0; i < ids.length; i++)
+                {
+                    tableRows.get(i).setColumn(pk.getName(), ids[i]);
+                }
+            }
+            executeBatch(context.getDBConnection(), table.getInsert(), tableRows);
+        }
+    }
+
+    /**
+     * Update changes of many rows to the RDBMS, sending rows with the same
+     * changed columns in JDBC batches.  Note that if the update fails, the
+     * values in the rows will NOT be reverted.
+     *
+     * @param context
+     *            Current DSpace context
+     * @param rows
+     *            The rows to update, of any tables
+     * @return The number of rows affected; unchanged rows count as one
+     * @exception SQLException
+     *                If a database error occurs
+     */
+    public static int update(Context context, List<TableRow> rows) throws SQLException
+    {
+        int count = 0;
+        for (List<TableRow> tableRows : byTable(rows))
+        {
+            TableStatements table = getTableStatements(context, tableRows.get(0).getTable());
+            Map<TableStatements.Template, List<TableRow>> byStatement =
+                    new LinkedHashMap<TableStatements.Template, List<TableRow>>();
+            for (TableRow row : tableRows)
+            {
+                TableStatements.Template update = table.getUpdate(row);
+                if (update == null)
+                {
+                    count++;
+                    continue;
+                }
+                List<TableRow> statementRows = byStatement.get(update);
+                if (statementRows == null)
+                {
+                    statementRows = new ArrayList<TableRow>();
+                    byStatement.put(update, statementRows);
+                }
+                statementRows.add(row);
+            }
+
+            for (Map.Entry<TableStatements.Template, List<TableRow>> entry : byStatement.entrySet())
+            {
+                context.setAutoCommit(false);
+                count += executeBatch(context.getDBConnection(), entry.getKey(), entry.getValue());
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Delete many rows from the RDBMS, sending them in JDBC batches.
+     *
+     * @param context
+     *            Current DSpace context
+     * @param rows
+     *            The rows to delete, of any tables
+     * @return The number of rows affected
+     * @exception SQLException
+     *                If a database error occurs
+     */
+    public static int delete(Context context, List<TableRow> rows) throws SQLException
+    {
+        int count = 0;
+        for (List<TableRow> tableRows : byTable(rows))
+        {
+            if (null == tableRows.get(0).getTable())
+            {
+                throw new IllegalArgumentException("Row not associated with a table");
+            }
+
+            TableStatements table = getTableStatements(context, tableRows.get(0).getTable());
+            if (table.getDelete() == null)
+            {
+                throw new IllegalArgumentException("Table " + table.getTable() + " has no primary key");
+            }
+            String pk = table.getPrimaryKey().getCanonicalizedName();
+            for (TableRow row : tableRows)
+            {
+                if (row.isColumnNull(pk))
+                {
+                    throw new IllegalArgumentException("Primary key value is null");
+                }
+            }
+            context.setAutoCommit(false);
+            count += executeBatch(context.getDBConnection(), table.getDelete(), tableRows);
+        }
+        return count;
+    }
+
     /**
      * Return metadata about a table.
      *
@@ -1027,14 +1293,33 @@ public class DatabaseManager
      */
     static TableRow process(Context context, ResultSet results, String table, List<String> pColumnNames) throws SQLException
     {
-        ResultSetMetaData meta = results.getMetaData();
-        int columns = meta.getColumnCount() + 1;
-
         // If we haven't been passed the column names try to generate them from the metadata / table
         List<String> columnNames = pColumnNames != null ? pColumnNames :
-                ((table == null) ? getColumnNames(meta) : getColumnNames(context,table));
+                ((table == null) ? getColumnNames(results.getMetaData()) : getColumnNames(context,table));
 
-        TableRow row = new TableRow(canonicalize(table), columnNames);
+        return process(results, table, TableRow.Columns.of(columnNames));
+    }
+
+    /**
+     * Convert the current row in a ResultSet into a TableRow object, with
+     * columns shared with the other rows of the ResultSet.
+     *
+     * @param results
+     *            A ResultSet to process
+     * @param table
+     *            The name of the table
+     * @param layout
+     *            The columns of the rows in this resultset
+     * @return A TableRow object with the data from the ResultSet
+     * @exception SQLException
+     *                If a database error occurs
+     */
+    static TableRow process(ResultSet results, String table, TableRow.Columns layout) throws SQLException
+    {
+        ResultSetMetaData meta = results.getMetaData();
+        int columns = meta.getColumnCount() + 1;
+
+        TableRow row = new TableRow(canonicalize(table), layout);
 
         // Process the columns in order
         // (This ensures maximum backwards compatibility with
@@ -1235,7 +1520,9 @@ public class DatabaseManager
         {
             statement = connection.prepareStatement(sql);
         	loadParameters(statement, columns, row);
+            long start = System.nanoTime();
             statement.execute();
+            DatabaseStatistics.recordStatement(sql, start, 1);
         }
         finally
         {
@@ -1267,7 +1554,10 @@ public class DatabaseManager
         {
             statement = connection.prepareStatement(sql);
         	loadParameters(statement, columns, row);
-            return statement.executeUpdate();
+            long start = System.nanoTime();
+            int rows = statement.executeUpdate();
+            DatabaseStatistics.recordStatement(sql, start, rows);
+            return rows;
         }
         finally
         {
@@ -1311,6 +1601,191 @@ public class DatabaseManager
         return results;
     }
 
+    /**
+     * Return the insert/update/delete statements of a table, building them
+     * the first time.
+     *
+     * @param table
+     *            The name of the table
+     * @return The statements of the table
+     * @exception SQLException
+     *                If a database error occurs
+     */
+    static TableStatements getTableStatements(Context context, String table) throws SQLException
+    {
+        String ctable = canonicalize(table);
+        TableStatements results = statements.get(ctable);
+
+        if (results == null)
+        {
+            results = new TableStatements(ctable, getColumnInfo(context, ctable));
+            TableStatements previous = statements.putIfAbsent(ctable, results);
+            if (previous != null)
+            {
+                results = previous;
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * Split rows in lists of consecutive rows of the same table.
+     */
+    private static List<List<TableRow>> byTable(List<TableRow> rows)
+    {
+        List<List<TableRow>> result = new ArrayList<List<TableRow>>();
+        List<TableRow> current = null;
+        String table = null;
+        for (TableRow row : rows)
+        {
+            if (current == null || !StringUtils.equalsIgnoreCase(table, row.getTable()))
+            {
+                current = new ArrayList<TableRow>();
+                result.add(current);
+                table = row.getTable();
+            }
+            current.add(row);
+        }
+        return result;
+    }
+
+    /**
+     * Allocate primary keys for new rows of a table, in a single query where
+     * the database allows it.
+     *
+     * @param table
+     *            The canonical name of the table
+     * @param count
+     *            The number of keys
+     * @return The new keys
+     * @exception SQLException
+     *                If a database error occurs
+     */
+    private static int[] nextIDs(Context context, String table, int count) throws SQLException
+    {
+        int[] ids = new int[count];
+        String sql;
+        if (isPostgres)
+        {
+            sql = "SELECT getnextid(?) FROM generate_series(1, ?)";
+        }
+        else if (DBMS_H2.equals(dbms_keyword))
+        {
+            sql = "SELECT " + table + "_seq.nextval FROM system_range(1, ?)";
+        }
+        else
+        {
+            sql = "SELECT " + table + "_seq.nextval FROM dual CONNECT BY LEVEL <= ?";
+        }
+
+        PreparedStatement statement = null;
+        ResultSet rs = null;
+        try
+        {
+            statement = context.getDBConnection().prepareStatement(sql);
+            if (isPostgres)
+            {
+                statement.setString(1, table);
+                statement.setInt(2, count);
+            }
+            else
+            {
+                statement.setInt(1, count);
+            }
+            long start = System.nanoTime();
+            rs = statement.executeQuery();
+            int i = 0;
+            while (i < count && rs.next())
+            {
+                ids[i++] = rs.getInt(1);
+            }
+            DatabaseStatistics.recordStatement(sql, start, i);
+            if (i < count)
+            {
+                throw new SQLException("Unable to retrieve sequence IDs");
+            }
+        }
+        finally
+        {
+            if (rs != null)
+            {
+                try { rs.close(); } catch (SQLException sqle) { }
+            }
+
+            if (statement != null)
+            {
+                try { statement.close(); } catch (SQLException sqle) { }
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Execute a statement for many rows, as JDBC batches.
+     *
+     * @param connection
+     *            The SQL connection
+     * @param template
+     *            The statement, and the columns to bind
+     * @param rows
+     *            The rows
+     * @return The number of rows affected
+     * @exception SQLException
+     *                If a database error occurs
+     */
+    private static int executeBatch(Connection connection, TableStatements.Template template,
+            List<TableRow> rows) throws SQLException
+    {
+        String sql = template.getSQL();
+        if (log.isDebugEnabled())
+        {
+            log.debug("Running batch \"" + sql + "\" for " + rows.size() + " rows");
+        }
+
+        PreparedStatement statement = null;
+        int count = 0;
+        try
+        {
+            statement = connection.prepareStatement(sql);
+            for (int first = 0; first < rows.size(); first += BATCH_SIZE)
+            {
+                List<TableRow> batch = rows.subList(first, Math.min(rows.size(), first + BATCH_SIZE));
+                for (TableRow row : batch)
+                {
+                    loadParameters(statement, template.getColumns(), row);
+                    statement.addBatch();
+                }
+                long start = System.nanoTime();
+                int[] results = statement.executeBatch();
+                int batchCount = 0;
+                for (int result : results)
+                {
+                    // some drivers only report success without a count
+                    batchCount += result == Statement.SUCCESS_NO_INFO ? 1 : Math.max(result, 0);
+                }
+                DatabaseStatistics.recordStatement(sql, start, batchCount);
+                count += batchCount;
+            }
+            return count;
+        }
+        finally
+        {
+            if (statement != null)
+            {
+                try
+                {
+                    statement.close();
+                }
+                catch (SQLException sqle)
+                {
+                    log.error("SQL executeBatch Error - ",sqle);
+                    throw sqle;
+                }
+            }
+        }
+    }
+
     /**
      * Read metadata about a table from the database.
      *
@@ -1776,65 +2251,9 @@ public class DatabaseManager
      */
     private static int doInsertPostgres(Context context, TableRow row) throws SQLException
     {
-        String table = row.getTable();
-
-        Collection<ColumnInfo> info = getColumnInfo(context, table);
-        Collection<ColumnInfo> params = new ArrayList<ColumnInfo>();
-
-        String primaryKey = getPrimaryKeyColumn(context, table);
-        String sql = insertSQL.get(table);
-
-        boolean firstColumn = true;
-        boolean foundPrimaryKey = false;
-        if (sql == null)
-        {
-            // Generate SQL and filter parameter columns
-            StringBuilder insertBuilder = new StringBuilder("INSERT INTO ").append(table).append(" ( ");
-            StringBuilder valuesBuilder = new StringBuilder(") VALUES ( ");
-            for (ColumnInfo col : info)
-            {
-                if (firstColumn)
-                {
-                    firstColumn = false;
-                }
-                else
-                {
-                    insertBuilder.append(",");
-                    valuesBuilder.append(",");
-                }
-
-                insertBuilder.append(col.getName());
-
-                if (!foundPrimaryKey && col.isPrimaryKey())
-                {
-                    valuesBuilder.append("getnextid('").append(table).append("')");
-                    foundPrimaryKey = true;
-                }
-                else
-                {
-                    valuesBuilder.append('?');
-                    params.add(col);
-                }
-            }
-
-            sql = insertBuilder.append(valuesBuilder.toString()).append(") RETURNING ").append(getPrimaryKeyColumn(context, table)).toString();
-            insertSQL.put(table, sql);
-        }
-        else
-        {
-            // Already have SQL, just filter parameter columns
-            for (ColumnInfo col : info)
-            {
-                if (!foundPrimaryKey && col.isPrimaryKey())
-                {
-                    foundPrimaryKey = true;
-                }
-                else
-                {
-                    params.add(col);
-                }
-            }
-        }
+        TableStatements.Template insert = getTableStatements(context, row.getTable()).getInsertReturning();
+        String sql = insert.getSQL();
+        Collection<ColumnInfo> params = insert.getColumns();
 
         PreparedStatement statement = null;
 
@@ -1848,7 +2267,9 @@ public class DatabaseManager
         {
             statement = context.getDBConnection().prepareStatement(sql);
         	loadParameters(statement, params, row);
+            long start = System.nanoTime();
             rs = statement.executeQuery();
+            DatabaseStatistics.recordStatement(sql, start, 1);
             rs.next();
             return rs.getInt(1);
         }
@@ -1933,51 +2354,9 @@ public class DatabaseManager
 
         // Set the ID in the table row object
         row.setColumn(getPrimaryKeyColumn(context, table), newID);
-        Collection<ColumnInfo> info = getColumnInfo(context, table);
-
-        String sql = insertSQL.get(table);
-        if (sql == null)
-        {
-            StringBuilder sqlBuilder = new StringBuilder().append("INSERT INTO ").append(table).append(" ( ");
-
-            boolean firstColumn = true;
-            for (ColumnInfo col : info)
-            {
-                if (firstColumn)
-                {
-                    sqlBuilder.append(col.getName());
-                    firstColumn = false;
-                }
-                else
-                {
-                    sqlBuilder.append(",").append(col.getName());
-                }
-            }
-
-            sqlBuilder.append(") VALUES ( ");
-
-            // Values to insert
-            firstColumn = true;
-            for (int i = 0; i < info.size(); i++)
-            {
-                if (firstColumn)
-                {
-                    sqlBuilder.append("?");
-                    firstColumn = false;
-                }
-                else
-                {
-                    sqlBuilder.append(",").append("?");
-                }
-            }
-
-            // Watch the syntax
-            sqlBuilder.append(")");
-            sql = sqlBuilder.toString();
-            insertSQL.put(table, sql);
-        }
 
-        execute(context.getDBConnection(), sql, info, row);
+        TableStatements.Template insert = getTableStatements(context, table).getInsert();
+        execute(context.getDBConnection(), insert.getSQL(), insert.getColumns(), row);
         return newID;
     }
 
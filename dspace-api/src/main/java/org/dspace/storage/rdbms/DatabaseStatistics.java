@@ -0,0 +1,526 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.storage.rdbms;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.regex.Pattern;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.dspace.core.ConfigurationManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Collects timing information about the SQL statements run through the
+ * {@link DatabaseManager}, the time spent waiting for a pooled connection and
+ * the lifetime of the connections held by each
+ * {@link org.dspace.core.Context}.
+ * <P>
+ * Statements are grouped by their normalized SQL text (literals replaced by
+ * <code>?</code>, whitespace collapsed); for each of them the number of
+ * executions, the cumulative and maximum time, a latency histogram and the
+ * number of rows returned or affected are kept. Statements slower than
+ * <code>db.statistics.slowquery.threshold</code> milliseconds are written to
+ * the <code>org.dspace.storage.rdbms.SlowQueryLog</code> logger.
+ * <P>
+ * Collection is disabled unless <code>db.statistics.enabled = true</code>.
+ * The statistics are exported over JMX as
+ * <code>org.dspace:type=DatabaseStatistics</code>.
+ */
+public class DatabaseStatistics implements DatabaseStatisticsMBean
+{
+    /** logging category */
+    private static final Logger log = LoggerFactory.getLogger(DatabaseStatistics.class);
+
+    /** slow query log */
+    private static final Logger slowLog = LoggerFactory.getLogger("org.dspace.storage.rdbms.SlowQueryLog");
+
+    /** JMX name used to export the statistics */
+    public static final String MBEAN_NAME = "org.dspace:type=DatabaseStatistics";
+
+    /** Upper bounds (milliseconds) of the latency histogram buckets; the last bucket is unbounded */
+    static final long[] HISTOGRAM_BOUNDS = { 1, 5, 10, 50, 100, 500, 1000, 5000 };
+
+    /** Maximum number of distinct statements tracked, to protect against unbounded dynamic SQL */
+    private static final int MAX_STATEMENTS = 2000;
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(\\.\\d+)?\\b");
+    private static final Pattern IN_LIST = Pattern.compile("\\(\\s*\\?(\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private static final DatabaseStatistics instance = new DatabaseStatistics();
+
+    private final boolean enabled;
+    private final long slowQueryThreshold;
+    private final boolean traceContexts;
+
+    private final ConcurrentMap<String, StatementStatistics> statements = new ConcurrentHashMap<String, StatementStatistics>();
+    private final ConcurrentMap<Long, OpenContext> contexts = new ConcurrentHashMap<Long, OpenContext>();
+
+    /** the last identifier given to an open context */
+    private final AtomicLong contextSequence = new AtomicLong();
+
+    private final AtomicLong statementCount = new AtomicLong();
+    private final AtomicLong statementNanos = new AtomicLong();
+    private final AtomicLong slowCount = new AtomicLong();
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong borrowNanos = new AtomicLong();
+    private final AtomicLong maxBorrowNanos = new AtomicLong();
+    private final AtomicLong leakedContexts = new AtomicLong();
+
+    private DatabaseStatistics()
+    {
+        this(ConfigurationManager.getBooleanProperty("db.statistics.enabled", false),
+                ConfigurationManager.getLongProperty("db.statistics.slowquery.threshold", 1000),
+                ConfigurationManager.getBooleanProperty("db.statistics.trace-contexts", false));
+
+        if (enabled)
+        {
+            register();
+        }
+    }
+
+    /**
+     * A collector not exported over JMX, for the tests.
+     */
+    DatabaseStatistics(boolean enabled, long slowQueryThreshold, boolean traceContexts)
+    {
+        this.enabled = enabled;
+        this.slowQueryThreshold = slowQueryThreshold;
+        this.traceContexts = traceContexts;
+    }
+
+    /**
+     * @return the shared statistics collector
+     */
+    public static DatabaseStatistics getInstance()
+    {
+        return instance;
+    }
+
+    private void register()
+    {
+        try
+        {
+            MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(MBEAN_NAME);
+            if (!mbs.isRegistered(name))
+            {
+                mbs.registerMBean(this, name);
+            }
+        }
+        catch (Exception e)
+        {
+            // JMX is only a view on the statistics, don't fail because of it
+            log.warn("Unable to register " + MBEAN_NAME, e);
+        }
+    }
+
+    /**
+     * Record the execution of a statement.
+     *
+     * @param sql
+     *            the SQL text as sent to the database
+     * @param startNanos
+     *            value of {@link System#nanoTime()} before execution
+     * @param rows
+     *            rows affected, or -1 if not known yet (queries report their
+     *            rows with {@link #recordRows(String, long)} once read)
+     */
+    static void recordStatement(String sql, long startNanos, long rows)
+    {
+        if (instance.enabled && sql != null)
+        {
+            instance.record(sql, System.nanoTime() - startNanos, rows);
+        }
+    }
+
+    /**
+     * Record the number of rows read from a query result.
+     *
+     * @param sql
+     *            the SQL text as sent to the database
+     * @param rows
+     *            rows read by the caller
+     */
+    static void recordRows(String sql, long rows)
+    {
+        if (instance.enabled && sql != null)
+        {
+            StatementStatistics stats = instance.statements.get(normalize(sql));
+            if (stats != null)
+            {
+                stats.rows.addAndGet(rows);
+            }
+        }
+    }
+
+    /**
+     * Record the time spent obtaining a connection from the pool.
+     *
+     * @param startNanos
+     *            value of {@link System#nanoTime()} before the request
+     */
+    static void recordBorrow(long startNanos)
+    {
+        if (instance.enabled)
+        {
+            long elapsed = System.nanoTime() - startNanos;
+            instance.borrowCount.incrementAndGet();
+            instance.borrowNanos.addAndGet(elapsed);
+            updateMax(instance.maxBorrowNanos, elapsed);
+        }
+    }
+
+    /**
+     * Note that a Context has obtained its database connection.
+     *
+     * @return the identifier of the open context, to pass to
+     *         {@link #contextClosed(long, boolean)}; 0 if the statistics are
+     *         disabled
+     */
+    public static long contextOpened()
+    {
+        return instance.opened();
+    }
+
+    /**
+     * Note that a Context has released its database connection.
+     *
+     * @param contextID
+     *            the identifier returned by {@link #contextOpened()}
+     * @param leaked
+     *            true if the connection is being released because the
+     *            Context was garbage collected rather than completed or
+     *            aborted
+     */
+    public static void contextClosed(long contextID, boolean leaked)
+    {
+        instance.closed(contextID, leaked);
+    }
+
+    long opened()
+    {
+        if (!enabled)
+        {
+            return 0;
+        }
+        // a sequence rather than the identity hash code of the Context,
+        // which is not unique, and not a reference which would keep the
+        // Context from being garbage collected
+        long contextID = contextSequence.incrementAndGet();
+        Throwable origin = traceContexts ? new Throwable("Context opened") : null;
+        contexts.put(contextID,
+                new OpenContext(System.currentTimeMillis(), Thread.currentThread().getName(), origin));
+        return contextID;
+    }
+
+    void closed(long contextID, boolean leaked)
+    {
+        if (enabled)
+        {
+            OpenContext open = contexts.remove(contextID);
+            if (leaked)
+            {
+                leakedContexts.incrementAndGet();
+                if (open != null)
+                {
+                    log.warn("Context opened by thread " + open.thread + " " + open.age() / 1000
+                            + "s ago was never completed or aborted", open.origin);
+                }
+            }
+        }
+    }
+
+    private void record(String sql, long nanos, long rows)
+    {
+        statementCount.incrementAndGet();
+        statementNanos.addAndGet(nanos);
+
+        String key = normalize(sql);
+        StatementStatistics stats = statements.get(key);
+        if (stats == null && statements.size() < MAX_STATEMENTS)
+        {
+            StatementStatistics created = new StatementStatistics(key);
+            stats = statements.putIfAbsent(key, created);
+            if (stats == null)
+            {
+                stats = created;
+            }
+        }
+        if (stats != null)
+        {
+            stats.add(nanos, rows);
+        }
+
+        long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        if (millis >= slowQueryThreshold)
+        {
+            slowCount.incrementAndGet();
+            slowLog.warn(millis + "ms: " + sql);
+        }
+    }
+
+    /**
+     * Normalize an SQL statement so that executions differing only by
+     * literal values (and IN list length) are grouped together.
+     *
+     * @param sql
+     *            SQL text
+     * @return normalized SQL text
+     */
+    static String normalize(String sql)
+    {
+        String normalized = STRING_LITERAL.matcher(sql).replaceAll("?");
+        normalized = NUMBER_LITERAL.matcher(normalized).replaceAll("?");
+        normalized = WHITESPACE.matcher(normalized).replaceAll(" ").trim();
+        return IN_LIST.matcher(normalized).replaceAll("(?...)");
+    }
+
+    private static void updateMax(AtomicLong max, long value)
+    {
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value))
+        {
+            current = max.get();
+        }
+    }
+
+    @Override
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    @Override
+    public long getStatementCount()
+    {
+        return statementCount.get();
+    }
+
+    @Override
+    public long getTotalStatementTime()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(statementNanos.get());
+    }
+
+    @Override
+    public long getSlowStatementCount()
+    {
+        return slowCount.get();
+    }
+
+    @Override
+    public long getSlowQueryThreshold()
+    {
+        return slowQueryThreshold;
+    }
+
+    @Override
+    public long getConnectionBorrowCount()
+    {
+        return borrowCount.get();
+    }
+
+    @Override
+    public double getAverageBorrowWait()
+    {
+        long count = borrowCount.get();
+        return count == 0 ? 0 : (borrowNanos.get() / (double) count) / 1000000d;
+    }
+
+    @Override
+    public long getMaxBorrowWait()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(maxBorrowNanos.get());
+    }
+
+    @Override
+    public int getOpenContextCount()
+    {
+        return contexts.size();
+    }
+
+    @Override
+    public long getLeakedContextCount()
+    {
+        return leakedContexts.get();
+    }
+
+    @Override
+    public String[] topStatements(int max)
+    {
+        List<StatementStatistics> sorted = new ArrayList<StatementStatistics>(statements.values());
+        Collections.sort(sorted, new Comparator<StatementStatistics>()
+        {
+            @Override
+            public int compare(StatementStatistics o1, StatementStatistics o2)
+            {
+                long t1 = o1.nanos.get();
+                long t2 = o2.nanos.get();
+                return t1 < t2 ? 1 : (t1 == t2 ? 0 : -1);
+            }
+        });
+
+        int size = Math.min(max, sorted.size());
+        String[] result = new String[size];
+        for (int i = 0; i < size; i++)
+        {
+            result[i] = sorted.get(i).toString();
+        }
+        return result;
+    }
+
+    @Override
+    public String[] openContexts(int minAgeSeconds)
+    {
+        List<String> result = new ArrayList<String>();
+        for (Map.Entry<Long, OpenContext> entry : contexts.entrySet())
+        {
+            OpenContext open = entry.getValue();
+            if (open.age() >= minAgeSeconds * 1000L)
+            {
+                StringBuilder sb = new StringBuilder();
+                sb.append(open.age() / 1000).append("s thread=").append(open.thread);
+                if (open.origin != null)
+                {
+                    for (StackTraceElement element : open.origin.getStackTrace())
+                    {
+                        sb.append("\n\tat ").append(element);
+                    }
+                }
+                result.add(sb.toString());
+            }
+        }
+        return result.toArray(new String[result.size()]);
+    }
+
+    @Override
+    public void reset()
+    {
+        statements.clear();
+        statementCount.set(0);
+        statementNanos.set(0);
+        slowCount.set(0);
+        borrowCount.set(0);
+        borrowNanos.set(0);
+        maxBorrowNanos.set(0);
+        leakedContexts.set(0);
+    }
+
+    /**
+     * Counters for a single normalized statement.
+     */
+    static class StatementStatistics
+    {
+        private final String sql;
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong nanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final AtomicLong rows = new AtomicLong();
+        private final AtomicLongArray histogram = new AtomicLongArray(HISTOGRAM_BOUNDS.length + 1);
+
+        StatementStatistics(String sql)
+        {
+            this.sql = sql;
+        }
+
+        void add(long elapsed, long affected)
+        {
+            count.incrementAndGet();
+            nanos.addAndGet(elapsed);
+            updateMax(maxNanos, elapsed);
+            if (affected > 0)
+            {
+                rows.addAndGet(affected);
+            }
+
+            long millis = TimeUnit.NANOSECONDS.toMillis(elapsed);
+            int bucket = 0;
+            while (bucket < HISTOGRAM_BOUNDS.length && millis >= HISTOGRAM_BOUNDS[bucket])
+            {
+                bucket++;
+            }
+            histogram.incrementAndGet(bucket);
+        }
+
+        long getCount()
+        {
+            return count.get();
+        }
+
+        long getRows()
+        {
+            return rows.get();
+        }
+
+        long getBucket(int bucket)
+        {
+            return histogram.get(bucket);
+        }
+
+        @Override
+        public String toString()
+        {
+            long n = count.get();
+            StringBuilder sb = new StringBuilder();
+            sb.append("count=").append(n)
+              .append(" total=").append(TimeUnit.NANOSECONDS.toMillis(nanos.get())).append("ms")
+              .append(" avg=").append(n == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(nanos.get() / n)).append("us")
+              .append(" max=").append(TimeUnit.NANOSECONDS.toMillis(maxNanos.get())).append("ms")
+              .append(" rows=").append(rows.get())
+              .append(" histogram=[");
+            for (int i = 0; i <= HISTOGRAM_BOUNDS.length; i++)
+            {
+                if (i > 0)
+                {
+                    sb.append(", ");
+                }
+                sb.append(i < HISTOGRAM_BOUNDS.length ? "<" + HISTOGRAM_BOUNDS[i] : ">=" + HISTOGRAM_BOUNDS[i - 1])
+                  .append("ms:").append(histogram.get(i));
+            }
+            sb.append("] ").append(sql);
+            return sb.toString();
+        }
+    }
+
+    /**
+     * A Context currently holding a database connection.
+     */
+    private static class OpenContext
+    {
+        private final long openedAt;
+        private final String thread;
+        private final Throwable origin;
+
+        OpenContext(long openedAt, String thread, Throwable origin)
+        {
+            this.openedAt = openedAt;
+            this.thread = thread;
+            this.origin = origin;
+        }
+
+        long age()
+        {
+            return System.currentTimeMillis() - openedAt;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.storage.rdbms;
+
+/**
+ * JMX view of the statement and connection pool statistics collected by
+ * {@link DatabaseStatistics}.
+ */
+public interface DatabaseStatisticsMBean
+{
+    /**
+     * @return true if statistics are currently being collected
+     */
+    boolean isEnabled();
+
+    /**
+     * @return the number of statements executed since the last reset
+     */
+    long getStatementCount();
+
+    /**
+     * @return the cumulative execution time of all statements (milliseconds)
+     */
+    long getTotalStatementTime();
+
+    /**
+     * @return the number of statements slower than the slow query threshold
+     */
+    long getSlowStatementCount();
+
+    /**
+     * @return the slow query threshold (milliseconds)
+     */
+    long getSlowQueryThreshold();
+
+    /**
+     * @return the number of connections borrowed from the pool
+     */
+    long getConnectionBorrowCount();
+
+    /**
+     * @return the average time spent waiting for a pooled connection
+     *         (milliseconds)
+     */
+    double getAverageBorrowWait();
+
+    /**
+     * @return the longest time spent waiting for a pooled connection
+     *         (milliseconds)
+     */
+    long getMaxBorrowWait();
+
+    /**
+     * @return the number of Context objects holding a database connection
+     */
+    int getOpenContextCount();
+
+    /**
+     * @return the number of Context objects garbage collected without being
+     *         completed or aborted
+     */
+    long getLeakedContextCount();
+
+    /**
+     * Describe the normalized statements, most expensive first.
+     *
+     * @param max
+     *            maximum number of statements to return
+     * @return one line per statement with count, timing, histogram and rows
+     */
+    String[] topStatements(int max);
+
+    /**
+     * Describe the Context objects which have been holding their database
+     * connection for longer than the given age.
+     *
+     * @param minAgeSeconds
+     *            minimum age of the context (seconds)
+     * @return one line per context with its age and opening stack trace (if
+     *         recorded)
+     */
+    String[] openContexts(int minAgeSeconds);
+
+    /**
+     * Discard all the statistics collected so far.
+     */
+    void reset();
+}
@@ -8,10 +8,13 @@
 package org.dspace.storage.rdbms;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Represents a database row.
@@ -27,14 +30,83 @@ public class TableRow
     /** The name of the database table containing this row */
     private String table;
 
+    /** The columns of the row, shared by the rows with the same columns */
+    private final Columns columns;
+
+    /**
+     * The column values, in the order of the columns: either an Integer,
+     * Boolean, Date, or String. If the value is NULL_OBJECT, then the column
+     * was NULL.
+     */
+    private final Object[] data;
+
+    /** The columns changed since the row was read */
+    private final boolean[] changed;
+
+    /** Maximum number of distinct column lists kept in {@link #layouts} */
+    private static final int MAX_LAYOUTS = 1000;
+
+    /** The shared columns, by list of column names */
+    private static final ConcurrentMap<List<String>, Columns> layouts =
+            new ConcurrentHashMap<List<String>, Columns>();
+
     /**
-     * A map of column names to column values. The key of the map is a String,
-     * the column name; the value is an Object, either an Integer, Boolean,
-     * Date, or String. If the value is NULL_OBJECT, then the column was NULL.
+     * The canonicalized names of a list of columns, and the position of each
+     * name, shared by all the rows with these columns.
      */
-    private Map<String, Object> data = new HashMap<String, Object>();
+    static final class Columns
+    {
+        private final String[] names;
+
+        private final Map<String, Integer> positions;
+
+        private Columns(List<String> columns)
+        {
+            String[] unique = new String[columns.size()];
+            positions = new HashMap<String, Integer>(columns.size() * 4 / 3 + 1);
+            int count = 0;
+            for (String column : columns)
+            {
+                String canonicalized = ColumnInfo.canonicalize(column);
+                if (!positions.containsKey(canonicalized))
+                {
+                    positions.put(canonicalized, Integer.valueOf(count));
+                    unique[count++] = canonicalized;
+                }
+            }
+            names = Arrays.copyOf(unique, count);
+        }
+
+        /**
+         * Get the shared columns for a list of column names.
+         */
+        static Columns of(List<String> columns)
+        {
+            Columns layout = layouts.get(columns);
+            if (layout == null)
+            {
+                layout = new Columns(columns);
+                if (layouts.size() < MAX_LAYOUTS)
+                {
+                    layouts.putIfAbsent(new ArrayList<String>(columns), layout);
+                }
+            }
+            return layout;
+        }
 
-    private Map<String, Boolean> changed = new HashMap<String, Boolean>();
+        /**
+         * @return the position of a column, or -1 if not in the row
+         */
+        int position(String column)
+        {
+            Integer position = positions.get(column);
+            if (position == null)
+            {
+                position = positions.get(ColumnInfo.canonicalize(column));
+            }
+            return position == null ? -1 : position.intValue();
+        }
+    }
 
     /**
      * Constructor
@@ -49,14 +121,25 @@ public class TableRow
      */
     public TableRow(String table, List<String> columns)
     {
-        this.table = table;
+        this(table, Columns.of(columns));
+    }
 
-        for (String column : columns)
-        {
-            String canonicalized = ColumnInfo.canonicalize(column);
-            data.put(canonicalized, NULL_OBJECT);
-            changed.put(canonicalized, Boolean.TRUE);
-        }
+    /**
+     * Constructor for the rows of a query, sharing their columns.
+     *
+     * @param table
+     *            The name of the database table containing this row.
+     * @param columns
+     *            The columns of the row.
+     */
+    TableRow(String table, Columns columns)
+    {
+        this.table = table;
+        this.columns = columns;
+        this.data = new Object[columns.names.length];
+        this.changed = new boolean[columns.names.length];
+        Arrays.fill(data, NULL_OBJECT);
+        Arrays.fill(changed, true);
     }
 
     /**
@@ -83,14 +166,7 @@ public class TableRow
      */
     public boolean hasColumn(String column)
     {
-        try
-        {
-            return canonicalizeAndCheck(column) != null;
-        }
-        catch (IllegalArgumentException e)
-        {
-            return false;
-        }
+        return columns.position(column) >= 0;
     }
 
     /**
@@ -107,7 +183,8 @@ public class TableRow
 
     boolean hasColumnChangedCanonicalized(String column)
     {
-        return changed.get(column) == Boolean.TRUE;
+        int position = columns.position(column);
+        return position >= 0 && changed[position];
     }
 
     /**
@@ -119,12 +196,13 @@ public class TableRow
      */
     public boolean isColumnNull(String column)
     {
-        return isColumnNullCanonicalized(canonicalizeAndCheck(column));
+        return data[positionOf(column)] == NULL_OBJECT;
     }
 
     boolean isColumnNullCanonicalized(String column)
     {
-        return data.get(column) == NULL_OBJECT;
+        int position = columns.position(column);
+        return position >= 0 && data[position] == NULL_OBJECT;
     }
 
     /**
@@ -140,13 +218,13 @@ public class TableRow
      */
     public int getIntColumn(String column)
     {
-        String canonicalized = canonicalizeAndCheck(column);
-        if (isColumnNullCanonicalized(canonicalized))
+        int position = positionOf(column);
+        if (data[position] == NULL_OBJECT)
         {
             return -1;
         }
 
-        Object value = data.get(canonicalized);
+        Object value = data[position];
 
         if (value == null)
         {
@@ -189,13 +267,13 @@ public class TableRow
      */
     public long getLongColumn(String column)
     {
-        String canonicalized = canonicalizeAndCheck(column);
-        if (isColumnNullCanonicalized(canonicalized))
+        int position = positionOf(column);
+        if (data[position] == NULL_OBJECT)
         {
             return -1;
         }
 
-        Object value = data.get(canonicalized);
+        Object value = data[position];
 
         if (value == null)
         {
@@ -233,11 +311,11 @@ public class TableRow
      */
     public BigDecimal getNumericColumn(String column)
     {
-        String canonicalized = canonicalizeAndCheck(column);
-        if (isColumnNullCanonicalized(canonicalized))
+        int position = positionOf(column);
+        if (data[position] == NULL_OBJECT)
             return BigDecimal.valueOf(-1);
 
-        Object value = data.get(canonicalized);
+        Object value = data[position];
 
         if (value == null)
             throw new IllegalArgumentException("Column " + column + " not present");
@@ -266,13 +344,13 @@ public class TableRow
      */
     public double getDoubleColumn(String column)
     {
-        String canonicalized = canonicalizeAndCheck(column);
-        if (isColumnNullCanonicalized(canonicalized))
+        int position = positionOf(column);
+        if (data[position] == NULL_OBJECT)
         {
             return -1;
         }
 
-        Object value = data.get(canonicalized);
+        Object value = data[position];
 
         if (value == null)
         {
@@ -300,13 +378,13 @@ public class TableRow
      */
     public String getStringColumn(String column)
     {
-        String canonicalized = canonicalizeAndCheck(column);
-        if (isColumnNullCanonicalized(canonicalized))
+        int position = positionOf(column);
+        if (data[position] == NULL_OBJECT)
         {
             return null;
         }
 
-        Object value = data.get(canonicalized);
+        Object value = data[position];
 
         if (value == null)
         {
@@ -334,13 +412,13 @@ public class TableRow
      */
     public boolean getBooleanColumn(String column)
     {
-        String canonicalized = canonicalizeAndCheck(column);
-        if (isColumnNullCanonicalized(canonicalized))
+        int position = positionOf(column);
+        if (data[position] == NULL_OBJECT)
         {
             return false;
         }
 
-        Object value = data.get(canonicalized);
+        Object value = data[position];
 
         // make sure that we tolerate integers or booleans
         if (value == null)
@@ -390,13 +468,13 @@ public class TableRow
      */
     public java.util.Date getDateColumn(String column)
     {
-        String canonicalized = canonicalizeAndCheck(column);
-        if (isColumnNullCanonicalized(canonicalized))
+        int position = positionOf(column);
+        if (data[position] == NULL_OBJECT)
         {
             return null;
         }
 
-        Object value = data.get(canonicalized);
+        Object value = data[position];
 
         if (value == null)
         {
@@ -421,11 +499,11 @@ public class TableRow
      */
     public void setColumnNull(String column)
     {
-        String canonicalized = canonicalizeAndCheck(column);
-        if (data.get(canonicalized) != NULL_OBJECT)
+        int position = positionOf(column);
+        if (data[position] != NULL_OBJECT)
         {
-            data.put(canonicalized, NULL_OBJECT);
-            changed.put(canonicalized, Boolean.TRUE);
+            data[position] = NULL_OBJECT;
+            changed[position] = true;
         }
     }
     /**
@@ -440,25 +518,25 @@ public class TableRow
      */
     public void setColumn(String column, boolean b)
     {
-        String canonicalized = canonicalizeAndCheck(column);
+        int position = positionOf(column);
         if (DatabaseManager.isOracle())
         {
             // if oracle, use 1 or 0 for true/false
             Integer value = b ? Integer.valueOf(1) : Integer.valueOf(0);
-            if (!value.equals(data.get(canonicalized)))
+            if (!value.equals(data[position]))
             {
-                data.put(canonicalized, value);
-                changed.put(canonicalized, Boolean.TRUE);
+                data[position] = value;
+                changed[position] = true;
             }
         }
         else
         {
             // default to postgres true/false
             Boolean value = b ? Boolean.TRUE : Boolean.FALSE;
-            if (!value.equals(data.get(canonicalized)))
+            if (!value.equals(data[position]))
             {
-                data.put(canonicalized, value);
-                changed.put(canonicalized, Boolean.TRUE);
+                data[position] = value;
+                changed[position] = true;
             }
         }
     }
@@ -475,12 +553,12 @@ public class TableRow
      */
     public void setColumn(String column, String s)
     {
-        String canonicalized = canonicalizeAndCheck(column);
+        int position = positionOf(column);
         Object value = (s == null) ? NULL_OBJECT : s;
-        if (!value.equals(data.get(canonicalized)))
+        if (!value.equals(data[position]))
         {
-            data.put(canonicalized, value);
-            changed.put(canonicalized, Boolean.TRUE);
+            data[position] = value;
+            changed[position] = true;
         }
     }
 
@@ -496,12 +574,12 @@ public class TableRow
      */
     public void setColumn(String column, int i)
     {
-        String canonicalized = canonicalizeAndCheck(column);
+        int position = positionOf(column);
         Integer value = Integer.valueOf(i);
-        if (!value.equals(data.get(canonicalized)))
+        if (!value.equals(data[position]))
         {
-            data.put(canonicalized, value);
-            changed.put(canonicalized, Boolean.TRUE);
+            data[position] = value;
+            changed[position] = true;
         }
     }
 
@@ -517,12 +595,12 @@ public class TableRow
      */
     public void setColumn(String column, long l)
     {
-        String canonicalized = canonicalizeAndCheck(column);
+        int position = positionOf(column);
         Long value = Long.valueOf(l);
-        if (!value.equals(data.get(canonicalized)))
+        if (!value.equals(data[position]))
         {
-            data.put(canonicalized, value);
-            changed.put(canonicalized, Boolean.TRUE);
+            data[position] = value;
+            changed[position] = true;
         }
     }
 
@@ -537,12 +615,12 @@ public class TableRow
      */
     public void setColumn(String column, BigDecimal bd)
     {
-        String canonicalized = canonicalizeAndCheck(column);
+        int position = positionOf(column);
         Object value = (bd == null) ? NULL_OBJECT : bd;
-        if (!value.equals(data.get(canonicalized)))
+        if (!value.equals(data[position]))
         {
-            data.put(canonicalized, bd);
-            changed.put(canonicalized, Boolean.TRUE);
+            data[position] = bd;
+            changed[position] = true;
         }
     }
 
@@ -558,12 +636,12 @@ public class TableRow
      */
     public void setColumn(String column, double d)
     {
-        String canonicalized = canonicalizeAndCheck(column);
+        int position = positionOf(column);
         Double value = new Double(d);
-        if (!value.equals(data.get(canonicalized)))
+        if (!value.equals(data[position]))
         {
-            data.put(canonicalized, value);
-            changed.put(canonicalized, Boolean.TRUE);
+            data[position] = value;
+            changed[position] = true;
         }
     }
 
@@ -580,12 +658,12 @@ public class TableRow
      */
     public void setColumn(String column, java.util.Date d)
     {
-        String canonicalized = canonicalizeAndCheck(column);
+        int position = positionOf(column);
         Object value = (d == null) ? NULL_OBJECT : d;
-        if (!value.equals(data.get(canonicalized)))
+        if (!value.equals(data[position]))
         {
-            data.put(canonicalized, value);
-            changed.put(canonicalized, Boolean.TRUE);
+            data[position] = value;
+            changed[position] = true;
         }
     }
 
@@ -614,11 +692,10 @@ public class TableRow
     	
     	result.append(NEWLINE);
 
-        for (Iterator iterator = data.keySet().iterator(); iterator.hasNext();)
+        for (int i = 0; i < data.length; i++)
         {
-            String column = (String) iterator.next();
-            result.append("\t").append(column).append(" = ").append(
-                    isColumnNull(column) ? "NULL" : data.get(column)).append(
+            result.append("\t").append(columns.names[i]).append(" = ").append(
+                    data[i] == NULL_OBJECT ? "NULL" : data[i]).append(
                     NEWLINE);
         }
 
@@ -648,23 +725,20 @@ public class TableRow
             return false;
         }
 
-        return data.equals(((TableRow) obj).data);
+        TableRow other = (TableRow) obj;
+        return Arrays.equals(columns.names, other.columns.names)
+                && Arrays.equals(data, other.data);
     }
 
-    private String canonicalizeAndCheck(String column)
+    private int positionOf(String column)
     {
-        if (data.containsKey(column))
+        int position = columns.position(column);
+        if (position < 0)
         {
-            return column;
+            throw new IllegalArgumentException("No such column '"
+                    + ColumnInfo.canonicalize(column) + "'");
         }
-
-        String canonicalized = ColumnInfo.canonicalize(column);
-        if (data.containsKey(canonicalized))
-        {
-            return canonicalized;
-        }
-
-        throw new IllegalArgumentException("No such column '" + canonicalized + "'");
+        return position;
     }
 
     /**
@@ -676,10 +750,7 @@ public class TableRow
      */
     void resetChanged()
     {
-        for (String column : changed.keySet())
-        {
-            changed.put(column, Boolean.FALSE);
-        }
+        Arrays.fill(changed, false);
     }
     
     public byte[] getBinaryData(String column)
@@ -689,14 +760,14 @@ public class TableRow
             throw new IllegalArgumentException("No such column " + column);
         }
 
-        String name = canonicalizeAndCheck(column);
+        int position = positionOf(column);
 
-        if (isColumnNull(name))
+        if (data[position] == NULL_OBJECT)
         {
             return null;
         }
 
-        Object value = data.get(name);
+        Object value = data[position];
 
         if (value == null)
         {
@@ -719,12 +790,12 @@ public class TableRow
             throw new IllegalArgumentException("No such column " + column);
         }
 
-        String canonName = canonicalizeAndCheck(column);
+        int position = positionOf(column);
         Object value = (bytea == null) ? NULL_OBJECT : bytea;
-        if (!value.equals(data.get(canonName)))
+        if (!value.equals(data[position]))
         {
-            data.put(canonName, value);
-            changed.put(canonName, Boolean.TRUE);
+            data[position] = value;
+            changed[position] = true;
         }
     }
 }
@@ -10,6 +10,8 @@ package org.dspace.storage.rdbms;
 import org.apache.log4j.Logger;
 import org.dspace.core.Context;
 
+import java.io.Closeable;
+import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
@@ -23,7 +25,7 @@ import java.util.List;
  * @author Peter Breton
  * @version $Revision$
  */
-public class TableRowIterator
+public class TableRowIterator implements Closeable
 {
     private static final Logger log = Logger.getLogger(TableRowIterator.class);
     /**
@@ -56,6 +58,32 @@ public class TableRowIterator
      */
     List<String> columnNames = null;
 
+    /**
+     * SQL text of the query, used to report the rows read to
+     * {@link DatabaseStatistics}
+     */
+    private String query = null;
+
+    /**
+     * Number of rows read so far
+     */
+    private long rowCount = 0;
+
+    /**
+     * The columns of the rows, shared by all the rows read
+     */
+    private TableRow.Columns layout = null;
+
+    /**
+     * Connection of a streamed query, owned by this iterator
+     */
+    private Connection connection = null;
+
+    /**
+     * Context holding this iterator until it is closed, for a streamed query
+     */
+    private Context owner = null;
+
     /**
      * Constructor
      * 
@@ -127,6 +155,35 @@ public class TableRowIterator
         statemt = st;
     }
 
+    /**
+     * setQuery -- this method saves the SQL text of the query, so that the
+     * number of rows read can be reported when the iterator is closed.
+     *
+     * @param query -
+     *            The SQL text of the query that created this TableRowIterator
+     */
+    void setQuery(String query)
+    {
+        this.query = query;
+    }
+
+    /**
+     * setConnection -- this method hands over the connection of a streamed
+     * query, released when the iterator is closed, or else when the context
+     * is completed or aborted.
+     *
+     * @param context -
+     *            The context the query was made for
+     * @param connection -
+     *            The connection used to do the query
+     */
+    void setConnection(Context context, Connection connection)
+    {
+        this.connection = connection;
+        this.owner = context;
+        context.addResource(this);
+    }
+
     /**
      * Advance to the next row and return it. Returns null if there are no more
      * rows.
@@ -151,7 +208,7 @@ public class TableRowIterator
 
         hasAdvanced = false;
 
-        return DatabaseManager.process(results, table, columnNames);
+        return process(null);
     }
 
     /**
@@ -177,7 +234,20 @@ public class TableRowIterator
 
         hasAdvanced = false;
 
-        return DatabaseManager.process(context, results, table, columnNames);
+        return process(context);
+    }
+
+    private TableRow process(Context context) throws SQLException
+    {
+        if (layout == null)
+        {
+            if (columnNames == null)
+            {
+                return DatabaseManager.process(context, results, table, null);
+            }
+            layout = TableRow.Columns.of(columnNames);
+        }
+        return DatabaseManager.process(results, table, layout);
     }
 
     /**
@@ -202,6 +272,10 @@ public class TableRowIterator
 
         hasAdvanced = true;
         hasNext = results.next();
+        if (hasNext)
+        {
+            rowCount++;
+        }
 
         // No more results
         if (!hasNext)
@@ -247,6 +321,12 @@ public class TableRowIterator
      */
     public void close()
     {
+        if (query != null)
+        {
+            DatabaseStatistics.recordRows(query, rowCount);
+            query = null;
+        }
+
         try
         {
             if (results != null)
@@ -272,6 +352,18 @@ public class TableRowIterator
         {
         }
 
+        if (connection != null)
+        {
+            DatabaseManager.releaseStreamingConnection(connection);
+            connection = null;
+        }
+        if (owner != null)
+        {
+            owner.removeResource(this);
+            owner = null;
+        }
+
         columnNames = null;
+        layout = null;
     }
 }
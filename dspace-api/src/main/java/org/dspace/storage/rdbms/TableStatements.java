@@ -0,0 +1,198 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.storage.rdbms;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The SQL statements used by {@link DatabaseManager} to insert, update and
+ * delete the rows of one table, built once from the table metadata.
+ * <p>
+ * UPDATE statements only set the changed columns of a row, so one statement
+ * is kept for each set of changed columns met.  Reusing the same SQL text
+ * also lets the connection pool reuse its prepared statements (see
+ * <code>db.statementpool</code>).
+ * <p>
+ * Instances are immutable (apart from the thread-safe UPDATE cache) and can
+ * be shared between threads.
+ */
+final class TableStatements
+{
+    /**
+     * A statement and the columns to bind to its parameters, in order.
+     */
+    static final class Template
+    {
+        private final String sql;
+
+        private final List<ColumnInfo> columns;
+
+        Template(String sql, List<ColumnInfo> columns)
+        {
+            this.sql = sql;
+            this.columns = Collections.unmodifiableList(columns);
+        }
+
+        String getSQL()
+        {
+            return sql;
+        }
+
+        List<ColumnInfo> getColumns()
+        {
+            return columns;
+        }
+    }
+
+    private final String table;
+
+    private final ColumnInfo primaryKey;
+
+    /** the columns which can be updated, i.e. all but the primary key */
+    private final ColumnInfo[] updatable;
+
+    /** INSERT binding every column, primary key included */
+    private final Template insert;
+
+    /** INSERT getting the primary key from getnextid(), RETURNING it */
+    private final Template insertReturning;
+
+    private final Template delete;
+
+    /** UPDATE statements, by set of changed columns (indexes in updatable) */
+    private final ConcurrentMap<BitSet, Template> updates = new ConcurrentHashMap<BitSet, Template>();
+
+    TableStatements(String table, Collection<ColumnInfo> info)
+    {
+        this.table = table;
+
+        ColumnInfo pk = null;
+        List<ColumnInfo> others = new ArrayList<ColumnInfo>();
+        for (ColumnInfo col : info)
+        {
+            if (pk == null && col.isPrimaryKey())
+            {
+                pk = col;
+            }
+            else
+            {
+                others.add(col);
+            }
+        }
+        this.primaryKey = pk;
+        this.updatable = others.toArray(new ColumnInfo[others.size()]);
+
+        // INSERT INTO table ( col1,col2 ) VALUES ( ?,? )
+        StringBuilder columnList = new StringBuilder();
+        StringBuilder valueList = new StringBuilder();
+        StringBuilder returningValues = new StringBuilder();
+        List<ColumnInfo> returningColumns = new ArrayList<ColumnInfo>();
+        for (ColumnInfo col : info)
+        {
+            String separator = columnList.length() == 0 ? "" : ",";
+            columnList.append(separator).append(col.getName());
+            valueList.append(separator).append('?');
+            if (col == pk)
+            {
+                returningValues.append(separator).append("getnextid('").append(table).append("')");
+            }
+            else
+            {
+                returningValues.append(separator).append('?');
+                returningColumns.add(col);
+            }
+        }
+        this.insert = new Template("INSERT INTO " + table + " ( " + columnList + ") VALUES ( " + valueList + ")",
+                new ArrayList<ColumnInfo>(info));
+        this.insertReturning = pk == null ? null
+                : new Template("INSERT INTO " + table + " ( " + columnList + ") VALUES ( " + returningValues
+                        + ") RETURNING " + pk.getName(), returningColumns);
+
+        this.delete = pk == null ? null
+                : new Template("delete from " + table + " where " + pk.getName() + " = ? ",
+                        Collections.singletonList(pk));
+    }
+
+    String getTable()
+    {
+        return table;
+    }
+
+    ColumnInfo getPrimaryKey()
+    {
+        return primaryKey;
+    }
+
+    Template getInsert()
+    {
+        return insert;
+    }
+
+    Template getInsertReturning()
+    {
+        return insertReturning;
+    }
+
+    Template getDelete()
+    {
+        return delete;
+    }
+
+    /**
+     * Get the UPDATE statement writing the changed columns of the row.
+     *
+     * @param row
+     *            the row to write
+     * @return the statement, or null if no column was changed
+     */
+    Template getUpdate(TableRow row)
+    {
+        BitSet changed = new BitSet(updatable.length);
+        for (int i = 0; i < updatable.length; i++)
+        {
+            if (row.hasColumnChangedCanonicalized(updatable[i].getCanonicalizedName()))
+            {
+                changed.set(i);
+            }
+        }
+        if (changed.isEmpty())
+        {
+            return null;
+        }
+
+        Template update = updates.get(changed);
+        if (update == null)
+        {
+            StringBuilder sql = new StringBuilder().append("update ").append(table).append(" set ");
+            List<ColumnInfo> columns = new ArrayList<ColumnInfo>(changed.cardinality() + 1);
+            String separator = "";
+            for (int i = changed.nextSetBit(0); i >= 0; i = changed.nextSetBit(i + 1))
+            {
+                sql.append(separator).append(updatable[i].getName()).append(" = ?");
+                columns.add(updatable[i]);
+                separator = ", ";
+            }
+            sql.append(" where ").append(primaryKey.getName()).append(" = ?");
+            columns.add(primaryKey);
+
+            update = new Template(sql.toString(), columns);
+            Template previous = updates.putIfAbsent(changed, update);
+            if (previous != null)
+            {
+                update = previous;
+            }
+        }
+        return update;
+    }
+}
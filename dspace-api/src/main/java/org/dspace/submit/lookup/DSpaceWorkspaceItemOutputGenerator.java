@@ -351,7 +351,7 @@ public class DSpaceWorkspaceItemOutputGenerator implements OutputGenerator
     private DCInput getDCInput(String collHandle, String schema, String element,
             String qualifier) throws DCInputsReaderException
     {
-        DCInputSet dcinputset = new DCInputsReader().getInputs(collHandle);
+        DCInputSet dcinputset = DCInputsReader.getInstance().getInputs(collHandle);
         return ItemUtils.getDCInput(schema, element, qualifier, dcinputset);
     }
 
@@ -65,9 +65,6 @@ public class DescribeStep extends AbstractProcessingStep
     /** log4j logger */
     private static Logger log = Logger.getLogger(DescribeStep.class);
 
-    /** hash of all submission forms details */
-    private static DCInputsReader inputsReader = null;
-
     /***************************************************************************
      * STATUS / ERROR FLAGS (returned by doProcessing() if an error occurs or
      * additional user interaction may be required)
@@ -105,12 +102,12 @@ public class DescribeStep extends AbstractProcessingStep
             // lookup applicable inputs
             Collection c = subInfo.getSubmissionItem().getCollection();
             
-            String customHeading = inputsReader.getInputs(c.getHandle()).getHeading(pageNumber);
+            String customHeading = getInputsReader().getInputs(c.getHandle()).getHeading(pageNumber);
             if (StringUtils.isNotBlank(customHeading)) {
                 return customHeading;
             }
         }
-        catch (DCInputsReaderException | NullPointerException e)
+        catch (ServletException | DCInputsReaderException | NullPointerException e)
         {
             return heading;
         }
@@ -161,7 +158,7 @@ public class DescribeStep extends AbstractProcessingStep
         DCInput[] inputs = null;
         try
         {
-            inputs = inputsReader.getInputs(c.getHandle()).getPageRows(
+            inputs = getInputsReader().getInputs(c.getHandle()).getPageRows(
                     currentPage - 1,
                     subInfo.getSubmissionItem().hasMultipleTitles(),
                     subInfo.getSubmissionItem().isPublishedBefore());
@@ -508,43 +505,37 @@ public class DescribeStep extends AbstractProcessingStep
 
     /**
      *
-     * @return the current DCInputsReader
+     * @return the current DCInputsReader, shared and reloaded when the
+     *         configuration file changes
      */
     public static DCInputsReader getInputsReader() throws ServletException
     {
-        // load inputsReader only the first time
-        if (inputsReader == null)
+        // read configurable submissions forms data
+        try
         {
-            // read configurable submissions forms data
-            try
-            {
-                inputsReader = new DCInputsReader();
-            }
-            catch (DCInputsReaderException e)
-            {
-                throw new ServletException(e);
-            }
+            return DCInputsReader.getInstance();
+        }
+        catch (DCInputsReaderException e)
+        {
+            throw new ServletException(e);
         }
-        
-        return inputsReader;
     }
     
     /**
      * @param filename
      *        file to get the input reader for
-     * @return the current DCInputsReader
+     * @return the current DCInputsReader of this file
      */
     public static DCInputsReader getInputsReader(String filename) throws ServletException
     {
         try
         {
-            inputsReader = new DCInputsReader(filename);
+            return DCInputsReader.getInstance(filename);
         }
         catch (DCInputsReaderException e)
         {
             throw new ServletException(e);
         }
-        return inputsReader;
     }
     
     /**
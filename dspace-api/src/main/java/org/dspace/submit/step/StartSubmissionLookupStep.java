@@ -194,7 +194,7 @@ public class StartSubmissionLookupStep extends AbstractProcessingStep
             DCInputSet inputSet = null;
             try
             {
-                inputSet = new DCInputsReader().getInputs(col.getHandle());
+                inputSet = DCInputsReader.getInstance().getInputs(col.getHandle());
             }
             catch (Exception e)
             {
@@ -449,8 +449,8 @@ public class UploadWithEmbargoStep extends UploadStep
                 b.setSource(filePath);
                 b.setDescription(fileDescription);
 
-                // Identify the format
-                bf = FormatIdentifier.guessFormat(context, b);
+                // Identify the format, by name or else by content
+                bf = FormatIdentifier.identifyFormat(context, b);
                 b.setFormat(bf);
 
                 // Update to DB
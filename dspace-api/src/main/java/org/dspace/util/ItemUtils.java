@@ -83,7 +83,7 @@ public class ItemUtils
             }
 
             // Read the input form file for the specific collection
-            DCInputsReader inputsReader = new DCInputsReader(
+            DCInputsReader inputsReader = DCInputsReader.getInstance(
                     formFileName);
 
             return inputsReader.getInputs(col_handle);
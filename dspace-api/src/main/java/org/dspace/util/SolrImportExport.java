@@ -7,9 +7,11 @@
  */
 package org.dspace.util;
 
+import au.com.bytecode.opencsv.CSVReader;
 import org.apache.commons.cli.*;
 import org.apache.commons.cli.ParseException;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
 import org.apache.solr.client.solrj.SolrQuery;
@@ -23,18 +25,39 @@ import org.apache.solr.client.solrj.response.CoreAdminResponse;
 import org.apache.solr.client.solrj.response.FieldStatsInfo;
 import org.apache.solr.client.solrj.response.LukeResponse;
 import org.apache.solr.client.solrj.response.RangeFacet;
+import org.apache.solr.client.solrj.util.ClientUtils;
 import org.apache.solr.common.luke.FieldFlag;
 import org.apache.solr.common.params.CoreAdminParams;
 import org.apache.solr.common.params.FacetParams;
+import org.apache.solr.common.util.ContentStreamBase;
+import org.apache.solr.common.util.NamedList;
 import org.dspace.core.ConfigurationManager;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
 import java.io.FilenameFilter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Writer;
 import java.net.URL;
 import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.text.*;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Utility class to export, clear and import Solr indexes.
@@ -47,6 +70,9 @@ public class SolrImportExport
 	private static final DateFormat SOLR_DATE_FORMAT_NO_MS = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
 	private static final DateFormat EXPORT_DATE_FORMAT = new SimpleDateFormat("yyyy-MM");
 	private static final String EXPORT_SEP = "_export_";
+	private static final String CSV_SUFFIX = ".csv";
+	private static final String GZIP_SUFFIX = ".csv.gz";
+	private static final String PROGRESS_SUFFIX = "_import.progress";
 	
 	static
 	{
@@ -62,6 +88,9 @@ public class SolrImportExport
 	private static final String INDEX_NAME_OPTION = "i";
 	private static final String KEEP_OPTION = "k";
 	private static final String LAST_OPTION = "l";
+	private static final String RESUME_OPTION = "r";
+	private static final String THREADS_OPTION = "t";
+	private static final String COMPRESS_OPTION = "z";
 
 	public static final int ROWS_PER_FILE = 10_000;
 
@@ -100,6 +129,9 @@ public class SolrImportExport
 			String directoryName = makeDirectoryName(line.getOptionValue(DIRECTORY_OPTION));
 
 			String action = line.getOptionValue(ACTION_OPTION, "export");
+			int threads = Integer.parseInt(line.getOptionValue(THREADS_OPTION, "1"));
+			boolean resume = line.hasOption(RESUME_OPTION);
+			boolean compress = line.hasOption(COMPRESS_OPTION);
 			if ("import".equals(action))
 			{
 				for (String indexName : indexNames)
@@ -117,7 +149,7 @@ public class SolrImportExport
 						String solrUrl = makeSolrUrl(indexName);
 						boolean clear = line.hasOption(CLEAR_OPTION);
 						//Set overwrite to true if clear is true
-						importIndex(indexName, importDir, solrUrl, clear);
+						importIndex(indexName, importDir, solrUrl, clear, threads, resume);
 					}
 					catch (IOException | SolrServerException | SolrImportExportException e)
 					{
@@ -155,7 +187,8 @@ public class SolrImportExport
 					{
 						String solrUrl = makeSolrUrl(indexName);
 						String timeField = makeTimeField(indexName);
-						exportIndex(indexName, exportDir, solrUrl, timeField, lastValue, line.hasOption(OVERWRITE_OPTION));
+						exportIndex(indexName, exportDir, solrUrl, timeField, lastValue, line.hasOption(OVERWRITE_OPTION),
+								threads, compress, resume);
 					}
 					catch (SolrServerException | IOException | SolrImportExportException e)
 					{
@@ -171,7 +204,7 @@ public class SolrImportExport
 					try {
 						boolean keepExport = line.hasOption(KEEP_OPTION);
 						boolean overwrite = line.hasOption(OVERWRITE_OPTION);
-						reindex(indexName, directoryName, keepExport, overwrite);
+						reindex(indexName, directoryName, keepExport, overwrite, threads, compress);
 					} catch (IOException | SolrServerException | SolrImportExportException e) {
 						e.printStackTrace();
 					}
@@ -183,7 +216,7 @@ public class SolrImportExport
 				printHelpAndExit(options, 1);
 			}
 		}
-		catch (ParseException e)
+		catch (ParseException | NumberFormatException e)
 		{
 			System.err.println("Cannot read command options");
 			printHelpAndExit(options, 1);
@@ -208,6 +241,12 @@ public class SolrImportExport
 				                                             " 'm' (beginning of the previous month through to end of the previous month);" +
 				                                             " a number, in which case the last [number] of days are exported, through to now (use 0 for today's data)." +
 															 " Date calculation is done in UTC. If omitted, all documents are exported.");
+		options.addOption(RESUME_OPTION, "resume", false, "Resume an interrupted export or import: when exporting, keep the export files" +
+				                                                 " already written and continue after them; when importing, skip the files" +
+				                                                 " already imported and don't clear the index.");
+		options.addOption(THREADS_OPTION, "threads", true, "The number of months to export, or files to import, in parallel. Default: 1.");
+		options.addOption(COMPRESS_OPTION, "compress", false, "When exporting or re-indexing, write gzip-compressed export files." +
+				                                                   " Compressed files are decompressed when importing.");
 		return options;
 	}
 
@@ -219,8 +258,11 @@ public class SolrImportExport
 	 * @param keepExport whether to keep the contents of the exportDir after the reindex. If keepExport is false and the
 	 *                      export directory was created by this method, the export directory will be deleted at the end of the reimport.
 	 * @param overwrite allow export files to be overwritten during re-index
+	 * @param threads the number of months to export, or files to import, in parallel
+	 * @param compress whether to compress the export files
 	 */
-	private static void reindex(String indexName, String exportDirName, boolean keepExport, boolean overwrite)
+	private static void reindex(String indexName, String exportDirName, boolean keepExport, boolean overwrite,
+			int threads, boolean compress)
 			throws IOException, SolrServerException, SolrImportExportException {
 		String tempIndexName = indexName + "-temp";
 
@@ -317,10 +359,10 @@ public class SolrImportExport
 			try
 			{
 				// export from the actual core (from temp core name, actual data dir)
-				exportIndex(indexName, exportDir, tempSolrUrl, timeField, overwrite);
+				exportIndex(indexName, exportDir, tempSolrUrl, timeField, null, overwrite, threads, compress, false);
 
 				// clear actual core (temp core name, clearing actual data dir) & import
-				importIndex(indexName, exportDir, tempSolrUrl, true);
+				importIndex(indexName, exportDir, tempSolrUrl, true, threads, false);
 			}
 			catch (Exception e)
 			{
@@ -342,9 +384,9 @@ public class SolrImportExport
 
 			// export all docs from now-temp core into export directory -- this won't cause name collisions with the actual export
 			// because the core name for the temporary export has -temp in it while the actual core doesn't
-			exportIndex(tempIndexName, exportDir, tempSolrUrl, timeField, overwrite);
+			exportIndex(tempIndexName, exportDir, tempSolrUrl, timeField, null, overwrite, threads, compress, false);
 			// ...and import them into the now-again-actual core *without* clearing
-			importIndex(tempIndexName, exportDir, origSolrUrl, false);
+			importIndex(tempIndexName, exportDir, origSolrUrl, false, threads, false);
 
 			// commit changes
 			origSolr.commit();
@@ -394,13 +436,34 @@ public class SolrImportExport
 	 *                   and ends with .csv (to match what is generated by #makeExportFilename).
 	 * @param solrUrl The solr URL for the index to export. Must not be null.
 	 * @param clear if true, clear the index before importing.
-	 * @param overwrite if true, skip _version_ field on import to disable Solr's optimistic concurrency functionality
 	 * @throws IOException if there is a problem reading the files or communicating with Solr.
 	 * @throws SolrServerException if there is a problem reading the files or communicating with Solr.
 	 * @throws SolrImportExportException if there is a problem communicating with Solr.
 	 */
 	public static void importIndex(final String indexName, File fromDir, String solrUrl, boolean clear)
 			throws IOException, SolrServerException, SolrImportExportException
+	{
+		importIndex(indexName, fromDir, solrUrl, clear, 1, false);
+	}
+
+	/**
+	 * Import previously exported documents (or externally created CSV files that have the appropriate structure) into the specified index.
+	 * The files are streamed to Solr, threads files at a time, and committed once all of them are imported. Each file imported is
+	 * recorded in a progress file in the source directory, see #makeProgressFile, so that an interrupted import can be resumed.
+	 * @param indexName the index to import.
+	 * @param fromDir the source directory. Must exist and be readable.
+	 *                   The importer will look for files whose name starts with <pre>indexName</pre>
+	 *                   and ends with .csv or .csv.gz (to match what is generated by #makeExportFilename).
+	 * @param solrUrl The solr URL for the index to export. Must not be null.
+	 * @param clear if true, clear the index before importing, unless resuming.
+	 * @param threads the number of files to import in parallel.
+	 * @param resume if true, skip the files recorded as imported by a previous import.
+	 * @throws IOException if there is a problem reading the files or communicating with Solr.
+	 * @throws SolrServerException if there is a problem reading the files or communicating with Solr.
+	 * @throws SolrImportExportException if there is a problem communicating with Solr.
+	 */
+	public static void importIndex(final String indexName, File fromDir, String solrUrl, boolean clear, int threads, boolean resume)
+			throws IOException, SolrServerException, SolrImportExportException
 	{
 		if (StringUtils.isBlank(solrUrl))
 		{
@@ -414,14 +477,25 @@ public class SolrImportExport
 					                                    + indexName);
 		}
 
-		HttpSolrServer solr = new HttpSolrServer(solrUrl);
+		final HttpSolrServer solr = new HttpSolrServer(solrUrl);
 
 		// must get multivalue fields before clearing
-		List<String> multivaluedFields = getMultiValuedFields(solr);
+		final List<String> multivaluedFields = getMultiValuedFields(solr);
 
-		if (clear)
+		final File progressFile = makeProgressFile(fromDir, indexName);
+		Set<String> imported = new HashSet<>();
+		if (resume)
+		{
+			imported = readProgress(progressFile);
+			log.info("Resuming import of index " + indexName + ", " + imported.size() + " files already imported");
+		}
+		else
 		{
-			clearIndex(solrUrl);
+			Files.deleteIfExists(progressFile.toPath());
+			if (clear)
+			{
+				clearIndex(solrUrl);
+			}
 		}
 
 		File[] files = fromDir.listFiles(new FilenameFilter()
@@ -429,7 +503,7 @@ public class SolrImportExport
 			@Override
 			public boolean accept(File dir, String name)
 			{
-				return name.startsWith(indexName+EXPORT_SEP) && name.endsWith(".csv");
+				return name.startsWith(indexName+EXPORT_SEP) && (name.endsWith(CSV_SUFFIX) || name.endsWith(GZIP_SUFFIX));
 			}
 		});
 
@@ -441,23 +515,176 @@ public class SolrImportExport
 
 		Arrays.sort(files);
 
-		for (File file : files)
+		List<Callable<Void>> tasks = new ArrayList<>();
+		for (final File file : files)
 		{
-			log.info("Importing file " + file.getCanonicalPath());
-			ContentStreamUpdateRequest contentStreamUpdateRequest = new ContentStreamUpdateRequest("/update/csv");
-			contentStreamUpdateRequest.setParam("skip", "_version_");
-			for (String mvField : multivaluedFields) {
-				contentStreamUpdateRequest.setParam("f." + mvField + ".split", "true");
-				contentStreamUpdateRequest.setParam("f." + mvField + ".separator", MULTIPLE_VALUES_SPLITTER);
+			if (imported.contains(file.getName()))
+			{
+				log.info("Skipping file " + file.getCanonicalPath() + ", already imported");
+				continue;
 			}
-			contentStreamUpdateRequest.setParam("stream.contentType", "text/csv;charset=utf-8");
-			contentStreamUpdateRequest.setAction(AbstractUpdateRequest.ACTION.COMMIT, true, true);
+			tasks.add(new Callable<Void>()
+			{
+				@Override
+				public Void call() throws Exception
+				{
+					importFile(solr, file, multivaluedFields);
+					recordProgress(progressFile, file.getName());
+					return null;
+				}
+			});
+		}
+		runAll(tasks, threads);
+
+		solr.commit(true, true);
+	}
+
+	/**
+	 * Send one export file to Solr, decompressing it on the fly if it is compressed. The documents are committed by the
+	 * autoCommit of the index, or at the end of the import.
+	 */
+	private static void importFile(HttpSolrServer solr, File file, List<String> multivaluedFields)
+			throws IOException, SolrServerException
+	{
+		log.info("Importing file " + file.getCanonicalPath());
+		ContentStreamUpdateRequest contentStreamUpdateRequest = new ContentStreamUpdateRequest("/update/csv");
+		contentStreamUpdateRequest.setParam("skip", "_version_");
+		for (String mvField : multivaluedFields) {
+			contentStreamUpdateRequest.setParam("f." + mvField + ".split", "true");
+			contentStreamUpdateRequest.setParam("f." + mvField + ".separator", MULTIPLE_VALUES_SPLITTER);
+		}
+		contentStreamUpdateRequest.setParam("stream.contentType", "text/csv;charset=utf-8");
+		if (file.getName().endsWith(GZIP_SUFFIX))
+		{
+			ContentStreamBase.FileStream stream = new ContentStreamBase.FileStream(file)
+			{
+				@Override
+				public InputStream getStream() throws IOException
+				{
+					return new GZIPInputStream(super.getStream());
+				}
+
+				@Override
+				public Long getSize()
+				{
+					// not known until decompressed
+					return null;
+				}
+			};
+			stream.setContentType("text/csv;charset=utf-8");
+			contentStreamUpdateRequest.addContentStream(stream);
+		}
+		else
+		{
 			contentStreamUpdateRequest.addFile(file, "text/csv;charset=utf-8");
+		}
+
+		solr.request(contentStreamUpdateRequest);
+	}
 
-			solr.request(contentStreamUpdateRequest);
+	/**
+	 * Returns the file recording the names of the export files already imported into an index, one per line.
+	 *
+	 * @param fromDir the directory of the export files.
+	 * @param indexName the index being imported.
+	 * @return the progress file, which may not exist.
+	 */
+	private static File makeProgressFile(File fromDir, String indexName)
+	{
+		return new File(fromDir, indexName + PROGRESS_SUFFIX);
+	}
+
+	private static Set<String> readProgress(File progressFile) throws IOException
+	{
+		Set<String> imported = new HashSet<>();
+		if (progressFile.exists())
+		{
+			BufferedReader reader = new BufferedReader(new FileReader(progressFile));
+			try
+			{
+				String name;
+				while ((name = reader.readLine()) != null)
+				{
+					if (StringUtils.isNotBlank(name))
+					{
+						imported.add(name.trim());
+					}
+				}
+			}
+			finally
+			{
+				reader.close();
+			}
 		}
+		return imported;
+	}
 
-		solr.commit(true, true);
+	private static synchronized void recordProgress(File progressFile, String name) throws IOException
+	{
+		Writer writer = new FileWriter(progressFile, true);
+		try
+		{
+			writer.write(name + "\n");
+		}
+		finally
+		{
+			writer.close();
+		}
+	}
+
+	/**
+	 * Runs the tasks, at most threads of them at the same time, and waits for all of them.
+	 * The first failure cancels the tasks not finished yet, and is thrown.
+	 */
+	private static void runAll(List<Callable<Void>> tasks, int threads)
+			throws IOException, SolrServerException, SolrImportExportException
+	{
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+		try
+		{
+			List<Future<Void>> futures = new ArrayList<>();
+			for (Callable<Void> task : tasks)
+			{
+				futures.add(executor.submit(task));
+			}
+			for (Future<Void> future : futures)
+			{
+				try
+				{
+					future.get();
+				}
+				catch (InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+					throw new SolrImportExportException("Interrupted while waiting for the export or import", e);
+				}
+				catch (ExecutionException e)
+				{
+					Throwable cause = e.getCause();
+					if (cause instanceof IOException)
+					{
+						throw (IOException) cause;
+					}
+					if (cause instanceof SolrServerException)
+					{
+						throw (SolrServerException) cause;
+					}
+					if (cause instanceof SolrImportExportException)
+					{
+						throw (SolrImportExportException) cause;
+					}
+					if (cause instanceof RuntimeException)
+					{
+						throw (RuntimeException) cause;
+					}
+					throw new SolrImportExportException(cause.getMessage(), cause);
+				}
+			}
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
 	}
 
 	/**
@@ -520,6 +747,34 @@ public class SolrImportExport
 	 */
 	public static void exportIndex(String indexName, File toDir, String solrUrl, String timeField, String fromWhen, boolean overwrite)
 			throws SolrServerException, IOException, SolrImportExportException
+	{
+		exportIndex(indexName, toDir, solrUrl, timeField, fromWhen, overwrite, 1, false, false);
+	}
+
+	/**
+	 * Exports documents from the given index to the specified target directory in batches of #ROWS_PER_FILE, starting at fromWhen (or all documents).
+	 * See #makeExportFilename for the file names that are generated.
+	 * <p>
+	 * Each month is exported in the order of the unique key of the index, each batch starting after the last key of the previous one,
+	 * so that Solr doesn't have to skip the documents already exported. Up to threads months are exported at the same time.
+	 * Each file is complete once it has its final name, so an interrupted export can be resumed after the last file of each month.
+	 *
+	 * @param indexName The index to export.
+	 * @param toDir The target directory for the export. Will be created if it doesn't exist yet. The directory must be writeable.
+	 * @param solrUrl The solr URL for the index to export. Must not be null.
+	 * @param timeField The time field to use for sorting the export. Must not be null.
+	 * @param fromWhen Optionally, from when to export. See options for allowed values. If null or empty, all documents will be exported.
+	 * @param overwrite If set, allow export files to be overwritten
+	 * @param threads The number of months to export in parallel.
+	 * @param compress If set, write gzip-compressed files.
+	 * @param resume If set, keep the export files already written, and continue after them.
+	 * @throws SolrServerException if there is a problem with exporting the index.
+	 * @throws IOException if there is a problem creating the files or communicating with Solr.
+	 * @throws SolrImportExportException if there is a problem in communicating with Solr.
+	 */
+	public static void exportIndex(final String indexName, final File toDir, final String solrUrl, final String timeField,
+			String fromWhen, final boolean overwrite, int threads, final boolean compress, final boolean resume)
+			throws SolrServerException, IOException, SolrImportExportException
 	{
 		log.info(String.format("Export Index [%s] to [%s] using [%s] Time Field[%s] FromWhen[%s]", indexName, toDir, solrUrl, timeField, fromWhen));
 		if (StringUtils.isBlank(solrUrl))
@@ -562,6 +817,8 @@ public class SolrImportExport
 		}
 		Date earliestTimestamp = (Date) timeFieldInfo.getMin();
 
+		final String uniqueKey = getUniqueKey(solr);
+
 		query.setGetFieldStatistics(false);
 		query.clearSorts();
 		query.setRows(0);
@@ -574,9 +831,10 @@ public class SolrImportExport
 
 		List<RangeFacet.Count> monthFacets = solr.query(query).getFacetRanges().get(0).getCounts();
 
+		List<Callable<Void>> tasks = new ArrayList<>();
 		for (RangeFacet.Count monthFacet : monthFacets) {
-			Date monthStartDate;
-			String monthStart = monthFacet.getValue();
+			final Date monthStartDate;
+			final String monthStart = monthFacet.getValue();
 			try
 			{
 				monthStartDate = SOLR_DATE_FORMAT_NO_MS.parse(monthStart);
@@ -585,43 +843,175 @@ public class SolrImportExport
 			{
 				throw new SolrImportExportException("Could not read start of month batch as date: " + monthStart, e);
 			}
-			int docsThisMonth = monthFacet.getCount();
+			final int docsThisMonth = monthFacet.getCount();
 
-			SolrQuery monthQuery = new SolrQuery("*:*");
-			monthQuery.setRows(ROWS_PER_FILE);
-			monthQuery.set("wt", "csv");
-			monthQuery.set("fl", "*");
-			monthQuery.setParam("csv.mv.separator", MULTIPLE_VALUES_SPLITTER); 
+			tasks.add(new Callable<Void>()
+			{
+				@Override
+				public Void call() throws Exception
+				{
+					exportMonth(indexName, toDir, solrUrl, timeField, uniqueKey, monthStart, monthStartDate, docsThisMonth,
+							overwrite, compress, resume);
+					return null;
+				}
+			});
+		}
+		runAll(tasks, threads);
+	}
+
+	/**
+	 * Exports the documents of one month in batches of #ROWS_PER_FILE, in the order of the unique key of the index.
+	 */
+	private static void exportMonth(String indexName, File toDir, String solrUrl, String timeField, String uniqueKey,
+			String monthStart, Date monthStartDate, int docsThisMonth, boolean overwrite, boolean compress, boolean resume)
+			throws IOException, SolrImportExportException
+	{
+		SolrQuery monthQuery = new SolrQuery("*:*");
+		monthQuery.setRows(ROWS_PER_FILE);
+		monthQuery.set("wt", "csv");
+		monthQuery.set("fl", "*");
+		monthQuery.setParam("csv.mv.separator", MULTIPLE_VALUES_SPLITTER);
+		monthQuery.setSort(uniqueKey, SolrQuery.ORDER.asc);
 
-			monthQuery.addFilterQuery(timeField + ":[" +monthStart + " TO " + monthStart + "+1MONTH]");
+		String monthFilter = timeField + ":[" +monthStart + " TO " + monthStart + "+1MONTH]";
+		String lastKey = null;
+
+		for (int i = 0; i < docsThisMonth; i+= ROWS_PER_FILE)
+		{
+			monthQuery.setFilterQueries(monthFilter);
+			if (lastKey != null)
+			{
+				// start after the previous batch; not cached, as each batch uses its own filter
+				monthQuery.addFilterQuery("{!cache=false}" + uniqueKey + ":{" + ClientUtils.escapeQueryChars(lastKey) + " TO *]");
+			}
 
-			for (int i = 0; i < docsThisMonth; i+= ROWS_PER_FILE)
+			File file = new File(toDir.getCanonicalPath(), makeExportFilename(indexName, monthStartDate, docsThisMonth, i, compress));
+			if (resume && file.exists())
+			{
+				log.info(String.format("Solr export file [%s] already exists, resuming after it.  Index [%s] Month [%s] Batch [%d]",
+					file.getCanonicalPath(), indexName, monthStart, i));
+			}
+			else if (file.exists() && !overwrite)
+			{
+				String message = String.format("Solr export file [%s] already exists.  Export failed for Index [%s] Month [%s] Batch [%d] Num Docs [%d]", 
+					file.getCanonicalPath(), indexName, monthStart, i, docsThisMonth);
+				throw new SolrImportExportException(message);
+			}
+			else
 			{
-				monthQuery.setStart(i);
 				URL url = new URL(solrUrl + "/select?" + monthQuery.toString());
+				download(url, file, compress);
+				String message = String.format("Solr export to file [%s] complete.  Export for Index [%s] Month [%s] Batch [%d] Num Docs [%d]", 
+					file.getCanonicalPath(), indexName, monthStart, i, docsThisMonth);
+				log.info(message);
+			}
 
-				File file = new File(toDir.getCanonicalPath(), makeExportFilename(indexName, monthStartDate, docsThisMonth, i));
-				if (file.createNewFile() || overwrite)
-				{
-					FileUtils.copyURLToFile(url, file);
-					String message = String.format("Solr export to file [%s] complete.  Export for Index [%s] Month [%s] Batch [%d] Num Docs [%d]", 
-						file.getCanonicalPath(), indexName, monthStart, i, docsThisMonth);
-					log.info(message);
-				}
-				else if (file.exists())
-				{
-					String message = String.format("Solr export file [%s] already exists.  Export failed for Index [%s] Month [%s] Batch [%d] Num Docs [%d]", 
-						file.getCanonicalPath(), indexName, monthStart, i, docsThisMonth);
-					throw new SolrImportExportException(message);
-				}
-				else
+			lastKey = readLastKey(file, uniqueKey);
+			if (lastKey == null)
+			{
+				// no more documents, some were deleted since they were counted
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Copies the response of Solr to a file, compressing it if asked. The file only gets its name once complete.
+	 */
+	private static void download(URL url, File file, boolean compress) throws IOException
+	{
+		File partFile = new File(file.getPath() + ".part");
+		InputStream in = url.openStream();
+		try
+		{
+			OutputStream out = new FileOutputStream(partFile);
+			if (compress)
+			{
+				out = new GZIPOutputStream(out);
+			}
+			try
+			{
+				IOUtils.copy(in, out);
+			}
+			finally
+			{
+				out.close();
+			}
+		}
+		finally
+		{
+			in.close();
+		}
+		Files.move(partFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * Reads the unique key of the last document of an export file.
+	 *
+	 * @param file the export file, compressed or not.
+	 * @param uniqueKey the name of the unique key field.
+	 * @return the key, or null if the file has no documents.
+	 * @throws IOException if the file cannot be read.
+	 * @throws SolrImportExportException if the file has no unique key column.
+	 */
+	private static String readLastKey(File file, String uniqueKey) throws IOException, SolrImportExportException
+	{
+		InputStream in = new FileInputStream(file);
+		if (file.getName().endsWith(GZIP_SUFFIX))
+		{
+			in = new GZIPInputStream(in);
+		}
+		// Solr escapes quotes by doubling them, not with a backslash
+		CSVReader reader = new CSVReader(new InputStreamReader(in, "UTF-8"), ',', '"', '\0');
+		try
+		{
+			String[] header = reader.readNext();
+			if (header == null)
+			{
+				return null;
+			}
+			int keyColumn = Arrays.asList(header).indexOf(uniqueKey);
+			if (keyColumn < 0)
+			{
+				throw new SolrImportExportException("Export file " + file.getCanonicalPath() + " has no " + uniqueKey + " column");
+			}
+			String lastKey = null;
+			String[] row;
+			while ((row = reader.readNext()) != null)
+			{
+				if (keyColumn < row.length)
 				{
-					String message = String.format("Cannot create solr export file [%s].  Export failed for Index [%s] Month [%s] Batch [%d] Num Docs [%d]", 
-						file.getCanonicalPath(), indexName, monthStart, i, docsThisMonth);
-					throw new SolrImportExportException(message);
+					lastKey = row[keyColumn];
 				}
 			}
+			return lastKey;
+		}
+		finally
+		{
+			reader.close();
+		}
+	}
+
+	/**
+	 * Determine the name of the unique key field of the index.
+	 * @param solr the solr server to query.
+	 * @return the name of the unique key field.
+	 * @throws SolrImportExportException if the index has no unique key.
+	 */
+	private static String getUniqueKey(HttpSolrServer solr) throws IOException, SolrServerException, SolrImportExportException
+	{
+		LukeRequest request = new LukeRequest();
+		request.setShowSchema(true);
+		request.setNumTerms(0);
+		NamedList<Object> response = request.process(solr).getResponse();
+		Object schema = response.get("schema");
+		Object uniqueKey = (schema instanceof NamedList) ? ((NamedList<?>) schema).get("uniqueKeyField") : null;
+		if (uniqueKey == null)
+		{
+			throw new SolrImportExportException("Cannot determine the unique key field of " + solr.getBaseURL()
+					                                    + ", which is needed to export it in batches.");
 		}
+		return uniqueKey.toString();
 	}
 
 	/**
@@ -672,19 +1062,25 @@ public class SolrImportExport
 	 * @param exportStart The start timestamp of the export
 	 * @param totalRecords The total number of records in the export.
 	 * @param index The index of the current batch.
+	 * @param compress Whether the file is compressed.
 	 * @return A file name that is appropriate to use for exporting the batch of data described by the parameters.
 	 */
-	private static String makeExportFilename(String indexName, Date exportStart, long totalRecords, int index)
+	private static String makeExportFilename(String indexName, Date exportStart, long totalRecords, int index, boolean compress)
 	{
 		String exportFileNumber = "";
 		if (totalRecords > ROWS_PER_FILE) {
 			exportFileNumber = StringUtils.leftPad("" + (index / ROWS_PER_FILE), (int) Math.ceil(Math.log10(totalRecords / ROWS_PER_FILE)), "0");
 		}
+		String month;
+		synchronized (EXPORT_DATE_FORMAT)
+		{
+			month = EXPORT_DATE_FORMAT.format(exportStart);
+		}
 		return indexName
 			+ EXPORT_SEP
-			+ EXPORT_DATE_FORMAT.format(exportStart)
+			+ month
 			+ (StringUtils.isNotBlank(exportFileNumber) ? "_" + exportFileNumber : "")
-			+ ".csv";
+			+ (compress ? GZIP_SUFFIX : CSV_SUFFIX);
 	}
 
 	/**
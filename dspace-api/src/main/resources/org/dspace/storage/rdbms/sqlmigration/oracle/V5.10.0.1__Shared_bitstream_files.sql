@@ -0,0 +1,30 @@
+--
+-- The contents of this file are subject to the license and copyright
+-- detailed in the LICENSE and NOTICE files at the root of the source
+-- tree and available online at
+--
+-- http://www.dspace.org/license/
+--
+
+-- ===============================================================
+-- WARNING WARNING WARNING WARNING WARNING WARNING WARNING WARNING
+--
+-- DO NOT MANUALLY RUN THIS DATABASE MIGRATION. IT WILL BE EXECUTED
+-- AUTOMATICALLY (IF NEEDED) BY "FLYWAY" WHEN YOU STARTUP DSPACE.
+-- http://flywaydb.org/
+-- ===============================================================
+
+------------------------------------------------------
+-- Files shared by the bitstreams with the same content
+-- (assetstore.content-addressed), with the number of
+-- bitstreams referencing them
+------------------------------------------------------
+CREATE TABLE bitstream_blob
+(
+  internal_id   VARCHAR2(256) PRIMARY KEY,
+  store_number  INTEGER,
+  size_bytes    INTEGER,
+  ref_count     INTEGER NOT NULL
+);
+
+CREATE INDEX bitstream_blob_ref_count_idx ON bitstream_blob(ref_count);
@@ -0,0 +1,294 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+
+package org.dspace.app.sitemap;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+import org.dspace.AbstractUnitTest;
+import org.dspace.content.Collection;
+import org.dspace.content.Community;
+import org.dspace.content.InstallItem;
+import org.dspace.content.Item;
+import org.dspace.content.WorkspaceItem;
+import org.dspace.core.ConfigurationManager;
+import org.dspace.core.MockConfigurationManager;
+import org.dspace.handle.HandleManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Integration tests of {@link IncrementalSitemaps}: after items are changed,
+ * withdrawn and deleted, only the segments holding them must be written
+ * again, and the segments left empty must be removed.
+ * <p>
+ * The segments hold 2 IDs; the tests only look at the segments holding two
+ * of their own items.
+ */
+public class IncrementalSitemapsTest extends AbstractUnitTest
+{
+    /** a modification date older than any file written by the tests */
+    private static final long OLD = 1000000000000L;
+
+    private File outputDir;
+
+    private Collection collection;
+
+    /** the items of the test, by segment, for the segments holding two */
+    private List<Item[]> segments;
+
+    @SuppressWarnings("ResultOfObjectAllocationIgnored")
+    @BeforeClass
+    public static void setUpClass()
+    {
+        // Initialize MockConfigurationManager, and tell it to load properties by default
+        new MockConfigurationManager(true);
+    }
+
+    @Before
+    @Override
+    public void init()
+    {
+        super.init();
+        try
+        {
+            MockConfigurationManager.setProperty("sitemap.segment.size", "2");
+            outputDir = File.createTempFile("sitemaps", "");
+            outputDir.delete();
+            outputDir.mkdirs();
+
+            context.turnOffAuthorisationSystem();
+            Community community = Community.create(null, context);
+            collection = community.createCollection();
+            Map<Integer, List<Item>> bySegment = new TreeMap<Integer, List<Item>>();
+            for (int i = 0; i < 10; i++)
+            {
+                WorkspaceItem wsItem = WorkspaceItem.create(context, collection, false);
+                Item item = InstallItem.installItem(context, wsItem);
+                item.addMetadata("dc", "title", null, null, "IncrementalSitemapsTest " + i);
+                item.update();
+                int segment = item.getID() / 2;
+                if (!bySegment.containsKey(segment))
+                {
+                    bySegment.put(segment, new ArrayList<Item>());
+                }
+                bySegment.get(segment).add(item);
+            }
+            context.restoreAuthSystemState();
+            context.commit();
+
+            segments = new ArrayList<Item[]>();
+            for (List<Item> items : bySegment.values())
+            {
+                if (items.size() == 2)
+                {
+                    segments.add(items.toArray(new Item[2]));
+                }
+            }
+            assertTrue("init", segments.size() >= 4);
+        }
+        catch (Exception ex)
+        {
+            fail("Error in init: " + ex.getMessage());
+        }
+    }
+
+    @After
+    @Override
+    public void destroy()
+    {
+        MockConfigurationManager.setProperty("sitemap.segment.size", "10000");
+        FileUtils.deleteQuietly(outputDir);
+        super.destroy();
+    }
+
+    /**
+     * The first run writes all the segments, the next one none.
+     */
+    @Test
+    public void testUnchanged() throws Exception
+    {
+        String details = generate();
+        for (Item[] items : segments)
+        {
+            String name = name(items[0]);
+            assertTrue("testUnchanged 0 " + name, file("sitemap" + name + ".xml.gz").exists());
+            assertTrue("testUnchanged 1 " + name, file("sitemap" + name + ".html").exists());
+            String sitemap = read("sitemap" + name + ".xml.gz");
+            assertTrue("testUnchanged 2 " + name, sitemap.contains(items[0].getHandle() + "<"));
+            assertTrue("testUnchanged 3 " + name, sitemap.contains(items[1].getHandle() + "<"));
+        }
+        assertFalse("testUnchanged 4", details.endsWith(",written=0"));
+        assertTrue("testUnchanged 5", file(IncrementalSitemaps.STATE_FILENAME).exists());
+        String index = read("sitemap_index.xml.gz");
+        assertTrue("testUnchanged 6", index.contains("?map=" + name(segments.get(0)[0]) + "<"));
+
+        setOld();
+        assertTrue("testUnchanged 7 " + details, generate().endsWith(",written=0"));
+        for (Item[] items : segments)
+        {
+            assertRewritten("testUnchanged 8", items[0], false);
+        }
+
+        // a segment whose files are missing is written again
+        file("sitemap" + name(segments.get(0)[0]) + ".html").delete();
+        assertTrue("testUnchanged 9", generate().endsWith(",written=1"));
+        assertTrue("testUnchanged 10",
+                file("sitemap" + name(segments.get(0)[0]) + ".html").exists());
+    }
+
+    /**
+     * Only the segments of the changed, withdrawn and deleted items are
+     * written again, and the segment left without items is removed.
+     */
+    @Test
+    public void testChanges() throws Exception
+    {
+        generate();
+        setOld();
+
+        Item[] changed = segments.get(0);
+        Item[] withdrawn = segments.get(1);
+        Item[] deleted = segments.get(2);
+        Item[] unchanged = segments.get(3);
+
+        // last_modified must move forward
+        Thread.sleep(50);
+        context.turnOffAuthorisationSystem();
+        changed[1].addMetadata("dc", "description", null, null, "changed");
+        changed[1].update();
+        withdrawn[0].withdraw();
+        collection.removeItem(deleted[0]);
+        collection.removeItem(deleted[1]);
+        context.restoreAuthSystemState();
+        context.commit();
+
+        String details = generate();
+        assertTrue("testChanges 0 " + details, details.endsWith(",written=2"));
+        assertRewritten("testChanges 1", changed[0], true);
+        assertRewritten("testChanges 2", withdrawn[0], true);
+        assertRewritten("testChanges 3", unchanged[0], false);
+
+        String sitemap = read("sitemap" + name(withdrawn[0]) + ".xml.gz");
+        assertFalse("testChanges 4", sitemap.contains(withdrawn[0].getHandle() + "<"));
+        assertTrue("testChanges 5", sitemap.contains(withdrawn[1].getHandle() + "<"));
+
+        String name = name(deleted[0]);
+        assertFalse("testChanges 6", file("sitemap" + name + ".xml.gz").exists());
+        assertFalse("testChanges 7", file("sitemap" + name + ".html").exists());
+        String index = read("sitemap_index.xml.gz");
+        assertFalse("testChanges 8", index.contains("?map=" + name + "<"));
+        assertTrue("testChanges 9", index.contains("?map=" + name(unchanged[0]) + "<"));
+        assertFalse("testChanges 10", read(IncrementalSitemaps.STATE_FILENAME).contains(name + "="));
+
+        // no temporary file is left
+        for (String filename : outputDir.list())
+        {
+            assertFalse("testChanges 11 " + filename, filename.endsWith(".tmp"));
+        }
+    }
+
+    /**
+     * The latest version of an item also owns the handle of its version:
+     * it is listed once, under its own handle, and counted once.
+     */
+    @Test
+    public void testVersionHandle() throws Exception
+    {
+        Item item = segments.get(0)[0];
+        String handle = item.getHandle();
+        context.turnOffAuthorisationSystem();
+        HandleManager.createHandle(context, item, handle + ".2");
+        context.restoreAuthSystemState();
+        context.commit();
+
+        generate();
+        String sitemap = read("sitemap" + name(item) + ".xml.gz");
+        assertEquals("testVersionHandle 0", 1, StringUtils.countMatches(sitemap, "/handle/" + handle));
+        assertTrue("testVersionHandle 1", sitemap.contains(handle + "<"));
+        assertTrue("testVersionHandle 2", sitemap.contains(segments.get(0)[1].getHandle() + "<"));
+
+        Map<Integer, String> signatures = new DSpaceObjectsSitemapGenerator()
+                .getSources(context, Arrays.asList("item")).get(0).getSignatures(context, 2);
+        assertTrue("testVersionHandle 3 " + signatures.get(item.getID() / 2),
+                signatures.get(item.getID() / 2).startsWith("2/"));
+    }
+
+    private String generate() throws Exception
+    {
+        String dspaceURL = ConfigurationManager.getProperty("dspace.url");
+        AbstractGenerator html = new HTMLSitemapGenerator(outputDir, dspaceURL + "/htmlmap?map=", null);
+        AbstractGenerator sitemapsOrg = new SitemapsOrgGenerator(outputDir, dspaceURL + "/sitemap?map=", null);
+        List<SitemapSegmentSource> sources = new DSpaceObjectsSitemapGenerator()
+                .getSources(context, Arrays.asList("item"));
+        return new IncrementalSitemaps(outputDir, html, sitemapsOrg).generate(context, sources);
+    }
+
+    /**
+     * Date all the sitemaps back, to find those written again.
+     */
+    private void setOld()
+    {
+        for (File file : outputDir.listFiles())
+        {
+            file.setLastModified(OLD);
+        }
+    }
+
+    private void assertRewritten(String message, Item item, boolean rewritten)
+    {
+        String name = name(item);
+        assertEquals(message + " " + name, rewritten,
+                file("sitemap" + name + ".xml.gz").lastModified() != OLD);
+        assertEquals(message + " " + name, rewritten,
+                file("sitemap" + name + ".html").lastModified() != OLD);
+    }
+
+    private static String name(Item item)
+    {
+        return "item-" + item.getID() / 2;
+    }
+
+    private File file(String filename)
+    {
+        return new File(outputDir, filename);
+    }
+
+    private String read(String filename) throws IOException
+    {
+        InputStream in = new FileInputStream(file(filename));
+        try
+        {
+            if (filename.endsWith(".gz"))
+            {
+                in = new GZIPInputStream(in);
+            }
+            return IOUtils.toString(in, "UTF-8");
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+}
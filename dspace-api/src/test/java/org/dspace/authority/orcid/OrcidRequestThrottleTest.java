@@ -0,0 +1,197 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.authority.orcid;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.Response;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link OrcidRequestThrottle}, against a local stub of the
+ * ORCID API.
+ */
+public class OrcidRequestThrottleTest
+{
+    private static HttpServer server;
+
+    private static String url;
+
+    private static Client client;
+
+    /** requests received by the stub server */
+    private static final AtomicInteger requests = new AtomicInteger();
+
+    @BeforeClass
+    public static void setUpClass() throws IOException
+    {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler()
+        {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException
+            {
+                // the path is the number of throttled answers before success,
+                // or the status then the number of failed answers, then "retry" to
+                // send Retry-After with the status
+                String[] path = exchange.getRequestURI().getPath().substring(1)
+                        .split("/");
+                int status = path.length > 1 ? Integer.parseInt(path[0]) : 429;
+                int failed = Integer.parseInt(path[path.length > 1 ? 1 : 0]);
+                if (requests.incrementAndGet() <= failed)
+                {
+                    if (status == 429 || path.length > 2)
+                    {
+                        exchange.getResponseHeaders().add("Retry-After", "0");
+                    }
+                    exchange.sendResponseHeaders(status, -1);
+                }
+                else
+                {
+                    exchange.sendResponseHeaders(204, -1);
+                }
+                exchange.close();
+            }
+        });
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+        client = ClientBuilder.newClient();
+    }
+
+    @AfterClass
+    public static void tearDownClass()
+    {
+        client.close();
+        server.stop(0);
+    }
+
+    private static Callable<Response> delete(final String path)
+    {
+        return new Callable<Response>()
+        {
+            @Override
+            public Response call() throws Exception
+            {
+                return client.target(url + path).request().delete();
+            }
+        };
+    }
+
+    private static Callable<Response> post(final String path)
+    {
+        return new Callable<Response>()
+        {
+            @Override
+            public Response call() throws Exception
+            {
+                return client.target(url + path).request()
+                        .post(Entity.text("work"));
+            }
+        };
+    }
+
+    @Test
+    public void testRetryThrottledRequest() throws Exception
+    {
+        requests.set(0);
+        OrcidRequestThrottle throttle = new OrcidRequestThrottle(100, 10, 3, 1);
+        Response response = throttle.execute(delete("2"));
+        assertEquals(204, response.getStatus());
+        assertEquals("sent again until accepted", 3, requests.get());
+        response.close();
+    }
+
+    @Test
+    public void testGiveUpAfterMaxRetries() throws Exception
+    {
+        requests.set(0);
+        OrcidRequestThrottle throttle = new OrcidRequestThrottle(100, 10, 1, 1);
+        Response response = throttle.execute(delete("5"));
+        assertEquals(429, response.getStatus());
+        assertEquals(2, requests.get());
+        response.close();
+    }
+
+    @Test
+    public void testRetryServerError() throws Exception
+    {
+        requests.set(0);
+        OrcidRequestThrottle throttle = new OrcidRequestThrottle(100, 10, 3, 1);
+        Response response = throttle.execute(delete("502/2"));
+        assertEquals(204, response.getStatus());
+        assertEquals("idempotent, sent again after a server error", 3, requests.get());
+        response.close();
+    }
+
+    @Test
+    public void testPostNotRetriedAfterServerError() throws Exception
+    {
+        requests.set(0);
+        OrcidRequestThrottle throttle = new OrcidRequestThrottle(100, 10, 3, 1);
+        Response response = throttle.execute(post("502/2"), false);
+        assertEquals(502, response.getStatus());
+        assertEquals("may have been stored, sent only once", 1, requests.get());
+        response.close();
+
+        requests.set(0);
+        response = throttle.execute(post("503/1"), false);
+        assertEquals(503, response.getStatus());
+        assertEquals("unavailable without Retry-After, sent only once", 1, requests.get());
+        response.close();
+    }
+
+    @Test
+    public void testPostRetriedWhenNotProcessed() throws Exception
+    {
+        requests.set(0);
+        OrcidRequestThrottle throttle = new OrcidRequestThrottle(100, 10, 3, 1);
+        Response response = throttle.execute(post("2"), false);
+        assertEquals(204, response.getStatus());
+        assertEquals("throttled, sent again", 3, requests.get());
+        response.close();
+
+        requests.set(0);
+        response = throttle.execute(post("503/1/retry"), false);
+        assertEquals(204, response.getStatus());
+        assertEquals("unavailable with Retry-After, sent again", 2, requests.get());
+        response.close();
+    }
+
+    @Test
+    public void testBurstThenRate()
+    {
+        OrcidRequestThrottle throttle = new OrcidRequestThrottle(10, 2, 0, 0);
+        long now = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        assertEquals(0, throttle.reserve(now));
+        assertEquals(0, throttle.reserve(now));
+        // 10 per second once the burst is used
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), throttle.reserve(now), 1);
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(200), throttle.reserve(now), 1);
+        // refilled, but not beyond the burst
+        now += TimeUnit.SECONDS.toNanos(10);
+        assertEquals(0, throttle.reserve(now));
+        assertEquals(0, throttle.reserve(now));
+        assertTrue(throttle.reserve(now) > 0);
+    }
+}
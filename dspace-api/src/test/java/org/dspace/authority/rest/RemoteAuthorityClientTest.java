@@ -0,0 +1,163 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.authority.rest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.dspace.core.MockConfigurationManager;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link RemoteAuthorityClient}, against a local stub server.
+ */
+public class RemoteAuthorityClientTest
+{
+    private static HttpServer server;
+
+    private static String url;
+
+    /** requests received by the stub server */
+    private static final AtomicInteger requests = new AtomicInteger();
+
+    @SuppressWarnings("ResultOfObjectAllocationIgnored")
+    @BeforeClass
+    public static void setUpClass() throws IOException
+    {
+        // Initialize MockConfigurationManager and tell it to NOT load any properties
+        new MockConfigurationManager(false);
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler()
+        {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException
+            {
+                requests.incrementAndGet();
+                String query = exchange.getRequestURI().getQuery();
+                byte[] body = ("answer to " + query).getBytes("UTF-8");
+                exchange.sendResponseHeaders(query.startsWith("missing") ? 404 : 200, body.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(body);
+                out.close();
+            }
+        });
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/lookup?";
+    }
+
+    @AfterClass
+    public static void tearDownClass()
+    {
+        server.stop(0);
+    }
+
+    /**
+     * Test of get method, of class RemoteAuthorityClient.
+     */
+    @Test
+    public void testGet() throws IOException
+    {
+        RemoteAuthorityClient client = RemoteAuthorityClient.getClient("test-get");
+        int before = requests.get();
+        assertEquals("answer to q=smith", client.get(url + "q=smith"));
+        assertEquals("answer to q=smith", client.get(url + "q=smith"));
+        assertEquals("the second answer comes from the cache", before + 1, requests.get());
+
+        client.clear();
+        client.get(url + "q=smith");
+        assertEquals(before + 2, requests.get());
+    }
+
+    /**
+     * Test of the caching of failures.
+     */
+    @Test
+    public void testNegativeCache()
+    {
+        RemoteAuthorityClient client = RemoteAuthorityClient.getClient("test-negative");
+        int before = requests.get();
+        for (int i = 0; i < 2; i++)
+        {
+            try
+            {
+                client.get(url + "missing");
+                fail("404 should fail");
+            }
+            catch (IOException e)
+            {
+                // expected
+            }
+        }
+        assertEquals("the failure is cached", before + 1, requests.get());
+    }
+
+    /**
+     * Test of the coalescing of identical requests in progress.
+     */
+    @Test
+    public void testCoalescing() throws Exception
+    {
+        final RemoteAuthorityClient client = RemoteAuthorityClient.getClient("test-coalescing");
+        final AtomicInteger calls = new AtomicInteger();
+        final Callable<String> slow = new Callable<String>()
+        {
+            @Override
+            public String call() throws Exception
+            {
+                calls.incrementAndGet();
+                Thread.sleep(200);
+                return "result";
+            }
+        };
+
+        Thread[] threads = new Thread[5];
+        final String[] results = new String[threads.length];
+        for (int i = 0; i < threads.length; i++)
+        {
+            final int n = i;
+            threads[i] = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        results[n] = (String) client.get("key", slow);
+                    }
+                    catch (IOException e)
+                    {
+                        results[n] = e.getMessage();
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads)
+        {
+            thread.join();
+        }
+
+        assertEquals(1, calls.get());
+        for (String result : results)
+        {
+            assertEquals("result", result);
+        }
+    }
+}
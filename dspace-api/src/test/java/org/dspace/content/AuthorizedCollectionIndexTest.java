@@ -0,0 +1,247 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+
+package org.dspace.content;
+
+import java.sql.SQLException;
+import java.util.Set;
+
+import org.dspace.AbstractUnitTest;
+import org.dspace.authorize.AuthorizeException;
+import org.dspace.authorize.AuthorizeManager;
+import org.dspace.authorize.ResourcePolicy;
+import org.dspace.core.Constants;
+import org.dspace.core.MockConfigurationManager;
+import org.dspace.eperson.Group;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Integration tests of {@link AuthorizedCollectionIndex}: the collections
+ * found for the current user must follow the committed grants, revocations
+ * and changes of the group memberships.
+ */
+public class AuthorizedCollectionIndexTest extends AbstractUnitTest
+{
+    private Community community;
+
+    private Collection collection;
+
+    private Collection other;
+
+    private Group group;
+
+    @SuppressWarnings("ResultOfObjectAllocationIgnored")
+    @BeforeClass
+    public static void setUpClass()
+    {
+        // Initialize MockConfigurationManager, and tell it to load properties by default
+        new MockConfigurationManager(true);
+    }
+
+    @Before
+    @Override
+    public void init()
+    {
+        super.init();
+        try
+        {
+            MockConfigurationManager.setProperty("collection.authorized-index.enabled", "true");
+            AuthorizedCollectionIndex.invalidate();
+            context.turnOffAuthorisationSystem();
+            community = Community.create(null, context);
+            collection = community.createCollection();
+            other = community.createCollection();
+            group = Group.create(context);
+            group.setName("AuthorizedCollectionIndexTest " + group.getID());
+            group.update();
+            context.restoreAuthSystemState();
+            context.commit();
+        }
+        catch (Exception ex)
+        {
+            fail("Error in init: " + ex.getMessage());
+        }
+    }
+
+    @After
+    @Override
+    public void destroy()
+    {
+        MockConfigurationManager.setProperty("collection.authorized-index.enabled", "false");
+        AuthorizedCollectionIndex.invalidate();
+        super.destroy();
+    }
+
+    /**
+     * A grant to the user or to one of their groups is found once committed.
+     */
+    @Test
+    public void testGrant() throws Exception
+    {
+        assertAuthorized("testGrant 0", Constants.ADD, false, false);
+
+        context.turnOffAuthorisationSystem();
+        AuthorizeManager.addPolicy(context, collection, Constants.ADD, eperson);
+        context.restoreAuthSystemState();
+        context.commit();
+        assertAuthorized("testGrant 1", Constants.ADD, true, false);
+
+        context.turnOffAuthorisationSystem();
+        AuthorizeManager.addPolicy(context, other, Constants.ADD, group);
+        group.addMember(eperson);
+        group.update();
+        context.restoreAuthSystemState();
+        context.commit();
+        assertAuthorized("testGrant 2", Constants.ADD, true, true);
+
+        // ADMIN on the community allows ADD on its collections
+        assertAuthorized("testGrant 3", Constants.WRITE, false, false);
+        context.turnOffAuthorisationSystem();
+        AuthorizeManager.addPolicy(context, community, Constants.ADMIN, eperson);
+        context.restoreAuthSystemState();
+        context.commit();
+        assertAuthorized("testGrant 4", Constants.WRITE, true, true);
+    }
+
+    /**
+     * Each way of revoking a policy drops the collection once committed.
+     */
+    @Test
+    public void testRevoke() throws Exception
+    {
+        context.turnOffAuthorisationSystem();
+        AuthorizeManager.addPolicy(context, collection, Constants.ADD, eperson,
+                ResourcePolicy.TYPE_CUSTOM);
+        AuthorizeManager.addPolicy(context, other, Constants.ADD, eperson,
+                ResourcePolicy.TYPE_SUBMISSION);
+        context.restoreAuthSystemState();
+        context.commit();
+        assertAuthorized("testRevoke 0", Constants.ADD, true, true);
+
+        AuthorizeManager.removeAllPoliciesByDSOAndType(context, collection,
+                ResourcePolicy.TYPE_CUSTOM);
+        context.commit();
+        assertAuthorized("testRevoke 1", Constants.ADD, false, true);
+
+        AuthorizeManager.removeAllPoliciesByDSOAndTypeNotEqualsTo(context, other,
+                ResourcePolicy.TYPE_CUSTOM);
+        context.commit();
+        assertAuthorized("testRevoke 2", Constants.ADD, false, false);
+
+        context.turnOffAuthorisationSystem();
+        AuthorizeManager.addPolicy(context, collection, Constants.ADD, eperson);
+        context.restoreAuthSystemState();
+        context.commit();
+        assertAuthorized("testRevoke 3", Constants.ADD, true, false);
+
+        context.turnOffAuthorisationSystem();
+        AuthorizeManager.switchPoliciesAction(context, collection, Constants.ADD, Constants.READ);
+        context.restoreAuthSystemState();
+        context.commit();
+        assertAuthorized("testRevoke 4", Constants.ADD, false, false);
+
+        context.turnOffAuthorisationSystem();
+        AuthorizeManager.addPolicy(context, other, Constants.ADD, eperson);
+        context.restoreAuthSystemState();
+        context.commit();
+        assertAuthorized("testRevoke 5", Constants.ADD, false, true);
+
+        AuthorizeManager.removePoliciesActionFilter(context, other, Constants.ADD);
+        context.commit();
+        assertAuthorized("testRevoke 6", Constants.ADD, false, false);
+    }
+
+    /**
+     * The collections granted to a group follow the membership of the user,
+     * and the deletion of the group.
+     */
+    @Test
+    public void testGroupMembership() throws Exception
+    {
+        Group parent;
+        context.turnOffAuthorisationSystem();
+        parent = Group.create(context);
+        parent.setName("AuthorizedCollectionIndexTest " + parent.getID());
+        parent.addMember(group);
+        parent.update();
+        AuthorizeManager.addPolicy(context, collection, Constants.ADD, parent);
+        AuthorizeManager.addPolicy(context, other, Constants.ADD, group);
+        context.restoreAuthSystemState();
+        context.commit();
+        assertAuthorized("testGroupMembership 0", Constants.ADD, false, false);
+
+        // a member of the group is a member of its parent
+        context.turnOffAuthorisationSystem();
+        group.addMember(eperson);
+        group.update();
+        context.restoreAuthSystemState();
+        context.commit();
+        assertAuthorized("testGroupMembership 1", Constants.ADD, true, true);
+
+        context.turnOffAuthorisationSystem();
+        parent.removeMember(group);
+        parent.update();
+        context.restoreAuthSystemState();
+        context.commit();
+        assertAuthorized("testGroupMembership 2", Constants.ADD, false, true);
+
+        context.turnOffAuthorisationSystem();
+        group.removeMember(eperson);
+        group.update();
+        context.restoreAuthSystemState();
+        context.commit();
+        assertAuthorized("testGroupMembership 3", Constants.ADD, false, false);
+
+        context.turnOffAuthorisationSystem();
+        group.addMember(eperson);
+        group.update();
+        context.restoreAuthSystemState();
+        context.commit();
+        assertAuthorized("testGroupMembership 4", Constants.ADD, false, true);
+
+        context.turnOffAuthorisationSystem();
+        group.delete();
+        context.restoreAuthSystemState();
+        context.commit();
+        assertAuthorized("testGroupMembership 5", Constants.ADD, false, false);
+    }
+
+    /**
+     * Assert which of the two collections the current user may act on,
+     * through the index and through {@link Collection#findAuthorized}, which
+     * must agree with the policies checked one by one.
+     */
+    private void assertAuthorized(String message, int actionID,
+            boolean onCollection, boolean onOther) throws SQLException
+    {
+        Set<Integer> ids = AuthorizedCollectionIndex.getAuthorizedIDs(context, actionID);
+        assertNotNull(message + " (index used)", ids);
+        assertEquals(message + " (index)", onCollection, ids.contains(collection.getID()));
+        assertEquals(message + " (index)", onOther, ids.contains(other.getID()));
+
+        boolean foundCollection = false;
+        boolean foundOther = false;
+        for (Collection found : Collection.findAuthorized(context, community, actionID))
+        {
+            foundCollection |= found.getID() == collection.getID();
+            foundOther |= found.getID() == other.getID();
+        }
+        assertEquals(message, onCollection, foundCollection);
+        assertEquals(message, onOther, foundOther);
+
+        assertEquals(message + " (policies)", onCollection,
+                AuthorizeManager.authorizeActionBoolean(context, collection, actionID));
+        assertEquals(message + " (policies)", onOther,
+                AuthorizeManager.authorizeActionBoolean(context, other, actionID));
+    }
+}
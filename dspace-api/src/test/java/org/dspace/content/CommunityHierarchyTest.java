@@ -0,0 +1,333 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+
+package org.dspace.content;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.dspace.AbstractUnitTest;
+import org.dspace.core.MockConfigurationManager;
+import org.dspace.storage.rdbms.DatabaseManager;
+import org.dspace.storage.rdbms.TableRowIterator;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Integration tests of {@link CommunityHierarchy} and of its consumer: the
+ * snapshot taken after each committed move must be the hierarchy read from
+ * the database.
+ * <p>
+ * The hierarchy of the tests:
+ * <pre>
+ *   A         B
+ *   |- c1     |- c3
+ *   `- A1
+ *      `- c2
+ * </pre>
+ */
+public class CommunityHierarchyTest extends AbstractUnitTest
+{
+    private Community a;
+
+    private Community a1;
+
+    private Community b;
+
+    private Collection c1;
+
+    private Collection c2;
+
+    private Collection c3;
+
+    @SuppressWarnings("ResultOfObjectAllocationIgnored")
+    @BeforeClass
+    public static void setUpClass()
+    {
+        // Initialize MockConfigurationManager, and tell it to load properties by default
+        new MockConfigurationManager(true);
+    }
+
+    @Before
+    @Override
+    public void init()
+    {
+        super.init();
+        try
+        {
+            context.turnOffAuthorisationSystem();
+            a = createCommunity(null, "CommunityHierarchyTest A");
+            a1 = createCommunity(a, "CommunityHierarchyTest A1");
+            b = createCommunity(null, "CommunityHierarchyTest B");
+            c1 = createCollection(a, "CommunityHierarchyTest c1");
+            c2 = createCollection(a1, "CommunityHierarchyTest c2");
+            c3 = createCollection(b, "CommunityHierarchyTest c3");
+            context.restoreAuthSystemState();
+            context.commit();
+        }
+        catch (Exception ex)
+        {
+            fail("Error in init: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * The snapshot of the initial hierarchy.
+     */
+    @Test
+    public void testSnapshot() throws Exception
+    {
+        CommunityHierarchy hierarchy = assertSnapshot("testSnapshot 0");
+        assertIDs("testSnapshot 1", hierarchy.getSubcommunityIDs(a.getID()), a1);
+        assertIDs("testSnapshot 2", hierarchy.getParentCommunityIDs(a1.getID()), a);
+        assertIDs("testSnapshot 3", hierarchy.getCommunityIDs(c2.getID()), a1, a);
+        assertIDs("testSnapshot 4", hierarchy.getAllCollectionIDs(a.getID()), c2, c1);
+        assertEquals("testSnapshot 5", "CommunityHierarchyTest A1",
+                hierarchy.getName(a1.getType(), a1.getID()));
+        assertEquals("testSnapshot 6", c3.getHandle(),
+                hierarchy.getHandle(c3.getType(), c3.getID()));
+        assertTrue("testSnapshot 7", contains(hierarchy.getTopCommunityIDs(), a.getID()));
+        assertFalse("testSnapshot 8", contains(hierarchy.getTopCommunityIDs(), a1.getID()));
+        assertSame("testSnapshot 9", hierarchy, CommunityHierarchy.getSnapshot(context));
+    }
+
+    /**
+     * A collection moved to another community, and mapped to a second one.
+     */
+    @Test
+    public void testMoveCollection() throws Exception
+    {
+        CommunityHierarchy before = assertSnapshot("testMoveCollection 0");
+
+        context.turnOffAuthorisationSystem();
+        b.addCollection(c2);
+        a1.removeCollection(c2);
+        context.restoreAuthSystemState();
+        // uncommitted: no snapshot, the database is read
+        assertNull("testMoveCollection 1", CommunityHierarchy.getSnapshot(context));
+        assertCollections("testMoveCollection 2", a.getAllCollections(), c1);
+        context.commit();
+
+        CommunityHierarchy hierarchy = assertSnapshot("testMoveCollection 3");
+        assertNotSame("testMoveCollection 4", before, hierarchy);
+        assertIDs("testMoveCollection 5", hierarchy.getOwningCommunityIDs(c2.getID()), b);
+        assertIDs("testMoveCollection 6", hierarchy.getCollectionIDs(a1.getID()));
+        assertIDs("testMoveCollection 7", hierarchy.getAllCollectionIDs(a.getID()), c1);
+        assertIDs("testMoveCollection 8", hierarchy.getAllCollectionIDs(b.getID()), c2, c3);
+        assertCollections("testMoveCollection 9", b.getAllCollections(), c2, c3);
+
+        // mapped to a second community
+        context.turnOffAuthorisationSystem();
+        a1.addCollection(c2);
+        context.restoreAuthSystemState();
+        context.commit();
+        hierarchy = assertSnapshot("testMoveCollection 10");
+        assertEquals("testMoveCollection 11", sorted(ids(new Community[] { b, a1, a })),
+                sorted(hierarchy.getCommunityIDs(c2.getID())));
+        assertIDs("testMoveCollection 12", hierarchy.getAllCollectionIDs(a.getID()), c2, c1);
+    }
+
+    /**
+     * A sub-community added, moved under another community, and removed.
+     */
+    @Test
+    public void testAddAndRemoveSubcommunity() throws Exception
+    {
+        assertSnapshot("testAddAndRemoveSubcommunity 0");
+
+        context.turnOffAuthorisationSystem();
+        Community a2 = createCommunity(a, "CommunityHierarchyTest A2");
+        Collection c4 = createCollection(a2, "CommunityHierarchyTest c4");
+        context.restoreAuthSystemState();
+        assertNull("testAddAndRemoveSubcommunity 1", CommunityHierarchy.getSnapshot(context));
+        context.commit();
+
+        CommunityHierarchy hierarchy = assertSnapshot("testAddAndRemoveSubcommunity 2", a2);
+        assertIDs("testAddAndRemoveSubcommunity 3", hierarchy.getSubcommunityIDs(a.getID()),
+                a1, a2);
+        assertIDs("testAddAndRemoveSubcommunity 4", hierarchy.getCommunityIDs(c4.getID()),
+                a2, a);
+        assertCommunities("testAddAndRemoveSubcommunity 5", a2.getAllParents(), a);
+
+        // A1 moved under B, with its collection
+        context.turnOffAuthorisationSystem();
+        b.addSubcommunity(a1);
+        a.removeSubcommunity(a1);
+        context.restoreAuthSystemState();
+        context.commit();
+        hierarchy = assertSnapshot("testAddAndRemoveSubcommunity 6", a2);
+        assertIDs("testAddAndRemoveSubcommunity 7", hierarchy.getSubcommunityIDs(a.getID()), a2);
+        assertIDs("testAddAndRemoveSubcommunity 8", hierarchy.getParentCommunityIDs(a1.getID()), b);
+        assertIDs("testAddAndRemoveSubcommunity 9", hierarchy.getCommunityIDs(c2.getID()), a1, b);
+        assertIDs("testAddAndRemoveSubcommunity 10", hierarchy.getAllCollectionIDs(b.getID()),
+                c2, c3);
+        assertCommunities("testAddAndRemoveSubcommunity 11", c2.getCommunities(), a1, b);
+        assertCommunities("testAddAndRemoveSubcommunity 12", a1.getAllParents(), b);
+
+        // A2 removed, with its collection
+        int a2ID = a2.getID();
+        int c4ID = c4.getID();
+        context.turnOffAuthorisationSystem();
+        a.removeSubcommunity(a2);
+        context.restoreAuthSystemState();
+        context.commit();
+        hierarchy = assertSnapshot("testAddAndRemoveSubcommunity 13");
+        assertFalse("testAddAndRemoveSubcommunity 14", hierarchy.contains(a.getType(), a2ID));
+        assertFalse("testAddAndRemoveSubcommunity 15", hierarchy.contains(c4.getType(), c4ID));
+        assertIDs("testAddAndRemoveSubcommunity 16", hierarchy.getSubcommunityIDs(a.getID()));
+        assertIDs("testAddAndRemoveSubcommunity 17", hierarchy.getAllCollectionIDs(a.getID()), c1);
+    }
+
+    /**
+     * A renamed collection is sorted again.
+     */
+    @Test
+    public void testRename() throws Exception
+    {
+        context.turnOffAuthorisationSystem();
+        Collection c0 = createCollection(b, "CommunityHierarchyTest c0");
+        context.restoreAuthSystemState();
+        context.commit();
+        assertIDs("testRename 0", assertSnapshot("testRename 1").getCollectionIDs(b.getID()),
+                c0, c3);
+
+        context.turnOffAuthorisationSystem();
+        c0.setMetadata("name", "CommunityHierarchyTest c9");
+        c0.update();
+        context.restoreAuthSystemState();
+        context.commit();
+        CommunityHierarchy hierarchy = assertSnapshot("testRename 2");
+        assertIDs("testRename 3", hierarchy.getCollectionIDs(b.getID()), c3, c0);
+        assertEquals("testRename 4", "CommunityHierarchyTest c9",
+                hierarchy.getName(c0.getType(), c0.getID()));
+    }
+
+    private Community createCommunity(Community parent, String name) throws Exception
+    {
+        Community community = parent == null ? Community.create(null, context)
+                : parent.createSubcommunity();
+        community.setMetadata("name", name);
+        community.update();
+        return community;
+    }
+
+    private Collection createCollection(Community parent, String name) throws Exception
+    {
+        Collection collection = parent.createCollection();
+        collection.setMetadata("name", name);
+        collection.update();
+        return collection;
+    }
+
+    /**
+     * Get the snapshot, and assert that it holds the hierarchy of the test
+     * communities as read from the database.
+     */
+    private CommunityHierarchy assertSnapshot(String message, Community... others)
+            throws SQLException
+    {
+        CommunityHierarchy hierarchy = CommunityHierarchy.getSnapshot(context);
+        assertNotNull(message + " snapshot", hierarchy);
+
+        List<Community> communities = new ArrayList<Community>(Arrays.asList(a, a1, b));
+        communities.addAll(Arrays.asList(others));
+        for (Community community : communities)
+        {
+            String path = message + " community " + community.getName();
+            assertIDs(path + " subcommunities",
+                    hierarchy.getSubcommunityIDs(community.getID()),
+                    community.getSubcommunities());
+            assertIDs(path + " collections",
+                    hierarchy.getCollectionIDs(community.getID()),
+                    community.getCollections());
+
+            List<Community> parents = new ArrayList<Community>();
+            for (Community parent = community.getParentCommunity(); parent != null;
+                    parent = parent.getParentCommunity())
+            {
+                parents.add(parent);
+            }
+            assertIDs(path + " parents", hierarchy.getParentCommunityIDs(community.getID()),
+                    parents.toArray(new DSpaceObject[parents.size()]));
+        }
+        for (Collection collection : new Collection[] { c1, c2, c3 })
+        {
+            List<Integer> owners = new ArrayList<Integer>();
+            TableRowIterator tri = DatabaseManager.query(context,
+                    "SELECT community_id FROM community2collection WHERE collection_id = ?",
+                    collection.getID());
+            try
+            {
+                while (tri.hasNext())
+                {
+                    owners.add(tri.next().getIntColumn("community_id"));
+                }
+            }
+            finally
+            {
+                tri.close();
+            }
+            Collections.sort(owners);
+            assertEquals(message + " collection " + collection.getName(), owners.toString(),
+                    sorted(hierarchy.getOwningCommunityIDs(collection.getID())));
+        }
+        return hierarchy;
+    }
+
+    private static void assertIDs(String message, int[] actual, DSpaceObject... expected)
+    {
+        assertEquals(message, Arrays.toString(ids(expected)), Arrays.toString(actual));
+    }
+
+    private static void assertCollections(String message, Collection[] actual,
+            Collection... expected)
+    {
+        assertEquals(message, Arrays.toString(ids(expected)), Arrays.toString(ids(actual)));
+    }
+
+    private static void assertCommunities(String message, Community[] actual,
+            Community... expected)
+    {
+        assertEquals(message, Arrays.toString(ids(expected)), Arrays.toString(ids(actual)));
+    }
+
+    private static int[] ids(DSpaceObject[] objects)
+    {
+        int[] ids = new int[objects.length];
+        for (int i = 0; i < objects.length; i++)
+        {
+            ids[i] = objects[i].getID();
+        }
+        return ids;
+    }
+
+    private static String sorted(int[] ids)
+    {
+        int[] copy = ids.clone();
+        Arrays.sort(copy);
+        return Arrays.toString(copy);
+    }
+
+    private static boolean contains(int[] ids, int id)
+    {
+        for (int candidate : ids)
+        {
+            if (candidate == id)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+}
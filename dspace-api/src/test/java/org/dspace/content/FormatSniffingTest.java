@@ -0,0 +1,96 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+
+package org.dspace.content;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullOutputStream;
+import org.dspace.core.MockConfigurationManager;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests of the recognition of formats from the first bytes of the
+ * bitstreams, see {@link FormatIdentifier#sniffFormat}.
+ */
+public class FormatSniffingTest
+{
+    @SuppressWarnings("ResultOfObjectAllocationIgnored")
+    @BeforeClass
+    public static void setUpClass()
+    {
+        // Initialize MockConfigurationManager and tell it to NOT load any properties
+        new MockConfigurationManager(false);
+    }
+
+    /**
+     * The signatures of the formats are recognised, at their offset.
+     */
+    @Test
+    public void testSniffMIMEType()
+    {
+        assertEquals("application/pdf", FormatIdentifier.sniffMIMEType(ascii("%PDF-1.4\n%...")));
+        assertEquals("image/png", FormatIdentifier.sniffMIMEType(
+                new byte[] { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n', 0, 0 }));
+        assertEquals("image/jpeg", FormatIdentifier.sniffMIMEType(
+                new byte[] { (byte) 0xff, (byte) 0xd8, (byte) 0xff, (byte) 0xe0 }));
+        assertEquals("image/gif", FormatIdentifier.sniffMIMEType(ascii("GIF89a")));
+        assertEquals("text/xml", FormatIdentifier.sniffMIMEType(ascii("<?xml version=\"1.0\"?>")));
+        assertEquals("audio/x-wav", FormatIdentifier.sniffMIMEType(ascii("RIFF....WAVEfmt ")));
+    }
+
+    /**
+     * Unknown, empty and truncated contents are not recognised.
+     */
+    @Test
+    public void testSniffUnknown()
+    {
+        assertNull(FormatIdentifier.sniffMIMEType(ascii("Hello world")));
+        assertNull(FormatIdentifier.sniffMIMEType(new byte[0]));
+        assertNull(FormatIdentifier.sniffMIMEType(null));
+        assertNull(FormatIdentifier.sniffMIMEType(ascii("%PD")));
+        assertNull(FormatIdentifier.sniffMIMEType(ascii("RIFF....WAV")));
+    }
+
+    /**
+     * The first bytes are kept whichever way the stream is read.
+     */
+    @Test
+    public void testSniffingInputStream() throws IOException
+    {
+        byte[] content = new byte[1000];
+        for (int i = 0; i < content.length; i++)
+        {
+            content[i] = (byte) i;
+        }
+
+        SniffingInputStream in = new SniffingInputStream(new ByteArrayInputStream(content));
+        assertEquals(0, in.read());
+        byte[] buffer = new byte[10];
+        assertEquals(10, in.read(buffer, 0, 10));
+        assertEquals(20, in.skip(20));
+        IOUtils.copy(in, new NullOutputStream());
+        assertArrayEquals(Arrays.copyOf(content, SniffingInputStream.HEADER_SIZE), in.getHeader());
+
+        SniffingInputStream shortIn = new SniffingInputStream(new ByteArrayInputStream(content, 0, 5));
+        IOUtils.copy(shortIn, new NullOutputStream());
+        assertArrayEquals(Arrays.copyOf(content, 5), shortIn.getHeader());
+    }
+
+    private static byte[] ascii(String s)
+    {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+}
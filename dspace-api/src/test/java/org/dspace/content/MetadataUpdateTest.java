@@ -0,0 +1,287 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+
+package org.dspace.content;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.dspace.AbstractUnitTest;
+import org.dspace.core.Constants;
+import org.dspace.core.MockConfigurationManager;
+import org.dspace.storage.rdbms.DatabaseManager;
+import org.dspace.storage.rdbms.TableRow;
+import org.dspace.storage.rdbms.TableRowIterator;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Integration tests of {@link DSpaceObject#updateMetadata()}: after an
+ * update mixing reordered, changed, removed and added values, the
+ * metadatavalue rows must hold the in-memory values, numbered from 1 in
+ * each field, and the rows of the values kept must not be rewritten.
+ */
+public class MetadataUpdateTest extends AbstractUnitTest
+{
+    private Item item;
+
+    @SuppressWarnings("ResultOfObjectAllocationIgnored")
+    @BeforeClass
+    public static void setUpClass()
+    {
+        // Initialize MockConfigurationManager, and tell it to load properties by default
+        new MockConfigurationManager(true);
+    }
+
+    @Before
+    @Override
+    public void init()
+    {
+        super.init();
+        try
+        {
+            context.turnOffAuthorisationSystem();
+            item = Item.create(context);
+            item.addMetadata("dc", "title", null, "en", "Original title");
+            item.addMetadata("dc", "creator", null, null, "Doe, Jane");
+            item.addMetadata("dc", "creator", null, null, "Roe, Richard");
+            item.addMetadata("dc", "creator", null, null, "Poe, Edgar");
+            item.addMetadata("dc", "description", null, null, "To be removed");
+            item.addMetadata("dc", "description", "abstract", "en", "Unchanged abstract");
+            item.update();
+            context.restoreAuthSystemState();
+            context.commit();
+        }
+        catch (Exception ex)
+        {
+            fail("Error in init: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * The initial values are stored in order.
+     */
+    @Test
+    public void testInsert() throws Exception
+    {
+        assertRows("testInsert 0",
+                "dc.title 1 Original title [en]",
+                "dc.creator 1 Doe, Jane",
+                "dc.creator 2 Roe, Richard",
+                "dc.creator 3 Poe, Edgar",
+                "dc.description 1 To be removed",
+                "dc.description.abstract 1 Unchanged abstract [en]");
+    }
+
+    /**
+     * Reordered, changed, removed and added values, in a single update.
+     */
+    @Test
+    public void testMixedChanges() throws Exception
+    {
+        Map<String, Integer> before = rowIDs();
+
+        item.clearMetadata("dc", "creator", null, Item.ANY);
+        item.addMetadata("dc", "creator", null, null, "Poe, Edgar");
+        item.addMetadata("dc", "creator", null, null, "Doe, Jane");
+        item.addMetadata("dc", "creator", null, null, "Roe, Richard");
+        item.clearMetadata("dc", "title", null, Item.ANY);
+        item.addMetadata("dc", "title", null, "it", "Titolo corretto");
+        item.clearMetadata("dc", "description", null, Item.ANY);
+        item.addMetadata("dc", "date", "issued", null, "2015");
+        item.addMetadata("dc", "creator", null, null, "Moe, Anna");
+        context.turnOffAuthorisationSystem();
+        item.update();
+        context.restoreAuthSystemState();
+        context.commit();
+
+        assertRows("testMixedChanges 0",
+                "dc.title 1 Titolo corretto [it]",
+                "dc.creator 1 Poe, Edgar",
+                "dc.creator 2 Doe, Jane",
+                "dc.creator 3 Roe, Richard",
+                "dc.creator 4 Moe, Anna",
+                "dc.description.abstract 1 Unchanged abstract [en]",
+                "dc.date.issued 1 2015");
+
+        // the rows of a field and place are rewritten in place, the others
+        // are deleted or inserted
+        Map<String, Integer> after = rowIDs();
+        assertEquals("testMixedChanges 1", before.get("dc.title 1"), after.get("dc.title 1"));
+        assertEquals("testMixedChanges 2", before.get("dc.creator 2"), after.get("dc.creator 2"));
+        assertEquals("testMixedChanges 3", before.get("dc.description.abstract 1"),
+                after.get("dc.description.abstract 1"));
+        assertFalse("testMixedChanges 4", after.containsKey("dc.description 1"));
+        assertFalse("testMixedChanges 5", before.containsValue(after.get("dc.creator 4")));
+        assertFalse("testMixedChanges 6", before.containsValue(after.get("dc.date.issued 1")));
+
+        // the stored values are read back in the same order
+        Item reloaded = reload();
+        assertValues("testMixedChanges 7", reloaded.getMetadata("dc", "creator", null, Item.ANY),
+                "Poe, Edgar", "Doe, Jane", "Roe, Richard", "Moe, Anna");
+        assertValues("testMixedChanges 8", reloaded.getMetadata("dc", "title", null, Item.ANY),
+                "Titolo corretto");
+        assertValues("testMixedChanges 9", reloaded.getMetadata("dc", "description", null, Item.ANY));
+    }
+
+    /**
+     * Removing a value in the middle of a field moves the next values up.
+     */
+    @Test
+    public void testRemoveMiddle() throws Exception
+    {
+        Map<String, Integer> before = rowIDs();
+
+        item.clearMetadata("dc", "creator", null, Item.ANY);
+        item.addMetadata("dc", "creator", null, null, "Doe, Jane");
+        item.addMetadata("dc", "creator", null, null, "Poe, Edgar");
+        context.turnOffAuthorisationSystem();
+        item.update();
+        context.restoreAuthSystemState();
+        context.commit();
+
+        assertRows("testRemoveMiddle 0",
+                "dc.title 1 Original title [en]",
+                "dc.creator 1 Doe, Jane",
+                "dc.creator 2 Poe, Edgar",
+                "dc.description 1 To be removed",
+                "dc.description.abstract 1 Unchanged abstract [en]");
+        Map<String, Integer> after = rowIDs();
+        assertEquals("testRemoveMiddle 1", before.get("dc.creator 1"), after.get("dc.creator 1"));
+        assertEquals("testRemoveMiddle 2", before.get("dc.creator 2"), after.get("dc.creator 2"));
+        assertFalse("testRemoveMiddle 3", after.containsKey("dc.creator 3"));
+        assertValues("testRemoveMiddle 4", reload().getMetadata("dc", "creator", null, Item.ANY),
+                "Doe, Jane", "Poe, Edgar");
+    }
+
+    /**
+     * An update without changes keeps all the rows, and a changed language
+     * is written in place.
+     */
+    @Test
+    public void testUnchangedAndAttributes() throws Exception
+    {
+        Map<String, Integer> before = rowIDs();
+        context.turnOffAuthorisationSystem();
+        item.update();
+        context.restoreAuthSystemState();
+        context.commit();
+        assertEquals("testUnchangedAndAttributes 0", before, rowIDs());
+
+        item.clearMetadata("dc", "description", "abstract", Item.ANY);
+        item.addMetadata("dc", "description", "abstract", "fr", "Unchanged abstract");
+        context.turnOffAuthorisationSystem();
+        item.update();
+        context.restoreAuthSystemState();
+        context.commit();
+        assertRows("testUnchangedAndAttributes 1",
+                "dc.title 1 Original title [en]",
+                "dc.creator 1 Doe, Jane",
+                "dc.creator 2 Roe, Richard",
+                "dc.creator 3 Poe, Edgar",
+                "dc.description 1 To be removed",
+                "dc.description.abstract 1 Unchanged abstract [fr]");
+        assertEquals("testUnchangedAndAttributes 2", before, rowIDs());
+    }
+
+    private Item reload() throws SQLException
+    {
+        item.decache();
+        return Item.find(context, item.getID());
+    }
+
+    /**
+     * Assert the metadatavalue rows of the item, in any order, as
+     * "field place value [lang] authority confidence".
+     */
+    private void assertRows(String message, String... expected) throws SQLException
+    {
+        List<String> rows = new ArrayList<String>();
+        for (TableRow row : readRows())
+        {
+            StringBuilder text = new StringBuilder(fieldName(row))
+                    .append(' ').append(row.getIntColumn("place"))
+                    .append(' ').append(row.getStringColumn("text_value"));
+            if (row.getStringColumn("text_lang") != null)
+            {
+                text.append(" [").append(row.getStringColumn("text_lang")).append(']');
+            }
+            if (row.getStringColumn("authority") != null)
+            {
+                text.append(' ').append(row.getStringColumn("authority"))
+                        .append(' ').append(row.getIntColumn("confidence"));
+            }
+            rows.add(text.toString());
+        }
+        List<String> sortedExpected = new ArrayList<String>(Arrays.asList(expected));
+        Collections.sort(sortedExpected);
+        Collections.sort(rows);
+        assertEquals(message, sortedExpected, rows);
+    }
+
+    /**
+     * The IDs of the metadatavalue rows of the item, by "field place".
+     */
+    private Map<String, Integer> rowIDs() throws SQLException
+    {
+        Map<String, Integer> ids = new HashMap<String, Integer>();
+        for (TableRow row : readRows())
+        {
+            Integer previous = ids.put(fieldName(row) + " " + row.getIntColumn("place"),
+                    row.getIntColumn("metadata_value_id"));
+            assertNull("duplicate place " + fieldName(row), previous);
+        }
+        return ids;
+    }
+
+    private List<TableRow> readRows() throws SQLException
+    {
+        List<TableRow> rows = new ArrayList<TableRow>();
+        TableRowIterator tri = DatabaseManager.queryTable(context, "MetadataValue",
+                "SELECT * FROM MetadataValue WHERE resource_id = ? AND resource_type_id = ?",
+                item.getID(), Constants.ITEM);
+        try
+        {
+            while (tri.hasNext())
+            {
+                rows.add(tri.next());
+            }
+        }
+        finally
+        {
+            tri.close();
+        }
+        return rows;
+    }
+
+    private String fieldName(TableRow row) throws SQLException
+    {
+        MetadataField field = MetadataField.find(context, row.getIntColumn("metadata_field_id"));
+        MetadataSchema schema = MetadataSchema.find(context, field.getSchemaID());
+        return schema.getName() + "." + field.getElement()
+                + (field.getQualifier() == null ? "" : "." + field.getQualifier());
+    }
+
+    private static void assertValues(String message, Metadatum[] values, String... expected)
+    {
+        List<String> actual = new ArrayList<String>();
+        for (Metadatum value : values)
+        {
+            actual.add(value.value);
+        }
+        assertEquals(message, Arrays.asList(expected), actual);
+    }
+}
@@ -0,0 +1,72 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+
+package org.dspace.content;
+
+import org.dspace.core.Constants;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests of {@link ObjectStamps}.
+ */
+public class ObjectStampsTest
+{
+    /**
+     * A change gives a new stamp to the object only.
+     */
+    @Test
+    public void testChanged()
+    {
+        String item = ObjectStamps.getStamp(Constants.ITEM, 1000001);
+        String other = ObjectStamps.getStamp(Constants.ITEM, 1000002);
+        String collection = ObjectStamps.getStamp(Constants.COLLECTION, 1000001);
+
+        ObjectStamps.changed(Constants.ITEM, 1000001);
+        assertFalse(item.equals(ObjectStamps.getStamp(Constants.ITEM, 1000001)));
+        assertEquals(other, ObjectStamps.getStamp(Constants.ITEM, 1000002));
+        assertEquals(collection, ObjectStamps.getStamp(Constants.COLLECTION, 1000001));
+
+        String changed = ObjectStamps.getStamp(Constants.ITEM, 1000001);
+        ObjectStamps.changed(Constants.ITEM, 1000001);
+        assertFalse(changed.equals(ObjectStamps.getStamp(Constants.ITEM, 1000001)));
+    }
+
+    /**
+     * A forgotten object never gets back the stamp it had before its last
+     * change.
+     */
+    @Test
+    public void testForgotten()
+    {
+        int type = Constants.EPERSON;
+        String initial = ObjectStamps.getStamp(type, 0);
+        String unchanged = ObjectStamps.getStamp(Constants.ITEM, 1000003);
+        ObjectStamps.changed(type, 0);
+
+        // the stamp of object 0 is the least recently used one
+        for (int id = 1; id <= ObjectStamps.MAX_STAMPS; id++)
+        {
+            ObjectStamps.changed(type, id);
+        }
+
+        String stamp = ObjectStamps.getStamp(type, 0);
+        assertFalse(initial.equals(stamp));
+        assertEquals(stamp, ObjectStamps.getStamp(type, 0));
+
+        // the objects of the other slots are not affected
+        assertEquals(unchanged, ObjectStamps.getStamp(Constants.ITEM, 1000003));
+
+        // the objects still stamped keep their stamps
+        String last = ObjectStamps.getStamp(type, ObjectStamps.MAX_STAMPS);
+        ObjectStamps.changed(type, 0);
+        assertEquals(last, ObjectStamps.getStamp(type, ObjectStamps.MAX_STAMPS));
+        assertFalse(stamp.equals(ObjectStamps.getStamp(type, 0)));
+    }
+}
@@ -0,0 +1,80 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.content.authority;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.BitSet;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.xml.sax.InputSource;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link ControlledVocabularyIndex}.
+ */
+public class ControlledVocabularyIndexTest
+{
+    private static final String VOCABULARY = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+            + "<node id=\"root\" label=\"Subjects\"><isComposedBy>"
+            + "<node id=\"rel\" label=\"Religion/Theology\"><isComposedBy>"
+            + "<node id=\"hist\" label=\"History of religion\"/>"
+            + "<node label=\"\u00c9glise et \u00c9tat\"/>"
+            + "</isComposedBy></node>"
+            + "<node label=\"History\"/>"
+            + "</isComposedBy></node>";
+
+    private static ControlledVocabularyIndex index;
+
+    @BeforeClass
+    public static void setUpClass() throws IOException
+    {
+        index = ControlledVocabularyIndex.load(new InputSource(new StringReader(VOCABULARY)), "::", 0L);
+    }
+
+    /**
+     * Test of the labels built when reading the vocabulary.
+     */
+    @Test
+    public void testLoad()
+    {
+        assertEquals(5, index.size());
+        assertEquals("Subjects::Religion/Theology::History of religion", index.getHierarchy(2));
+        assertEquals("History of religion", index.getLabel(2));
+        assertEquals(2, index.getPosition("hist"));
+        assertEquals(-1, index.getPosition("missing"));
+        assertNull(index.getId(3));
+    }
+
+    /**
+     * Test of find method, of class ControlledVocabularyIndex.
+     */
+    @Test
+    public void testFind()
+    {
+        assertEquals(bits(2, 4), index.find("HIST"));
+        assertEquals(bits(2), index.find("hist relig"));
+        assertEquals(bits(1), index.find("theology"));
+        assertEquals(bits(3), index.find("eglise etat"));
+        assertEquals(bits(), index.find("story"));
+        assertEquals(bits(0, 1, 2, 3, 4), index.find("  "));
+        assertEquals(bits(0, 1, 2, 3, 4), index.find(null));
+    }
+
+    private static BitSet bits(int... positions)
+    {
+        BitSet bits = new BitSet();
+        for (int position : positions)
+        {
+            bits.set(position);
+        }
+        return bits;
+    }
+}
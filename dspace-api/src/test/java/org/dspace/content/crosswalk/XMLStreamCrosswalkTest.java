@@ -0,0 +1,194 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+
+package org.dspace.content.crosswalk;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.dspace.AbstractUnitTest;
+import org.dspace.content.Collection;
+import org.dspace.content.Community;
+import org.dspace.content.InstallItem;
+import org.dspace.content.Item;
+import org.dspace.content.WorkspaceItem;
+import org.dspace.core.MockConfigurationManager;
+import org.dspace.core.PluginManager;
+import org.jdom.Attribute;
+import org.jdom.Document;
+import org.jdom.Element;
+import org.jdom.input.SAXBuilder;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Integration tests of the streaming crosswalks
+ * ({@link XMLStreamDisseminationCrosswalk}): their StAX output must be the
+ * XML of the JDOM elements the same crosswalk returns.  Namespace
+ * declarations may be placed differently, so the elements are compared by
+ * their names, attributes and text.
+ */
+public class XMLStreamCrosswalkTest extends AbstractUnitTest
+{
+    private Item item;
+
+    @SuppressWarnings("ResultOfObjectAllocationIgnored")
+    @BeforeClass
+    public static void setUpClass()
+    {
+        // Initialize MockConfigurationManager, and tell it to load properties by default
+        new MockConfigurationManager(true);
+    }
+
+    @Before
+    @Override
+    public void init()
+    {
+        super.init();
+        try
+        {
+            context.turnOffAuthorisationSystem();
+            Community community = Community.create(null, context);
+            Collection collection = community.createCollection();
+            WorkspaceItem wsItem = WorkspaceItem.create(context, collection, false);
+            item = InstallItem.installItem(context, wsItem);
+            item.addMetadata("dc", "title", null, "en", "Streaming & <crosswalks>");
+            item.addMetadata("dc", "creator", null, null, "Doe, Jane");
+            item.addMetadata("dc", "creator", null, null, "Müller, Jürgen");
+            item.addMetadata("dc", "creator", null, null, "Ωμέγα, Ἄλφα");
+            item.addMetadata("dc", "date", "issued", null, "2014-03-01");
+            item.addMetadata("dc", "description", "abstract", "en",
+                    "First line\nsecond line with \"quotes\" and 'apostrophes' > 1");
+            item.addMetadata("dc", "type", null, null, "Book");
+            item.addMetadata("dc", "description", null, null, "StAX");
+            item.addMetadata("dc", "identifier", "uri", null, "http://example.org/item?a=1&b=2");
+            item.addMetadata("dc", "type", null, null, "Article");
+            item.update();
+            context.restoreAuthSystemState();
+            context.commit();
+        }
+        catch (Exception ex)
+        {
+            fail("Error in init: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * The DIM crosswalk gives the same element and list with both APIs.
+     */
+    @Test
+    public void testDIM() throws Exception
+    {
+        assertEquivalent("testDIM", "dim");
+    }
+
+    /**
+     * The QDC crosswalk gives the same element and list with both APIs.
+     */
+    @Test
+    public void testQDC() throws Exception
+    {
+        assertEquivalent("testQDC", "QDC");
+    }
+
+    /**
+     * The MODS crosswalk gives the same element and list with both APIs.
+     */
+    @Test
+    public void testMODS() throws Exception
+    {
+        assertEquivalent("testMODS", "MODS");
+    }
+
+    /**
+     * A crosswalk without the streaming methods is serialized from its JDOM
+     * result.
+     */
+    @Test
+    public void testJDOMFallback() throws Exception
+    {
+        DisseminationCrosswalk xwalk = (DisseminationCrosswalk)
+                PluginManager.getNamedPlugin(DisseminationCrosswalk.class, "dc");
+        assertFalse("testJDOMFallback 0", xwalk instanceof XMLStreamDisseminationCrosswalk);
+        assertEquivalent("testJDOMFallback", "dc");
+    }
+
+    private void assertEquivalent(String message, String name) throws Exception
+    {
+        DisseminationCrosswalk xwalk = (DisseminationCrosswalk)
+                PluginManager.getNamedPlugin(DisseminationCrosswalk.class, name);
+        assertNotNull(message + " crosswalk", xwalk);
+
+        // the root element form, as a whole document
+        Element expected = xwalk.disseminateElement(item);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        XMLStreamCrosswalkUtils.disseminate(xwalk, item, out);
+        Document document = new SAXBuilder().build(
+                new ByteArrayInputStream(out.toByteArray()));
+        assertElement(message + " element", expected, document.getRootElement());
+
+        // the list form, as a fragment
+        List<Element> expectedList = xwalk.disseminateList(item);
+        String fragment = XMLStreamCrosswalkUtils.disseminateToString(xwalk, item, true);
+        Element wrapper = new SAXBuilder().build(
+                new StringReader("<wrapper>" + fragment + "</wrapper>")).getRootElement();
+        List<Element> list = elements(wrapper);
+        assertEquals(message + " list size", expectedList.size(), list.size());
+        assertFalse(message + " list empty", list.isEmpty());
+        for (int i = 0; i < list.size(); i++)
+        {
+            assertElement(message + " list " + i, expectedList.get(i), list.get(i));
+        }
+    }
+
+    private static void assertElement(String message, Element expected, Element actual)
+    {
+        String path = message + " /" + expected.getQualifiedName();
+        assertEquals(path + " name", expected.getName(), actual.getName());
+        assertEquals(path + " namespace", expected.getNamespaceURI(), actual.getNamespaceURI());
+        assertEquals(path + " attributes", attributes(expected), attributes(actual));
+        assertEquals(path + " text", expected.getText(), actual.getText());
+
+        List<Element> expectedChildren = elements(expected);
+        List<Element> children = elements(actual);
+        assertEquals(path + " children", expectedChildren.size(), children.size());
+        for (int i = 0; i < children.size(); i++)
+        {
+            assertElement(path + "[" + i + "]", expectedChildren.get(i), children.get(i));
+        }
+    }
+
+    private static Map<String, String> attributes(Element element)
+    {
+        Map<String, String> attributes = new HashMap<String, String>();
+        for (Object attribute : element.getAttributes())
+        {
+            Attribute a = (Attribute) attribute;
+            attributes.put("{" + a.getNamespaceURI() + "}" + a.getName(), a.getValue());
+        }
+        return attributes;
+    }
+
+    private static List<Element> elements(Element parent)
+    {
+        List<Element> elements = new ArrayList<Element>();
+        for (Object child : parent.getChildren())
+        {
+            elements.add((Element) child);
+        }
+        return elements;
+    }
+}
@@ -0,0 +1,307 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+
+package org.dspace.eperson;
+
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.dspace.AbstractUnitTest;
+import org.dspace.authorize.AuthorizeException;
+import org.dspace.core.MockConfigurationManager;
+import org.dspace.storage.rdbms.DatabaseManager;
+import org.dspace.storage.rdbms.TableRow;
+import org.dspace.storage.rdbms.TableRowIterator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Integration tests of the incremental maintenance of the group2groupcache
+ * table (see <code>Group.update()</code>), and of its in-memory copy
+ * ({@link GroupClosureIndex}).  After each change, the cache must hold the
+ * transitive closure of group2group, as a full rebuild would compute it.
+ * <p>
+ * The groups of the tests form a diamond:
+ * <pre>
+ *       a
+ *      / \
+ *     b   c
+ *      \ /
+ *       d
+ *       |
+ *       e
+ * </pre>
+ */
+public class GroupClosureIntegrationTest extends AbstractUnitTest
+{
+    private Group a;
+
+    private Group b;
+
+    private Group c;
+
+    private Group d;
+
+    private Group e;
+
+    @SuppressWarnings("ResultOfObjectAllocationIgnored")
+    @BeforeClass
+    public static void setUpClass()
+    {
+        // Initialize MockConfigurationManager, and tell it to load properties by default
+        new MockConfigurationManager(true);
+    }
+
+    @Before
+    @Override
+    public void init()
+    {
+        super.init();
+        try
+        {
+            context.turnOffAuthorisationSystem();
+            a = createGroup("a");
+            b = createGroup("b");
+            c = createGroup("c");
+            d = createGroup("d");
+            e = createGroup("e");
+            context.commit();
+        }
+        catch (Exception ex)
+        {
+            fail("Error in init: " + ex.getMessage());
+        }
+    }
+
+    @After
+    @Override
+    public void destroy()
+    {
+        MockConfigurationManager.setProperty("group.closure.cache.enabled", "false");
+        GroupClosureIndex.invalidate();
+        super.destroy();
+    }
+
+    /**
+     * Edges added from the top or from the bottom of the hierarchy give the
+     * same closure.
+     */
+    @Test
+    public void testAddEdges() throws Exception
+    {
+        // from the top: the descendants are not known yet
+        addMember(a, b);
+        addMember(a, c);
+        assertClosure("testAddEdges 0");
+        addMember(b, d);
+        assertClosure("testAddEdges 1");
+        addMember(c, d);
+        assertClosure("testAddEdges 2");
+        addMember(d, e);
+        assertClosure("testAddEdges 3");
+        assertCached("testAddEdges 4", a, b, c, d, e);
+        assertCached("testAddEdges 5", c, d, e);
+
+        // from the bottom: the ancestors are updated too
+        Group f = createGroup("f");
+        Group g = createGroup("g");
+        addMember(f, g);
+        addMember(e, f);
+        assertClosure("testAddEdges 6");
+        assertCached("testAddEdges 7", a, b, c, d, e, f, g);
+        assertCached("testAddEdges 8", b, d, e, f, g);
+    }
+
+    /**
+     * Removing one of two paths keeps the descendants reachable through the
+     * other one.
+     */
+    @Test
+    public void testRemoveEdges() throws Exception
+    {
+        buildDiamond();
+
+        removeMember(b, d);
+        assertClosure("testRemoveEdges 0");
+        assertCached("testRemoveEdges 1", a, b, c, d, e);
+        assertCached("testRemoveEdges 2", b);
+
+        removeMember(c, d);
+        assertClosure("testRemoveEdges 3");
+        assertCached("testRemoveEdges 4", a, b, c);
+        assertCached("testRemoveEdges 5", d, e);
+
+        addMember(b, d);
+        assertClosure("testRemoveEdges 6");
+        assertCached("testRemoveEdges 7", a, b, c, d, e);
+    }
+
+    /**
+     * Several changes of the same group in one update, and the deletion of a
+     * group in the middle of the hierarchy.
+     */
+    @Test
+    public void testChangesAndDelete() throws Exception
+    {
+        buildDiamond();
+
+        // c loses d and gets e directly, in a single update
+        c.removeMember(d);
+        c.addMember(e);
+        c.update();
+        context.commit();
+        assertClosure("testChangesAndDelete 0");
+        assertCached("testChangesAndDelete 1", c, e);
+
+        b.delete();
+        context.commit();
+        assertClosure("testChangesAndDelete 2");
+        assertCached("testChangesAndDelete 3", a, c, e);
+    }
+
+    /**
+     * The in-memory copy of the cache follows the committed changes.
+     */
+    @Test
+    public void testIndex() throws Exception
+    {
+        MockConfigurationManager.setProperty("group.closure.cache.enabled", "true");
+        GroupClosureIndex.invalidate();
+        buildDiamond();
+        e.addMember(eperson);
+        e.update();
+        context.commit();
+
+        assertTrue("testIndex 0", Group.isMember(context, eperson, a.getID()));
+        assertTrue("testIndex 1", Group.isMember(context, eperson, b.getID()));
+
+        removeMember(b, d);
+        assertTrue("testIndex 2", Group.isMember(context, eperson, a.getID()));
+        assertFalse("testIndex 3", Group.isMember(context, eperson, b.getID()));
+
+        // an uncommitted change is seen by its own context
+        c.removeMember(d);
+        c.update();
+        assertFalse("testIndex 4", Group.isMember(context, eperson, a.getID()));
+        context.commit();
+        assertFalse("testIndex 5", Group.isMember(context, eperson, a.getID()));
+        assertTrue("testIndex 6", Group.isMember(context, eperson, d.getID()));
+    }
+
+    private void buildDiamond() throws SQLException, AuthorizeException
+    {
+        addMember(a, b);
+        addMember(a, c);
+        addMember(b, d);
+        addMember(c, d);
+        addMember(d, e);
+        assertClosure("buildDiamond");
+    }
+
+    private Group createGroup(String name) throws SQLException, AuthorizeException
+    {
+        Group group = Group.create(context);
+        group.setName("GroupClosureIntegrationTest " + name + " " + group.getID());
+        group.update();
+        return group;
+    }
+
+    private void addMember(Group parent, Group child) throws SQLException, AuthorizeException
+    {
+        parent.addMember(child);
+        parent.update();
+        context.commit();
+    }
+
+    private void removeMember(Group parent, Group child) throws SQLException, AuthorizeException
+    {
+        parent.removeMember(child);
+        parent.update();
+        context.commit();
+    }
+
+    /**
+     * Assert that the descendants of a group in group2groupcache are exactly
+     * the given groups.
+     */
+    private void assertCached(String message, Group parent, Group... descendants)
+            throws SQLException
+    {
+        Set<Integer> expected = new HashSet<Integer>();
+        for (Group descendant : descendants)
+        {
+            if (descendant != parent)
+            {
+                expected.add(descendant.getID());
+            }
+        }
+        Set<Integer> cached = read("group2groupcache").get(parent.getID());
+        assertEquals(message, expected, cached == null ? new HashSet<Integer>() : cached);
+    }
+
+    /**
+     * Assert that group2groupcache is the transitive closure of group2group,
+     * computed from scratch.
+     */
+    private void assertClosure(String message) throws SQLException
+    {
+        Map<Integer, Set<Integer>> children = read("group2group");
+        Map<Integer, Set<Integer>> expected = new HashMap<Integer, Set<Integer>>();
+        for (Integer parent : children.keySet())
+        {
+            Set<Integer> descendants = new HashSet<Integer>();
+            Set<Integer> toVisit = new HashSet<Integer>(children.get(parent));
+            while (!toVisit.isEmpty())
+            {
+                Integer child = toVisit.iterator().next();
+                toVisit.remove(child);
+                if (descendants.add(child) && children.containsKey(child))
+                {
+                    toVisit.addAll(children.get(child));
+                }
+            }
+            if (!descendants.isEmpty())
+            {
+                expected.put(parent, descendants);
+            }
+        }
+        assertEquals(message, expected, read("group2groupcache"));
+    }
+
+    private Map<Integer, Set<Integer>> read(String table) throws SQLException
+    {
+        Map<Integer, Set<Integer>> pairs = new HashMap<Integer, Set<Integer>>();
+        TableRowIterator rows = DatabaseManager.queryTable(context, table,
+                "SELECT * FROM " + table);
+        try
+        {
+            while (rows.hasNext())
+            {
+                TableRow row = rows.next();
+                Integer parent = row.getIntColumn("parent_id");
+                if (!pairs.containsKey(parent))
+                {
+                    pairs.put(parent, new HashSet<Integer>());
+                }
+                pairs.get(parent).add(row.getIntColumn("child_id"));
+            }
+        }
+        finally
+        {
+            rows.close();
+        }
+        return pairs;
+    }
+}
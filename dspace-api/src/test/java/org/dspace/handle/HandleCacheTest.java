@@ -0,0 +1,184 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.handle;
+
+import org.dspace.AbstractUnitTest;
+import org.dspace.content.Collection;
+import org.dspace.content.Community;
+import org.dspace.content.DSpaceObject;
+import org.dspace.content.InstallItem;
+import org.dspace.content.Item;
+import org.dspace.content.WorkspaceItem;
+import org.dspace.core.Constants;
+import org.dspace.core.Context;
+import org.dspace.core.MockConfigurationManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link HandleCache}: the packing of objects, and the resolution
+ * of handles changed by a context, seen from another context before and
+ * after the commit or abort.
+ */
+public class HandleCacheTest extends AbstractUnitTest
+{
+    private Collection collection;
+
+    private Item item1;
+
+    private Item item2;
+
+    /** a second context, as another request resolving the handles */
+    private Context other;
+
+    @SuppressWarnings("ResultOfObjectAllocationIgnored")
+    @BeforeClass
+    public static void setUpClass()
+    {
+        // Initialize MockConfigurationManager, and tell it to load properties by default
+        new MockConfigurationManager(true);
+    }
+
+    @Before
+    @Override
+    public void init()
+    {
+        super.init();
+        try
+        {
+            context.turnOffAuthorisationSystem();
+            Community community = Community.create(null, context);
+            collection = community.createCollection();
+            item1 = install(context);
+            item2 = install(context);
+            context.restoreAuthSystemState();
+            context.commit();
+            other = new Context();
+        }
+        catch (Exception ex)
+        {
+            fail("Error in init: " + ex.getMessage());
+        }
+    }
+
+    @After
+    @Override
+    public void destroy()
+    {
+        if (other != null && other.isValid())
+        {
+            other.abort();
+        }
+        super.destroy();
+    }
+
+    @Test
+    public void testKey()
+    {
+        long key = HandleCache.key(Constants.ITEM, 123456);
+        assertEquals(Constants.ITEM, HandleCache.type(key));
+        assertEquals(123456, HandleCache.id(key));
+
+        key = HandleCache.key(Constants.COLLECTION, Integer.MAX_VALUE);
+        assertEquals(Constants.COLLECTION, HandleCache.type(key));
+        assertEquals(Integer.MAX_VALUE, HandleCache.id(key));
+
+        assertFalse(HandleCache.key(Constants.ITEM, 1) == HandleCache.key(Constants.COLLECTION, 1));
+    }
+
+    @Test
+    public void testUnbound()
+    {
+        assertEquals(-1, HandleCache.type(HandleCache.UNBOUND));
+        assertEquals(-1, HandleCache.id(HandleCache.UNBOUND));
+        assertFalse(HandleCache.UNBOUND == HandleCache.key(Constants.ITEM, 0));
+    }
+
+    @Test
+    public void testIsVersionHandle()
+    {
+        assertTrue(HandleManager.isVersionHandle("123456789/100.2"));
+        assertFalse(HandleManager.isVersionHandle("123456789/100"));
+        assertFalse(HandleManager.isVersionHandle("10.1234/100"));
+    }
+
+    /**
+     * A handle moved to another object: the other context resolves it to
+     * the committed object until the commit, then to the new one, even if
+     * it cached the old one meanwhile.
+     */
+    @Test
+    public void testRebind() throws Exception
+    {
+        String handle = item1.getHandle();
+        assertNotNull("testRebind 0", handle);
+        assertResolves("testRebind 1", other, handle, item1);
+        assertEquals("testRebind 2", handle, HandleManager.findHandle(other, item1));
+
+        context.turnOffAuthorisationSystem();
+        HandleManager.unbindHandle(context, item1);
+        HandleManager.createHandle(context, item2, handle);
+        context.restoreAuthSystemState();
+
+        // the changing context sees its changes, the other one the committed
+        // mapping, which it caches again
+        assertResolves("testRebind 3", context, handle, item2);
+        assertNull("testRebind 4", HandleManager.findHandle(context, item1));
+        assertResolves("testRebind 5", other, handle, item1);
+        assertEquals("testRebind 6", handle, HandleManager.findHandle(other, item1));
+
+        context.commit();
+        assertResolves("testRebind 7", other, handle, item2);
+        assertNull("testRebind 8", HandleManager.findHandle(other, item1));
+        // and the cache is used again by the committed context
+        assertResolves("testRebind 9", context, handle, item2);
+    }
+
+    /**
+     * The handle of an item installed by an aborted context is not resolved
+     * afterwards, though it was resolved before the abort.
+     */
+    @Test
+    public void testAbort() throws Exception
+    {
+        Context aborted = new Context();
+        aborted.turnOffAuthorisationSystem();
+        Item item = install(aborted);
+        String handle = item.getHandle();
+        assertNotNull("testAbort 0", handle);
+        assertResolves("testAbort 1", aborted, handle, item);
+        assertEquals("testAbort 2", handle, HandleManager.findHandle(aborted, item));
+        assertNotNull("testAbort 3", HandleManager.resolveToURL(aborted, handle));
+        aborted.abort();
+
+        assertNull("testAbort 4", HandleManager.resolveToURL(other, handle));
+        assertNull("testAbort 5", HandleManager.resolveUrlToHandle(other, handle));
+        assertNull("testAbort 6", HandleManager.resolveToObject(other, handle));
+        // the committed handles are still resolved
+        assertResolves("testAbort 7", other, item1.getHandle(), item1);
+    }
+
+    private Item install(Context c) throws Exception
+    {
+        Collection owner = Collection.find(c, collection.getID());
+        WorkspaceItem wsItem = WorkspaceItem.create(c, owner, false);
+        return InstallItem.installItem(c, wsItem);
+    }
+
+    private static void assertResolves(String message, Context c, String handle,
+            Item expected) throws Exception
+    {
+        DSpaceObject dso = HandleManager.resolveToObject(c, handle);
+        assertNotNull(message, dso);
+        assertEquals(message, expected.getID(), dso.getID());
+    }
+}
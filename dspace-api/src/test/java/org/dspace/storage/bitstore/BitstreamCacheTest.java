@@ -0,0 +1,183 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+
+package org.dspace.storage.bitstore;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.dspace.core.MockConfigurationManager;
+import org.dspace.core.Utils;
+import org.dspace.storage.rdbms.TableRow;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import edu.sdsc.grid.io.local.LocalFile;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests of {@link BitstreamCache}, with an asset store and a cache in
+ * two temporary directories.
+ */
+public class BitstreamCacheTest
+{
+    private File store;
+
+    private File cacheDir;
+
+    @SuppressWarnings("ResultOfObjectAllocationIgnored")
+    @BeforeClass
+    public static void setUpClass()
+    {
+        // Initialize MockConfigurationManager and tell it to NOT load any properties
+        new MockConfigurationManager(false);
+    }
+
+    @Before
+    public void setUp() throws IOException
+    {
+        store = Files.createTempDirectory("assetstore").toFile();
+        cacheDir = Files.createTempDirectory("assetstore-cache").toFile();
+    }
+
+    @After
+    public void tearDown() throws IOException
+    {
+        FileUtils.deleteDirectory(store);
+        FileUtils.deleteDirectory(cacheDir);
+    }
+
+    /**
+     * A bitstream read to the end is read from the cache the next time.
+     */
+    @Test
+    public void testReadThrough() throws Exception
+    {
+        BitstreamCache cache = new BitstreamCache(cacheDir, 1000, 1);
+        TableRow bitstream = store("1234567890", bytes(100, 1), null);
+
+        assertArrayEquals(bytes(100, 1), read(cache.retrieve(bitstream, file("1234567890"))));
+        assertEquals(0, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getFillCount());
+        assertEquals(100, cache.getSize());
+
+        // the asset store is not read any more
+        assertTrue(new File(store, "1234567890").delete());
+        assertArrayEquals(bytes(100, 1), read(cache.retrieve(bitstream, file("1234567890"))));
+        assertEquals(1, cache.getHitCount());
+
+        // the cached bitstreams are found again after a restart
+        BitstreamCache restarted = new BitstreamCache(cacheDir, 1000, 1);
+        assertEquals(1, restarted.getEntryCount());
+        assertArrayEquals(bytes(100, 1), read(restarted.retrieve(bitstream, file("1234567890"))));
+        assertEquals(1, restarted.getHitCount());
+    }
+
+    /**
+     * A copy which does not have the checksum of the bitstream is not cached,
+     * nor a bitstream which is not read to the end.
+     */
+    @Test
+    public void testNotCached() throws Exception
+    {
+        BitstreamCache cache = new BitstreamCache(cacheDir, 1000, 1);
+        TableRow corrupt = store("1234567890", bytes(100, 1), bytes(100, 2));
+
+        assertArrayEquals(bytes(100, 1), read(cache.retrieve(corrupt, file("1234567890"))));
+        assertEquals(1, cache.getChecksumFailureCount());
+        assertEquals(0, cache.getEntryCount());
+
+        TableRow partial = store("2234567890", bytes(100, 3), null);
+        InputStream in = cache.retrieve(partial, file("2234567890"));
+        assertEquals(3, in.read());
+        in.close();
+        assertEquals(0, cache.getEntryCount());
+        assertEquals(0, cache.getFillCount());
+
+        // nothing is left behind in the cache directory
+        assertEquals(0, FileUtils.listFiles(cacheDir, null, true).size());
+    }
+
+    /**
+     * The least recently read bitstreams are dropped to stay below the
+     * maximum size.
+     */
+    @Test
+    public void testEviction() throws Exception
+    {
+        BitstreamCache cache = new BitstreamCache(cacheDir, 250, 1);
+        TableRow first = store("1234567890", bytes(100, 1), null);
+        TableRow second = store("2234567890", bytes(100, 2), null);
+        TableRow third = store("3234567890", bytes(100, 3), null);
+
+        read(cache.retrieve(first, file("1234567890")));
+        read(cache.retrieve(second, file("2234567890")));
+        // first is now more recent than second
+        read(cache.retrieve(first, file("1234567890")));
+        read(cache.retrieve(third, file("3234567890")));
+
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(2, cache.getEntryCount());
+        assertEquals(200, cache.getSize());
+
+        read(cache.retrieve(first, file("1234567890")));
+        read(cache.retrieve(second, file("2234567890")));
+        assertEquals(2, cache.getHitCount());
+        assertEquals(4, cache.getMissCount());
+    }
+
+    // Write the bits of a bitstream to the asset store, and return its row
+    // with the checksum of the expected bits (the stored ones if null)
+    private TableRow store(String internalId, byte[] stored, byte[] expected) throws Exception
+    {
+        FileUtils.writeByteArrayToFile(new File(store, internalId), stored);
+
+        TableRow row = new TableRow("bitstream", Arrays.asList("internal_id",
+                "size_bytes", "checksum", "checksum_algorithm"));
+        row.setColumn("internal_id", internalId);
+        row.setColumn("size_bytes", (long) stored.length);
+        MessageDigest md5 = MessageDigest.getInstance("MD5");
+        row.setColumn("checksum", Utils.toHex(md5.digest(expected != null ? expected : stored)));
+        row.setColumn("checksum_algorithm", "MD5");
+        return row;
+    }
+
+    private LocalFile file(String internalId)
+    {
+        return new LocalFile(new File(store, internalId));
+    }
+
+    private static byte[] bytes(int length, int value)
+    {
+        byte[] bytes = new byte[length];
+        Arrays.fill(bytes, (byte) value);
+        return bytes;
+    }
+
+    private static byte[] read(InputStream in) throws IOException
+    {
+        try
+        {
+            return IOUtils.toByteArray(in);
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+
+package org.dspace.storage.bitstore;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.dspace.AbstractUnitTest;
+import org.dspace.core.MockConfigurationManager;
+import org.dspace.storage.rdbms.DatabaseManager;
+import org.dspace.storage.rdbms.TableRow;
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Integration tests of {@link BitstreamCleanup}: the deletion of the
+ * bitstreams marked deleted, by ranges of IDs, and of the shared files no
+ * longer referenced.
+ */
+public class BitstreamCleanupTest extends AbstractUnitTest
+{
+    @SuppressWarnings("ResultOfObjectAllocationIgnored")
+    @BeforeClass
+    public static void setUpClass()
+    {
+        // Initialize MockConfigurationManager, and tell it to load properties by default
+        new MockConfigurationManager(true);
+    }
+
+    @After
+    @Override
+    public void destroy()
+    {
+        MockConfigurationManager.setProperty("assetstore.content-addressed", "false");
+        super.destroy();
+    }
+
+    /**
+     * The deleted bitstreams of several ranges are deleted with their files,
+     * except the files still used by another bitstream and the recent ones.
+     */
+    @Test
+    public void testCleanupRanges() throws Exception
+    {
+        List<Integer> deleted = new ArrayList<Integer>();
+        List<File> deletedFiles = new ArrayList<File>();
+        for (int i = 0; i < 7; i++)
+        {
+            int id = store();
+            deleted.add(id);
+            deletedFiles.add(getFile(id));
+        }
+        int kept = store();
+        int original = store();
+        int clone = BitstreamStorageManager.clone(context, original);
+        int recent = store();
+        context.commit();
+        for (int id : new int[] { kept, original, recent })
+        {
+            age(getFile(id));
+        }
+        for (File file : deletedFiles)
+        {
+            age(file);
+        }
+        File recentFile = getFile(recent);
+        recentFile.setLastModified(System.currentTimeMillis());
+
+        for (int id : deleted)
+        {
+            BitstreamStorageManager.delete(context, id);
+        }
+        BitstreamStorageManager.delete(context, original);
+        BitstreamStorageManager.delete(context, recent);
+        context.commit();
+
+        // two threads, and ranges of 3 IDs
+        BitstreamStorageManager.cleanup(true, false, 2, 3);
+
+        for (int i = 0; i < deleted.size(); i++)
+        {
+            assertNull("testCleanupRanges 0", DatabaseManager.find(context, "bitstream", deleted.get(i)));
+            assertFalse("testCleanupRanges 1", deletedFiles.get(i).exists());
+        }
+        assertNotNull("testCleanupRanges 2", DatabaseManager.find(context, "bitstream", kept));
+        assertTrue("testCleanupRanges 3", getFile(kept).exists());
+
+        // the file of the clone is kept, the row of the original is not
+        assertNull("testCleanupRanges 4", DatabaseManager.find(context, "bitstream", original));
+        assertTrue("testCleanupRanges 5", getFile(clone).exists());
+
+        // the recent file is kept, with its row, until the next run
+        assertNotNull("testCleanupRanges 6", DatabaseManager.find(context, "bitstream", recent));
+        assertTrue("testCleanupRanges 7", recentFile.exists());
+        age(recentFile);
+        BitstreamStorageManager.cleanup(true, false, 2, 3);
+        assertNull("testCleanupRanges 8", DatabaseManager.find(context, "bitstream", recent));
+        assertFalse("testCleanupRanges 9", recentFile.exists());
+    }
+
+    /**
+     * Without deleting the database records, only the files are deleted.
+     */
+    @Test
+    public void testCleanupFilesOnly() throws Exception
+    {
+        int id = store();
+        context.commit();
+        File file = getFile(id);
+        age(file);
+        BitstreamStorageManager.delete(context, id);
+        context.commit();
+
+        BitstreamStorageManager.cleanup(false, false, 2, 3);
+        assertNotNull("testCleanupFilesOnly 0", DatabaseManager.find(context, "bitstream", id));
+        assertFalse("testCleanupFilesOnly 1", file.exists());
+    }
+
+    /**
+     * An unreferenced shared file too recent to be deleted stays listed, and
+     * is deleted by a later run.
+     */
+    @Test
+    public void testCleanupSharedKept() throws Exception
+    {
+        MockConfigurationManager.setProperty("assetstore.content-addressed", "true");
+        int id = store();
+        context.commit();
+        String internalId = DatabaseManager.find(context, "bitstream", id).getStringColumn("internal_id");
+        File file = getFile(id);
+        BitstreamStorageManager.delete(context, id);
+        context.commit();
+
+        BitstreamStorageManager.cleanup(true, false, 2, 3);
+        assertNull("testCleanupSharedKept 0", DatabaseManager.find(context, "bitstream", id));
+        assertTrue("testCleanupSharedKept 1", file.exists());
+        TableRow blob = DatabaseManager.querySingle(context,
+                "SELECT ref_count, size_bytes FROM bitstream_blob WHERE internal_id = ?", internalId);
+        assertNotNull("testCleanupSharedKept 2", blob);
+        assertEquals("testCleanupSharedKept 3", 0, blob.getIntColumn("ref_count"));
+        assertEquals("testCleanupSharedKept 4", file.length(), blob.getLongColumn("size_bytes"));
+
+        age(file);
+        BitstreamStorageManager.cleanup(true, false, 2, 3);
+        assertFalse("testCleanupSharedKept 5", file.exists());
+        assertNull("testCleanupSharedKept 6", DatabaseManager.querySingle(context,
+                "SELECT ref_count FROM bitstream_blob WHERE internal_id = ?", internalId));
+    }
+
+    // Store a bitstream with a content which is not stored by the other tests
+    private int store() throws Exception
+    {
+        return BitstreamStorageManager.store(context,
+                new ByteArrayInputStream(("Content " + UUID.randomUUID()).getBytes()));
+    }
+
+    private File getFile(int id) throws SQLException, IOException
+    {
+        return new File(BitstreamStorageManager.absolutePath(context, id));
+    }
+
+    // Make a file old enough to be deleted by the cleanup
+    private static void age(File file)
+    {
+        assertTrue(file.setLastModified(System.currentTimeMillis() - 2 * 60 * 60 * 1000));
+    }
+}
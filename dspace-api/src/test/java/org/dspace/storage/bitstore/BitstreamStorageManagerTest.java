@@ -0,0 +1,217 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+
+package org.dspace.storage.bitstore;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.sql.SQLException;
+import java.util.UUID;
+
+import org.dspace.AbstractUnitTest;
+import org.dspace.core.MockConfigurationManager;
+import org.dspace.storage.rdbms.DatabaseManager;
+import org.dspace.storage.rdbms.TableRow;
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Integration tests of the shared files of the bitstreams with the same
+ * content (<code>assetstore.content-addressed</code>), and of their cleanup.
+ */
+public class BitstreamStorageManagerTest extends AbstractUnitTest
+{
+    @SuppressWarnings("ResultOfObjectAllocationIgnored")
+    @BeforeClass
+    public static void setUpClass()
+    {
+        // Initialize MockConfigurationManager, and tell it to load properties by default
+        new MockConfigurationManager(true);
+    }
+
+    @After
+    @Override
+    public void destroy()
+    {
+        MockConfigurationManager.setProperty("assetstore.content-addressed", "false");
+        super.destroy();
+    }
+
+    /**
+     * Two bitstreams with the same content share one file, listed once with
+     * two references.
+     */
+    @Test
+    public void testStoreShared() throws Exception
+    {
+        MockConfigurationManager.setProperty("assetstore.content-addressed", "true");
+        byte[] content = content();
+
+        int first = BitstreamStorageManager.store(context, new ByteArrayInputStream(content));
+        int second = BitstreamStorageManager.store(context, new ByteArrayInputStream(content));
+        context.commit();
+
+        String internalId = getInternalId(first);
+        assertTrue("testStoreShared 0", BitstreamStorageManager.isShared(internalId));
+        assertEquals("testStoreShared 1", internalId, getInternalId(second));
+        assertEquals("testStoreShared 2", 2, getRefCount(internalId));
+        assertEquals("testStoreShared 3",
+                BitstreamStorageManager.absolutePath(context, first),
+                BitstreamStorageManager.absolutePath(context, second));
+        assertTrue("testStoreShared 4",
+                new File(BitstreamStorageManager.absolutePath(context, first)).exists());
+
+        // a different content has its own file
+        int other = BitstreamStorageManager.store(context, new ByteArrayInputStream(content()));
+        context.commit();
+        assertFalse("testStoreShared 5", internalId.equals(getInternalId(other)));
+        assertEquals("testStoreShared 6", 1, getRefCount(getInternalId(other)));
+    }
+
+    /**
+     * Deleting a bitstream releases its shared file once, and clones count
+     * as references.
+     */
+    @Test
+    public void testDeleteShared() throws Exception
+    {
+        MockConfigurationManager.setProperty("assetstore.content-addressed", "true");
+        byte[] content = content();
+
+        int first = BitstreamStorageManager.store(context, new ByteArrayInputStream(content));
+        int second = BitstreamStorageManager.store(context, new ByteArrayInputStream(content));
+        context.commit();
+        String internalId = getInternalId(first);
+
+        BitstreamStorageManager.delete(context, first);
+        context.commit();
+        assertEquals("testDeleteShared 0", 1, getRefCount(internalId));
+
+        // deleting again does not release it twice
+        BitstreamStorageManager.delete(context, first);
+        context.commit();
+        assertEquals("testDeleteShared 1", 1, getRefCount(internalId));
+
+        int clone = BitstreamStorageManager.clone(context, second);
+        context.commit();
+        assertEquals("testDeleteShared 2", internalId, getInternalId(clone));
+        assertEquals("testDeleteShared 3", 2, getRefCount(internalId));
+
+        BitstreamStorageManager.delete(context, second);
+        BitstreamStorageManager.delete(context, clone);
+        context.commit();
+        assertEquals("testDeleteShared 4", 0, getRefCount(internalId));
+    }
+
+    /**
+     * Without content addressing, the bitstreams have their own files, and
+     * the shared files are left alone.
+     */
+    @Test
+    public void testNotShared() throws Exception
+    {
+        byte[] content = content();
+
+        int first = BitstreamStorageManager.store(context, new ByteArrayInputStream(content));
+        int second = BitstreamStorageManager.store(context, new ByteArrayInputStream(content));
+        context.commit();
+
+        String internalId = getInternalId(first);
+        assertFalse("testNotShared 0", BitstreamStorageManager.isShared(internalId));
+        assertFalse("testNotShared 1", internalId.equals(getInternalId(second)));
+        assertNull("testNotShared 2", DatabaseManager.querySingle(context,
+                "SELECT ref_count FROM bitstream_blob WHERE internal_id = ?", internalId));
+
+        int clone = BitstreamStorageManager.clone(context, first);
+        BitstreamStorageManager.delete(context, first);
+        BitstreamStorageManager.delete(context, clone);
+        context.commit();
+        assertNull("testNotShared 3", DatabaseManager.querySingle(context,
+                "SELECT ref_count FROM bitstream_blob WHERE internal_id = ?", internalId));
+
+        // a file stored before is still shared after content addressing is
+        // turned off
+        MockConfigurationManager.setProperty("assetstore.content-addressed", "true");
+        int shared = BitstreamStorageManager.store(context, new ByteArrayInputStream(content));
+        context.commit();
+        MockConfigurationManager.setProperty("assetstore.content-addressed", "false");
+        String sharedId = getInternalId(shared);
+        BitstreamStorageManager.delete(context, shared);
+        context.commit();
+        assertEquals("testNotShared 4", 0, getRefCount(sharedId));
+    }
+
+    /**
+     * The cleanup deletes a shared file only once it is not referenced any
+     * more.
+     */
+    @Test
+    public void testCleanupShared() throws Exception
+    {
+        MockConfigurationManager.setProperty("assetstore.content-addressed", "true");
+        byte[] content = content();
+
+        int first = BitstreamStorageManager.store(context, new ByteArrayInputStream(content));
+        int second = BitstreamStorageManager.store(context, new ByteArrayInputStream(content));
+        context.commit();
+        String internalId = getInternalId(first);
+        File file = new File(BitstreamStorageManager.absolutePath(context, first));
+        age(file);
+
+        // one reference left: the row of the deleted bitstream goes, the file stays
+        BitstreamStorageManager.delete(context, first);
+        context.commit();
+        BitstreamStorageManager.cleanup(true, false);
+        assertNull("testCleanupShared 0", DatabaseManager.find(context, "bitstream", first));
+        assertTrue("testCleanupShared 1", file.exists());
+        assertEquals("testCleanupShared 2", 1, getRefCount(internalId));
+
+        BitstreamStorageManager.delete(context, second);
+        context.commit();
+        BitstreamStorageManager.cleanup(true, false);
+        assertNull("testCleanupShared 3", DatabaseManager.find(context, "bitstream", second));
+        assertFalse("testCleanupShared 4", file.exists());
+        assertNull("testCleanupShared 5", DatabaseManager.querySingle(context,
+                "SELECT ref_count FROM bitstream_blob WHERE internal_id = ?", internalId));
+
+        // the same content stored again gets a new file
+        int third = BitstreamStorageManager.store(context, new ByteArrayInputStream(content));
+        context.commit();
+        assertEquals("testCleanupShared 6", internalId, getInternalId(third));
+        assertEquals("testCleanupShared 7", 1, getRefCount(internalId));
+        assertTrue("testCleanupShared 8", file.exists());
+    }
+
+    // A content which is not stored by the other tests
+    private static byte[] content()
+    {
+        return ("Content " + UUID.randomUUID()).getBytes();
+    }
+
+    // Make a file old enough to be deleted by the cleanup
+    private static void age(File file)
+    {
+        assertTrue(file.setLastModified(System.currentTimeMillis() - 2 * 60 * 60 * 1000));
+    }
+
+    private String getInternalId(int id) throws SQLException
+    {
+        return DatabaseManager.find(context, "bitstream", id).getStringColumn("internal_id");
+    }
+
+    private int getRefCount(String internalId) throws SQLException
+    {
+        TableRow row = DatabaseManager.querySingle(context,
+                "SELECT ref_count FROM bitstream_blob WHERE internal_id = ?", internalId);
+        assertNotNull("no bitstream_blob row for " + internalId, row);
+        return row.getIntColumn("ref_count");
+    }
+}
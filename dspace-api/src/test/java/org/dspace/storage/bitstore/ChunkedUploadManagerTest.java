@@ -0,0 +1,150 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+
+package org.dspace.storage.bitstore;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.dspace.AbstractUnitTest;
+import org.dspace.core.MockConfigurationManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests of {@link ChunkedUploadManager}, with a staging area in a
+ * temporary directory and uploads of at most 10 bytes.
+ */
+public class ChunkedUploadManagerTest extends AbstractUnitTest
+{
+    private File dir;
+
+    @SuppressWarnings("ResultOfObjectAllocationIgnored")
+    @BeforeClass
+    public static void setUpClass()
+    {
+        // Initialize MockConfigurationManager, and tell it to load properties by default
+        new MockConfigurationManager(true);
+    }
+
+    @Before
+    @Override
+    public void init()
+    {
+        super.init();
+        try
+        {
+            dir = Files.createTempDirectory("chunked").toFile();
+            MockConfigurationManager.setProperty("upload.chunked.dir", dir.getPath());
+            MockConfigurationManager.setProperty("upload.chunked.max-size", "10");
+            context.setCurrentUser(eperson);
+        }
+        catch (Exception ex)
+        {
+            fail("Error in init: " + ex.getMessage());
+        }
+    }
+
+    @After
+    @Override
+    public void destroy()
+    {
+        MockConfigurationManager.setProperty("upload.chunked.max-size", "-1");
+        FileUtils.deleteQuietly(dir);
+        super.destroy();
+    }
+
+    /**
+     * A chunk which would exceed the limit is rejected, and nothing of it is
+     * kept; the chunks up to the limit are accepted.
+     */
+    @Test
+    public void testMaxSize() throws Exception
+    {
+        ChunkedUploadManager.Upload upload = ChunkedUploadManager.start(context, 1, "file.txt");
+        upload = ChunkedUploadManager.append(upload, 0, chunk(6));
+        assertEquals("testMaxSize 0", 6, upload.getOffset());
+        try
+        {
+            ChunkedUploadManager.append(upload, 6, chunk(5));
+            fail("testMaxSize 1");
+        }
+        catch (ChunkedUploadManager.UploadTooLargeException e)
+        {
+            // expected
+        }
+        upload = ChunkedUploadManager.find(context, upload.getID());
+        assertEquals("testMaxSize 2", 6, upload.getOffset());
+
+        upload = ChunkedUploadManager.append(upload, 6, chunk(4));
+        assertEquals("testMaxSize 3", 10, upload.getOffset());
+        try
+        {
+            ChunkedUploadManager.append(upload, 10, chunk(1));
+            fail("testMaxSize 4");
+        }
+        catch (ChunkedUploadManager.UploadTooLargeException e)
+        {
+            // expected
+        }
+        assertEquals("testMaxSize 5", 10, ChunkedUploadManager.find(context, upload.getID()).getOffset());
+    }
+
+    /**
+     * Without limit, a chunk of any size is accepted.
+     */
+    @Test
+    public void testNoMaxSize() throws Exception
+    {
+        MockConfigurationManager.setProperty("upload.chunked.max-size", "-1");
+        ChunkedUploadManager.Upload upload = ChunkedUploadManager.start(context, 1, null);
+        upload = ChunkedUploadManager.append(upload, 0, chunk(100));
+        assertEquals("testNoMaxSize 0", 100, upload.getOffset());
+    }
+
+    /**
+     * An upload without chunk received for too long is not found any more,
+     * cannot be appended to, and is deleted.
+     */
+    @Test
+    public void testExpired() throws Exception
+    {
+        ChunkedUploadManager.Upload upload = ChunkedUploadManager.start(context, 1, null);
+        upload = ChunkedUploadManager.append(upload, 0, chunk(2));
+        File part = new File(dir, upload.getID() + ".part");
+        assertTrue("testExpired 0", part.setLastModified(System.currentTimeMillis() - TimeUnit.HOURS.toMillis(25)));
+
+        assertNull("testExpired 1", ChunkedUploadManager.find(context, upload.getID()));
+
+        ChunkedUploadManager.start(context, 1, null);
+        assertFalse("testExpired 2", part.exists());
+        assertFalse("testExpired 3", new File(dir, upload.getID() + ".properties").exists());
+        try
+        {
+            ChunkedUploadManager.append(upload, 2, chunk(2));
+            fail("testExpired 4");
+        }
+        catch (FileNotFoundException e)
+        {
+            // expected
+        }
+    }
+
+    private static ByteArrayInputStream chunk(int size)
+    {
+        return new ByteArrayInputStream(new byte[size]);
+    }
+}
@@ -0,0 +1,112 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+
+package org.dspace.storage.rdbms;
+
+import java.util.concurrent.TimeUnit;
+
+import org.dspace.core.MockConfigurationManager;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the statement normalization and counters of
+ * {@link DatabaseStatistics}.
+ */
+public class DatabaseStatisticsTest
+{
+    @SuppressWarnings("ResultOfObjectAllocationIgnored")
+    @BeforeClass
+    public static void setUpClass()
+    {
+        // Initialize MockConfigurationManager and tell it to NOT load any properties
+        new MockConfigurationManager(false);
+    }
+
+    /**
+     * Test of normalize method, of class DatabaseStatistics.
+     */
+    @Test
+    public void testNormalize()
+    {
+        assertEquals("SELECT * FROM item WHERE item_id = ?",
+                DatabaseStatistics.normalize("SELECT *\n  FROM item WHERE item_id = 42"));
+        assertEquals("SELECT * FROM handle WHERE handle = ?",
+                DatabaseStatistics.normalize("SELECT * FROM handle WHERE handle = '123456789/1'"));
+        assertEquals("SELECT * FROM item WHERE item_id IN (?...)",
+                DatabaseStatistics.normalize("SELECT * FROM item WHERE item_id IN (1, 2, ?, 4)"));
+        assertEquals("the same statement with different values must share its key",
+                DatabaseStatistics.normalize("delete from epersongroup2eperson where eperson_id = 7"),
+                DatabaseStatistics.normalize("delete from epersongroup2eperson where eperson_id = 12"));
+    }
+
+    /**
+     * Test of the latency histogram of a single statement.
+     */
+    @Test
+    public void testStatementStatistics()
+    {
+        DatabaseStatistics.StatementStatistics stats = new DatabaseStatistics.StatementStatistics("select ?");
+        stats.add(TimeUnit.MICROSECONDS.toNanos(200), 1);
+        stats.add(TimeUnit.MILLISECONDS.toNanos(7), 3);
+        stats.add(TimeUnit.SECONDS.toNanos(10), -1);
+
+        assertEquals(3, stats.getCount());
+        assertEquals("unknown row counts are not added", 4, stats.getRows());
+        assertEquals(1, stats.getBucket(0));
+        assertEquals(1, stats.getBucket(2));
+        assertEquals(1, stats.getBucket(DatabaseStatistics.HISTOGRAM_BOUNDS.length));
+    }
+
+    /**
+     * Test of the tracking of the open contexts: each one is counted until
+     * it is closed, even when many are open at once.
+     */
+    @Test
+    public void testOpenContexts()
+    {
+        DatabaseStatistics statistics = new DatabaseStatistics(true, 1000, false);
+        long[] ids = new long[1000];
+        for (int i = 0; i < ids.length; i++)
+        {
+            ids[i] = statistics.opened();
+        }
+        assertEquals(ids.length, statistics.getOpenContextCount());
+        assertEquals(ids.length, statistics.openContexts(0).length);
+
+        for (int i = 0; i < ids.length; i += 2)
+        {
+            statistics.closed(ids[i], false);
+        }
+        assertEquals(ids.length / 2, statistics.getOpenContextCount());
+        statistics.closed(ids[1], true);
+        assertEquals(ids.length / 2 - 1, statistics.getOpenContextCount());
+        assertEquals(1, statistics.getLeakedContextCount());
+
+        // closing twice does not close another context
+        statistics.closed(ids[0], false);
+        assertEquals(ids.length / 2 - 1, statistics.getOpenContextCount());
+        assertEquals(0, statistics.openContexts(3600).length);
+    }
+
+    /**
+     * Test that nothing is tracked when the statistics are disabled.
+     */
+    @Test
+    public void testDisabled()
+    {
+        DatabaseStatistics statistics = new DatabaseStatistics(false, 1000, false);
+        long id = statistics.opened();
+        assertEquals(0, id);
+        assertEquals(0, statistics.getOpenContextCount());
+        statistics.closed(id, true);
+        assertEquals(0, statistics.getLeakedContextCount());
+    }
+}
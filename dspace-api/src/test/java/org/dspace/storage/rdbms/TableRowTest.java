@@ -86,20 +86,18 @@ public class TableRowTest
     /**
      * Test of hasColumn method, of class TableRow.
      */
-/*
     @Test
     public void testHasColumn()
     {
         System.out.println("hasColumn");
-        String column = "";
-        TableRow instance = null;
-        boolean expResult = false;
-        boolean result = instance.hasColumn(column);
-        assertEquals(expResult, result);
-        // TODO review the generated test code and remove the default call to fail.
-        fail("The test case is a prototype.");
+        List<String> columns = new ArrayList<>();
+        columns.add("First");
+        columns.add("second");
+        TableRow instance = new TableRow("row", columns);
+        assertTrue(instance.hasColumn("first"));
+        assertTrue(instance.hasColumn("SECOND"));
+        assertFalse(instance.hasColumn("third"));
     }
-*/
 
     /**
      * Test of hasColumnChanged method, of class TableRow.
@@ -470,33 +468,47 @@ public class TableRowTest
     /**
      * Test of equals method, of class TableRow.
      */
-/*
     @Test
     public void testEquals()
     {
         System.out.println("equals");
-        Object obj = null;
-        TableRow instance = null;
-        boolean expResult = false;
-        boolean result = instance.equals(obj);
-        assertEquals(expResult, result);
-        // TODO review the generated test code and remove the default call to fail.
-        fail("The test case is a prototype.");
+        List<String> columns = new ArrayList<>();
+        columns.add("first");
+        columns.add("second");
+        TableRow instance = new TableRow("row", columns);
+        TableRow other = new TableRow("row", new ArrayList<>(columns));
+        instance.setColumn("first", 1);
+        assertFalse(instance.equals(other));
+        other.setColumn("first", 1);
+        assertTrue(instance.equals(other));
+        assertEquals(instance.hashCode(), other.hashCode());
+        other.setColumn("second", "two");
+        assertFalse(instance.equals(other));
     }
-*/
 
     /**
      * Test of resetChanged method, of class TableRow.
      */
-/*
     @Test
     public void testResetChanged()
     {
         System.out.println("resetChanged");
-        TableRow instance = null;
+        List<String> columns = new ArrayList<>();
+        columns.add("first");
+        columns.add("second");
+        TableRow instance = new TableRow("row", columns);
+        assertTrue(instance.hasColumnChanged("first"));
         instance.resetChanged();
-        // TODO review the generated test code and remove the default call to fail.
-        fail("The test case is a prototype.");
+        assertFalse(instance.hasColumnChanged("first"));
+        assertFalse(instance.hasColumnChanged("second"));
+        instance.setColumn("second", "two");
+        assertFalse(instance.hasColumnChanged("first"));
+        assertTrue(instance.hasColumnChanged("second"));
+        // rows with the same columns don't share their changes
+        TableRow other = new TableRow("row", columns);
+        other.resetChanged();
+        assertTrue(instance.hasColumnChanged("second"));
+        assertTrue(instance.isColumnNull("first"));
+        assertEquals("two", instance.getStringColumn("second"));
     }
-*/
 }
@@ -0,0 +1,89 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+
+package org.dspace.storage.rdbms;
+
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.dspace.core.MockConfigurationManager;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the statements built by {@link TableStatements}.
+ */
+public class TableStatementsTest
+{
+    private TableStatements statements;
+
+    @SuppressWarnings("ResultOfObjectAllocationIgnored")
+    @BeforeClass
+    public static void setUpClass()
+    {
+        // Initialize MockConfigurationManager and tell it to NOT load any properties
+        new MockConfigurationManager(false);
+    }
+
+    @Before
+    public void setUp()
+    {
+        List<ColumnInfo> info = new ArrayList<ColumnInfo>();
+        ColumnInfo pk = new ColumnInfo("handle_id", Types.INTEGER);
+        pk.setIsPrimaryKey(true);
+        info.add(pk);
+        info.add(new ColumnInfo("handle", Types.VARCHAR));
+        info.add(new ColumnInfo("resource_id", Types.INTEGER));
+        statements = new TableStatements("handle", info);
+    }
+
+    /**
+     * Test of the insert and delete statements.
+     */
+    @Test
+    public void testInsertAndDelete()
+    {
+        assertEquals("INSERT INTO handle ( handle_id,handle,resource_id) VALUES ( ?,?,?)",
+                statements.getInsert().getSQL());
+        assertEquals(3, statements.getInsert().getColumns().size());
+        assertEquals("INSERT INTO handle ( handle_id,handle,resource_id) VALUES ( getnextid('handle'),?,?) RETURNING handle_id",
+                statements.getInsertReturning().getSQL());
+        assertEquals(2, statements.getInsertReturning().getColumns().size());
+        assertEquals("delete from handle where handle_id = ? ", statements.getDelete().getSQL());
+    }
+
+    /**
+     * Test of getUpdate method, of class TableStatements.
+     */
+    @Test
+    public void testGetUpdate()
+    {
+        TableRow row = new TableRow("handle", Arrays.asList("handle_id", "handle", "resource_id"));
+        row.resetChanged();
+        assertNull("no statement for an unchanged row", statements.getUpdate(row));
+
+        row.setColumn("resource_id", 12);
+        TableStatements.Template update = statements.getUpdate(row);
+        assertEquals("update handle set resource_id = ? where handle_id = ?", update.getSQL());
+        assertEquals("handle_id", update.getColumns().get(1).getName());
+
+        TableRow other = new TableRow("handle", Arrays.asList("handle_id", "handle", "resource_id"));
+        other.resetChanged();
+        other.setColumn("resource_id", 13);
+        assertSame("the same changed columns share the statement", update, statements.getUpdate(other));
+
+        other.setColumn("handle", "123456789/1");
+        assertEquals("update handle set handle = ?, resource_id = ? where handle_id = ?",
+                statements.getUpdate(other).getSQL());
+    }
+}
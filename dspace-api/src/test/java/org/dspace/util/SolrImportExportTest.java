@@ -0,0 +1,332 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.solr.common.util.JavaBinCodec;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.common.util.SimpleOrderedMap;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import au.com.bytecode.opencsv.CSVReader;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests of the batches of {@link SolrImportExport}, against a local
+ * stub of a statistics core holding one more document than
+ * {@link SolrImportExport#ROWS_PER_FILE}, all with the same time.
+ */
+public class SolrImportExportTest
+{
+    /** the time of all the documents, in March 2015 */
+    private static final Date TIME = new Date(1426000000000L);
+
+    private static final String MONTH = "2015-03-01T00:00:00Z";
+
+    /** the keys of the documents, in order */
+    private static final List<String> KEYS = new ArrayList<String>();
+
+    /** filter of the documents after a key */
+    private static final Pattern AFTER_KEY = Pattern.compile("uid:\\{(.*) TO \\*\\]");
+
+    private static HttpServer server;
+
+    private static String solrUrl;
+
+    /** the keys after which the exported batches start, null for the first */
+    private static final List<String> exported = Collections.synchronizedList(new ArrayList<String>());
+
+    /** the CSV files received by the stub */
+    private static final List<String> imported = Collections.synchronizedList(new ArrayList<String>());
+
+    private File dir;
+
+    @BeforeClass
+    public static void setUpClass() throws IOException
+    {
+        for (int i = 0; i <= SolrImportExport.ROWS_PER_FILE; i++)
+        {
+            KEYS.add(String.format("uid-%05d", i));
+        }
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/solr/statistics/", new HttpHandler()
+        {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException
+            {
+                String path = exchange.getRequestURI().getPath().substring("/solr/statistics".length());
+                Map<String, List<String>> params = params(exchange.getRequestURI().getRawQuery());
+                if (path.equals("/select") && params.containsKey("wt") && params.get("wt").contains("csv"))
+                {
+                    exportBatch(exchange, params);
+                    return;
+                }
+                NamedList<Object> response = new SimpleOrderedMap<Object>();
+                response.add("responseHeader", new SimpleOrderedMap<Object>());
+                if (path.equals("/select"))
+                {
+                    addStats(response);
+                }
+                else if (path.equals("/admin/luke"))
+                {
+                    NamedList<Object> schema = new SimpleOrderedMap<Object>();
+                    schema.add("uniqueKeyField", "uid");
+                    response.add("schema", schema);
+                    response.add("fields", new SimpleOrderedMap<Object>());
+                }
+                else if (path.equals("/update/csv"))
+                {
+                    imported.add(IOUtils.toString(exchange.getRequestBody(), "UTF-8"));
+                }
+                ByteArrayOutputStream body = new ByteArrayOutputStream();
+                new JavaBinCodec().marshal(response, body);
+                exchange.getResponseHeaders().add("Content-Type", "application/octet-stream");
+                exchange.sendResponseHeaders(200, body.size());
+                body.writeTo(exchange.getResponseBody());
+                exchange.close();
+            }
+        });
+        server.start();
+        solrUrl = "http://127.0.0.1:" + server.getAddress().getPort() + "/solr/statistics";
+    }
+
+    @AfterClass
+    public static void tearDownClass()
+    {
+        server.stop(0);
+    }
+
+    @Before
+    public void setUp() throws IOException
+    {
+        dir = Files.createTempDirectory("solr-export").toFile();
+        exported.clear();
+        imported.clear();
+    }
+
+    @After
+    public void tearDown() throws IOException
+    {
+        FileUtils.deleteDirectory(dir);
+    }
+
+    /**
+     * The documents are exported in two files, the second starting after the
+     * last key of the first: no document is missed or exported twice, though
+     * they all have the same time.
+     */
+    @Test
+    public void testExportBatches() throws Exception
+    {
+        SolrImportExport.exportIndex("statistics", dir, solrUrl, "time", null, false, 1, false, false);
+
+        assertEquals("testExportBatches 0", Arrays.asList(null, KEYS.get(KEYS.size() - 2)), exported);
+        List<String> keys = new ArrayList<String>();
+        for (File file : exportFiles())
+        {
+            keys.addAll(readKeys(file));
+        }
+        assertEquals("testExportBatches 1", KEYS, keys);
+    }
+
+    /**
+     * An export resumed after its first file only exports the second one,
+     * starting after the last key of the first file.
+     */
+    @Test
+    public void testExportResume() throws Exception
+    {
+        SolrImportExport.exportIndex("statistics", dir, solrUrl, "time", null, false, 1, false, false);
+        File[] files = exportFiles();
+        assertEquals("testExportResume 0", 2, files.length);
+        assertTrue("testExportResume 1", files[1].delete());
+        exported.clear();
+
+        SolrImportExport.exportIndex("statistics", dir, solrUrl, "time", null, false, 1, false, true);
+
+        assertEquals("testExportResume 2", Arrays.asList(KEYS.get(KEYS.size() - 2)), exported);
+        assertEquals("testExportResume 3", Arrays.asList(KEYS.get(KEYS.size() - 1)), readKeys(files[1]));
+    }
+
+    /**
+     * An import resumed from its progress file only sends the files not
+     * recorded in it, and records them.
+     */
+    @Test
+    public void testImportResume() throws Exception
+    {
+        writeFile("statistics_export_2015-03_0.csv", "uid,time\nuid-1," + MONTH + "\n");
+        writeFile("statistics_export_2015-03_1.csv", "uid,time\nuid-2," + MONTH + "\n");
+        writeFile("statistics_import.progress", "statistics_export_2015-03_0.csv\n");
+
+        SolrImportExport.importIndex("statistics", dir, solrUrl, false, 1, true);
+
+        assertEquals("testImportResume 0", 1, imported.size());
+        assertTrue("testImportResume 1", imported.get(0).contains("uid-2"));
+        Set<String> progress = new HashSet<String>(
+                FileUtils.readLines(new File(dir, "statistics_import.progress"), "UTF-8"));
+        assertEquals("testImportResume 2", new HashSet<String>(Arrays.asList(
+                "statistics_export_2015-03_0.csv", "statistics_export_2015-03_1.csv")), progress);
+
+        // resumed again, there is nothing left to import
+        imported.clear();
+        SolrImportExport.importIndex("statistics", dir, solrUrl, false, 1, true);
+        assertEquals("testImportResume 3", 0, imported.size());
+    }
+
+    // The statistics of the time field, and the documents by month
+    private static void addStats(NamedList<Object> response)
+    {
+        NamedList<Object> time = new SimpleOrderedMap<Object>();
+        time.add("min", TIME);
+        time.add("max", TIME);
+        time.add("count", (long) KEYS.size());
+        time.add("missing", 0L);
+        NamedList<Object> fields = new SimpleOrderedMap<Object>();
+        fields.add("time", time);
+        NamedList<Object> stats = new SimpleOrderedMap<Object>();
+        stats.add("stats_fields", fields);
+        response.add("stats", stats);
+
+        NamedList<Object> counts = new NamedList<Object>();
+        counts.add(MONTH, KEYS.size());
+        NamedList<Object> range = new SimpleOrderedMap<Object>();
+        range.add("counts", counts);
+        range.add("gap", "+1MONTH");
+        range.add("start", TIME);
+        range.add("end", TIME);
+        NamedList<Object> ranges = new SimpleOrderedMap<Object>();
+        ranges.add("time", range);
+        NamedList<Object> facets = new SimpleOrderedMap<Object>();
+        facets.add("facet_queries", new SimpleOrderedMap<Object>());
+        facets.add("facet_fields", new SimpleOrderedMap<Object>());
+        facets.add("facet_dates", new SimpleOrderedMap<Object>());
+        facets.add("facet_ranges", ranges);
+        response.add("facet_counts", facets);
+    }
+
+    // The rows of the documents after the key of the filter, if any
+    private static void exportBatch(HttpExchange exchange, Map<String, List<String>> params) throws IOException
+    {
+        String after = null;
+        for (String filter : params.get("fq"))
+        {
+            Matcher matcher = AFTER_KEY.matcher(filter);
+            if (matcher.find())
+            {
+                after = matcher.group(1).replace("\\", "");
+            }
+        }
+        exported.add(after);
+        int rows = Integer.parseInt(params.get("rows").get(0));
+        StringBuilder csv = new StringBuilder("uid,time\n");
+        for (String key : KEYS)
+        {
+            if ((after == null || key.compareTo(after) > 0) && rows-- > 0)
+            {
+                csv.append(key).append(',').append(MONTH).append('\n');
+            }
+        }
+        byte[] body = csv.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, body.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(body);
+        exchange.close();
+    }
+
+    private static Map<String, List<String>> params(String query) throws IOException
+    {
+        Map<String, List<String>> params = new HashMap<String, List<String>>();
+        if (query != null)
+        {
+            for (String param : query.split("&"))
+            {
+                String[] nameValue = param.split("=", 2);
+                String name = URLDecoder.decode(nameValue[0], "UTF-8");
+                if (!params.containsKey(name))
+                {
+                    params.put(name, new ArrayList<String>());
+                }
+                params.get(name).add(nameValue.length > 1 ? URLDecoder.decode(nameValue[1], "UTF-8") : "");
+            }
+        }
+        return params;
+    }
+
+    private File[] exportFiles()
+    {
+        File[] files = dir.listFiles();
+        Arrays.sort(files);
+        return files;
+    }
+
+    private static List<String> readKeys(File file) throws IOException
+    {
+        List<String> keys = new ArrayList<String>();
+        CSVReader reader = new CSVReader(new FileReader(file));
+        try
+        {
+            reader.readNext();
+            String[] row;
+            while ((row = reader.readNext()) != null)
+            {
+                keys.add(row[0]);
+            }
+        }
+        finally
+        {
+            reader.close();
+        }
+        return keys;
+    }
+
+    private void writeFile(String name, String content) throws IOException
+    {
+        Writer writer = Files.newBufferedWriter(new File(dir, name).toPath(), StandardCharsets.UTF_8);
+        try
+        {
+            writer.write(content);
+        }
+        finally
+        {
+            writer.close();
+        }
+    }
+}
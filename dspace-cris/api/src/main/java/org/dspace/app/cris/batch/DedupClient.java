@@ -24,6 +24,11 @@ import org.apache.commons.cli.PosixParser;
 import org.apache.log4j.Logger;
 import org.apache.solr.client.solrj.SolrServerException;
 import org.dspace.app.cris.deduplication.service.DedupService;
+import org.dspace.app.cris.deduplication.utils.MinHashIndex;
+import org.dspace.app.cris.deduplication.utils.MinHashSignature;
+import org.dspace.app.cris.model.CrisConstants;
+import org.dspace.app.cris.service.ApplicationService;
+import org.dspace.content.Item;
 import org.dspace.content.DSpaceObject;
 import org.dspace.core.ConfigurationManager;
 import org.dspace.core.Constants;
@@ -52,7 +57,7 @@ public class DedupClient
         Context context = new Context();
         context.setIgnoreAuthorization(true);
 
-        String usage = "org.dspace.app.cris.batch.DedupClient [-chfueto[r <item handle/uuid>]] or nothing to update/clean an existing index.";
+        String usage = "org.dspace.app.cris.batch.DedupClient [-chfuetos[r <item handle/uuid>]] or nothing to update/clean an existing index.";
         Options options = new Options();
         HelpFormatter formatter = new HelpFormatter();
         CommandLine line = null;
@@ -104,6 +109,14 @@ public class DedupClient
         
         options.addOption("e", "readfile", true, "Read the identifier from a file");
 
+        options.addOption(OptionBuilder.isRequired(false).withDescription(
+                "resume an interrupted rebuild of the whole index, or of a type with -t, without cleaning it")
+                .create("s"));
+
+        options.addOption(OptionBuilder.isRequired(false).withDescription(
+                "list the near duplicates found by the MinHash signatures of the items, or of the researchers with -t 9")
+                .create("m"));
+
         try {
             line = new PosixParser().parse(options, args);
         } catch (Exception e) {
@@ -136,11 +149,20 @@ public class DedupClient
         } else if (line.hasOption("o")) {
             log.info("Optimizing dedup core.");
             indexer.optimize();                   
+        } else if (line.hasOption("m")) {
+            int type = line.hasOption("t") ? Integer.parseInt(line.getOptionValue("t")) : Constants.ITEM;
+            try {
+                listNearDuplicates(context, dspace, type);
+            } catch (InterruptedException e) {
+                log.error("Interrupted: " + e.getMessage());
+            }
         } else if (line.hasOption("t")) {
             log.info("Updating and Cleaning a specific Index");
             String optionValue = line.getOptionValue("t");
-            indexer.cleanIndex(line.hasOption("f"), Integer.valueOf(optionValue));
-            indexer.updateIndex(context, true, Integer.valueOf(optionValue));
+            if (!line.hasOption("s")) {
+                indexer.cleanIndex(line.hasOption("f"), Integer.valueOf(optionValue));
+            }
+            indexer.rebuildIndex(context, Integer.valueOf(optionValue), line.hasOption("s"));
         } else if (line.hasOption("u")) {           
             String optionValue = line.getOptionValue("u");
             String[] identifiers = optionValue.split("\\s*,\\s*");
@@ -187,12 +209,44 @@ public class DedupClient
             }
         } else {
             log.info("Updating and Cleaning Index");
-            indexer.cleanIndex(line.hasOption("f"));
-            indexer.updateIndex(context, line.hasOption("f"));
+            if (!line.hasOption("s")) {
+                indexer.cleanIndex(line.hasOption("f"));
+            }
+            indexer.rebuildIndex(context, line.hasOption("s"));
         }
 
         log.info("Done with indexing");
     }
 
+    private static void listNearDuplicates(Context context, DSpace dspace, int type)
+            throws SQLException, InterruptedException
+    {
+        List<Integer> ids;
+        if (type == Constants.ITEM) {
+            ids = Item.findAllItemIDs(context);
+        } else if (type == CrisConstants.RP_TYPE_ID) {
+            ids = dspace.getServiceManager().getServiceByName("applicationService",
+                    ApplicationService.class).findAllResearcherPageID();
+        } else {
+            System.out.println("Near duplicates can be listed for items (2) and researchers (9) only");
+            return;
+        }
+
+        int threads = ConfigurationManager.getIntProperty("deduplication", "indexer.items.threads", 5);
+        for (MinHashSignature signature : dspace.getServiceManager().getServicesByType(MinHashSignature.class)) {
+            if (signature.getResourceTypeID() != type) {
+                continue;
+            }
+            MinHashIndex index = signature.buildIndex(ids, threads);
+            List<MinHashIndex.Match> matches = index.findAll();
+            for (MinHashIndex.Match match : matches) {
+                System.out.println(signature.getSignatureType() + "\t" + match.getFirstId() + "\t"
+                        + match.getSecondId() + "\t" + String.format("%.2f", match.getSimilarity()));
+            }
+            System.out.println(signature.getSignatureType() + ": " + matches.size()
+                    + " near duplicates among " + index.size() + " objects");
+        }
+    }
+
 
 }
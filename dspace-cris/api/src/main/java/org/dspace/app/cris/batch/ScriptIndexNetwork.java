@@ -8,9 +8,16 @@
 package org.dspace.app.cris.batch;
 
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Date;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Properties;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
@@ -18,12 +25,15 @@ import org.apache.commons.cli.HelpFormatter;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 import org.apache.commons.cli.PosixParser;
+import org.apache.commons.io.IOUtils;
 import org.apache.log4j.Logger;
 import org.apache.solr.client.solrj.SolrQuery;
 import org.apache.solr.client.solrj.response.QueryResponse;
 import org.apache.solr.common.SolrDocumentList;
+import org.dspace.app.cris.network.AVisualizationGraphModeOne;
 import org.dspace.app.cris.network.ConstantNetwork;
 import org.dspace.app.cris.network.DepartmentNetworkPlugin;
+import org.dspace.app.cris.network.NetworkGraphStore;
 import org.dspace.app.cris.network.NetworkPlugin;
 import org.dspace.app.cris.network.VisualizationGraphSolrService;
 import org.dspace.core.ConfigurationManager;
@@ -62,6 +72,8 @@ public class ScriptIndexNetwork
                 "Work on single connection");
         options.addOption("d", "departments", false,
                 "At end index departmental network");
+        options.addOption("i", "incremental", false,
+                "Only reindex the publications changed since the last run, on the connections that support it");
 
         CommandLine line = parser.parse(options, args);
 
@@ -88,6 +100,9 @@ public class ScriptIndexNetwork
         List<String> connections = new LinkedList<String>();
         Integer importedNodes = 0;
         Boolean otherError = false;
+        boolean incremental = line.hasOption('i');
+        Date runStart = new Date();
+        Properties lastRun = loadLastRun();
         if (line.hasOption('a'))
         {
 
@@ -137,21 +152,38 @@ public class ScriptIndexNetwork
             // get plugin
             try
             {
-                VisualizationGraphSolrService.getSolr().deleteByQuery(
-                        "type:\"" + connection + "\"");
-
                 NetworkPlugin plugin = (NetworkPlugin) PluginManager
                         .getNamedPlugin(NetworkPlugin.CFG_MODULE, NetworkPlugin.class, connection);
-                // load data from connection
-                plugin.load(discardedNode, importedNodes, otherError); // load
-                                                                       // all
-                                                                       // node
 
+                String since = lastRun.getProperty(connection);
+                if (incremental && since != null
+                        && plugin instanceof AVisualizationGraphModeOne)
+                {
+                    log.info("Incremental load of connection " + connection
+                            + " since " + new Date(Long.parseLong(since)));
+                    ((AVisualizationGraphModeOne) plugin).load(discardedNode,
+                            importedNodes, otherError,
+                            new Date(Long.parseLong(since)));
+                }
+                else
+                {
+                    VisualizationGraphSolrService.getSolr().deleteByQuery(
+                            "type:\"" + connection + "\"");
+
+                    // load data from connection
+                    plugin.load(discardedNode, importedNodes, otherError); // load
+                                                                           // all
+                                                                           // node
+                }
+                lastRun.setProperty(connection,
+                        String.valueOf(runStart.getTime()));
             }
             catch (Exception e)
             {
                 log.error(e.getMessage(), e);
                 discardedConnection.add(connection);
+                // the connection could be partially loaded
+                lastRun.remove(connection);
                 continue external;
             }
 
@@ -164,6 +196,16 @@ public class ScriptIndexNetwork
             {
 
                 log.info("Work on department");
+                if (incremental)
+                {
+                    // rebuilt from the whole connection in any case
+                    for (String connection : connections)
+                    {
+                        VisualizationGraphSolrService.getSolr().deleteByQuery(
+                                "type:\"" + connection + "\" AND entity:"
+                                        + ConstantNetwork.ENTITY_DEPT);
+                    }
+                }
                 DepartmentNetworkPlugin deptPlugin = (DepartmentNetworkPlugin) PluginManager
                         .getSinglePlugin(NetworkPlugin.CFG_MODULE, NetworkPlugin.class);
                 deptPlugin.load(discardedNode, importedNodes, otherError,
@@ -176,6 +218,21 @@ public class ScriptIndexNetwork
                 discardedConnection.add("DEPT mode");
             }
         }
+        saveLastRun(lastRun);
+
+        if (NetworkGraphStore.isEnabled())
+        {
+            try
+            {
+                log.info("Rebuild the network graph store");
+                NetworkGraphStore.getInstance().rebuild(service);
+            }
+            catch (Exception e)
+            {
+                log.error(e.getMessage(), e);
+            }
+        }
+
         log.info("#### ----------- STATS --------- ####");
         log.info("Imported nodes: " + importedNodes);
         if (!discardedConnection.isEmpty())
@@ -202,6 +259,62 @@ public class ScriptIndexNetwork
         System.exit(0);
     }
 
+    /**
+     * @return the file with the start time of the last run of each
+     *         connection, to reindex incrementally
+     */
+    private static File getLastRunFile()
+    {
+        return new File(ConfigurationManager.getProperty("dspace.dir")
+                + File.separator + "var" + File.separator + "network"
+                + File.separator + "lastrun.properties");
+    }
+
+    private static Properties loadLastRun()
+    {
+        Properties lastRun = new Properties();
+        File file = getLastRunFile();
+        if (file.exists())
+        {
+            InputStream is = null;
+            try
+            {
+                is = new FileInputStream(file);
+                lastRun.load(is);
+            }
+            catch (IOException e)
+            {
+                log.warn("Unable to read " + file + ", full reindex", e);
+                lastRun.clear();
+            }
+            finally
+            {
+                IOUtils.closeQuietly(is);
+            }
+        }
+        return lastRun;
+    }
+
+    private static void saveLastRun(Properties lastRun)
+    {
+        File file = getLastRunFile();
+        OutputStream os = null;
+        try
+        {
+            file.getParentFile().mkdirs();
+            os = new FileOutputStream(file);
+            lastRun.store(os, "start time of the last run of each connection");
+        }
+        catch (IOException e)
+        {
+            log.warn("Unable to write " + file, e);
+        }
+        finally
+        {
+            IOUtils.closeQuietly(os);
+        }
+    }
+
     private static boolean checkAvailableData(String connection,
             VisualizationGraphSolrService service)
             throws SearchServiceException
@@ -33,7 +33,6 @@ import org.dspace.app.cris.model.orcid.OrcidQueue;
 import org.dspace.app.cris.service.ApplicationService;
 import org.dspace.app.cris.service.RelationPreferenceService;
 import org.dspace.authority.orcid.OrcidService;
-import org.dspace.core.ConfigurationManager;
 import org.dspace.core.Context;
 import org.dspace.discovery.SearchService;
 import org.dspace.discovery.SearchServiceException;
@@ -116,25 +115,8 @@ public class ScriptPushOrcid {
 			List<ResearcherPage> rps = null;
 			if (line.getOptions() == null || line.getOptions().length == 0) {
 				List<OrcidQueue> queue = applicationService.getList(OrcidQueue.class);
-				List<ResearcherPage> rpWithManualModeEnabled = new ArrayList<ResearcherPage>();
-		        boolean byPassManualMode = ConfigurationManager.getBooleanProperty("cris",
-		                "system.script.pushtoorcid.force", false);
-				for (OrcidQueue orcidQueue : queue) {
-					// see preferences and mode (batch vs manual)
-					ResearcherPage rp = applicationService.getEntityByCrisId(orcidQueue.getOwner(),
-							ResearcherPage.class);
-					if (!byPassManualMode && PushToORCID.isManualModeEnable(rp)) {
-						if (!rpWithManualModeEnabled.contains(rp)) {
-							rpWithManualModeEnabled.add(rp);
-						}
-					}
-					else {
-					    PushToORCID.sendOrcidQueue(applicationService, orcidQueue);
-					}
-				}
-				for (ResearcherPage rp : rpWithManualModeEnabled) {
-					PushToORCID.sendEmail(context, rp, rp.getCrisID());
-				}
+				log.info("Work on " + queue.size() + " queued entries");
+				PushToORCID.sendOrcidQueue(context, applicationService, queue);
 
 			} else if (line.hasOption('a')) {
 				log.info("Script launched with -a parameter...it will work on all researcher...");
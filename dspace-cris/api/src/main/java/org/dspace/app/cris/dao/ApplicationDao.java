@@ -9,11 +9,16 @@ package org.dspace.app.cris.dao;
 
 import it.cilea.osd.common.model.Identifiable;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 
 import org.dspace.app.cris.model.ACrisObject;
+import org.dspace.app.cris.model.jdyna.ACrisNestedObject;
 import org.hibernate.CacheMode;
 import org.hibernate.Query;
+import org.hibernate.Session;
 
 /**
  * This interface define general methods available to query the RPs database
@@ -23,6 +28,8 @@ import org.hibernate.Query;
  */
 public class ApplicationDao extends it.cilea.osd.common.dao.impl.ApplicationDao
 {
+    /** the maximum number of IDs in the IN clause of a query */
+    private static final int MAX_IN_CLAUSE = 500;
 
     public void clearSession()
     {
@@ -60,5 +67,89 @@ public class ApplicationDao extends it.cilea.osd.common.dao.impl.ApplicationDao
         return (C) query.uniqueResult();
     }
 
- 
+    /**
+     * Load a set of CRIS objects with their properties, a few queries for
+     * the whole set instead of one query per object.
+     */
+    public <C extends ACrisObject> List<C> getListWithAnagrafica(Class<C> model,
+            Collection<Integer> ids)
+    {
+        return listByIDs("select distinct o from " + model.getName()
+                + " o left join fetch o.dynamicField.anagrafica where o.id in (:ids)", ids);
+    }
+
+    /**
+     * Load the nested objects of a set of CRIS objects with their
+     * properties, a few queries for the whole set instead of one query per
+     * object and type of nested object.
+     */
+    public <N extends ACrisNestedObject> List<N> getNestedObjectsByParentIDs(Class<N> model,
+            Collection<Integer> parentIds)
+    {
+        return listByIDs("select distinct n from " + model.getName()
+                + " n left join fetch n.anagrafica where n.parent.id in (:ids)", parentIds);
+    }
+
+    /**
+     * Read the last modification date of a set of CRIS objects of a class,
+     * a query for the whole set.  In a session of its own if asked, so that
+     * it can be called outside of a request, e.g. by the background
+     * revalidation of the application service cache.
+     *
+     * @return the latest modification date, or null if one of the objects
+     *         is deleted or has no modification date
+     */
+    public <C extends ACrisObject> Date maxLastModifiedTimeStamp(Class<C> model,
+            Collection<Integer> ids, boolean newSession)
+    {
+        Session session = newSession ? getSessionFactory().openSession()
+                : getSessionFactory().getCurrentSession();
+        try
+        {
+            String hql = "select count(o.timeStampInfo.timestampLastModified.timestamp), "
+                    + "max(o.timeStampInfo.timestampLastModified.timestamp) from "
+                    + model.getName() + " o where o.id in (:ids)";
+            List<Integer> all = new ArrayList<Integer>(ids);
+            Date max = null;
+            for (int from = 0; from < all.size(); from += MAX_IN_CLAUSE)
+            {
+                List<Integer> chunk = all.subList(from,
+                        Math.min(from + MAX_IN_CLAUSE, all.size()));
+                Query query = session.createQuery(hql);
+                query.setParameterList("ids", chunk);
+                Object[] row = (Object[]) query.uniqueResult();
+                if (((Number) row[0]).intValue() < chunk.size())
+                {
+                    return null;
+                }
+                Date last = (Date) row[1];
+                if (max == null || last.after(max))
+                {
+                    max = last;
+                }
+            }
+            return max;
+        }
+        finally
+        {
+            if (newSession)
+            {
+                session.close();
+            }
+        }
+    }
+
+    private <T> List<T> listByIDs(String hql, Collection<Integer> ids)
+    {
+        List<T> result = new ArrayList<T>();
+        List<Integer> all = new ArrayList<Integer>(ids);
+        for (int from = 0; from < all.size(); from += MAX_IN_CLAUSE)
+        {
+            Query query = getSessionFactory().getCurrentSession().createQuery(hql);
+            query.setParameterList("ids",
+                    all.subList(from, Math.min(from + MAX_IN_CLAUSE, all.size())));
+            result.addAll(query.list());
+        }
+        return result;
+    }
 }
@@ -37,11 +37,24 @@ public interface DedupService
 
     public void updateIndex(Context context, boolean force);
 
+    /**
+     * Rebuild the index of all the types, resuming the rebuilds interrupted
+     * if <code>resume</code> is true.  The whole index is always rebuilt,
+     * as by {@link #updateIndex(Context, boolean)}.
+     */
+    public void rebuildIndex(Context context, boolean resume);
+
     public void indexContent(Context context, List<Integer> ids, boolean force,
             int type);
 
     public void updateIndex(Context context, boolean b, Integer type);
 
+    /**
+     * Rebuild the index of a type, going on from the checkpoint of an
+     * interrupted rebuild if <code>resume</code> is true.
+     */
+    public void rebuildIndex(Context context, Integer type, boolean resume);
+
     public void optimize();
 
     public void unIndexContent(Context context, String handleOrUuid) throws IllegalStateException, SQLException;
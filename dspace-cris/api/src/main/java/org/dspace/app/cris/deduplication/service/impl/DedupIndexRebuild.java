@@ -0,0 +1,724 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/CILEA/dspace-cris/wiki/License
+ */
+package org.dspace.app.cris.deduplication.service.impl;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.impl.HttpSolrServer;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.params.CursorMarkParams;
+import org.dspace.app.cris.deduplication.service.SearchDeduplication;
+import org.dspace.app.cris.deduplication.service.impl.SolrDedupServiceImpl.DeduplicationFlag;
+import org.dspace.app.cris.deduplication.utils.MinHashSignature;
+import org.dspace.app.cris.deduplication.utils.Signature;
+import org.dspace.app.util.Util;
+import org.dspace.content.DSpaceObject;
+import org.dspace.content.Item;
+import org.dspace.core.ConfigurationManager;
+import org.dspace.core.Constants;
+import org.dspace.core.Context;
+import org.dspace.storage.rdbms.DatabaseManager;
+import org.dspace.storage.rdbms.TableRow;
+import org.dspace.storage.rdbms.TableRowIterator;
+import org.dspace.utils.DSpace;
+
+/**
+ * Rebuild of the deduplication index of one resource type, in stages:
+ * <ol>
+ * <li>the rejected pairs of the type are read with a single query and
+ * written to the index;</li>
+ * <li>the signatures of the objects are computed by a pool of threads,
+ * chunk of IDs after chunk, and written as FAKE documents in batches; the
+ * index is committed and a checkpoint saved after each chunk;</li>
+ * <li>the FAKE documents are read back, one signature field at a time,
+ * and the objects sharing a signature value are paired in memory;</li>
+ * <li>the MATCH documents of the pairs are written in batches.</li>
+ * </ol>
+ * No Solr query is made for each object, as the former rebuild did.
+ * Signature values shared by more than <code>indexer.group.max-size</code>
+ * objects (e.g. the title "Editorial") are skipped, to bound the number of
+ * pairs.
+ * <p>
+ * A rebuild interrupted during the second stage is resumed after the last
+ * checkpointed chunk; the later stages are run again from the index.  The
+ * checkpoint of each type is kept in <code>[dspace]/var/dedup</code>.
+ * <p>
+ * Configuration (modules/deduplication.cfg):
+ * <pre>
+ * indexer.items.threads = 9
+ * indexer.chunk.size = 10000
+ * indexer.batch.size = 1000
+ * indexer.group.max-size = 100
+ * </pre>
+ */
+class DedupIndexRebuild
+{
+    private static final Logger log = Logger.getLogger(DedupIndexRebuild.class);
+
+    private static final String STAGE_SIGNATURES = "signatures";
+
+    private static final String STAGE_MATCHES = "matches";
+
+    private static final String STAGE_DONE = "done";
+
+    private final SolrDedupServiceImpl service;
+
+    private final int type;
+
+    private final int threads;
+
+    private final int chunkSize;
+
+    private final int batchSize;
+
+    private final int maxGroupSize;
+
+    private final File checkpointFile;
+
+    /**
+     * Documents waiting to be written to the index, shared by the threads.
+     */
+    private final class Batch
+    {
+        private List<SolrInputDocument> docs = new ArrayList<SolrInputDocument>();
+
+        private int written = 0;
+
+        synchronized void add(SolrInputDocument doc) throws IOException
+        {
+            docs.add(doc);
+            if (docs.size() >= batchSize)
+            {
+                flush();
+            }
+        }
+
+        synchronized void flush() throws IOException
+        {
+            if (docs.isEmpty())
+            {
+                return;
+            }
+            HttpSolrServer solr = service.getSolr();
+            if (solr == null)
+            {
+                throw new IOException("The deduplication index is not available");
+            }
+            try
+            {
+                solr.add(docs);
+            }
+            catch (SolrServerException e)
+            {
+                throw new IOException(e.getMessage(), e);
+            }
+            written += docs.size();
+            docs = new ArrayList<SolrInputDocument>();
+        }
+
+        synchronized int getWritten()
+        {
+            return written;
+        }
+    }
+
+    DedupIndexRebuild(SolrDedupServiceImpl service, int type)
+    {
+        this(service, type,
+                ConfigurationManager.getIntProperty("deduplication", "indexer.items.threads", 5),
+                ConfigurationManager.getIntProperty("deduplication", "indexer.chunk.size", 10000),
+                ConfigurationManager.getIntProperty("deduplication", "indexer.batch.size", 1000),
+                ConfigurationManager.getIntProperty("deduplication", "indexer.group.max-size", 100),
+                new File(ConfigurationManager.getProperty("dspace.dir")
+                        + File.separator + "var" + File.separator + "dedup",
+                        "rebuild-" + type + ".checkpoint"));
+    }
+
+    DedupIndexRebuild(SolrDedupServiceImpl service, int type, int threads, int chunkSize,
+            int batchSize, int maxGroupSize, File checkpointFile)
+    {
+        this.service = service;
+        this.type = type;
+        this.threads = Math.max(1, threads);
+        this.chunkSize = Math.max(1, chunkSize);
+        this.batchSize = Math.max(1, batchSize);
+        this.maxGroupSize = maxGroupSize;
+        this.checkpointFile = checkpointFile;
+    }
+
+    /**
+     * Rebuild the index of the objects.
+     *
+     * @param context
+     *            the DSpace context, to read the rejected pairs
+     * @param ids
+     *            the IDs of all the objects of the type
+     * @param resume
+     *            true to go on from the checkpoint of an interrupted
+     *            rebuild, if any
+     */
+    void run(Context context, List<Integer> ids, boolean resume) throws Exception
+    {
+        Properties checkpoint = resume ? readCheckpoint() : new Properties();
+        String stage = checkpoint.getProperty("stage", STAGE_SIGNATURES);
+        if (STAGE_DONE.equals(stage))
+        {
+            log.info(prefix() + "already rebuilt, nothing to resume");
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try
+        {
+            if (STAGE_SIGNATURES.equals(stage))
+            {
+                String lastId = checkpoint.getProperty("last.id");
+                if (lastId != null)
+                {
+                    log.info(prefix() + "resuming after the object " + lastId);
+                }
+                writeRejects(context, ids);
+                writeSignatures(executor, ids,
+                        lastId != null ? Integer.parseInt(lastId) : Integer.MIN_VALUE);
+                saveCheckpoint(STAGE_MATCHES, null);
+            }
+            writeMatches(executor);
+            saveCheckpoint(STAGE_DONE, null);
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Stage 1: write the rejected pairs involving the objects.
+     */
+    void writeRejects(Context context, List<Integer> ids) throws Exception
+    {
+        long start = System.currentTimeMillis();
+        Set<Integer> known = new HashSet<Integer>(ids);
+        List<TableRow> rows = new ArrayList<TableRow>();
+        TableRowIterator tri = DatabaseManager.queryTable(context, "dedup_reject",
+                "select * from dedup_reject where resource_type_id = ?", type);
+        try
+        {
+            while (tri.hasNext())
+            {
+                TableRow row = tri.next();
+                if (known.contains(row.getIntColumn("first_item_id"))
+                        || known.contains(row.getIntColumn("second_item_id")))
+                {
+                    rows.add(row);
+                }
+            }
+        }
+        finally
+        {
+            tri.close();
+        }
+
+        Batch batch = new Batch();
+        for (TableRow row : rows)
+        {
+            int firstId = row.getIntColumn("first_item_id");
+            int secondId = row.getIntColumn("second_item_id");
+            String readerNote = row.getStringColumn(SolrDedupServiceImpl.COLUMN_READER_NOTE);
+            addReject(batch, firstId, secondId,
+                    row.getStringColumn(SolrDedupServiceImpl.COLUMN_SUBMITTER_DECISION), readerNote);
+            addReject(batch, firstId, secondId,
+                    row.getStringColumn(SolrDedupServiceImpl.COLUMN_WORKFLOW_DECISION), readerNote);
+            addReject(batch, firstId, secondId,
+                    row.getStringColumn(SolrDedupServiceImpl.COLUMN_ADMIN_DECISION),
+                    row.getStringColumn(SolrDedupServiceImpl.COLUMN_ADMIN_NOTE));
+        }
+        batch.flush();
+        log.info(prefix() + batch.getWritten() + " reject documents of " + rows.size()
+                + " rejected pairs written" + rate(batch.getWritten(), start));
+    }
+
+    private void addReject(Batch batch, int firstId, int secondId, String decision, String note)
+            throws IOException
+    {
+        if (StringUtils.isNotBlank(decision))
+        {
+            batch.add(service.createDocument(null, firstId, secondId,
+                    DeduplicationFlag.getEnum(decision), type, null, null, note));
+        }
+    }
+
+    /**
+     * Stage 2: write the FAKE documents holding the signatures of the
+     * objects, the IDs above <code>lastId</code> only.
+     */
+    private void writeSignatures(ExecutorService executor, List<Integer> ids, int lastId)
+            throws Exception
+    {
+        List<Integer> todo = new ArrayList<Integer>();
+        for (Integer id : ids)
+        {
+            if (id.intValue() > lastId)
+            {
+                todo.add(id);
+            }
+        }
+        Collections.sort(todo);
+
+        int done = 0;
+        int written = 0;
+        long start = System.currentTimeMillis();
+        for (int from = 0; from < todo.size(); from += chunkSize)
+        {
+            List<Integer> chunk = todo.subList(from, Math.min(from + chunkSize, todo.size()));
+            written += writeSignatures(executor, chunk);
+            saveCheckpoint(STAGE_SIGNATURES, chunk.get(chunk.size() - 1));
+            done += chunk.size();
+            log.info(prefix() + "signatures of " + done + " / " + todo.size()
+                    + " objects computed, " + written + " written" + rate(done, start));
+        }
+    }
+
+    /**
+     * Write the FAKE documents of a chunk of objects, and commit them.
+     *
+     * @return the number of documents written
+     */
+    int writeSignatures(ExecutorService executor, List<Integer> chunk) throws Exception
+    {
+        final SearchDeduplication searchSignature = service.getSearchDeduplication(type);
+        final Batch batch = new Batch();
+        List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+        for (final List<Integer> part : Util.splitList(chunk, threads))
+        {
+            if (part.isEmpty())
+            {
+                continue;
+            }
+            tasks.add(new Callable<Object>()
+            {
+                @Override
+                public Object call() throws Exception
+                {
+                    computeSignatures(part, searchSignature, batch);
+                    return null;
+                }
+            });
+        }
+        invokeAll(executor, tasks);
+        batch.flush();
+        service.commit();
+        return batch.getWritten();
+    }
+
+    private void computeSignatures(List<Integer> ids, SearchDeduplication searchSignature,
+            Batch batch) throws Exception
+    {
+        Context context = new Context();
+        try
+        {
+            context.turnOffAuthorisationSystem();
+            for (Integer id : ids)
+            {
+                try
+                {
+                    DSpaceObject dso = find(context, id);
+                    if (dso != null)
+                    {
+                        Map<String, List<String>> signatures = new HashMap<String, List<String>>();
+                        List<String> filters = new ArrayList<String>();
+                        service.fillSignature(context, dso, signatures, filters);
+                        if (!filters.isEmpty())
+                        {
+                            batch.add(service.createDocument(context, id, id,
+                                    DeduplicationFlag.FAKE, type, signatures, searchSignature, null));
+                        }
+                        if (dso instanceof Item)
+                        {
+                            ((Item) dso).decache();
+                        }
+                    }
+                }
+                catch (IOException e)
+                {
+                    // the index failed, the chunk must be done again
+                    throw e;
+                }
+                catch (Exception e)
+                {
+                    log.error(prefix() + "cannot compute the signatures of the object " + id
+                            + ": " + e.getMessage(), e);
+                }
+            }
+        }
+        finally
+        {
+            context.abort();
+        }
+    }
+
+    /**
+     * Stage 3: pair the objects sharing a signature value, reading the FAKE
+     * documents of the index one signature field at a time.
+     *
+     * @return the signature values shared by each pair, by field, the key
+     *         of a pair being its lowest ID in the high 32 bits
+     */
+    private Map<Long, Map<String, List<String>>> findPairs() throws Exception
+    {
+        Set<String> fields = new LinkedHashSet<String>();
+        for (Signature algo : new DSpace().getServiceManager().getServicesByType(Signature.class))
+        {
+            if (algo.getResourceTypeID() == type)
+            {
+                fields.add(algo.getSignatureType() + "_signature");
+            }
+        }
+
+        Map<Long, Map<String, List<String>>> pairs = new HashMap<Long, Map<String, List<String>>>();
+        for (String field : fields)
+        {
+            long start = System.currentTimeMillis();
+            MinHashSignature minHash = service.getMinHashSignature(type, field);
+
+            // the objects of each value: the size in slot 0, then the IDs
+            Map<String, int[]> groups = new HashMap<String, int[]>();
+            Map<Integer, Collection<Object>> values = minHash != null
+                    ? new HashMap<Integer, Collection<Object>>() : null;
+            int read = readSignatures(field, groups, values);
+
+            int found = 0;
+            int skipped = 0;
+            Map<Long, Boolean> similar = new HashMap<Long, Boolean>();
+            for (Map.Entry<String, int[]> group : groups.entrySet())
+            {
+                int[] ids = group.getValue();
+                if (ids[0] < 2)
+                {
+                    continue;
+                }
+                if (ids[0] > maxGroupSize)
+                {
+                    skipped++;
+                    continue;
+                }
+                for (int i = 1; i <= ids[0]; i++)
+                {
+                    for (int j = i + 1; j <= ids[0]; j++)
+                    {
+                        int first = Math.min(ids[i], ids[j]);
+                        int second = Math.max(ids[i], ids[j]);
+                        if (first == second)
+                        {
+                            continue;
+                        }
+                        Long key = Long.valueOf(((long) first << 32) | (second & 0xffffffffL));
+                        if (minHash != null)
+                        {
+                            // sharing a band key makes a near duplicate candidate only
+                            Boolean isSimilar = similar.get(key);
+                            if (isSimilar == null)
+                            {
+                                isSimilar = Boolean.valueOf(minHash.isSimilar(
+                                        values.get(first), values.get(second)));
+                                similar.put(key, isSimilar);
+                            }
+                            if (!isSimilar.booleanValue())
+                            {
+                                continue;
+                            }
+                        }
+                        Map<String, List<String>> shared = pairs.get(key);
+                        if (shared == null)
+                        {
+                            shared = new HashMap<String, List<String>>();
+                            pairs.put(key, shared);
+                            found++;
+                        }
+                        List<String> sharedValues = shared.get(field);
+                        if (sharedValues == null)
+                        {
+                            sharedValues = new ArrayList<String>();
+                            shared.put(field, sharedValues);
+                        }
+                        sharedValues.add(group.getKey());
+                    }
+                }
+            }
+            if (skipped > 0)
+            {
+                log.warn(prefix() + skipped + " values of " + field + " shared by more than "
+                        + maxGroupSize + " objects were skipped");
+            }
+            log.info(prefix() + field + " of " + read + " objects read, " + groups.size()
+                    + " distinct values, " + found + " new pairs" + rate(read, start));
+        }
+        return pairs;
+    }
+
+    private int readSignatures(String field, Map<String, int[]> groups,
+            Map<Integer, Collection<Object>> values) throws Exception
+    {
+        HttpSolrServer solr = service.getSolr();
+        if (solr == null)
+        {
+            throw new IOException("The deduplication index is not available");
+        }
+        SolrQuery query = new SolrQuery("*:*");
+        query.addFilterQuery(SolrDedupServiceImpl.RESOURCE_RESOURCETYPE_FIELD + ":" + type,
+                SolrDedupServiceImpl.RESOURCE_FLAG_FIELD + ":"
+                        + DeduplicationFlag.FAKE.getDescription(),
+                field + ":[* TO *]");
+        query.setFields(SolrDedupServiceImpl.RESOURCE_IDS_FIELD, field);
+        query.setRows(batchSize);
+        query.setSort(SolrDedupServiceImpl.UNIQUE_ID_FIELD, SolrQuery.ORDER.asc);
+
+        int read = 0;
+        String cursor = CursorMarkParams.CURSOR_MARK_START;
+        while (true)
+        {
+            query.set(CursorMarkParams.CURSOR_MARK_PARAM, cursor);
+            QueryResponse response = solr.query(query);
+            for (SolrDocument doc : response.getResults())
+            {
+                Object idValue = doc.getFirstValue(SolrDedupServiceImpl.RESOURCE_IDS_FIELD);
+                Collection<Object> docValues = doc.getFieldValues(field);
+                if (idValue == null || docValues == null)
+                {
+                    continue;
+                }
+                int id = Integer.parseInt(idValue.toString());
+                for (Object value : docValues)
+                {
+                    String key = (String) value;
+                    int[] ids = groups.get(key);
+                    if (ids == null)
+                    {
+                        ids = new int[2];
+                    }
+                    else if (ids[ids[0]] == id)
+                    {
+                        // the same value twice in the document
+                        continue;
+                    }
+                    else if (ids[0] + 1 == ids.length)
+                    {
+                        ids = Arrays.copyOf(ids, ids.length * 2);
+                    }
+                    ids[++ids[0]] = id;
+                    groups.put(key, ids);
+                }
+                if (values != null)
+                {
+                    values.put(id, docValues);
+                }
+                read++;
+            }
+            String next = response.getNextCursorMark();
+            if (next == null || next.equals(cursor))
+            {
+                return read;
+            }
+            cursor = next;
+        }
+    }
+
+    /**
+     * Stages 3 and 4: pair the objects and write the MATCH documents.
+     */
+    void writeMatches(ExecutorService executor) throws Exception
+    {
+        writeMatches(executor, findPairs());
+    }
+
+    /**
+     * Stage 4: write the MATCH documents of the pairs.
+     */
+    private void writeMatches(ExecutorService executor,
+            final Map<Long, Map<String, List<String>>> pairs) throws Exception
+    {
+        final SearchDeduplication searchSignature = service.getSearchDeduplication(type);
+        final Batch batch = new Batch();
+        long start = System.currentTimeMillis();
+        List<Long> keys = new ArrayList<Long>(pairs.keySet());
+        Collections.sort(keys);
+        List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+        for (final List<Long> part : Util.splitList(keys, threads))
+        {
+            if (part.isEmpty())
+            {
+                continue;
+            }
+            tasks.add(new Callable<Object>()
+            {
+                @Override
+                public Object call() throws Exception
+                {
+                    Context context = new Context();
+                    try
+                    {
+                        context.turnOffAuthorisationSystem();
+                        for (Long key : part)
+                        {
+                            int firstId = (int) (key.longValue() >>> 32);
+                            int secondId = (int) key.longValue();
+                            batch.add(service.createDocument(context, firstId, secondId,
+                                    DeduplicationFlag.MATCH, type, pairs.get(key),
+                                    searchSignature, null));
+                        }
+                    }
+                    finally
+                    {
+                        context.abort();
+                    }
+                    return null;
+                }
+            });
+        }
+        invokeAll(executor, tasks);
+        batch.flush();
+        service.commit();
+        log.info(prefix() + batch.getWritten() + " match documents written"
+                + rate(batch.getWritten(), start));
+    }
+
+    private DSpaceObject find(Context context, int id) throws Exception
+    {
+        if (type == Constants.ITEM)
+        {
+            return Item.find(context, id);
+        }
+        return service.getApplicationService().getEntityById(id, type);
+    }
+
+    /**
+     * Run tasks and wait for them, failing if any of them failed.
+     */
+    private static void invokeAll(ExecutorService executor, List<Callable<Object>> tasks)
+            throws Exception
+    {
+        for (Future<Object> future : executor.invokeAll(tasks))
+        {
+            try
+            {
+                future.get();
+            }
+            catch (ExecutionException e)
+            {
+                if (e.getCause() instanceof Exception)
+                {
+                    throw (Exception) e.getCause();
+                }
+                throw e;
+            }
+        }
+    }
+
+    private Properties readCheckpoint()
+    {
+        Properties checkpoint = new Properties();
+        if (checkpointFile.exists())
+        {
+            InputStream in = null;
+            try
+            {
+                in = new FileInputStream(checkpointFile);
+                checkpoint.load(in);
+            }
+            catch (IOException e)
+            {
+                log.warn(prefix() + "cannot read the checkpoint " + checkpointFile
+                        + ", rebuilding from the start: " + e.getMessage());
+                checkpoint.clear();
+            }
+            finally
+            {
+                IOUtils.closeQuietly(in);
+            }
+        }
+        return checkpoint;
+    }
+
+    private void saveCheckpoint(String stage, Integer lastId)
+    {
+        Properties checkpoint = new Properties();
+        checkpoint.setProperty("stage", stage);
+        if (lastId != null)
+        {
+            checkpoint.setProperty("last.id", lastId.toString());
+        }
+
+        File dir = checkpointFile.getParentFile();
+        File tmp = new File(dir, checkpointFile.getName() + ".tmp");
+        OutputStream out = null;
+        try
+        {
+            if (!dir.isDirectory() && !dir.mkdirs())
+            {
+                throw new IOException("cannot create " + dir);
+            }
+            out = new FileOutputStream(tmp);
+            checkpoint.store(out, "deduplication index rebuild of the type " + type);
+            out.close();
+            out = null;
+            if (!tmp.renameTo(checkpointFile)
+                    && !(checkpointFile.delete() && tmp.renameTo(checkpointFile)))
+            {
+                throw new IOException("cannot rename " + tmp);
+            }
+        }
+        catch (IOException e)
+        {
+            // the rebuild goes on, it just cannot be resumed from here
+            log.warn(prefix() + "cannot save the checkpoint " + checkpointFile + ": "
+                    + e.getMessage());
+        }
+        finally
+        {
+            IOUtils.closeQuietly(out);
+        }
+    }
+
+    private String prefix()
+    {
+        return "Deduplication index of the type " + type + ": ";
+    }
+
+    private static String rate(int count, long start)
+    {
+        long elapsed = Math.max(1, System.currentTimeMillis() - start);
+        return " in " + (elapsed / 1000) + " s (" + (count * 1000L / elapsed) + " per second)";
+    }
+}
@@ -33,6 +33,7 @@ import org.apache.solr.common.SolrInputDocument;
 import org.dspace.app.cris.deduplication.service.DedupService;
 import org.dspace.app.cris.deduplication.service.SearchDeduplication;
 import org.dspace.app.cris.deduplication.service.SolrDedupServiceIndexPlugin;
+import org.dspace.app.cris.deduplication.utils.MinHashSignature;
 import org.dspace.app.cris.deduplication.utils.Signature;
 import org.dspace.app.cris.model.CrisConstants;
 import org.dspace.app.cris.model.OrganizationUnit;
@@ -235,11 +236,7 @@ public class SolrDedupServiceImpl implements DedupService
         String dedupID = iu.getID() + "-" + iu.getID();
 
         // retrieve all search plugin to build search document in the same index
-        SearchDeduplication searchSignature = dspace.getServiceManager()
-                .getServiceByName(
-                        CrisConstants.getEntityTypeText(iu.getType())
-                                .toUpperCase() + "SearchDeduplication",
-                        SearchDeduplication.class);
+        SearchDeduplication searchSignature = getSearchDeduplication(iu.getType());
         
         // build the dedup reject in the dedup index core
         buildFromDedupReject(ctx, iu, tmpMapFilter, tmpFilter, searchSignature);
@@ -259,7 +256,18 @@ public class SolrDedupServiceImpl implements DedupService
         
     }
 
-    private void fillSignature(Context ctx, DSpaceObject iu,
+    /**
+     * Get the search plugins adding fields to the documents of a type.
+     */
+    SearchDeduplication getSearchDeduplication(int type)
+    {
+        return dspace.getServiceManager().getServiceByName(
+                CrisConstants.getEntityTypeText(type).toUpperCase()
+                        + "SearchDeduplication",
+                SearchDeduplication.class);
+    }
+
+    void fillSignature(Context ctx, DSpaceObject iu,
             Map<String, List<String>> tmpMapFilter, List<String> tmpFilter)
     {
         // get all algorithms to build signature
@@ -374,15 +382,44 @@ public class SolrDedupServiceImpl implements DedupService
                     }
                 }
                 if(!valueResult.isEmpty()) {
+                    // sharing a band key makes a near duplicate candidate only
+                    MinHashSignature minHash = getMinHashSignature(iu.getType(), field);
+                    if (minHash != null && !minHash.isSimilar(tmpMapFilter.get(field),
+                            resultDoc.getFieldValues(field)))
+                    {
+                        continue;
+                    }
                     tmp.put(field, valueResult);
                 }
             }
 
+            if (tmp.isEmpty())
+            {
+                continue external;
+            }
+
             build(ctx, iu.getID(), matchId, DeduplicationFlag.MATCH, iu.getType(), tmp, searchSignature, null);
             
         }
     }
 
+    /**
+     * Get the near duplicate signature writing a field, if any.
+     */
+    MinHashSignature getMinHashSignature(int type, String field)
+    {
+        for (MinHashSignature algo : dspace.getServiceManager()
+                .getServicesByType(MinHashSignature.class))
+        {
+            if (algo.getResourceTypeID() == type
+                    && field.equals(algo.getSignatureType() + "_signature"))
+            {
+                return algo;
+            }
+        }
+        return null;
+    }
+
     private void removeFake(String dedupID, Integer type)
             throws SearchServiceException
     {
@@ -408,6 +445,36 @@ public class SolrDedupServiceImpl implements DedupService
     public void build(Context ctx, Integer firstId, Integer secondId,
             DeduplicationFlag flag, Integer type,
             Map<String, List<String>> signatures, SearchDeduplication searchSignature, String note)
+    {
+        SolrInputDocument doc = createDocument(ctx, firstId, secondId, flag,
+                type, signatures, searchSignature, note);
+        String uniqueId = (String) doc.getFieldValue(UNIQUE_ID_FIELD);
+
+        // write the document to the index
+        try
+        {
+            writeDocument(doc);
+            log.info("Wrote " + flag.description + " duplicate: " + uniqueId + " to Index");
+        }
+        catch (RuntimeException e)
+        {
+            log.error("Error while writing a " + flag.description + " to deduplication index: "
+                    + uniqueId + " message:" + e.getMessage(), e);
+        }
+        catch (IOException e)
+        {
+            log.error("Error while writing a " + flag.description + " to deduplication index: "
+                    + uniqueId + " message:" + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Create the document of a pair of objects, or of an object alone (the
+     * FAKE document holding its signatures).
+     */
+    SolrInputDocument createDocument(Context ctx, Integer firstId, Integer secondId,
+            DeduplicationFlag flag, Integer type,
+            Map<String, List<String>> signatures, SearchDeduplication searchSignature, String note)
     {
         SolrInputDocument doc = new SolrInputDocument();
 
@@ -455,23 +522,7 @@ public class SolrDedupServiceImpl implements DedupService
             }
 
         }
-
-        // write the document to the index
-        try
-        {
-            writeDocument(doc);
-            log.info("Wrote " + flag.description + " duplicate: " + uniqueId + " to Index");
-        }
-        catch (RuntimeException e)
-        {
-            log.error("Error while writing a " + flag.description + " to deduplication index: "
-                    + uniqueId + " message:" + e.getMessage(), e);
-        }
-        catch (IOException e)
-        {
-            log.error("Error while writing a " + flag.description + " to deduplication index: "
-                    + uniqueId + " message:" + e.getMessage(), e);
-        }
+        return doc;
     }
 
     protected void writeDocument(SolrInputDocument doc) throws IOException
@@ -707,84 +758,43 @@ public class SolrDedupServiceImpl implements DedupService
         }
     }
 
+    /**
+     * Rebuild the index of all the types.  <code>force</code> is not used:
+     * every object is indexed again, and the clean up is left to
+     * {@link #cleanIndex(boolean)}.
+     */
     @Override
     public void updateIndex(Context context, boolean force)
     {
-        updateIndex(context, force, CrisConstants.CRIS_DYNAMIC_TYPE_ID_START);
-        updateIndex(context, force, CrisConstants.OU_TYPE_ID);
-        updateIndex(context, force, CrisConstants.PROJECT_TYPE_ID);
-        updateIndex(context, force, CrisConstants.RP_TYPE_ID);
-        updateIndex(context, force, Constants.ITEM);
+        rebuildIndex(context, false);
+    }
+
+    @Override
+    public void rebuildIndex(Context context, boolean resume)
+    {
+        rebuildIndex(context, CrisConstants.CRIS_DYNAMIC_TYPE_ID_START, resume);
+        rebuildIndex(context, CrisConstants.OU_TYPE_ID, resume);
+        rebuildIndex(context, CrisConstants.PROJECT_TYPE_ID, resume);
+        rebuildIndex(context, CrisConstants.RP_TYPE_ID, resume);
+        rebuildIndex(context, Constants.ITEM, resume);
     }
 
+    /**
+     * Rebuild the index of a type.  <code>force</code> is not used, as by
+     * {@link #updateIndex(Context, boolean)}.
+     */
     @Override
     public void updateIndex(Context context, boolean force, Integer type)
+    {
+        rebuildIndex(context, type, false);
+    }
+
+    @Override
+    public void rebuildIndex(Context context, Integer type, boolean resume)
     {
         try
         {
-            switch (type)
-            {
-            case Constants.ITEM:
-                List<Integer> ids = Item.findAllItemIDs(context);
-                startMultiThreadIndex(true, ids, type);
-                commit();
-                startMultiThreadIndex(false, ids, type);
-                commit();
-                break;
-            case CrisConstants.RP_TYPE_ID:
-                List<Integer> rpids = getApplicationService().findAllResearcherPageID();
-                startMultiThreadIndex(true, rpids, type);
-                commit();
-                startMultiThreadIndex(false, rpids, type);
-                commit();
-                break;
-            case CrisConstants.PROJECT_TYPE_ID:
-                List<Project> pjObjs = getApplicationService()
-                        .getList(Project.class);
-
-                List<Integer> pjids = new ArrayList<Integer>();
-                for (Project pj : pjObjs)
-                {
-                    pjids.add(pj.getID());
-                }
-
-                startMultiThreadIndex(true, pjids, type);
-                commit();
-                startMultiThreadIndex(false, pjids, type);
-                commit();
-                break;
-            case CrisConstants.OU_TYPE_ID:
-                List<OrganizationUnit> ouObjs = getApplicationService()
-                        .getList(OrganizationUnit.class);
-
-                List<Integer> ouids = new ArrayList<Integer>();
-                for (OrganizationUnit ou : ouObjs)
-                {
-                    ouids.add(ou.getID());
-                }
-
-                startMultiThreadIndex(true, ouids, type);
-                commit();
-                startMultiThreadIndex(false, ouids, type);
-                commit();
-                break;
-            default:
-                List<ResearchObject> roObjs = getApplicationService()
-                        .getList(ResearchObject.class);
-
-                List<Integer> roids = new ArrayList<Integer>();
-                for (ResearchObject ro : roObjs)
-                {
-                    roids.add(ro.getID());
-                }
-
-                startMultiThreadIndex(true, roids, type);
-                commit();
-                startMultiThreadIndex(false, roids, type);
-                commit();
-                break;
-            }
-
+            new DedupIndexRebuild(this, type).run(context, findAllIDs(context, type), resume);
         }
         catch (Exception e)
         {
@@ -792,6 +802,48 @@ public class SolrDedupServiceImpl implements DedupService
         }
     }
 
+    private List<Integer> findAllIDs(Context context, Integer type)
+            throws SQLException
+    {
+        switch (type)
+        {
+        case Constants.ITEM:
+            return Item.findAllItemIDs(context);
+        case CrisConstants.RP_TYPE_ID:
+            return getApplicationService().findAllResearcherPageID();
+        case CrisConstants.PROJECT_TYPE_ID:
+            List<Project> pjObjs = getApplicationService()
+                    .getList(Project.class);
+
+            List<Integer> pjids = new ArrayList<Integer>();
+            for (Project pj : pjObjs)
+            {
+                pjids.add(pj.getID());
+            }
+            return pjids;
+        case CrisConstants.OU_TYPE_ID:
+            List<OrganizationUnit> ouObjs = getApplicationService()
+                    .getList(OrganizationUnit.class);
+
+            List<Integer> ouids = new ArrayList<Integer>();
+            for (OrganizationUnit ou : ouObjs)
+            {
+                ouids.add(ou.getID());
+            }
+            return ouids;
+        default:
+            List<ResearchObject> roObjs = getApplicationService()
+                    .getList(ResearchObject.class);
+
+            List<Integer> roids = new ArrayList<Integer>();
+            for (ResearchObject ro : roObjs)
+            {
+                roids.add(ro.getID());
+            }
+            return roids;
+        }
+    }
+
     @Override
     public void optimize()
     {
@@ -855,7 +907,7 @@ public class SolrDedupServiceImpl implements DedupService
 
     private void startMultiThreadIndex(boolean onlyFake, List<Integer> ids, Integer type)
     {
-        int numThreads = ConfigurationManager.getIntProperty("dedup",
+        int numThreads = ConfigurationManager.getIntProperty("deduplication",
                 "indexer.items.threads", 5);        
         List<Integer>[] arrayIDList = Util.splitList(ids, numThreads);
         List<IndexerThread> threads = new ArrayList<IndexerThread>();
@@ -921,11 +973,7 @@ public class SolrDedupServiceImpl implements DedupService
                         fillSignature(context, item, tmpMapFilter, tmpFilter);
                         if(!tmpFilter.isEmpty()) {
                             // retrieve all search plugin to build search document in the same index
-                            SearchDeduplication searchSignature = dspace.getServiceManager()
-                                    .getServiceByName(
-                                            CrisConstants.getEntityTypeText(itemtype)
-                                                    .toUpperCase() + "SearchDeduplication",
-                                            SearchDeduplication.class);
+                            SearchDeduplication searchSignature = getSearchDeduplication(itemtype);
                             if(onlyFake) {                                
                                 buildFromDedupReject(context, item, tmpMapFilter, tmpFilter, searchSignature);                                
                                 build(context, item.getID(), item.getID(), DeduplicationFlag.FAKE, itemtype, tmpMapFilter, searchSignature, null);
@@ -0,0 +1,253 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/CILEA/dspace-cris/wiki/License
+ */
+package org.dspace.app.cris.deduplication.utils;
+
+import java.text.Normalizer;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * MinHash sketches of texts, to estimate the similarity of two texts
+ * without comparing them, and locality-sensitive hashing (LSH) band keys,
+ * shared by the texts whose sketches are alike.
+ * <p>
+ * A text is normalized (accents, case and punctuation removed) and cut in
+ * the character shingles of its words, so that typos only change a few
+ * shingles and the order of the words does not matter.  The sketch keeps
+ * the minimum of each of <code>numHashes</code> hash functions over the
+ * shingles: the fraction of equal positions of two sketches estimates the
+ * Jaccard similarity of the shingle sets.
+ * <p>
+ * The sketch is cut in <code>bands</code> bands, each hashed to a key: two
+ * texts share at least one key with a probability that rises sharply
+ * around the similarity <code>(1/bands)^(1/rows)</code>, rows being
+ * <code>numHashes / bands</code>.
+ * <p>
+ * Instances are immutable and thread-safe.
+ */
+public class MinHash
+{
+    private final int numHashes;
+
+    private final int bands;
+
+    private final int shingleSize;
+
+    /** coefficients of the hash functions */
+    private final int[] a;
+
+    private final int[] b;
+
+    public MinHash(int numHashes, int bands, int shingleSize)
+    {
+        if (numHashes <= 0 || bands <= 0 || numHashes % bands != 0)
+        {
+            throw new IllegalArgumentException("The number of hashes (" + numHashes
+                    + ") must be a multiple of the number of bands (" + bands + ")");
+        }
+        this.numHashes = numHashes;
+        this.bands = bands;
+        this.shingleSize = shingleSize;
+
+        // fixed seed, sketches must stay comparable between runs
+        Random random = new Random(0x5eed);
+        this.a = new int[numHashes];
+        this.b = new int[numHashes];
+        for (int i = 0; i < numHashes; i++)
+        {
+            a[i] = random.nextInt() | 1;
+            b[i] = random.nextInt();
+        }
+    }
+
+    /**
+     * Compute the sketch of a text.
+     *
+     * @param text
+     *            the text
+     * @return the sketch, or null if the text has no letter or digit
+     */
+    public int[] sketch(String text)
+    {
+        Set<String> shingles = shingles(text);
+        if (shingles.isEmpty())
+        {
+            return null;
+        }
+
+        int[] sketch = new int[numHashes];
+        for (int i = 0; i < numHashes; i++)
+        {
+            sketch[i] = Integer.MAX_VALUE;
+        }
+        for (String shingle : shingles)
+        {
+            int hash = mix(shingle.hashCode());
+            for (int i = 0; i < numHashes; i++)
+            {
+                int value = mix(a[i] * hash + b[i]) & Integer.MAX_VALUE;
+                if (value < sketch[i])
+                {
+                    sketch[i] = value;
+                }
+            }
+        }
+        return sketch;
+    }
+
+    /**
+     * Estimate the Jaccard similarity of the texts of two sketches.
+     *
+     * @return the fraction of equal positions, from 0 to 1
+     */
+    public static double similarity(int[] first, int[] second)
+    {
+        if (first == null || second == null || first.length != second.length)
+        {
+            return 0;
+        }
+        int equal = 0;
+        for (int i = 0; i < first.length; i++)
+        {
+            if (first[i] == second[i])
+            {
+                equal++;
+            }
+        }
+        return (double) equal / first.length;
+    }
+
+    /**
+     * Compute the LSH band keys of a sketch.
+     *
+     * @param sketch
+     *            the sketch
+     * @return one key by band, the band number in the high 32 bits
+     */
+    public long[] bandKeys(int[] sketch)
+    {
+        int rows = numHashes / bands;
+        long[] keys = new long[bands];
+        for (int band = 0; band < bands; band++)
+        {
+            int hash = 17;
+            for (int row = band * rows; row < (band + 1) * rows; row++)
+            {
+                hash = mix(31 * hash + sketch[row]);
+            }
+            keys[band] = ((long) band << 32) | (hash & 0xffffffffL);
+        }
+        return keys;
+    }
+
+    /**
+     * Encode a sketch as a string of hexadecimal digits.
+     */
+    public static String encode(int[] sketch)
+    {
+        char[] chars = new char[sketch.length * 8];
+        for (int i = 0; i < sketch.length; i++)
+        {
+            for (int j = 0; j < 8; j++)
+            {
+                chars[i * 8 + j] = MD5ValueSignature.HEX_DIGITS[(sketch[i] >>> (28 - 4 * j)) & 0xf];
+            }
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Decode a sketch encoded by {@link #encode(int[])}.
+     *
+     * @return the sketch, or null if the string is not an encoded sketch
+     */
+    public static int[] decode(String encoded)
+    {
+        if (encoded == null || encoded.length() % 8 != 0)
+        {
+            return null;
+        }
+        int[] sketch = new int[encoded.length() / 8];
+        for (int i = 0; i < sketch.length; i++)
+        {
+            int value = 0;
+            for (int j = 0; j < 8; j++)
+            {
+                int digit = Character.digit(encoded.charAt(i * 8 + j), 16);
+                if (digit < 0)
+                {
+                    return null;
+                }
+                value = (value << 4) | digit;
+            }
+            sketch[i] = value;
+        }
+        return sketch;
+    }
+
+    /**
+     * Normalize a text and cut it in the shingles of its words, each word
+     * padded with spaces so that short words still give one shingle.
+     */
+    Set<String> shingles(String text)
+    {
+        Set<String> shingles = new HashSet<String>();
+        if (text == null)
+        {
+            return shingles;
+        }
+        String norm = Normalizer.normalize(text, Normalizer.Form.NFD)
+                .replaceAll("\\p{InCombiningDiacriticalMarks}+", "")
+                .toLowerCase();
+        for (String word : norm.split("[^\\p{L}\\p{N}]+"))
+        {
+            if (word.length() == 0)
+            {
+                continue;
+            }
+            String padded = " " + word + " ";
+            if (padded.length() <= shingleSize)
+            {
+                shingles.add(padded);
+                continue;
+            }
+            for (int i = 0; i + shingleSize <= padded.length(); i++)
+            {
+                shingles.add(padded.substring(i, i + shingleSize));
+            }
+        }
+        return shingles;
+    }
+
+    /** finalizer of MurmurHash3, spreads the bits of the value */
+    private static int mix(int h)
+    {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    public int getNumHashes()
+    {
+        return numHashes;
+    }
+
+    public int getBands()
+    {
+        return bands;
+    }
+
+    public int getShingleSize()
+    {
+        return shingleSize;
+    }
+}
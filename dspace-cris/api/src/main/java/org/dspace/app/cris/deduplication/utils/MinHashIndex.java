@@ -0,0 +1,261 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/CILEA/dspace-cris/wiki/License
+ */
+package org.dspace.app.cris.deduplication.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+
+/**
+ * In-memory locality-sensitive hashing index of the MinHash sketches of a
+ * set of objects, to find the pairs of similar objects without comparing
+ * every object with every other one: only the objects falling in the same
+ * bucket of a band are compared, and kept when their estimated Jaccard
+ * similarity reaches the threshold.
+ * <p>
+ * Buckets are kept as growing int arrays of object IDs.  Buckets larger
+ * than <code>maxBucketSize</code> (e.g. the many items titled "Editorial")
+ * are not searched, to bound the work: their IDs are dropped and no more
+ * IDs are added to them, to bound the memory too.  The methods are
+ * thread-safe, so that the sketches can be computed and added by several
+ * threads.
+ */
+public class MinHashIndex
+{
+    /** log4j logger */
+    private static final Logger log = Logger.getLogger(MinHashIndex.class);
+
+    /**
+     * A pair of similar objects.
+     */
+    public static final class Match
+    {
+        private final int firstId;
+
+        private final int secondId;
+
+        private final double similarity;
+
+        Match(int firstId, int secondId, double similarity)
+        {
+            this.firstId = Math.min(firstId, secondId);
+            this.secondId = Math.max(firstId, secondId);
+            this.similarity = similarity;
+        }
+
+        /** the lowest ID of the pair */
+        public int getFirstId()
+        {
+            return firstId;
+        }
+
+        /** the highest ID of the pair */
+        public int getSecondId()
+        {
+            return secondId;
+        }
+
+        /** the estimated Jaccard similarity */
+        public double getSimilarity()
+        {
+            return similarity;
+        }
+    }
+
+    private final MinHash minHash;
+
+    private final double threshold;
+
+    private final int maxBucketSize;
+
+    /** the sketches of each object, by ID */
+    private final Map<Integer, List<int[]>> sketches = new HashMap<Integer, List<int[]>>();
+
+    /** the objects of each bucket: the size in slot 0, then the IDs */
+    private final Map<Long, int[]> buckets = new HashMap<Long, int[]>();
+
+    /** the shared bucket of the buckets grown larger than maxBucketSize */
+    private static final int[] OVERSIZE = { Integer.MAX_VALUE };
+
+    public MinHashIndex(MinHash minHash, double threshold, int maxBucketSize)
+    {
+        this.minHash = minHash;
+        this.threshold = threshold;
+        this.maxBucketSize = maxBucketSize;
+    }
+
+    /**
+     * Add the sketch of an object, e.g. of one of its titles.
+     */
+    public synchronized void add(int id, int[] sketch)
+    {
+        List<int[]> list = sketches.get(id);
+        if (list == null)
+        {
+            list = new ArrayList<int[]>(1);
+            sketches.put(id, list);
+        }
+        list.add(sketch);
+
+        for (long key : minHash.bandKeys(sketch))
+        {
+            int[] bucket = buckets.get(key);
+            if (bucket == null)
+            {
+                bucket = new int[2];
+            }
+            else if (bucket == OVERSIZE)
+            {
+                continue;
+            }
+            else if (bucket[bucket[0]] == id)
+            {
+                // another sketch of the object in the same bucket
+                continue;
+            }
+            else if (bucket[0] >= maxBucketSize)
+            {
+                // not searched any more, its IDs are of no use
+                buckets.put(key, OVERSIZE);
+                continue;
+            }
+            else if (bucket[0] + 1 == bucket.length)
+            {
+                bucket = Arrays.copyOf(bucket, bucket.length * 2);
+            }
+            bucket[++bucket[0]] = id;
+            buckets.put(key, bucket);
+        }
+    }
+
+    /**
+     * Find the objects similar to a sketch.
+     *
+     * @param sketch
+     *            the sketch
+     * @return the matches, the ID of the sketch owner being given as -1
+     */
+    public synchronized List<Match> find(int[] sketch)
+    {
+        List<Match> result = new ArrayList<Match>();
+        Set<Integer> seen = new HashSet<Integer>();
+        for (long key : minHash.bandKeys(sketch))
+        {
+            int[] bucket = buckets.get(key);
+            if (bucket == null || bucket == OVERSIZE)
+            {
+                continue;
+            }
+            for (int i = 1; i <= bucket[0]; i++)
+            {
+                if (seen.add(bucket[i]))
+                {
+                    double similarity = bestSimilarity(sketch, sketches.get(bucket[i]));
+                    if (similarity >= threshold)
+                    {
+                        result.add(new Match(-1, bucket[i], similarity));
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Find all the pairs of similar objects of the index.
+     *
+     * @return the pairs, each found once
+     */
+    public synchronized List<Match> findAll()
+    {
+        List<Match> result = new ArrayList<Match>();
+        Set<Long> seen = new HashSet<Long>();
+        int skipped = 0;
+        for (int[] bucket : buckets.values())
+        {
+            if (bucket == OVERSIZE)
+            {
+                skipped++;
+                continue;
+            }
+            for (int i = 1; i <= bucket[0]; i++)
+            {
+                for (int j = i + 1; j <= bucket[0]; j++)
+                {
+                    int first = Math.min(bucket[i], bucket[j]);
+                    int second = Math.max(bucket[i], bucket[j]);
+                    if (first == second || !seen.add(((long) first << 32) | (second & 0xffffffffL)))
+                    {
+                        continue;
+                    }
+                    double similarity = bestSimilarity(sketches.get(first), sketches.get(second));
+                    if (similarity >= threshold)
+                    {
+                        result.add(new Match(first, second, similarity));
+                    }
+                }
+            }
+        }
+        if (skipped > 0)
+        {
+            log.warn(skipped + " LSH buckets larger than " + maxBucketSize + " objects were not searched");
+        }
+        return result;
+    }
+
+    /**
+     * The number of objects of the index.
+     */
+    public synchronized int size()
+    {
+        return sketches.size();
+    }
+
+    /**
+     * The number of IDs kept in the buckets, those of the oversize buckets
+     * being dropped.
+     */
+    synchronized int bucketEntries()
+    {
+        int entries = 0;
+        for (int[] bucket : buckets.values())
+        {
+            if (bucket != OVERSIZE)
+            {
+                entries += bucket[0];
+            }
+        }
+        return entries;
+    }
+
+    private static double bestSimilarity(int[] sketch, List<int[]> others)
+    {
+        double best = 0;
+        for (int[] other : others)
+        {
+            best = Math.max(best, MinHash.similarity(sketch, other));
+        }
+        return best;
+    }
+
+    private static double bestSimilarity(List<int[]> sketches, List<int[]> others)
+    {
+        double best = 0;
+        for (int[] sketch : sketches)
+        {
+            best = Math.max(best, bestSimilarity(sketch, others));
+        }
+        return best;
+    }
+}
@@ -0,0 +1,318 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/CILEA/dspace-cris/wiki/License
+ */
+package org.dspace.app.cris.deduplication.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+import org.dspace.app.cris.service.ApplicationService;
+import org.dspace.app.util.Util;
+import org.dspace.content.DSpaceObject;
+import org.dspace.content.Item;
+import org.dspace.core.Constants;
+import org.dspace.core.Context;
+import org.dspace.utils.DSpace;
+
+/**
+ * Signature finding near duplicates, e.g. titles differing by a typo or by
+ * the order of their words, with MinHash sketches (see {@link MinHash}).
+ * <p>
+ * The signatures of a value are the LSH band keys of its sketch, prefixed
+ * by "b", so that the deduplication index matches the objects sharing a
+ * band key as it matches the objects sharing an MD5 signature, and the
+ * sketch itself, prefixed by "mh", so that such candidates are kept only
+ * if their estimated similarity reaches the threshold (see
+ * {@link #isSimilar(Collection, Collection)}).
+ * <p>
+ * With the default 64 hashes in 16 bands, texts with a similarity of 0.5
+ * share a band key in two cases out of three, texts with a similarity of
+ * 0.8 in all cases.
+ */
+public class MinHashSignature implements Signature
+{
+    /** log4j logger */
+    private static final Logger log = Logger.getLogger(MinHashSignature.class);
+
+    public static final String BAND_PREFIX = "b";
+
+    public static final String SKETCH_PREFIX = "mh";
+
+    private String metadata;
+
+    private int resourceTypeID;
+
+    private String signatureType;
+
+    private int numHashes = 64;
+
+    private int bands = 16;
+
+    private int shingleSize = 3;
+
+    private double threshold = 0.6;
+
+    private int maxBucketSize = 500;
+
+    private MinHash minHash = null;
+
+    public List<String> getSignature(DSpaceObject item, Context context)
+    {
+        List<String> result = new ArrayList<String>();
+        for (int[] sketch : getSketches(item))
+        {
+            for (long key : getMinHash().bandKeys(sketch))
+            {
+                String signature = BAND_PREFIX + Long.toHexString(key);
+                if (!result.contains(signature))
+                {
+                    result.add(signature);
+                }
+            }
+            result.add(SKETCH_PREFIX + MinHash.encode(sketch));
+        }
+        return result;
+    }
+
+    /**
+     * Compute the sketches of the values of the metadata of an object.
+     */
+    public List<int[]> getSketches(DSpaceObject item)
+    {
+        List<int[]> result = new ArrayList<int[]>();
+        List<String> values = item.getMetadataValue(metadata);
+        if (values != null)
+        {
+            for (String value : values)
+            {
+                int[] sketch = StringUtils.isNotBlank(value) ? getMinHash().sketch(value) : null;
+                if (sketch != null)
+                {
+                    result.add(sketch);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Tell whether two objects sharing a band key are similar enough.
+     *
+     * @param signatures
+     *            the signatures of the first object
+     * @param otherSignatures
+     *            the signatures of the second object, e.g. as stored in
+     *            the deduplication index
+     * @return true if the similarity of two of their sketches reaches the
+     *         threshold
+     */
+    public boolean isSimilar(Collection<?> signatures, Collection<?> otherSignatures)
+    {
+        List<int[]> sketches = decodeSketches(signatures);
+        List<int[]> otherSketches = decodeSketches(otherSignatures);
+        for (int[] sketch : sketches)
+        {
+            for (int[] other : otherSketches)
+            {
+                if (MinHash.similarity(sketch, other) >= threshold)
+                {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Index the sketches of a set of objects, computed by several threads.
+     *
+     * @param ids
+     *            the IDs of the objects, of the resource type of this
+     *            signature
+     * @param threads
+     *            the number of threads
+     * @return the index, to find the pairs of similar objects
+     */
+    public MinHashIndex buildIndex(List<Integer> ids, int threads) throws InterruptedException
+    {
+        final MinHashIndex index = new MinHashIndex(getMinHash(), threshold, maxBucketSize);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (final List<Integer> part : Util.splitList(ids, threads))
+        {
+            executor.execute(new Runnable()
+            {
+                public void run()
+                {
+                    Context context = null;
+                    try
+                    {
+                        context = new Context();
+                        context.turnOffAuthorisationSystem();
+                        for (Integer id : part)
+                        {
+                            DSpaceObject dso = find(context, id);
+                            if (dso == null)
+                            {
+                                continue;
+                            }
+                            for (int[] sketch : getSketches(dso))
+                            {
+                                index.add(id, sketch);
+                            }
+                            if (dso instanceof Item)
+                            {
+                                ((Item) dso).decache();
+                            }
+                        }
+                    }
+                    catch (Exception e)
+                    {
+                        log.error("Error while computing the " + signatureType + " sketches", e);
+                    }
+                    finally
+                    {
+                        if (context != null)
+                        {
+                            context.abort();
+                        }
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        log.info("Indexed the " + signatureType + " sketches of " + index.size() + " objects");
+        return index;
+    }
+
+    private DSpaceObject find(Context context, int id) throws Exception
+    {
+        if (resourceTypeID == Constants.ITEM)
+        {
+            return Item.find(context, id);
+        }
+        return new DSpace().getServiceManager()
+                .getServiceByName("applicationService", ApplicationService.class)
+                .getEntityById(id, resourceTypeID);
+    }
+
+    private static List<int[]> decodeSketches(Collection<?> signatures)
+    {
+        List<int[]> result = new ArrayList<int[]>();
+        if (signatures != null)
+        {
+            for (Object signature : signatures)
+            {
+                String value = (String) signature;
+                if (value != null && value.startsWith(SKETCH_PREFIX))
+                {
+                    int[] sketch = MinHash.decode(value.substring(SKETCH_PREFIX.length()));
+                    if (sketch != null)
+                    {
+                        result.add(sketch);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    protected synchronized MinHash getMinHash()
+    {
+        if (minHash == null)
+        {
+            minHash = new MinHash(numHashes, bands, shingleSize);
+        }
+        return minHash;
+    }
+
+    public String getMetadata()
+    {
+        return metadata;
+    }
+
+    public void setMetadata(String metadata)
+    {
+        this.metadata = metadata;
+    }
+
+    public int getResourceTypeID()
+    {
+        return resourceTypeID;
+    }
+
+    public void setResourceTypeID(int resourceTypeID)
+    {
+        this.resourceTypeID = resourceTypeID;
+    }
+
+    public String getSignatureType()
+    {
+        return signatureType;
+    }
+
+    public void setSignatureType(String signatureType)
+    {
+        this.signatureType = signatureType;
+    }
+
+    public int getNumHashes()
+    {
+        return numHashes;
+    }
+
+    public void setNumHashes(int numHashes)
+    {
+        this.numHashes = numHashes;
+    }
+
+    public int getBands()
+    {
+        return bands;
+    }
+
+    public void setBands(int bands)
+    {
+        this.bands = bands;
+    }
+
+    public int getShingleSize()
+    {
+        return shingleSize;
+    }
+
+    public void setShingleSize(int shingleSize)
+    {
+        this.shingleSize = shingleSize;
+    }
+
+    public double getThreshold()
+    {
+        return threshold;
+    }
+
+    public void setThreshold(double threshold)
+    {
+        this.threshold = threshold;
+    }
+
+    public int getMaxBucketSize()
+    {
+        return maxBucketSize;
+    }
+
+    public void setMaxBucketSize(int maxBucketSize)
+    {
+        this.maxBucketSize = maxBucketSize;
+    }
+}
@@ -624,25 +624,31 @@ public class CrisSearchService extends SolrServiceImpl
             Context context, Class<T> classCrisObject)
     {
     	long tot = getApplicationService().count(classCrisObject);
-    	final int MAX_RESULT = 10;
+    	final int MAX_RESULT = 100;
     	long numpages = (tot / MAX_RESULT) + 1;
         for (int page = 1; page <= numpages; page++)
         {
 			List<T> rpObjects = getApplicationService().getPaginateList(
 					classCrisObject, "id", false, page, MAX_RESULT);
 	
-	        if (rpObjects != null)
+	        if (rpObjects != null && !rpObjects.isEmpty())
 	        {
+	            // load the nested objects of the whole page at once
+	            List<Integer> ids = new ArrayList<Integer>();
+	            for (T cris : rpObjects)
+	            {
+	                ids.add(cris.getId());
+	            }
+	            Map<Integer, List<ACNO>> nestedByParent = getApplicationService()
+	                    .getNestedObjectsByParentIDs(rpObjects.get(0).getClassNested(), ids);
+
 	            for (T cris : rpObjects)
 	            {
 	                indexCrisObject(cris, true);
 	                // indexing nested
-	                for (ATNO anestedtype : getApplicationService().getList(
-	                        cris.getClassTypeNested()))
+	                List<ACNO> anesteds = nestedByParent.get(cris.getId());
+	                if (anesteds != null)
 	                {
-	                    List<ACNO> anesteds = getApplicationService()
-	                            .getNestedObjectsByParentIDAndTypoID(cris.getId(),
-	                                    anestedtype.getId(), cris.getClassNested());
 	                    for (ACNO anested : anesteds)
 	                    {
 	                        indexNestedObject(anested, true);
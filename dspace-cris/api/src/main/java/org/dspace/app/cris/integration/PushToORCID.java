@@ -23,9 +23,17 @@ import java.util.ArrayList;
 import java.util.Currency;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -167,9 +175,10 @@ public class PushToORCID
 
     private static final int ORCID_PROJECTS_PREFS_SELECTED = 2;
 
-    private static DateFormat dfFull = new SimpleDateFormat("dd-MM-yyyy");
-    private static DateFormat dfMonthly = new SimpleDateFormat("MM-yyyy");
-    private static DateFormat dfYear = new SimpleDateFormat("yyyy");
+    // one per thread, the researchers are pushed in parallel
+    private static ThreadLocal<DateFormat> dfFull = dateFormat("dd-MM-yyyy");
+    private static ThreadLocal<DateFormat> dfMonthly = dateFormat("MM-yyyy");
+    private static ThreadLocal<DateFormat> dfYear = dateFormat("yyyy");
 
     /** the logger */
     private static Logger log = Logger.getLogger(PushToORCID.class);
@@ -199,6 +208,126 @@ public class PushToORCID
         return result;
     }
 
+    /**
+     * Send the entries of the ORCID queue, grouped by researcher: the entries
+     * of a researcher are sent in order by one thread, the profile only once,
+     * and the researchers in parallel by
+     * <code>system.script.pushtoorcid.threads</code> threads. The researchers
+     * in manual mode get an email instead.
+     */
+    public static void sendOrcidQueue(Context context,
+            final ApplicationService applicationService, List<OrcidQueue> queue)
+    {
+        boolean byPassManualMode = ConfigurationManager.getBooleanProperty(
+                "cris", "system.script.pushtoorcid.force", false);
+
+        Map<String, List<OrcidQueue>> queueByOwner = new LinkedHashMap<String, List<OrcidQueue>>();
+        for (OrcidQueue orcidQueue : queue)
+        {
+            List<OrcidQueue> entries = queueByOwner.get(orcidQueue.getOwner());
+            if (entries == null)
+            {
+                entries = new ArrayList<OrcidQueue>();
+                queueByOwner.put(orcidQueue.getOwner(), entries);
+            }
+            entries.add(orcidQueue);
+        }
+
+        List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+        for (Map.Entry<String, List<OrcidQueue>> entry : queueByOwner.entrySet())
+        {
+            // see preferences and mode (batch vs manual)
+            ResearcherPage rp = applicationService.getEntityByCrisId(
+                    entry.getKey(), ResearcherPage.class);
+            if (rp == null)
+            {
+                log.warn("WARNING!!! ResearcherPage not found for queued entries of:"
+                        + entry.getKey());
+                continue;
+            }
+            if (!byPassManualMode && isManualModeEnable(rp))
+            {
+                sendEmail(context, rp, rp.getCrisID());
+                continue;
+            }
+
+            final List<OrcidQueue> entries = entry.getValue();
+            tasks.add(new Callable<Object>()
+            {
+                @Override
+                public Object call() throws Exception
+                {
+                    Set<String> sent = new HashSet<String>();
+                    for (OrcidQueue orcidQueue : entries)
+                    {
+                        // the profile is sent as a whole, the same object
+                        // can be queued more than once
+                        String key = orcidQueue.getTypeId() == CrisConstants.RP_TYPE_ID ? ""
+                                : orcidQueue.getTypeId() + "-" + orcidQueue.getFastlookupUuid();
+                        if (sent.add(key))
+                        {
+                            sendOrcidQueue(applicationService, orcidQueue);
+                        }
+                    }
+                    return null;
+                }
+            });
+        }
+        invokeAll(tasks);
+    }
+
+    /**
+     * Run the tasks of the researchers in a pool of
+     * <code>system.script.pushtoorcid.threads</code> threads; the rate of the
+     * requests to ORCID is limited by the {@link OrcidService} itself.
+     */
+    private static void invokeAll(List<Callable<Object>> tasks)
+    {
+        int threads = ConfigurationManager.getIntProperty("cris",
+                "system.script.pushtoorcid.threads", 4);
+        if (threads <= 1 || tasks.size() <= 1)
+        {
+            for (Callable<Object> task : tasks)
+            {
+                try
+                {
+                    task.call();
+                }
+                catch (Exception e)
+                {
+                    log.error(e.getMessage(), e);
+                }
+            }
+            return;
+        }
+
+        ExecutorService executor = Executors
+                .newFixedThreadPool(Math.min(threads, tasks.size()));
+        try
+        {
+            for (Future<Object> future : executor.invokeAll(tasks))
+            {
+                try
+                {
+                    future.get();
+                }
+                catch (ExecutionException e)
+                {
+                    log.error(e.getCause().getMessage(), e.getCause());
+                }
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while pushing to ORCID");
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
     public static boolean sendOrcidWork(ApplicationService applicationService,
             String crisId, String uuid, boolean force)
     {
@@ -1000,15 +1129,15 @@ public class PushToORCID
     
     public static void prepareAndSend(Context context, List<ResearcherPage> rps,
             RelationPreferenceService relationPreferenceService,
-            SearchService searchService, ApplicationService applicationService,
-            boolean delete) throws Exception
+            SearchService searchService, final ApplicationService applicationService,
+            final boolean delete) throws Exception
     {
         log.debug("Working... push to ORCID");
 
-        Map<String, Map<String, List<String>>> mapResearcherMetadataToSend = new HashMap<String, Map<String, List<String>>>();
-        Map<String, Map<String, List<Map<String, List<String>>>>> mapResearcherMetadataNestedToSend = new HashMap<String, Map<String, List<Map<String, List<String>>>>>();
-        Map<String, List<Integer>> mapPublicationsToSend = new HashMap<String, List<Integer>>();
-        Map<String, List<Integer>> mapProjectsToSend = new HashMap<String, List<Integer>>();
+        final Map<String, Map<String, List<String>>> mapResearcherMetadataToSend = new HashMap<String, Map<String, List<String>>>();
+        final Map<String, Map<String, List<Map<String, List<String>>>>> mapResearcherMetadataNestedToSend = new HashMap<String, Map<String, List<Map<String, List<String>>>>>();
+        final Map<String, List<Integer>> mapPublicationsToSend = new HashMap<String, List<Integer>>();
+        final Map<String, List<Integer>> mapProjectsToSend = new HashMap<String, List<Integer>>();
 
         boolean byPassManualMode = ConfigurationManager.getBooleanProperty(
                 "cris", "system.script.pushtoorcid.force", false);
@@ -1025,12 +1154,12 @@ public class PushToORCID
         String defaultPreference = ConfigurationManager.getProperty("cris",
                 "system.script.pushtoorcid.default.preference");
 
-        Map<String, String> mapResearcherOrcid = new HashMap<String, String>();
-        Map<String, String> mapResearcherTokenProfileUpdate = new HashMap<String, String>();
-        Map<String, String> mapResearcherTokenActivitiesUpdate = new HashMap<String, String>();
+        final Map<String, String> mapResearcherOrcid = new HashMap<String, String>();
+        final Map<String, String> mapResearcherTokenProfileUpdate = new HashMap<String, String>();
+        final Map<String, String> mapResearcherTokenActivitiesUpdate = new HashMap<String, String>();
         List<ResearcherPage> listNewResearcherToPushOnOrcid = new ArrayList<ResearcherPage>();
 
-        Map<String, String> orcidConfigurationMapping = prepareConfigurationMappingForProfile(
+        final Map<String, String> orcidConfigurationMapping = prepareConfigurationMappingForProfile(
                 applicationService);
 
         external: for (ResearcherPage researcher : rps)
@@ -1115,7 +1244,7 @@ public class PushToORCID
 
         log.debug("Create DSpace context and use browse indexing");
 
-        OrcidService orcidService = OrcidService.getOrcid();
+        final OrcidService orcidService = OrcidService.getOrcid();
         if (invitation)
         {
             log.info("Starts invitation new ORCID Profile");
@@ -1142,82 +1271,106 @@ public class PushToORCID
         }
 
         log.info("Starts update ORCID Profile");
-        for (String crisId : mapResearcherOrcid.keySet())
+        // one task by researcher, with its own context: the works of a
+        // researcher are sent in order, the researchers in parallel
+        List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+        for (final String crisId : mapResearcherOrcid.keySet())
         {
-
-            String orcid = mapResearcherOrcid.get(crisId);
-
-            if (StringUtils.isNotBlank(orcid))
+            tasks.add(new Callable<Object>()
             {
-                log.info("Prepare push for ResearcherPage crisID:" + crisId
-                        + " AND orcid iD:" + orcid);
-                try
+                @Override
+                public Object call() throws Exception
                 {
-                    String tokenUpdateBio = mapResearcherTokenProfileUpdate
-                            .get(crisId);
-                    String tokenUpdateActivities = mapResearcherTokenActivitiesUpdate
-                            .get(crisId);
-                    if (StringUtils.isNotBlank(tokenUpdateBio))
+                    Context taskContext = new Context();
+                    try
                     {
-                        log.info(
-                                "(Q1)Prepare OrcidProfile for ResearcherPage crisID:"
-                                        + crisId);
-                        if (mapResearcherMetadataToSend.get(crisId).isEmpty())
-                        {
-                            log.warn(
-                                    "(A1) OrcidProfile no Profile Preferences found for ResearcherPage crisID:"
-                                            + crisId);
-                        }
-                        else
+                        taskContext.turnOffAuthorisationSystem();
+
+                        String orcid = mapResearcherOrcid.get(crisId);
+
+                        if (StringUtils.isNotBlank(orcid))
                         {
-                            // v2.0 has simplified this process by implementing
-                            // put codes. Individual items on the ORCID Registry
-                            // now have their own put code, which can be used to
-                            // read the full metadata for the item or to update
-                            // or delete an item that your system has added to
-                            // an ORCID record. Only one item can be edited or
-                            // deleted at a time. Put codes are retroactive:
-                            // items added in 1.2 and earlier have all been
-                            // assigned put codes.
-
-                            buildOrcidProfile(orcidService, applicationService,
-                                    crisId, mapResearcherMetadataToSend,
-                                    mapResearcherMetadataNestedToSend,
-                                    orcidConfigurationMapping, delete, tokenUpdateBio, tokenUpdateActivities, orcid);
+                            log.info("Prepare push for ResearcherPage crisID:" + crisId
+                                    + " AND orcid iD:" + orcid);
+                            try
+                            {
+                                String tokenUpdateBio = mapResearcherTokenProfileUpdate
+                                        .get(crisId);
+                                String tokenUpdateActivities = mapResearcherTokenActivitiesUpdate
+                                        .get(crisId);
+                                if (StringUtils.isNotBlank(tokenUpdateBio))
+                                {
+                                    log.info(
+                                            "(Q1)Prepare OrcidProfile for ResearcherPage crisID:"
+                                                    + crisId);
+                                    if (mapResearcherMetadataToSend.get(crisId).isEmpty())
+                                    {
+                                        log.warn(
+                                                "(A1) OrcidProfile no Profile Preferences found for ResearcherPage crisID:"
+                                                        + crisId);
+                                    }
+                                    else
+                                    {
+                                        // v2.0 has simplified this process by implementing
+                                        // put codes. Individual items on the ORCID Registry
+                                        // now have their own put code, which can be used to
+                                        // read the full metadata for the item or to update
+                                        // or delete an item that your system has added to
+                                        // an ORCID record. Only one item can be edited or
+                                        // deleted at a time. Put codes are retroactive:
+                                        // items added in 1.2 and earlier have all been
+                                        // assigned put codes.
+
+                                        buildOrcidProfile(orcidService, applicationService,
+                                                crisId, mapResearcherMetadataToSend,
+                                                mapResearcherMetadataNestedToSend,
+                                                orcidConfigurationMapping, delete, tokenUpdateBio, tokenUpdateActivities, orcid);
 
-                        }
-                    }
+                                    }
+                                }
 
-                    if (StringUtils.isNotBlank(tokenUpdateActivities))
-                    {
-                        log.info(
-                                "(Q2)Prepare OrcidWorks for ResearcherPage crisID:"
-                                        + crisId);
-                        for(Integer item : mapPublicationsToSend.get(crisId)) {
-                            buildOrcidWork(context, orcidService, applicationService, crisId, orcid, delete, tokenUpdateActivities, item);
-                        }
+                                if (StringUtils.isNotBlank(tokenUpdateActivities))
+                                {
+                                    log.info(
+                                            "(Q2)Prepare OrcidWorks for ResearcherPage crisID:"
+                                                    + crisId);
+                                    for(Integer item : mapPublicationsToSend.get(crisId)) {
+                                        buildOrcidWork(taskContext, orcidService, applicationService, crisId, orcid, delete, tokenUpdateActivities, item);
+                                    }
 
-                        log.info("(A2) OrcidWorks for ResearcherPage crisID:"
-                                + crisId);
+                                    log.info("(A2) OrcidWorks for ResearcherPage crisID:"
+                                            + crisId);
 
-                        log.info(
-                                "(Q3)Prepare FundingList for ResearcherPage crisID:"
-                                        + crisId);
+                                    log.info(
+                                            "(Q3)Prepare FundingList for ResearcherPage crisID:"
+                                                    + crisId);
 
 
-                        for(Integer ii : mapProjectsToSend.get(crisId)) {
-                            Project project = applicationService.get(Project.class, ii);
-                            buildOrcidFunding(context, orcidService, applicationService, crisId, orcid, delete, tokenUpdateActivities, project);
+                                    for(Integer ii : mapProjectsToSend.get(crisId)) {
+                                        Project project = applicationService.get(Project.class, ii);
+                                        buildOrcidFunding(taskContext, orcidService, applicationService, crisId, orcid, delete, tokenUpdateActivities, project);
+                                    }
+                                }
+                            }
+                            catch (Exception ex)
+                            {
+                                log.info("ERROR!!! ResearcherPage crisID:" + crisId);
+                                log.error(ex.getMessage());
+                            }
                         }
                     }
+                    finally
+                    {
+                        if (taskContext.isValid())
+                        {
+                            taskContext.abort();
+                        }
+                    }
+                    return null;
                 }
-                catch (Exception ex)
-                {
-                    log.info("ERROR!!! ResearcherPage crisID:" + crisId);
-                    log.error(ex.getMessage());
-                }
-            }
+            });
         }
+        invokeAll(tasks);
         log.info("Ends update ORCID Profile");
 
     }
@@ -2012,7 +2165,7 @@ public class PushToORCID
                     boolean isMonthly = false;
                     try
                     {
-                        startDate = dfFull.parse(stringStartDate);
+                        startDate = dfFull.get().parse(stringStartDate);
                         cal1 = new DateTime(startDate.getTime());
                         isFull = true;
                     }
@@ -2020,7 +2173,7 @@ public class PushToORCID
                     {
                         try
                         {
-                            startDate = dfMonthly.parse(stringStartDate);
+                            startDate = dfMonthly.get().parse(stringStartDate);
                             cal1 = new DateTime(startDate.getTime());
                             isMonthly = true;
                         }
@@ -2028,7 +2181,7 @@ public class PushToORCID
                         {
                             try
                             {
-                                startDate = dfYear.parse(stringStartDate);
+                                startDate = dfYear.get().parse(stringStartDate);
                                 cal1 = new DateTime(startDate.getTime());
                             }
                             catch (ParseException e2)
@@ -2093,7 +2246,7 @@ public class PushToORCID
                     boolean isMonthly = false;
                     try
                     {
-                        endDate = dfFull.parse(stringEndDate);
+                        endDate = dfFull.get().parse(stringEndDate);
                         cal2 = new DateTime(endDate.getTime());
                         isFull = true;
                     }
@@ -2101,7 +2254,7 @@ public class PushToORCID
                     {
                         try
                         {
-                            endDate = dfMonthly.parse(stringEndDate);
+                            endDate = dfMonthly.get().parse(stringEndDate);
                             cal2 = new DateTime(endDate.getTime());
                             isMonthly = true;
                         }
@@ -2109,7 +2262,7 @@ public class PushToORCID
                         {
                             try
                             {
-                                endDate = dfYear.parse(stringEndDate);
+                                endDate = dfYear.get().parse(stringEndDate);
                                 cal2 = new DateTime(endDate.getTime());
                             }
                             catch (ParseException e2)
@@ -2301,7 +2454,7 @@ public class PushToORCID
                     boolean isMonthly = false;
                     try
                     {
-                        startDate = dfFull.parse(stringStartDate);
+                        startDate = dfFull.get().parse(stringStartDate);
                         cal1 = new DateTime(startDate.getTime());
                         isFull = true;
                     }
@@ -2309,7 +2462,7 @@ public class PushToORCID
                     {
                         try
                         {
-                            startDate = dfMonthly.parse(stringStartDate);
+                            startDate = dfMonthly.get().parse(stringStartDate);
                             cal1 = new DateTime(startDate.getTime());
                             isMonthly = true;
                         }
@@ -2317,7 +2470,7 @@ public class PushToORCID
                         {
                             try
                             {
-                                startDate = dfYear.parse(stringStartDate);
+                                startDate = dfYear.get().parse(stringStartDate);
                                 cal1 = new DateTime(startDate.getTime());
                             }
                             catch (ParseException e2)
@@ -2383,7 +2536,7 @@ public class PushToORCID
                     boolean isMonthly = false;
                     try
                     {
-                        endDate = dfFull.parse(stringEndDate);
+                        endDate = dfFull.get().parse(stringEndDate);
                         cal2 = new DateTime(endDate.getTime());
                         isFull = true;
                     }
@@ -2391,7 +2544,7 @@ public class PushToORCID
                     {
                         try
                         {
-                            endDate = dfMonthly.parse(stringEndDate);
+                            endDate = dfMonthly.get().parse(stringEndDate);
                             cal2 = new DateTime(endDate.getTime());
                             isMonthly = true;
                         }
@@ -2399,7 +2552,7 @@ public class PushToORCID
                         {
                             try
                             {
-                                endDate = dfYear.parse(stringEndDate);
+                                endDate = dfYear.get().parse(stringEndDate);
                                 cal2 = new DateTime(endDate.getTime());
                             }
                             catch (ParseException e2)
@@ -3502,6 +3655,18 @@ public class PushToORCID
         }
     }
 
+    private static ThreadLocal<DateFormat> dateFormat(final String pattern)
+    {
+        return new ThreadLocal<DateFormat>()
+        {
+            @Override
+            protected DateFormat initialValue()
+            {
+                return new SimpleDateFormat(pattern);
+            }
+        };
+    }
+
     private static String getMd5Hash(String value) throws NoSuchAlgorithmException, UnsupportedEncodingException
     {
         MessageDigest digester = MessageDigest.getInstance("MD5");
@@ -43,6 +43,7 @@ import it.cilea.osd.jdyna.web.TypedBox;
         @org.hibernate.annotations.NamedQuery(name = "BoxDynamicObject.findAuthorizedSingleById", query = "select box.authorizedSingle from BoxDynamicObject box where box.id = ?"),
         @org.hibernate.annotations.NamedQuery(name = "BoxDynamicObject.findAuthorizedSingleByShortname", query = "select box.authorizedSingle from BoxDynamicObject box where box.shortName = ?")
 })
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE, region = "cris.layout")
 public class BoxDynamicObject extends TypedBox<Containable, DynamicObjectType, DynamicPropertiesDefinition>
 {
 
@@ -44,6 +44,7 @@ import it.cilea.osd.jdyna.web.ITabService;
         @NamedQuery(name = "BoxOrganizationUnit.findAuthorizedSingleById", query = "select box.authorizedSingle from BoxOrganizationUnit box where box.id = ?"),
         @NamedQuery(name = "BoxOrganizationUnit.findAuthorizedSingleByShortname", query = "select box.authorizedSingle from BoxOrganizationUnit box where box.shortName = ?")
 })		
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE, region = "cris.layout")
 public class BoxOrganizationUnit extends Box<Containable> {
 	
 	@ManyToMany	
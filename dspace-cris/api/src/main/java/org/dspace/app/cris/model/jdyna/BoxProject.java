@@ -43,6 +43,7 @@ import it.cilea.osd.jdyna.web.ITabService;
         @NamedQuery(name = "BoxProject.findAuthorizedSingleById", query = "select box.authorizedSingle from BoxProject box where box.id = ?"),
         @NamedQuery(name = "BoxProject.findAuthorizedSingleByShortname", query = "select box.authorizedSingle from BoxProject box where box.shortName = ?")
 })		
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE, region = "cris.layout")
 public class BoxProject extends Box<Containable> {
     	
 	@ManyToMany	
@@ -41,6 +41,7 @@ import it.cilea.osd.jdyna.web.ITabService;
         @org.hibernate.annotations.NamedQuery(name = "BoxResearcherPage.findAuthorizedGroupByShortname", query = "select box.authorizedGroup from BoxResearcherPage box where box.shortName = ?"),
         @org.hibernate.annotations.NamedQuery(name = "BoxResearcherPage.findAuthorizedSingleById", query = "select box.authorizedSingle from BoxResearcherPage box where box.id = ?"),
         @org.hibernate.annotations.NamedQuery(name = "BoxResearcherPage.findAuthorizedSingleByShortname", query = "select box.authorizedSingle from BoxResearcherPage box where box.shortName = ?")})
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE, region = "cris.layout")
 public class BoxResearcherPage extends Box<Containable>
 {
 
@@ -13,6 +13,8 @@ import javax.persistence.Entity;
 import javax.persistence.NamedQueries;
 import javax.persistence.NamedQuery;
 import javax.persistence.Table;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 
 /**
@@ -36,6 +38,7 @@ import javax.persistence.Table;
     @NamedQuery(name = "DynamicNestedPropertiesDefinition.findAllWithCheckRadioDropdown", query = "from DynamicNestedPropertiesDefinition where rendering in (from WidgetCheckRadio)"),
     @NamedQuery(name = "DynamicNestedPropertiesDefinition.likeByShortName", query = "from DynamicNestedPropertiesDefinition where shortName LIKE :par0", hints = { @javax.persistence.QueryHint(name = "org.hibernate.cacheable", value = "true") })
 })
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE, region = "cris.definitions")
 public class DynamicNestedPropertiesDefinition extends ANestedPropertiesDefinition
 {
 
@@ -43,6 +43,7 @@ import org.hibernate.annotations.CacheConcurrencyStrategy;
         @NamedQuery(name="DynamicObjectType.findMaskById", query = "select dot.mask from DynamicObjectType dot where dot.id = ?" ),
         @NamedQuery(name="DynamicObjectType.findNestedMaskById", query = "select dot.typeNestedDefinitionMask from DynamicObjectType dot where dot.id = ?" )
 })        
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE, region = "cris.definitions")
 public class DynamicObjectType extends ATypeWithTypeNestedObjectSupport<DynamicPropertiesDefinition, DynamicTypeNestedObject, DynamicNestedPropertiesDefinition>
 {
 
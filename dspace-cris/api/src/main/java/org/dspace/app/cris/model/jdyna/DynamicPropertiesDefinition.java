@@ -13,6 +13,8 @@ import javax.persistence.Entity;
 import javax.persistence.NamedQueries;
 import javax.persistence.NamedQuery;
 import javax.persistence.Table;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
 @Table(name="cris_do_pdef")
@@ -31,6 +33,7 @@ import javax.persistence.Table;
     @NamedQuery(name = "DynamicPropertiesDefinition.findAllWithCheckRadioDropdown", query = "from DynamicPropertiesDefinition where rendering in (from WidgetCheckRadio)"),
     @NamedQuery(name = "DynamicPropertiesDefinition.likeByShortName", query = "from DynamicPropertiesDefinition where shortName LIKE :par0", hints = { @javax.persistence.QueryHint(name = "org.hibernate.cacheable", value = "true") })
 })
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE, region = "cris.definitions")
 public class DynamicPropertiesDefinition extends PropertiesDefinition
 {
     
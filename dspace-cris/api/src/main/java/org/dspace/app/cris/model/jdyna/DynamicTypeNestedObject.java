@@ -36,6 +36,7 @@ import org.hibernate.annotations.CacheConcurrencyStrategy;
     @NamedQuery(name="DynamicTypeNestedObject.findMaskByShortName", query = "select dot.mask from DynamicTypeNestedObject dot where dot.shortName = ?" ),
     @NamedQuery(name="DynamicTypeNestedObject.findMaskById", query = "select dot.mask from DynamicTypeNestedObject dot where dot.id = ?" )
 })
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE, region = "cris.definitions")
 public class DynamicTypeNestedObject extends ATypeNestedObject<DynamicNestedPropertiesDefinition>
 {
     
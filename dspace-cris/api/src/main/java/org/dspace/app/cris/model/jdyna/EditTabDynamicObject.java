@@ -53,7 +53,7 @@ import org.hibernate.annotations.CacheConcurrencyStrategy;
         @NamedQuery(name = "EditTabDynamicObject.findAuthorizedSingleById", query = "select tab.authorizedSingle from EditTabDynamicObject tab where tab.id = ?"),
         @NamedQuery(name = "EditTabDynamicObject.findAuthorizedSingleByShortname", query = "select tab.authorizedSingle  from EditTabDynamicObject tab where tab.shortName = ?")
 })
-@Cache(usage=CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE, region = "cris.layout")
 public class EditTabDynamicObject extends
 		TypedAbstractEditTab<BoxDynamicObject,DynamicObjectType, DynamicPropertiesDefinition, TabDynamicObject> {
 
@@ -48,6 +48,7 @@ import org.hibernate.annotations.CacheConcurrencyStrategy;
         @NamedQuery(name = "EditTabOrganizationUnit.findAuthorizedSingleById", query = "select tab.authorizedSingle from EditTabOrganizationUnit tab where tab.id = ?"),
         @NamedQuery(name = "EditTabOrganizationUnit.findAuthorizedSingleByShortname", query = "select tab.authorizedSingle  from EditTabOrganizationUnit tab where tab.shortName = ?")	    
 })
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE, region = "cris.layout")
 public class EditTabOrganizationUnit extends
 		AbstractEditTab<BoxOrganizationUnit,TabOrganizationUnit> {
 
@@ -44,6 +44,7 @@ import it.cilea.osd.jdyna.web.AbstractEditTab;
         @NamedQuery(name = "EditTabProject.findAuthorizedSingleById", query = "select tab.authorizedSingle from EditTabProject tab where tab.id = ?"),
         @NamedQuery(name = "EditTabProject.findAuthorizedSingleByShortname", query = "select tab.authorizedSingle  from EditTabProject tab where tab.shortName = ?")	    
 })
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE, region = "cris.layout")
 public class EditTabProject extends
 		AbstractEditTab<BoxProject,TabProject> {
 
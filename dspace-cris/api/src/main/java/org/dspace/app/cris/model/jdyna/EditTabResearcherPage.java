@@ -48,7 +48,7 @@ import it.cilea.osd.jdyna.web.ITabService;
         @NamedQuery(name = "EditTabResearcherPage.findAuthorizedSingleById", query = "select tab.authorizedSingle from EditTabResearcherPage tab where tab.id = ?"),
         @NamedQuery(name = "EditTabResearcherPage.findAuthorizedSingleByShortname", query = "select tab.authorizedSingle  from EditTabResearcherPage tab where tab.shortName = ?")        
 })
-@Cache(usage=CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE, region = "cris.layout")
 public class EditTabResearcherPage extends
 		AbstractEditTab<BoxResearcherPage,TabResearcherPage> {
 
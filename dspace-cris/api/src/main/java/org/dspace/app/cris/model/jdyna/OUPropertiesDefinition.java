@@ -14,6 +14,8 @@ import javax.persistence.NamedQueries;
 import javax.persistence.NamedQuery;
 import javax.persistence.Table;
 import javax.persistence.Transient;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
 @Table(name="cris_ou_pdef")
@@ -32,6 +34,7 @@ import javax.persistence.Transient;
     @NamedQuery(name = "OUPropertiesDefinition.findAllWithCheckRadioDropdown", query = "from OUPropertiesDefinition where rendering in (from WidgetCheckRadio)"),
     @NamedQuery(name = "OUPropertiesDefinition.likeByShortName", query = "from OUPropertiesDefinition where shortName LIKE :par0", hints = { @javax.persistence.QueryHint(name = "org.hibernate.cacheable", value = "true") })
 })
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE, region = "cris.definitions")
 public class OUPropertiesDefinition extends PropertiesDefinition {
 	
 		
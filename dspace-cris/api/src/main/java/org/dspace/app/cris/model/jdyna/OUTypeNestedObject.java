@@ -36,6 +36,7 @@ import org.hibernate.annotations.CacheConcurrencyStrategy;
     @NamedQuery(name="OUTypeNestedObject.findMaskByShortName", query = "select dot.mask from OUTypeNestedObject dot where dot.shortName = ?" ),
     @NamedQuery(name="OUTypeNestedObject.findMaskById", query = "select dot.mask from OUTypeNestedObject dot where dot.id = ?" )
 })
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE, region = "cris.definitions")
 public class OUTypeNestedObject extends ATypeNestedObject<OUNestedPropertiesDefinition>
 {
     @ManyToMany    
@@ -14,6 +14,8 @@ import javax.persistence.NamedQueries;
 import javax.persistence.NamedQuery;
 import javax.persistence.Table;
 import javax.persistence.Transient;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
 @Table(name="cris_pj_pdef")
@@ -33,6 +35,7 @@ import javax.persistence.Transient;
     @NamedQuery(name = "ProjectPropertiesDefinition.likeByShortName", query = "from ProjectPropertiesDefinition where shortName LIKE :par0", hints = { @javax.persistence.QueryHint(name = "org.hibernate.cacheable", value = "true") })
     
 })
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE, region = "cris.definitions")
 public class ProjectPropertiesDefinition extends PropertiesDefinition {
 		
 	@Transient
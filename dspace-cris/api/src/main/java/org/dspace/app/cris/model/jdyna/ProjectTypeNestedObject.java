@@ -37,6 +37,7 @@ import org.hibernate.annotations.CacheConcurrencyStrategy;
     @NamedQuery(name="ProjectTypeNestedObject.findMaskById", query = "select dot.mask from ProjectTypeNestedObject dot where dot.id = ?" )
     
 })
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE, region = "cris.definitions")
 public class ProjectTypeNestedObject extends ATypeNestedObject<ProjectNestedPropertiesDefinition>
 {
     @ManyToMany    
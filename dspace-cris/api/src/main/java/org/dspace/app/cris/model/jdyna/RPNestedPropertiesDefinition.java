@@ -13,6 +13,8 @@ import javax.persistence.Entity;
 import javax.persistence.NamedQueries;
 import javax.persistence.NamedQuery;
 import javax.persistence.Table;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 /**
  * @author pascarelli
  *
@@ -34,6 +36,7 @@ import javax.persistence.Table;
     @NamedQuery(name = "RPNestedPropertiesDefinition.findAllWithCheckRadioDropdown", query = "from RPNestedPropertiesDefinition where rendering in (from WidgetCheckRadio)"),
     @NamedQuery(name = "RPNestedPropertiesDefinition.likeByShortName", query = "from RPNestedPropertiesDefinition where shortName LIKE :par0", hints = { @javax.persistence.QueryHint(name = "org.hibernate.cacheable", value = "true") })
 })
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE, region = "cris.definitions")
 public class RPNestedPropertiesDefinition extends ANestedPropertiesDefinition
 {
 
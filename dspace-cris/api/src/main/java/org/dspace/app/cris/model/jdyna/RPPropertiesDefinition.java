@@ -14,6 +14,8 @@ import javax.persistence.NamedQueries;
 import javax.persistence.NamedQuery;
 import javax.persistence.Table;
 import javax.persistence.Transient;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
 @Table(name="cris_rp_pdef")
@@ -32,6 +34,7 @@ import javax.persistence.Transient;
     @NamedQuery(name = "RPPropertiesDefinition.findAllWithCheckRadioDropdown", query = "from RPPropertiesDefinition where rendering in (from WidgetCheckRadio)"),
     @NamedQuery(name = "RPPropertiesDefinition.likeByShortName", query = "from RPPropertiesDefinition where shortName LIKE :par0", hints = { @javax.persistence.QueryHint(name = "org.hibernate.cacheable", value = "true") })
 })
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE, region = "cris.definitions")
 public class RPPropertiesDefinition extends PropertiesDefinition {
 	
 		
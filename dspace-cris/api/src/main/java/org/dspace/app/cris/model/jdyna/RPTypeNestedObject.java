@@ -36,6 +36,7 @@ import org.hibernate.annotations.CacheConcurrencyStrategy;
     @NamedQuery(name="RPTypeNestedObject.findMaskByShortName", query = "select rpt.mask from RPTypeNestedObject rpt where rpt.shortName = ?" ),
     @NamedQuery(name="RPTypeNestedObject.findMaskById", query = "select rpt.mask from RPTypeNestedObject rpt where rpt.id = ?" )
 })
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE, region = "cris.definitions")
 public class RPTypeNestedObject extends ATypeNestedObject<RPNestedPropertiesDefinition>
 {
 
@@ -51,6 +51,7 @@ import org.hibernate.annotations.CacheConcurrencyStrategy;
         @org.hibernate.annotations.NamedQuery(name = "TabDynamicObject.findAuthorizedSingleByShortname", query = "select tab.authorizedSingle  from TabDynamicObject tab where tab.shortName = ?")
 		
 })
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE, region = "cris.layout")
 public class TabDynamicObject extends TypedAbstractTab<BoxDynamicObject, DynamicObjectType, DynamicPropertiesDefinition> {
 
 	/** Showed holder in this tab */
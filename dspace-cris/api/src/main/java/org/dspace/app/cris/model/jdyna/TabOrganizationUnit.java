@@ -48,6 +48,7 @@ import org.hibernate.annotations.CacheConcurrencyStrategy;
         @NamedQuery(name = "TabOrganizationUnit.findAuthorizedSingleById", query = "select tab.authorizedSingle from TabOrganizationUnit tab where tab.id = ?"),
         @NamedQuery(name = "TabOrganizationUnit.findAuthorizedSingleByShortname", query = "select tab.authorizedSingle  from TabOrganizationUnit tab where tab.shortName = ?")
 })
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE, region = "cris.layout")
 public class TabOrganizationUnit extends AbstractTab<BoxOrganizationUnit>
 {
 
@@ -47,6 +47,7 @@ import it.cilea.osd.jdyna.web.ITabService;
         @NamedQuery(name = "TabProject.findAuthorizedSingleByShortname", query = "select tab.authorizedSingle  from TabProject tab where tab.shortName = ?")
 		
 })
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE, region = "cris.layout")
 public class TabProject extends AbstractTab<BoxProject> {
 
 	/** Showed holder in this tab */
@@ -48,6 +48,7 @@ import it.cilea.osd.jdyna.web.ITabService;
 		@org.hibernate.annotations.NamedQuery(name = "TabResearcherPage.findAuthorizedSingleById", query = "select tab.authorizedSingle from TabResearcherPage tab where tab.id = ?"),
 		@org.hibernate.annotations.NamedQuery(name = "TabResearcherPage.findAuthorizedSingleByShortname", query = "select tab.authorizedSingle from TabResearcherPage tab where tab.shortName = ?")
 })
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE, region = "cris.layout")
 public class TabResearcherPage extends AbstractTab<BoxResearcherPage> {
 
 	/** Showed holder in this tab */
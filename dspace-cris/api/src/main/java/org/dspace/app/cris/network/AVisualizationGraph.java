@@ -116,6 +116,33 @@ public abstract class AVisualizationGraph implements NetworkPlugin
             boolean showExternal, boolean showSameDept, String dept,
             Integer modeEntity) throws Exception
     {
+        JsGraph rsGraph = buildGraphNode(authority, name);
+        String src = rsGraph.getId();
+
+        if (NetworkGraphStore.isEnabled())
+        {
+            // the same nodes as the facet below, read from the graph store
+            int limit = 0;
+            if (modeEntity == ConstantNetwork.ENTITY_RP)
+            {
+                limit = getLimitLevel(level);
+            }
+            List<NetworkGraphStore.Neighbour> neighbours = NetworkGraphStore
+                    .getInstance().neighbours(getConnectionName(), modeEntity,
+                            authority, name,
+                            !showExternal && authority != null && !authority.isEmpty(),
+                            showSameDept && modeEntity == ConstantNetwork.ENTITY_RP ? dept : null,
+                            limit);
+            if (neighbours != null)
+            {
+                for (NetworkGraphStore.Neighbour neighbour : neighbours)
+                {
+                    addAdjacence(rsGraph, src, neighbour.getNode(),
+                            neighbour.getCount(), showExternal);
+                }
+                return rsGraph;
+            }
+        }
 
         SolrQuery solrQuery = new SolrQuery();
 
@@ -144,12 +171,25 @@ public abstract class AVisualizationGraph implements NetworkPlugin
 
         FacetField facets = rsp.getFacetField(FACET_SEARCH);
 
-        JsGraph rsGraph = null;
-        String src = null;
+        if (facets != null && facets.getValueCount() > 0)
+        {
+            for (Count facet : facets.getValues())
+            {
+                if (facet.getCount() > 0)
+                {
+                    addAdjacence(rsGraph, src, (String) facet.getName(),
+                            (int) facet.getCount(), showExternal);
+                }
+            }
+        }
+        return rsGraph;
+    }
+
+    private JsGraph buildGraphNode(String authority, String name)
+    {
+        JsGraph rsGraph = new JsGraph();
         if (authority != null && !authority.isEmpty())
         {
-            src = authority;
-            rsGraph = new JsGraph();
             rsGraph.setId(authority);
             rsGraph.setName(name);
             JsGraphNodeData dataNode = new JsGraphNodeData();
@@ -161,8 +201,6 @@ public abstract class AVisualizationGraph implements NetworkPlugin
         }
         else
         {
-            src = name;
-            rsGraph = new JsGraph();
             rsGraph.setId(name);
             rsGraph.setName(name);
             JsGraphNodeData dataNodeLeaf = new JsGraphNodeData();
@@ -172,78 +210,71 @@ public abstract class AVisualizationGraph implements NetworkPlugin
             rsGraph.setData(dataNodeLeaf);
 
         }
-        if (rsGraph != null)
+        return rsGraph;
+    }
+
+    /**
+     * Add the edge to a node found by a neighbourhood query, unless it is
+     * the node of the graph itself.
+     */
+    private void addAdjacence(JsGraph rsGraph, String src, String node2,
+            int count, boolean showExternal)
+    {
+        String split[] = node2.split("\\|\\|\\|");
+
+        String srcnode2 = null;
+        String displayValue = "";
+        String authorityValue = null;
+        boolean isAuthority = false;
+        
+        if (split.length > 1)
         {
-            if (facets != null && facets.getValueCount() > 0)
+            String[] splitAuthority = split[1].split(splitterAuthority);
+            
+            displayValue = splitAuthority[0];
+            srcnode2 = displayValue;
+            if (splitAuthority.length > 1)
             {
-                for (Count facet : facets.getValues())
-                {
-                    if (facet.getCount() > 0)
-                    {
+                isAuthority = true;
+                authorityValue = splitAuthority[1];
+                srcnode2 = authorityValue;
+            }                                                                               
+            
+        }               
+        else if (split.length == 1)
+        {
+            displayValue = split[0];
+            srcnode2 = displayValue;
+        }
 
-                        String node2 = (String) facet.getName();
-                        String split[] = node2.split("\\|\\|\\|");
+        if (!(src.equals(srcnode2)))
+        {
+            JsGraphAdjacence adjacence = new JsGraphAdjacence();
+            JsGraphData data = new JsGraphData();
 
-                        String srcnode2 = null;
-                        String displayValue = "";
-                        String authorityValue = null;
-                        boolean isAuthority = false;
-                        
-                        if (split.length > 1)
-                        {
-                            String[] splitAuthority = split[1].split(splitterAuthority);
-                            
-                            displayValue = splitAuthority[0];
-                            srcnode2 = displayValue;
-                            if (splitAuthority.length > 1)
-                            {
-                                isAuthority = true;
-                                authorityValue = splitAuthority[1];
-                                srcnode2 = authorityValue;
-                            }                                                                               
-                            
-                        }               
-                        else if (split.length == 1)
-                        {
-                            displayValue = split[0];
-                            srcnode2 = displayValue;
-                        }
+            adjacence.setSrc(node2);
 
-                        if (!(src.equals(srcnode2)))
-                        {
-                            JsGraphAdjacence adjacence = new JsGraphAdjacence();
-                            JsGraphData data = new JsGraphData();
-
-                            adjacence.setSrc(node2);
-
-                            if (isAuthority)
-                            {
-                                adjacence.setNodeTo(authorityValue);
-                            }
-                            else
-                            {
-                                adjacence.setNodeTo(displayValue);
-                            }
-
-                            if (authorityValue != null || showExternal)
-                            {
-                                data.setColor(getEdgeCustomColor());
-                                data.setLineWidth(getCustomLineWidth((int) facet
-                                        .getCount()));
-                                data.setCount((int) facet.getCount());
-                                data.setType(getType());
-                                adjacence.setData(data);
-
-                                rsGraph.getAdjacencies().add(adjacence);
-
-                            }
-                        }
-                    }
-                }
+            if (isAuthority)
+            {
+                adjacence.setNodeTo(authorityValue);
+            }
+            else
+            {
+                adjacence.setNodeTo(displayValue);
             }
 
+            if (authorityValue != null || showExternal)
+            {
+                data.setColor(getEdgeCustomColor());
+                data.setLineWidth(getCustomLineWidth(count));
+                data.setCount(count);
+                data.setType(getType());
+                adjacence.setData(data);
+
+                rsGraph.getAdjacencies().add(adjacence);
+
+            }
         }
-        return rsGraph;
     }
 
     private String buildQuery(String authority, String name,
@@ -10,14 +10,17 @@ package org.dspace.app.cris.network;
 import java.io.IOException;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 
+import org.apache.commons.lang.time.DateFormatUtils;
 import org.apache.solr.client.solrj.SolrQuery;
 import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.client.solrj.util.ClientUtils;
 import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.SolrDocumentList;
 import org.dspace.core.ConfigurationManager;
@@ -35,6 +38,21 @@ public abstract class AVisualizationGraphModeOne extends AVisualizationGraph
     @Override
     public List<VisualizationGraphNode> load(List<String[]> discardedNode,
             Integer importedNodes, Boolean otherError) throws Exception
+    {
+        return load(discardedNode, importedNodes, otherError, null);
+    }
+
+    /**
+     * Load the relations of the publications indexed in discovery since the
+     * given date, replacing the relations previously built from them; all
+     * the publications if the date is null.
+     * <p>
+     * The relations of the publications deleted in the meantime are not
+     * removed: run a full load from time to time.
+     */
+    public List<VisualizationGraphNode> load(List<String[]> discardedNode,
+            Integer importedNodes, Boolean otherError, Date since)
+            throws Exception
     {
         // load all publications
         SolrQuery solrQuery = new SolrQuery();
@@ -43,6 +61,12 @@ public abstract class AVisualizationGraphModeOne extends AVisualizationGraph
         solrQuery.setFields("search.resourceid", "search.resourcetype",
                 "author_filter", "dc.title", "handle");
         solrQuery.addFilterQuery("search.resourcetype:[2 TO 4]");
+        if (since != null)
+        {
+            solrQuery.addFilterQuery("SolrIndexer.lastIndexed:["
+                    + DateFormatUtils.formatUTC(since,
+                            "yyyy-MM-dd'T'HH:mm:ss'Z'") + " TO *]");
+        }
 
         int start = 0;
         int offset = 100;
@@ -92,6 +116,17 @@ public abstract class AVisualizationGraphModeOne extends AVisualizationGraph
 
                     pubId = (Integer) publication
                             .getFieldValue("search.resourceid");
+                    String item = publication
+                            .getFieldValue("search.resourcetype") + "-" + pubId;
+                    if (since != null)
+                    {
+                        // drop the relations built from the previous version
+                        getIndexer().getSolr().deleteByQuery(
+                                "type:\"" + getConnectionName()
+                                        + "\" AND item:\""
+                                        + ClientUtils.escapeQueryChars(item)
+                                        + "\"");
+                    }
                     Object obj = publication.getFieldValue("dc.title");
                     String handle = (String) publication
                             .getFieldValue("handle");
@@ -215,6 +250,10 @@ public abstract class AVisualizationGraphModeOne extends AVisualizationGraph
                     {
                         continue external;
                     }
+                    for (VisualizationGraphNode node : result)
+                    {
+                        node.setItem(item);
+                    }
 
                 }
                 catch (Exception e)
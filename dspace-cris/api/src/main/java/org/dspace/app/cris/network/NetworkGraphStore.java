@@ -0,0 +1,626 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/CILEA/dspace-cris/wiki/License
+ */
+package org.dspace.app.cris.network;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.log4j.Logger;
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.params.CursorMarkParams;
+import org.dspace.core.ConfigurationManager;
+import org.dspace.discovery.SearchServiceException;
+
+/**
+ * In-memory store of the graphs of the network core: one graph by connection
+ * (coauthors, interests...) and entity, with int node IDs and the edges
+ * weighted by the number of connection documents linking two nodes, kept as
+ * compressed adjacency arrays.  It answers the neighbourhood queries of
+ * {@link AVisualizationGraph#search} as the facets on the network core did,
+ * without querying Solr.
+ * <p>
+ * The store is built by {@link org.dspace.app.cris.batch.ScriptIndexNetwork}
+ * after the network core is updated and saved to
+ * <code>network.graphstore.file</code>; the web application loads the file
+ * and reloads it when it changes.
+ */
+public class NetworkGraphStore
+{
+    /** log4j logger */
+    private static Logger log = Logger.getLogger(NetworkGraphStore.class);
+
+    private static final int MAGIC = 0x4e475331;
+
+    private static final int PAGE_SIZE = 10000;
+
+    /** the unique key of the network core */
+    private static final String UNIQUE_KEY = "id";
+
+    private static final String[] FIELDS = { "type", "entity", "a", "b",
+            "a_auth", "b_auth", "a_val", "b_val", "a_dept", "b_dept" };
+
+    private static NetworkGraphStore instance = new NetworkGraphStore();
+
+    /** the graphs, by connection and entity */
+    private volatile Map<String, Graph> graphs = null;
+
+    private volatile long loadedLastModified = -1;
+
+    private volatile long lastCheck = 0;
+
+    private final AtomicBoolean loading = new AtomicBoolean(false);
+
+    /**
+     * A node of the result of a neighbourhood query: the node, as indexed in
+     * the a and b fields, and the number of connection documents.
+     */
+    public static class Neighbour
+    {
+        private final String node;
+
+        private final int count;
+
+        Neighbour(String node, int count)
+        {
+            this.node = node;
+            this.count = count;
+        }
+
+        public String getNode()
+        {
+            return node;
+        }
+
+        public int getCount()
+        {
+            return count;
+        }
+    }
+
+    /**
+     * The graph of a connection and entity.
+     */
+    static class Graph
+    {
+        String[] nodes;
+
+        String[] auth;
+
+        String[] val;
+
+        String[] dept;
+
+        Map<String, int[]> byAuth;
+
+        Map<String, int[]> byVal;
+
+        /** the edges of node i are at offsets[i] to offsets[i + 1] */
+        int[] offsets;
+
+        int[] targets;
+
+        int[] weights;
+
+        void index()
+        {
+            byAuth = indexBy(auth);
+            byVal = indexBy(val);
+        }
+
+        private Map<String, int[]> indexBy(String[] keys)
+        {
+            Map<String, int[]> result = new HashMap<String, int[]>();
+            for (int i = 0; i < keys.length; i++)
+            {
+                if (keys[i] == null)
+                {
+                    continue;
+                }
+                int[] ids = result.get(keys[i]);
+                ids = ids == null ? new int[1] : Arrays.copyOf(ids, ids.length + 1);
+                ids[ids.length - 1] = i;
+                result.put(keys[i], ids);
+            }
+            return result;
+        }
+
+        /** does an edge between two nodes pass the filters of the query */
+        boolean accept(int first, int second, boolean onlyRP, String sameDept)
+        {
+            if (onlyRP && !(isRP(auth[first]) && isRP(auth[second])))
+            {
+                return false;
+            }
+            return sameDept == null
+                    || (sameDept.equals(dept[first]) && sameDept.equals(dept[second]));
+        }
+
+        private static boolean isRP(String authority)
+        {
+            return authority != null && authority.startsWith("rp");
+        }
+    }
+
+    /**
+     * Accumulate the connection documents of a graph.
+     */
+    static class GraphBuilder
+    {
+        private final Map<String, Integer> ids = new HashMap<String, Integer>();
+
+        private final List<String[]> attributes = new ArrayList<String[]>();
+
+        /** the weight of each edge, the lowest ID in the high 32 bits */
+        private final Map<Long, int[]> edges = new HashMap<Long, int[]>();
+
+        void add(String a, String aAuth, String aVal, String aDept, String b,
+                String bAuth, String bVal, String bDept)
+        {
+            int first = node(a, aAuth, aVal, aDept);
+            int second = node(b, bAuth, bVal, bDept);
+            if (first == second)
+            {
+                return;
+            }
+            long key = ((long) Math.min(first, second) << 32)
+                    | Math.max(first, second);
+            int[] weight = edges.get(key);
+            if (weight == null)
+            {
+                edges.put(key, new int[] { 1 });
+            }
+            else
+            {
+                weight[0]++;
+            }
+        }
+
+        private int node(String raw, String auth, String val, String dept)
+        {
+            Integer id = ids.get(raw);
+            if (id == null)
+            {
+                id = attributes.size();
+                ids.put(raw, id);
+                attributes.add(new String[] { raw, auth, val, dept });
+            }
+            return id;
+        }
+
+        Graph build()
+        {
+            int n = attributes.size();
+            Graph graph = new Graph();
+            graph.nodes = new String[n];
+            graph.auth = new String[n];
+            graph.val = new String[n];
+            graph.dept = new String[n];
+            for (int i = 0; i < n; i++)
+            {
+                String[] attr = attributes.get(i);
+                graph.nodes[i] = attr[0];
+                graph.auth[i] = attr[1];
+                graph.val[i] = attr[2];
+                graph.dept[i] = attr[3];
+            }
+
+            graph.offsets = new int[n + 1];
+            for (Long key : edges.keySet())
+            {
+                graph.offsets[(int) (key >>> 32) + 1]++;
+                graph.offsets[(int) (key & 0xffffffffL) + 1]++;
+            }
+            for (int i = 0; i < n; i++)
+            {
+                graph.offsets[i + 1] += graph.offsets[i];
+            }
+            graph.targets = new int[graph.offsets[n]];
+            graph.weights = new int[graph.offsets[n]];
+            int[] fill = Arrays.copyOf(graph.offsets, n);
+            for (Map.Entry<Long, int[]> edge : edges.entrySet())
+            {
+                int first = (int) (edge.getKey() >>> 32);
+                int second = (int) (edge.getKey() & 0xffffffffL);
+                int weight = edge.getValue()[0];
+                graph.targets[fill[first]] = second;
+                graph.weights[fill[first]++] = weight;
+                graph.targets[fill[second]] = first;
+                graph.weights[fill[second]++] = weight;
+            }
+            graph.index();
+            return graph;
+        }
+    }
+
+    public static NetworkGraphStore getInstance()
+    {
+        return instance;
+    }
+
+    public static boolean isEnabled()
+    {
+        return ConfigurationManager.getBooleanProperty(NetworkPlugin.CFG_MODULE,
+                "network.graphstore.enabled", true);
+    }
+
+    public static File getFile()
+    {
+        String path = ConfigurationManager.getProperty(NetworkPlugin.CFG_MODULE,
+                "network.graphstore.file");
+        if (path == null)
+        {
+            path = ConfigurationManager.getProperty("dspace.dir")
+                    + File.separator + "var" + File.separator + "network"
+                    + File.separator + "graph.bin";
+        }
+        return new File(path);
+    }
+
+    /**
+     * Find the nodes connected to the nodes of an authority, or of a name if
+     * the authority is empty, as the facet on the focus field of the
+     * connection documents of these nodes: the nodes of the authority itself
+     * are included, the nodes are sorted by number of documents.
+     *
+     * @param connection
+     *            the connection, e.g. coauthors
+     * @param entity
+     *            the entity of the connection documents
+     * @param authority
+     *            the authority of the node, or null
+     * @param name
+     *            the name of the node, used if there is no authority
+     * @param onlyRP
+     *            keep only the documents linking two researchers
+     * @param sameDept
+     *            keep only the documents linking two members of this
+     *            department, or null
+     * @param limit
+     *            the maximum number of nodes, 0 or less for all
+     * @return the nodes, or null if the graph is not in the store
+     */
+    public List<Neighbour> neighbours(String connection, int entity,
+            String authority, String name, boolean onlyRP, String sameDept,
+            int limit)
+    {
+        Map<String, Graph> current = getGraphs();
+        Graph graph = current != null ? current.get(key(connection, entity)) : null;
+        if (graph == null)
+        {
+            return null;
+        }
+        return neighbours(graph, authority, name, onlyRP, sameDept, limit);
+    }
+
+    /**
+     * Find the nodes connected to the nodes of an authority or name in a
+     * graph, see {@link #neighbours(String, int, String, String, boolean, String, int)}.
+     */
+    static List<Neighbour> neighbours(Graph graph, String authority, String name,
+            boolean onlyRP, String sameDept, int limit)
+    {
+        boolean byAuthority = authority != null && !authority.isEmpty();
+        int[] sources = byAuthority ? graph.byAuth.get(authority) : graph.byVal.get(name);
+        if (sources == null)
+        {
+            return Collections.emptyList();
+        }
+
+        int[] sortedSources = sources.clone();
+        Arrays.sort(sortedSources);
+        Map<Integer, int[]> counts = new HashMap<Integer, int[]>();
+        for (int source : sources)
+        {
+            int sourceCount = 0;
+            for (int e = graph.offsets[source]; e < graph.offsets[source + 1]; e++)
+            {
+                int target = graph.targets[e];
+                if (!graph.accept(source, target, onlyRP, sameDept))
+                {
+                    continue;
+                }
+                sourceCount += graph.weights[e];
+                if (Arrays.binarySearch(sortedSources, target) < 0)
+                {
+                    increment(counts, target, graph.weights[e]);
+                }
+            }
+            if (sourceCount > 0)
+            {
+                increment(counts, source, sourceCount);
+            }
+        }
+
+        List<Neighbour> result = new ArrayList<Neighbour>(counts.size());
+        for (Map.Entry<Integer, int[]> entry : counts.entrySet())
+        {
+            result.add(new Neighbour(graph.nodes[entry.getKey()], entry.getValue()[0]));
+        }
+        Collections.sort(result, new Comparator<Neighbour>()
+        {
+            public int compare(Neighbour o1, Neighbour o2)
+            {
+                if (o1.count != o2.count)
+                {
+                    return o1.count > o2.count ? -1 : 1;
+                }
+                return o1.node.compareTo(o2.node);
+            }
+        });
+        if (limit > 0 && result.size() > limit)
+        {
+            return new ArrayList<Neighbour>(result.subList(0, limit));
+        }
+        return result;
+    }
+
+    private static void increment(Map<Integer, int[]> counts, int node, int count)
+    {
+        int[] value = counts.get(node);
+        if (value == null)
+        {
+            counts.put(node, new int[] { count });
+        }
+        else
+        {
+            value[0] += count;
+        }
+    }
+
+    /**
+     * The graphs, loaded from the file on first use and reloaded, at most
+     * once every network.graphstore.check-interval seconds, when it changes.
+     * The graphs in use are kept while a thread reloads them.
+     */
+    private Map<String, Graph> getGraphs()
+    {
+        long now = System.currentTimeMillis();
+        long interval = ConfigurationManager.getIntProperty(NetworkPlugin.CFG_MODULE,
+                "network.graphstore.check-interval", 60) * 1000L;
+        if ((graphs == null || now - lastCheck > interval)
+                && loading.compareAndSet(false, true))
+        {
+            try
+            {
+                lastCheck = now;
+                File file = getFile();
+                if (file.exists() && file.lastModified() != loadedLastModified)
+                {
+                    long lastModified = file.lastModified();
+                    graphs = load(file);
+                    loadedLastModified = lastModified;
+                }
+            }
+            catch (IOException e)
+            {
+                log.error("Unable to load the network graph store " + getFile(), e);
+            }
+            finally
+            {
+                loading.set(false);
+            }
+        }
+        return graphs;
+    }
+
+    /**
+     * Build the graphs reading all the connection documents of the network
+     * core, and save them to the file of the store.  The documents are read
+     * with a cursor on the unique key, so every page costs the same.
+     */
+    public void rebuild(VisualizationGraphSolrService service)
+            throws SearchServiceException, IOException
+    {
+        long start = System.currentTimeMillis();
+        Map<String, GraphBuilder> builders = new HashMap<String, GraphBuilder>();
+        SolrQuery query = new SolrQuery("*:*");
+        query.setFields(FIELDS);
+        query.setRows(PAGE_SIZE);
+        query.setSort(UNIQUE_KEY, SolrQuery.ORDER.asc);
+        long read = 0;
+        String cursor = CursorMarkParams.CURSOR_MARK_START;
+        while (true)
+        {
+            query.set(CursorMarkParams.CURSOR_MARK_PARAM, cursor);
+            QueryResponse response = service.search(query);
+            for (SolrDocument doc : response.getResults())
+            {
+                add(builders, doc);
+            }
+            read += response.getResults().size();
+            String next = response.getNextCursorMark();
+            if (next == null || next.equals(cursor))
+            {
+                break;
+            }
+            cursor = next;
+            log.info("Network graph store: read " + read + " of "
+                    + response.getResults().getNumFound() + " connection documents");
+        }
+
+        Map<String, Graph> result = build(builders);
+        save(result, getFile());
+        graphs = result;
+        log.info("Network graph store: " + result.size() + " graphs built from "
+                + read + " documents in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    static Map<String, Graph> build(Map<String, GraphBuilder> builders)
+    {
+        Map<String, Graph> result = new HashMap<String, Graph>();
+        for (Map.Entry<String, GraphBuilder> entry : builders.entrySet())
+        {
+            result.put(entry.getKey(), entry.getValue().build());
+        }
+        return result;
+    }
+
+    static void add(Map<String, GraphBuilder> builders, SolrDocument doc)
+    {
+        String type = (String) doc.getFirstValue("type");
+        Object entity = doc.getFirstValue("entity");
+        String a = (String) doc.getFirstValue("a");
+        String b = (String) doc.getFirstValue("b");
+        if (type == null || entity == null || a == null || b == null)
+        {
+            return;
+        }
+        String key = key(type, ((Number) entity).intValue());
+        GraphBuilder builder = builders.get(key);
+        if (builder == null)
+        {
+            builder = new GraphBuilder();
+            builders.put(key, builder);
+        }
+        builder.add(a, (String) doc.getFirstValue("a_auth"),
+                (String) doc.getFirstValue("a_val"),
+                (String) doc.getFirstValue("a_dept"), b,
+                (String) doc.getFirstValue("b_auth"),
+                (String) doc.getFirstValue("b_val"),
+                (String) doc.getFirstValue("b_dept"));
+    }
+
+    static String key(String connection, int entity)
+    {
+        return connection + "#" + entity;
+    }
+
+    static void save(Map<String, Graph> graphs, File file) throws IOException
+    {
+        file.getParentFile().mkdirs();
+        File tmp = new File(file.getPath() + ".tmp");
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(tmp)));
+        try
+        {
+            out.writeInt(MAGIC);
+            out.writeInt(graphs.size());
+            for (Map.Entry<String, Graph> entry : graphs.entrySet())
+            {
+                Graph graph = entry.getValue();
+                out.writeUTF(entry.getKey());
+                out.writeInt(graph.nodes.length);
+                for (int i = 0; i < graph.nodes.length; i++)
+                {
+                    writeString(out, graph.nodes[i]);
+                    writeString(out, graph.auth[i]);
+                    writeString(out, graph.val[i]);
+                    writeString(out, graph.dept[i]);
+                }
+                writeInts(out, graph.offsets);
+                writeInts(out, graph.targets);
+                writeInts(out, graph.weights);
+            }
+        }
+        finally
+        {
+            IOUtils.closeQuietly(out);
+        }
+        if (file.exists() && !file.delete() || !tmp.renameTo(file))
+        {
+            throw new IOException("Unable to write " + file);
+        }
+    }
+
+    static Map<String, Graph> load(File file) throws IOException
+    {
+        long start = System.currentTimeMillis();
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(file)));
+        try
+        {
+            if (in.readInt() != MAGIC)
+            {
+                throw new IOException(file + " is not a network graph store");
+            }
+            int size = in.readInt();
+            Map<String, Graph> result = new HashMap<String, Graph>();
+            for (int g = 0; g < size; g++)
+            {
+                String key = in.readUTF();
+                Graph graph = new Graph();
+                int n = in.readInt();
+                graph.nodes = new String[n];
+                graph.auth = new String[n];
+                graph.val = new String[n];
+                graph.dept = new String[n];
+                for (int i = 0; i < n; i++)
+                {
+                    graph.nodes[i] = readString(in);
+                    graph.auth[i] = readString(in);
+                    graph.val[i] = readString(in);
+                    graph.dept[i] = readString(in);
+                }
+                graph.offsets = readInts(in);
+                graph.targets = readInts(in);
+                graph.weights = readInts(in);
+                graph.index();
+                result.put(key, graph);
+            }
+            log.info("Network graph store: " + result.size() + " graphs loaded in "
+                    + (System.currentTimeMillis() - start) + " ms");
+            return result;
+        }
+        finally
+        {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value)
+            throws IOException
+    {
+        out.writeBoolean(value != null);
+        if (value != null)
+        {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException
+    {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values)
+            throws IOException
+    {
+        out.writeInt(values.length);
+        for (int value : values)
+        {
+            out.writeInt(value);
+        }
+    }
+
+    private static int[] readInts(DataInputStream in) throws IOException
+    {
+        int[] values = new int[in.readInt()];
+        for (int i = 0; i < values.length; i++)
+        {
+            values[i] = in.readInt();
+        }
+        return values;
+    }
+}
@@ -13,6 +13,7 @@ import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.UUID;
 
 import org.apache.log4j.Logger;
 import org.apache.solr.client.solrj.SolrServerException;
@@ -80,6 +81,7 @@ public class VisualizationGraphIndexer {
 			SolrInputDocument doc1 = new SolrInputDocument();
 			// Save our basic info that we already have
 		
+			doc1.addField("id", UUID.randomUUID().toString());
 			doc1.addField("type", node.getType());
 			
 			doc1.addField("a", node.getA());
@@ -98,6 +100,9 @@ public class VisualizationGraphIndexer {
 			doc1.addField("value", node.getValue());
 			doc1.addField("entity", node.getEntity());
 			doc1.addField("extra", node.getExtra());
+			if (node.getItem() != null) {
+				doc1.addField("item", node.getItem());
+			}
 			
 			log.debug("add document on solr index " + node.getA() + "|||" + node.getB());
 			solrDocs.add(doc1);
@@ -38,6 +38,8 @@ public class VisualizationGraphNode
     private List<String> value;
 
     private Integer entity;
+
+    private String item;
     
     public Integer getEntity()
     {
@@ -176,4 +178,14 @@ public class VisualizationGraphNode
         this.b_dept = b_dept;
     }
 
+    public String getItem()
+    {
+        return item;
+    }
+
+    public void setItem(String item)
+    {
+        this.item = item;
+    }
+
 }
@@ -12,16 +12,25 @@ import java.io.IOException;
 import java.io.Serializable;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.cli.ParseException;
 import org.apache.log4j.Logger;
 import org.dspace.app.cris.batch.ImportCRISDataModelConfiguration;
+import org.dspace.app.cris.dao.ApplicationDao;
 import org.dspace.app.cris.dao.CrisObjectDao;
 import org.dspace.app.cris.dao.CrisSubscriptionDao;
 import org.dspace.app.cris.dao.DynamicObjectDao;
@@ -37,24 +46,28 @@ import org.dspace.app.cris.dao.UserWSDao;
 import org.dspace.app.cris.model.ACrisObject;
 import org.dspace.app.cris.model.CrisConstants;
 import org.dspace.app.cris.model.CrisSubscription;
+import org.dspace.app.cris.model.ICrisObject;
 import org.dspace.app.cris.model.OrganizationUnit;
 import org.dspace.app.cris.model.Project;
 import org.dspace.app.cris.model.RelationPreference;
 import org.dspace.app.cris.model.ResearchObject;
 import org.dspace.app.cris.model.ResearcherPage;
 import org.dspace.app.cris.model.StatSubscription;
+import org.dspace.app.cris.model.jdyna.ACrisNestedObject;
 import org.dspace.app.cris.model.jdyna.DynamicObjectType;
 import org.dspace.app.cris.model.jdyna.DynamicTypeNestedObject;
 import org.dspace.app.cris.model.jdyna.RPProperty;
 import org.dspace.app.cris.model.orcid.OrcidHistory;
 import org.dspace.app.cris.model.orcid.OrcidQueue;
 import org.dspace.app.cris.model.ws.User;
+import org.dspace.app.cris.util.CacheDependencyGraph;
 import org.dspace.app.cris.util.ResearcherPageUtils;
 import org.dspace.app.util.Util;
 import org.dspace.core.ConfigurationManager;
 import org.dspace.services.ConfigurationService;
 import org.dspace.storage.rdbms.DatabaseUtils;
 import org.hibernate.Session;
+import org.hibernate.proxy.HibernateProxyHelper;
 
 import it.cilea.osd.common.model.Identifiable;
 import it.cilea.osd.jdyna.model.Property;
@@ -100,8 +113,102 @@ public class ApplicationService extends ExtendedTabService
 	private Cache cacheBySource;
 	private Cache cacheByUUID;
 	
-    // the key is the UUID of the CRIS object, the set contains the UUIDs of all the CRIS objects that hold a reference to such object
-    private Map<String, Set<String>> cacheDependencies = new HashMap<String, Set<String>>();
+    // the cached CRIS objects and the CRIS objects referenced by their properties
+    private final CacheDependencyGraph<CachedObjectRef> cacheDependencies = new CacheDependencyGraph<CachedObjectRef>();
+
+    // the key is the UUID of an evicted object, the value the time of the eviction: its
+    // entries by other keys (CRIS ID, source, eperson) cached before are stale. Only the
+    // most recent evictions are kept; a stale entry whose eviction was dropped is found
+    // when it is checked against the database
+    private final Map<String, Long> evictedAt = Collections.synchronizedMap(
+            new LinkedHashMap<String, Long>(16, 0.75f, true)
+            {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Long> eldest)
+                {
+                    return size() > maxEvicted;
+                }
+            });
+
+    // the maximum number of evictions kept in evictedAt
+    private volatile int maxEvicted = 10000;
+
+    // the key is the name of the cache
+    private final Map<String, CacheStatistics> cacheStatistics = new ConcurrentHashMap<String, CacheStatistics>();
+
+    // milliseconds after which a cached object is checked against the database
+    private long revalidateInterval = 1000;
+
+    // serve the cached object while it is checked by a background thread
+    private boolean staleWhileRevalidate = false;
+
+    private ExecutorService revalidationExecutor;
+
+    // the UUIDs of the objects being checked by a background thread
+    private final Set<String> revalidating = Collections
+            .newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    /**
+     * A cached CRIS object, as node of the dependency graph: equal by UUID,
+     * it carries the class and ID to read the last modification date.
+     */
+    private static final class CachedObjectRef
+    {
+        private final String uuid;
+
+        private final Class<? extends ACrisObject> model;
+
+        private final Integer id;
+
+        private CachedObjectRef(ACrisObject object)
+        {
+            this.uuid = object.getUuid();
+            this.model = HibernateProxyHelper
+                    .getClassWithoutInitializingProxy(object);
+            this.id = object.getId();
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            return obj instanceof CachedObjectRef
+                    && uuid.equals(((CachedObjectRef) obj).uuid);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return uuid.hashCode();
+        }
+    }
+
+    /**
+     * Hits, misses and evictions of one of the caches of the service.
+     */
+    public static class CacheStatistics
+    {
+        private final AtomicLong hits = new AtomicLong();
+
+        private final AtomicLong misses = new AtomicLong();
+
+        private final AtomicLong evictions = new AtomicLong();
+
+        public long getHits()
+        {
+            return hits.get();
+        }
+
+        public long getMisses()
+        {
+            return misses.get();
+        }
+
+        /** the entries removed because the object or an embedded object changed */
+        public long getEvictions()
+        {
+            return evictions.get();
+        }
+    }
 
     private static Logger log = Logger.getLogger(ApplicationService.class);
 
@@ -190,7 +297,7 @@ public class ApplicationService extends ExtendedTabService
                     }
 
                     cacheByUUID = cacheManager
-                            .getCache("applicationServiceCacheBySource");
+                            .getCache("applicationServiceCacheByUUID");
                     if (cacheByUUID == null)
                     {
                         cacheByUUID = new Cache("applicationServiceCacheByUUID",
@@ -199,6 +306,29 @@ public class ApplicationService extends ExtendedTabService
                                 diskExpireThreadInterval);
                         cacheManager.addCache(cacheByUUID);
                     }
+
+                    for (Cache c : new Cache[] { cache, cacheRpByEPerson,
+                            cacheByCrisID, cacheBySource, cacheByUUID })
+                    {
+                        cacheStatistics.put(c.getName(), new CacheStatistics());
+                    }
+
+                    revalidateInterval = configurationService.getPropertyAsType("cris.applicationServiceCache.revalidate-interval", 1000);
+                    maxEvicted = configurationService.getPropertyAsType("cris.applicationServiceCache.max-evicted", 10000);
+                    staleWhileRevalidate = configurationService.getPropertyAsType("cris.applicationServiceCache.stale-while-revalidate", false);
+                    if (staleWhileRevalidate)
+                    {
+                        int threads = configurationService.getPropertyAsType("cris.applicationServiceCache.revalidate-threads", 2);
+                        revalidationExecutor = Executors.newFixedThreadPool(threads, new ThreadFactory()
+                        {
+                            public Thread newThread(Runnable r)
+                            {
+                                Thread thread = new Thread(r, "cris-cache-revalidation");
+                                thread.setDaemon(true);
+                                return thread;
+                            }
+                        });
+                    }
                 }
             }
             catch (Exception ex)
@@ -598,6 +728,41 @@ public class ApplicationService extends ExtendedTabService
         return applicationDao.getList(model, ids);
     }
 
+    /**
+     * Load a set of CRIS objects with their properties in a few queries, to
+     * list or export many objects without a query for each of them.
+     */
+    public <T extends ACrisObject> List<T> getListWithAnagrafica(Class<T> model,
+            List<Integer> ids)
+    {
+        return ((ApplicationDao) applicationDao).getListWithAnagrafica(model, ids);
+    }
+
+    /**
+     * Load the nested objects of a set of CRIS objects, with their
+     * properties, in a few queries.
+     * 
+     * @return the nested objects, of all the types, by ID of their parent
+     */
+    public <ACNO extends ACrisNestedObject> Map<Integer, List<ACNO>> getNestedObjectsByParentIDs(
+            Class<ACNO> model, List<Integer> parentIds)
+    {
+        Map<Integer, List<ACNO>> result = new HashMap<Integer, List<ACNO>>();
+        for (ACNO nested : ((ApplicationDao) applicationDao)
+                .getNestedObjectsByParentIDs(model, parentIds))
+        {
+            Integer parentId = ((ICrisObject) nested.getParent()).getID();
+            List<ACNO> list = result.get(parentId);
+            if (list == null)
+            {
+                list = new ArrayList<ACNO>();
+                result.put(parentId, list);
+            }
+            list.add(nested);
+        }
+        return result;
+    }
+
     public <T extends ACrisObject> List<T> getCrisObjectPaginate(Class<T> crisEntityClazz, Integer crisEntityTypeId) {
         List<T> crisObjs = new ArrayList<>();
 
@@ -627,19 +792,21 @@ public class ApplicationService extends ExtendedTabService
 
     public ResearcherPage getResearcherPageByEPersonId(Integer id)
     {
-		if (cacheRpByEPerson != null) {
-			Element element = cacheRpByEPerson.getQuiet(id);
-			if (element != null) {
-				ResearcherPage rp = (ResearcherPage) element.getValue();
-				if (!isExpiredCache(ResearcherPage.class, element, rp.getId(), rp)) {
-					return rp;
-				}
-				else if (rp != null) {
-					return get(ResearcherPage.class, rp.getId(), false);
-				}
+		Element element = lookup(cacheRpByEPerson, id);
+		if (element != null) {
+			ResearcherPage rp = (ResearcherPage) element.getValue();
+			if (!isExpiredCache(ResearcherPage.class, element, rp.getId(), rp)) {
+				return rp;
+			}
+			else if (rp != null) {
+				return get(ResearcherPage.class, rp.getId(), false);
 			}
-		}    	
-        return researcherPageDao.uniqueByEPersonId(id);
+		}
+        ResearcherPage rp = researcherPageDao.uniqueByEPersonId(id);
+        if (rp != null) {
+            putToCache(ResearcherPage.class, rp, rp.getId());
+        }
+        return rp;
     }
 
     @Deprecated
@@ -666,24 +833,22 @@ public class ApplicationService extends ExtendedTabService
     public <T extends ACrisObject> T getEntityByCrisId(String crisID,
             Class<T> className)
     {        
-		if (cacheByCrisID != null) {
-			Element element = cacheByCrisID.getQuiet(crisID);
-			if (element != null) {
-				T crisObject = (T) element.getValue();
-                //the element retrieved by cache is consistent with the className passed as parameter? (add safety check)
-                if(className.isAssignableFrom(crisObject.getClass())) {
-    				if (!isExpiredCache(className, element, crisObject.getId(), crisObject)) {
-    					return crisObject;
-    				}
-    				else if (crisObject != null) {
-    					return get(className, crisObject.getId(), false);
-    				}
-                }
-                else {
-                    //return null because the caller method working on different class object e.g. I searching for a Journal but the primary logic in the caller method see first in ResearcherPage table  
-                    return null;
-                }
-			}
+		Element element = lookup(cacheByCrisID, crisID);
+		if (element != null) {
+			T crisObject = (T) element.getValue();
+            //the element retrieved by cache is consistent with the className passed as parameter? (add safety check)
+            if(className.isAssignableFrom(crisObject.getClass())) {
+				if (!isExpiredCache(className, element, crisObject.getId(), crisObject)) {
+					return crisObject;
+				}
+				else if (crisObject != null) {
+					return get(className, crisObject.getId(), false);
+				}
+            }
+            else {
+                //return null because the caller method working on different class object e.g. I searching for a Journal but the primary logic in the caller method see first in ResearcherPage table  
+                return null;
+            }
 		}
 
         CrisObjectDao<T> dao = (CrisObjectDao<T>) getDaoByModel(className);
@@ -733,26 +898,24 @@ public class ApplicationService extends ExtendedTabService
     public <T extends ACrisObject> T getEntityBySourceId(String sourceRef, String sourceID,
             Class<T> className)
     {
-		if (cacheBySource != null) {
-			Element element = cacheBySource.getQuiet(sourceRef + "-" + sourceID);
-			if (element != null) {
-				T crisObject = (T) element.getValue();
-				//the element retrieved by cache is consistent with the className passed as parameter? (add safety check)
-				if(className.isAssignableFrom(crisObject.getClass())) {
-                    if (!isExpiredCache(className, element, crisObject.getId(),
-                            crisObject))
-                    {
-                        return crisObject;
-                    }
-                    else if (crisObject != null)
-                    {
-                        return get(className, crisObject.getId(), false);
-                    }
-				}
-				else {
-				    //return null because the caller method working on different class object e.g. I searching for a Journal but the primary logic in the caller method see first in ResearcherPage table  
-				    return null;
-				}
+		Element element = lookup(cacheBySource, className.getName() + "#" + sourceRef + "-" + sourceID);
+		if (element != null) {
+			T crisObject = (T) element.getValue();
+			//the element retrieved by cache is consistent with the className passed as parameter? (add safety check)
+			if(className.isAssignableFrom(crisObject.getClass())) {
+                if (!isExpiredCache(className, element, crisObject.getId(),
+                        crisObject))
+                {
+                    return crisObject;
+                }
+                else if (crisObject != null)
+                {
+                    return get(className, crisObject.getId(), false);
+                }
+			}
+			else {
+			    //return null because the caller method working on different class object e.g. I searching for a Journal but the primary logic in the caller method see first in ResearcherPage table  
+			    return null;
 			}
 		}
         CrisObjectDao<T> dao = (CrisObjectDao<T>) getDaoByModel(className);
@@ -765,15 +928,22 @@ public class ApplicationService extends ExtendedTabService
 
     public ACrisObject getEntityByUUID(String uuid)
     {
-		if (cacheByUUID != null) {
-			Element element = cacheByUUID.getQuiet(uuid);
-			if (element != null) {
-				ACrisObject crisObject = (ACrisObject) element.getValue();
-				if (!isExpiredCache(crisObject.getClass(), element, crisObject.getId(), crisObject)) {
-					return crisObject;
-				}
+		Element element = lookup(cacheByUUID, uuid);
+		if (element != null) {
+			ACrisObject crisObject = (ACrisObject) element.getValue();
+			if (!isExpiredCache(crisObject.getClass(), element, crisObject.getId(), crisObject)) {
+				return crisObject;
 			}
-		}    	
+		}
+        ACrisObject obj = uniqueByUUID(uuid);
+		if (obj != null) {
+			putToCache((Class) HibernateProxyHelper.getClassWithoutInitializingProxy(obj), obj, obj.getId());
+		}        
+        return obj;
+    }
+
+    private ACrisObject uniqueByUUID(String uuid)
+    {
         // return ((ApplicationDao) getApplicationDao()).uniqueByUUID(uuid);
         // HIBERNATE 4 seems not support polymorphic query on mappedsuperclass
         ACrisObject obj = researcherPageDao.uniqueByUUID(uuid);
@@ -789,9 +959,6 @@ public class ApplicationService extends ExtendedTabService
                 }
             }
         }
-		if (obj != null) {
-			putToCache((Class) obj.getClass(), obj, obj.getId());
-		}        
         return obj;
     }
 
@@ -895,28 +1062,100 @@ public class ApplicationService extends ExtendedTabService
     }
 
 
+	/**
+	 * Check a cached object against the database, at most once every
+	 * revalidate-interval ms: it is expired if it or one of the objects
+	 * referenced by its properties changed since it was cached. An expired
+	 * object is evicted with the cached objects depending on it.
+	 */
 	private <T extends ACrisObject> boolean isExpiredCache(Class<T> model, Element element, Integer objectId,
 			ACrisObject rp) {
-		Date now = new Date();
 		if (rp == null) {
 			return true;
 		}		
-		long lastModCache = element.getLastUpdateTime();
-		
-		if ( now.getTime() - element.getLastAccessTime() > 1000) {
-			Date uniqueLastModifiedTimeStamp = uniqueLastModifiedTimeStamp(model, objectId);
-			long lastModDb = uniqueLastModifiedTimeStamp != null? uniqueLastModifiedTimeStamp.getTime():Long.MAX_VALUE;
-			if (lastModCache >= lastModDb) {
-				element.updateAccessStatistics();
-				return false;
-			}
-			else {
+		Long evicted = rp.getUuid() != null ? evictedAt.get(rp.getUuid()) : null;
+		if (evicted != null && evicted >= element.getLatestOfCreationAndUpdateTime()) {
+			return true;
+		}
+		if (System.currentTimeMillis() - element.getLastAccessTime() <= revalidateInterval) {
+			return false;
+		}
+		if (rp.getUuid() == null) {
+			return true;
+		}
+		CachedObjectRef ref = new CachedObjectRef(rp);
+		if (staleWhileRevalidate && revalidationExecutor != null) {
+			revalidateInBackground(ref, element, rp);
+			return false;
+		}
+		if (isModifiedSince(ref, element.getLatestOfCreationAndUpdateTime(), false)) {
+			evict(ref, rp);
+			return true;
+		}
+		element.updateAccessStatistics();
+		return false;
+	}
+
+	private void revalidateInBackground(final CachedObjectRef ref, final Element element, final ACrisObject rp) {
+		if (!revalidating.add(ref.uuid)) {
+			// already in progress
+			return;
+		}
+		try {
+			revalidationExecutor.execute(new Runnable() {
+				public void run() {
+					try {
+						if (isModifiedSince(ref, element.getLatestOfCreationAndUpdateTime(), true)) {
+							evict(ref, rp);
+						}
+						else {
+							element.updateAccessStatistics();
+						}
+					}
+					catch (Exception ex) {
+						log.warn("Unable to revalidate the cached object " + ref.uuid, ex);
+					}
+					finally {
+						revalidating.remove(ref.uuid);
+					}
+				}
+			});
+		}
+		catch (RejectedExecutionException ex) {
+			revalidating.remove(ref.uuid);
+		}
+	}
+
+	/**
+	 * Check an object and the objects referenced by its properties against
+	 * the database, with a query by class of object.
+	 */
+	private boolean isModifiedSince(CachedObjectRef ref, long since, boolean newSession) {
+		Map<Class<? extends ACrisObject>, Set<Integer>> idsByModel = new HashMap<Class<? extends ACrisObject>, Set<Integer>>();
+		addRef(idsByModel, ref);
+		for (CachedObjectRef embedded : cacheDependencies.getReferences(ref)) {
+			addRef(idsByModel, embedded);
+		}
+		for (Map.Entry<Class<? extends ACrisObject>, Set<Integer>> entry : idsByModel.entrySet()) {
+			Date lastModified = ((ApplicationDao) applicationDao).maxLastModifiedTimeStamp(
+					entry.getKey(), entry.getValue(), newSession);
+			// a deleted object is always modified
+			if (lastModified == null || lastModified.getTime() > since) {
 				return true;
 			}
 		}
 		return false;
 	}
 
+	private static void addRef(Map<Class<? extends ACrisObject>, Set<Integer>> idsByModel, CachedObjectRef ref) {
+		Set<Integer> ids = idsByModel.get(ref.model);
+		if (ids == null) {
+			ids = new HashSet<Integer>();
+			idsByModel.put(ref.model, ids);
+		}
+		ids.add(ref.id);
+	}
+
 	@Override
 	public <T, PK extends Serializable> T get(Class<T> modelClass, PK pkey) {
 		if (ACrisObject.class.isAssignableFrom(modelClass) && pkey instanceof Integer) {
@@ -933,8 +1172,7 @@ public class ApplicationService extends ExtendedTabService
         {
             try
             {
-				Element element = cache.getQuiet(model.getName() + "#" + objectId);
-				return element;
+				return lookup(cache, model.getName() + "#" + objectId);
             }
             catch (Exception ex)
             {
@@ -946,66 +1184,132 @@ public class ApplicationService extends ExtendedTabService
 
     public void clearCacheByUUID(String uuid)
     {
-        ACrisObject object = getEntityByUUID(uuid);
+        ACrisObject object = getCachedObject(uuid, null);
+        if (object == null) {
+            object = uniqueByUUID(uuid);
+        }
         if (object == null) {
             log.warn("Try to decache unfounded object with UUID: " + uuid);
             return;
         }
-        if (cache != null)
+        evict(new CachedObjectRef(object), object);
+    }
+
+	public void clearCache()
+    {
+        try
         {
-            try
-            {
-                cache.remove(object.getClass().getName() + "#" + object.getId());
-            }
-            catch (Exception ex)
+            for (Cache c : new Cache[] { cache, cacheRpByEPerson,
+                    cacheBySource, cacheByCrisID, cacheByUUID })
             {
-                log.error("clearCacheByUUID", ex);
+                if (c != null)
+                {
+                    c.removeAll();
+                }
             }
+            cacheDependencies.clear();
+            evictedAt.clear();
         }
-        if (cacheRpByEPerson != null && object instanceof ResearcherPage) {
-            Integer eid = ((ResearcherPage) object).getEpersonID();
-            if (eid != null) {
-                cacheRpByEPerson.remove(eid);
-            }
+        catch (Exception ex)
+        {
+            log.error("clearCache", ex);
+        }	
+    }
+
+    /**
+     * The statistics of the caches of the service, by name of the cache.
+     */
+    public Map<String, CacheStatistics> getCacheStatistics()
+    {
+        return Collections.unmodifiableMap(cacheStatistics);
+    }
+
+    /**
+     * Remove an object and the objects depending on it from all the caches.
+     */
+    private void evict(CachedObjectRef ref, ACrisObject object)
+    {
+        removeEntries(ref, object);
+        for (CachedObjectRef dependent : cacheDependencies.remove(ref))
+        {
+            removeEntries(dependent, getCachedObject(dependent.uuid,
+                    dependent.model.getName() + "#" + dependent.id));
         }
-        if (object instanceof ACrisObject) {
-            if (cacheByCrisID != null) {
-                String key = ((ACrisObject) object).getCrisID();
-                if (key != null) {
-                    cacheByCrisID.remove(key);
-                }
+    }
+
+    private void removeEntries(CachedObjectRef ref, ACrisObject object)
+    {
+        try
+        {
+            evictedAt.put(ref.uuid, System.currentTimeMillis());
+            remove(cache, ref.model.getName() + "#" + ref.id);
+            remove(cacheByUUID, ref.uuid);
+            if (object == null)
+            {
+                // the entries by other keys are expired when hit
+                return;
             }
-            if (cacheBySource != null) {
-                String sourceRef = ((ACrisObject) object).getSourceRef();
-                String sourceID = ((ACrisObject) object).getSourceID();
-                if (sourceID != null) {
-                    String key = sourceRef + "-" + sourceID;
-                    cacheBySource.remove(object.getClass().getName() + "#" + key);
-                }
+            if (object instanceof ResearcherPage)
+            {
+                remove(cacheRpByEPerson, ((ResearcherPage) object).getEpersonID());
             }
-            if (cacheByUUID != null) {
-                String key = ((ACrisObject) object).getUuid();
-                if (key != null) {
-                    cacheByUUID.remove(key);
-                }
+            remove(cacheByCrisID, object.getCrisID());
+            if (object.getSourceID() != null)
+            {
+                remove(cacheBySource, ref.model.getName() + "#"
+                        + object.getSourceRef() + "-" + object.getSourceID());
             }
         }
+        catch (Exception ex)
+        {
+            log.error("removeEntries", ex);
+        }
     }
 
-	public void clearCache()
+    private void remove(Cache c, Object key)
+    {
+        if (c != null && key != null && c.remove(key))
+        {
+            CacheStatistics stats = cacheStatistics.get(c.getName());
+            if (stats != null)
+            {
+                stats.evictions.incrementAndGet();
+            }
+        }
+    }
+
+    /** find a cached object, without counting it as a hit */
+    private ACrisObject getCachedObject(String uuid, String key)
     {
         try
         {
-        	cache.removeAll();
-			cacheRpByEPerson.removeAll();
-			cacheBySource.removeAll();
-			cacheByCrisID.removeAll();
-			cacheByUUID.removeAll();
+            Element element = cacheByUUID != null ? cacheByUUID.getQuiet(uuid) : null;
+            if (element == null && key != null && cache != null)
+            {
+                element = cache.getQuiet(key);
+            }
+            return element != null ? (ACrisObject) element.getValue() : null;
         }
         catch (Exception ex)
         {
-            log.error("clearCache", ex);
-        }	
+            log.error("getCachedObject", ex);
+            return null;
+        }
+    }
+
+    private Element lookup(Cache c, Object key)
+    {
+        if (c == null || key == null)
+        {
+            return null;
+        }
+        Element element = c.getQuiet(key);
+        CacheStatistics stats = cacheStatistics.get(c.getName());
+        if (stats != null)
+        {
+            (element != null ? stats.hits : stats.misses).incrementAndGet();
+        }
+        return element;
     }
 	
 	public <T extends Serializable, PK extends Serializable> void putToCache(Class<T> model,
@@ -1031,41 +1335,26 @@ public class ApplicationService extends ExtendedTabService
 				cacheRpByEPerson.put(new Element(eid, object));
 			}
 		}
-		if (object instanceof ACrisObject) {
-			// get set of the depending objects
-			String myUuid = ((ACrisObject) object).getUuid();
-			Set<String> dependencies = cacheDependencies.get(myUuid);
-
-			// remove from the cache all the depending objects
-			if (dependencies != null) {
-				for (String uuidDep : dependencies) {
-					// prevent a stack overflow if the item depends on itself
-					if (!uuidDep.equals(myUuid)) {
-						clearCacheByUUID(uuidDep);
-					}
-				}
+		if (object instanceof ACrisObject && ((ACrisObject) object).getUuid() != null) {
+			CachedObjectRef ref = new CachedObjectRef((ACrisObject) object);
+			evictedAt.remove(ref.uuid);
+
+			// the object may have changed: remove from the cache all the depending objects
+			for (CachedObjectRef dependent : cacheDependencies.remove(ref)) {
+				removeEntries(dependent, getCachedObject(dependent.uuid,
+						dependent.model.getName() + "#" + dependent.id));
 			}
-			cacheDependencies.remove(myUuid);
 
-			// add the object for all the CRIS objects mentioned in its direct properties to the dependencies map
+			// record the CRIS objects mentioned in its direct properties
 			List<Property> props = ((ACrisObject) object).getAnagrafica();
-			Set<String> myDeps = new HashSet<String>();
+			Set<CachedObjectRef> myDeps = new HashSet<CachedObjectRef>();
 			for (Property prop : props) {
-				Object val = prop.getValue().getReal();
-				if (val instanceof ACrisObject) {
-					myDeps.add(((ACrisObject) val).getUuid());
-				}
-			}
-			if (myDeps.size() > 0) {
-				for (String myDep : myDeps) {
-					Set<String> relatedUuids = cacheDependencies.get(myDep);
-					if (relatedUuids == null) {
-						relatedUuids = new HashSet<String>();
-					}
-					relatedUuids.add(myUuid);
-					cacheDependencies.put(myDep, relatedUuids);
+				Object val = prop.getValue() != null ? prop.getValue().getReal() : null;
+				if (val instanceof ACrisObject && ((ACrisObject) val).getUuid() != null) {
+					myDeps.add(new CachedObjectRef((ACrisObject) val));
 				}
 			}
+			cacheDependencies.register(ref, myDeps);
 
 			if (cacheByCrisID != null) {
 				String key = ((ACrisObject) object).getCrisID();
@@ -1078,7 +1367,9 @@ public class ApplicationService extends ExtendedTabService
 				String sourceID = ((ACrisObject) object).getSourceID();
 				if (sourceID != null) {
 					String key = sourceRef + "-" + sourceID;
-					cacheBySource.put(new Element(model.getName() + "#" + key, object));
+					// keyed on the entity class, as looked up, not on its proxy
+					cacheBySource.put(new Element(HibernateProxyHelper
+							.getClassWithoutInitializingProxy(object).getName() + "#" + key, object));
 				}
 			}
 			if (cacheByUUID != null) {
@@ -1129,8 +1420,17 @@ public class ApplicationService extends ExtendedTabService
     
     @Override
     public <P, PK extends Serializable> void delete(Class<P> model, PK pkey) {    	
+        ACrisObject crisObject = null;
+        if (ACrisObject.class.isAssignableFrom(model)) {
+            crisObject = (ACrisObject) super.get(model, pkey);
+        }
     	super.delete(model, pkey);
-    	clearCache();
+        if (crisObject != null && crisObject.getUuid() != null) {
+            evict(new CachedObjectRef(crisObject), crisObject);
+        }
+        else {
+            clearCache();
+        }
     }
 
 	public List<OrcidQueue> findOrcidQueueByResearcherId(String crisId) {
@@ -1236,6 +1536,12 @@ public class ApplicationService extends ExtendedTabService
             cacheByUUID = null;            
             cacheManager.shutdown();
         }   
+        if (revalidationExecutor != null)
+        {
+            revalidationExecutor.shutdownNow();
+            revalidationExecutor = null;
+        }
+        cacheDependencies.clear();
     }
 
 	
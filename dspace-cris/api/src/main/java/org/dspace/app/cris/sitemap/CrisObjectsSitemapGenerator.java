@@ -8,25 +8,20 @@
 package org.dspace.app.cris.sitemap;
 
 import java.io.IOException;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
-import org.apache.commons.lang3.BooleanUtils;
-import org.dspace.app.cris.model.ACrisObject;
-import org.dspace.app.cris.model.CrisConstants;
-import org.dspace.app.cris.model.OrganizationUnit;
-import org.dspace.app.cris.model.Project;
-import org.dspace.app.cris.model.ResearchObject;
-import org.dspace.app.cris.model.ResearcherPage;
 import org.dspace.app.cris.model.jdyna.DynamicObjectType;
 import org.dspace.app.cris.service.ApplicationService;
 import org.dspace.app.sitemap.AbstractGenerator;
-import org.dspace.app.sitemap.ISitemapGeneratorPlugin;
+import org.dspace.app.sitemap.ISitemapSegmentedPlugin;
+import org.dspace.app.sitemap.SitemapSegmentSource;
 import org.dspace.core.ConfigurationManager;
 import org.dspace.core.Context;
 
-public class CrisObjectsSitemapGenerator implements ISitemapGeneratorPlugin
+public class CrisObjectsSitemapGenerator implements ISitemapSegmentedPlugin
 {
     private ApplicationService applicationService;
 
@@ -39,42 +34,45 @@ public class CrisObjectsSitemapGenerator implements ISitemapGeneratorPlugin
     public String addUrls(Context c, boolean makeHTMLMap,
             boolean makeSitemapOrg, List<String> includes,
             AbstractGenerator html, AbstractGenerator sitemapsOrg)
-            throws IOException
+            throws SQLException, IOException
     {
         StringBuffer objectDetails = new StringBuffer();
+        for (SitemapSegmentSource source : getSources(c, includes))
+        {
+            int count = source.addUrls(c, makeHTMLMap ? html : null,
+                    makeSitemapOrg ? sitemapsOrg : null);
+            objectDetails.append(",").append(source.getType()).append("=")
+                    .append(count);
+        }
+        return objectDetails.toString();
+    }
+
+    @Override
+    public List<SitemapSegmentSource> getSources(Context c,
+            List<String> includes)
+    {
         String crisURLStem = ConfigurationManager.getProperty("dspace.url")
                 + "/cris/";
+        List<SitemapSegmentSource> sources = new ArrayList<SitemapSegmentSource>();
 
+        // only the columns of the URLs of the active objects, without
+        // loading them with hibernate
         if (includes.contains("crispj"))
         {
-
-            List<Project> crispjs = applicationService.getCrisObjectPaginate(Project.class,
-                    CrisConstants.PROJECT_TYPE_ID);
-
-            addUrlsInternal(makeHTMLMap, makeSitemapOrg, html, sitemapsOrg,
-                    crisURLStem, crispjs);
-            objectDetails.append(",crispj=").append(crispjs.size());
+            sources.add(new SitemapSegmentSource("crispj", crisURLStem + "pj/",
+                    getQuery("cris_project")));
         }
 
         if (includes.contains("crisou"))
         {
-            List<OrganizationUnit> orgUnits = applicationService.getCrisObjectPaginate(OrganizationUnit.class,
-                    CrisConstants.OU_TYPE_ID);
-
-            addUrlsInternal(makeHTMLMap, makeSitemapOrg, html, sitemapsOrg,
-                    crisURLStem, orgUnits);
-            objectDetails.append(",crisou=").append(orgUnits.size());
+            sources.add(new SitemapSegmentSource("crisou", crisURLStem + "ou/",
+                    getQuery("cris_orgunit")));
         }
 
         if (includes.contains("crisrp"))
         {
-
-            List<ResearcherPage> crisrps = applicationService.getCrisObjectPaginate(ResearcherPage.class,
-                    CrisConstants.RP_TYPE_ID);
-
-            addUrlsInternal(makeHTMLMap, makeSitemapOrg, html, sitemapsOrg,
-                    crisURLStem, crisrps);
-            objectDetails.append(",crisrp=").append(crisrps.size());
+            sources.add(new SitemapSegmentSource("crisrp", crisURLStem + "rp/",
+                    getQuery("cris_rpage")));
         }
 
         List<DynamicObjectType> dynTypes = applicationService
@@ -84,47 +82,19 @@ public class CrisObjectsSitemapGenerator implements ISitemapGeneratorPlugin
             String dynShortName = dynType.getShortName();
             if (includes.contains("cris" + dynShortName))
             {
-                long count = applicationService
-                        .countResearchObjectByType(dynType);
-                // num of full pages plus 1 if there are residual items
-                int numPages = (int) (count / 100) + (count % 100 > 0 ? 1 : 0);
-                for (int page = 0; page < numPages; page++)
-                {
-                    List<ResearchObject> researchers = applicationService
-                            .getResearchObjectPaginateListByType(dynType, "id",
-                                    false, page, 100);
-
-                    addUrlsInternal(makeHTMLMap, makeSitemapOrg, html, sitemapsOrg,
-                            crisURLStem, researchers);
-                }
-                objectDetails.append(",cris").append(dynShortName).append("=")
-                    .append(count);
+                sources.add(new SitemapSegmentSource("cris" + dynShortName,
+                        crisURLStem + dynShortName + "/",
+                        getQuery("cris_do") + " AND typo_id = ?",
+                        dynType.getId()));
             }
         }
-        return objectDetails.toString();
+        return sources;
     }
 
-    private void addUrlsInternal(boolean makeHTMLMap, boolean makeSitemapOrg,
-            AbstractGenerator html, AbstractGenerator sitemapsOrg,
-            String crisURLStem, List<? extends ACrisObject> crisObjects) throws IOException
+    private static String getQuery(String table)
     {
-        for (ACrisObject crisObj : crisObjects)
-        {
-            String url = crisURLStem + crisObj.getAuthorityPrefix() + "/"
-                    + crisObj.getCrisID();
-            if (BooleanUtils.isNotTrue(crisObj.getStatus())) {
-                continue;
-            }
-            if (makeHTMLMap)
-            {
-                html.addURL(url, null);
-            }
-            if (makeSitemapOrg)
-            {
-                sitemapsOrg.addURL(url, null);
-            }
-            applicationService.clearCache();
-        }
+        return "SELECT id, crisID AS path, timestampLastModified AS last_modified FROM "
+                + table + " WHERE status = '1'";
     }
 
     @Override
@@ -0,0 +1,142 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/CILEA/dspace-cris/wiki/License
+ */
+package org.dspace.app.cris.util;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Thread-safe graph of the dependencies between cached objects, identified
+ * by a key (e.g. the UUID of a CRIS object): an object depends on the
+ * objects it embeds, so that it must be evicted when one of them changes.
+ * <p>
+ * Both directions are kept, so that re-registering an object replaces its
+ * previous dependencies instead of accumulating stale edges.
+ *
+ * @param <K>
+ *            the key of the objects, with value-based equals and hashCode
+ */
+public class CacheDependencyGraph<K>
+{
+    /** key to the keys of the objects embedding it */
+    private final Map<K, Set<K>> dependents = new HashMap<K, Set<K>>();
+
+    /** key to the keys of the objects it embeds */
+    private final Map<K, Set<K>> references = new HashMap<K, Set<K>>();
+
+    /**
+     * Record the objects embedded by an object, replacing the previous ones.
+     *
+     * @param key
+     *            the key of the object
+     * @param embedded
+     *            the keys of the objects it embeds
+     */
+    public synchronized void register(K key, Set<? extends K> embedded)
+    {
+        unlink(key);
+        Set<K> refs = new HashSet<K>(embedded);
+        refs.remove(key);
+        if (refs.isEmpty())
+        {
+            return;
+        }
+        references.put(key, refs);
+        for (K ref : refs)
+        {
+            Set<K> set = dependents.get(ref);
+            if (set == null)
+            {
+                set = new HashSet<K>();
+                dependents.put(ref, set);
+            }
+            set.add(key);
+        }
+    }
+
+    /**
+     * @return a copy of the keys of the objects embedded by an object
+     */
+    public synchronized Set<K> getReferences(K key)
+    {
+        Set<K> refs = references.get(key);
+        return refs == null ? Collections.<K> emptySet() : new HashSet<K>(refs);
+    }
+
+    /**
+     * Remove an object and all the objects depending on it, directly or
+     * through other objects.
+     *
+     * @param key
+     *            the key of the changed object
+     * @return the keys of the objects depending on it, to evict; the key
+     *         itself is not included
+     */
+    public synchronized Set<K> remove(K key)
+    {
+        Set<K> result = new LinkedHashSet<K>();
+        Deque<K> queue = new ArrayDeque<K>();
+        queue.add(key);
+        while (!queue.isEmpty())
+        {
+            K current = queue.poll();
+            Set<K> deps = dependents.remove(current);
+            if (deps != null)
+            {
+                for (K dep : deps)
+                {
+                    if (!dep.equals(key) && result.add(dep))
+                    {
+                        queue.add(dep);
+                    }
+                }
+            }
+            unlink(current);
+        }
+        return result;
+    }
+
+    public synchronized int size()
+    {
+        return references.size();
+    }
+
+    public synchronized void clear()
+    {
+        dependents.clear();
+        references.clear();
+    }
+
+    /** drop the outgoing edges of an object */
+    private void unlink(K key)
+    {
+        Set<K> refs = references.remove(key);
+        if (refs == null)
+        {
+            return;
+        }
+        for (K ref : refs)
+        {
+            Set<K> set = dependents.get(ref);
+            if (set != null)
+            {
+                set.remove(key);
+                if (set.isEmpty())
+                {
+                    dependents.remove(ref);
+                }
+            }
+        }
+    }
+}
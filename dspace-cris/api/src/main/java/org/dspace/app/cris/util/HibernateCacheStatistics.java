@@ -0,0 +1,125 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/CILEA/dspace-cris/wiki/License
+ */
+package org.dspace.app.cris.util;
+
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import org.apache.log4j.Logger;
+import org.dspace.app.cris.service.ApplicationService;
+import org.dspace.app.cris.service.ApplicationService.CacheStatistics;
+import org.dspace.core.ConfigurationManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
+
+/**
+ * Log at a fixed interval the hit ratio of the second-level cache regions of
+ * the CRIS session factory and the number of statements and loads, to check
+ * the effect of the caching and batch fetching of the dynamic properties,
+ * and the hit ratio of the caches of the {@link ApplicationService}.
+ *
+ * Disabled unless <code>hibernate.statistics.log-interval</code> (seconds) of
+ * the cris module is greater than 0: collecting the statistics has a cost.
+ */
+public class HibernateCacheStatistics {
+
+	/** log4j logger */
+	private static final Logger log = Logger
+			.getLogger(HibernateCacheStatistics.class);
+
+	private SessionFactory sessionFactory;
+
+	private ApplicationService applicationService;
+
+	private Timer timer;
+
+	public void init() {
+		int interval = ConfigurationManager.getIntProperty("cris",
+				"hibernate.statistics.log-interval", 0);
+		if (interval <= 0) {
+			return;
+		}
+
+		final Statistics statistics = sessionFactory.getStatistics();
+		statistics.setStatisticsEnabled(true);
+		timer = new Timer("cris-hibernate-statistics", true);
+		timer.schedule(new TimerTask() {
+			@Override
+			public void run() {
+				logStatistics(statistics);
+			}
+		}, interval * 1000L, interval * 1000L);
+	}
+
+	public void destroy() {
+		if (timer != null) {
+			timer.cancel();
+			timer = null;
+		}
+	}
+
+	private void logStatistics(Statistics statistics) {
+		try {
+			for (String region : statistics.getSecondLevelCacheRegionNames()) {
+				SecondLevelCacheStatistics cache = statistics
+						.getSecondLevelCacheStatistics(region);
+				if (cache == null) {
+					continue;
+				}
+				long hits = cache.getHitCount();
+				long misses = cache.getMissCount();
+				log.info("cache region " + region + ": hits=" + hits
+						+ " misses=" + misses + " puts=" + cache.getPutCount()
+						+ " hitRatio=" + ratio(hits, misses) + " elements="
+						+ cache.getElementCountInMemory());
+			}
+			log.info("query cache: hits=" + statistics.getQueryCacheHitCount()
+					+ " misses=" + statistics.getQueryCacheMissCount()
+					+ " hitRatio="
+					+ ratio(statistics.getQueryCacheHitCount(),
+							statistics.getQueryCacheMissCount())
+					+ "; statements=" + statistics.getPrepareStatementCount()
+					+ " entityLoads=" + statistics.getEntityLoadCount()
+					+ " entityFetches=" + statistics.getEntityFetchCount()
+					+ " collectionLoads=" + statistics.getCollectionLoadCount()
+					+ " collectionFetches="
+					+ statistics.getCollectionFetchCount());
+			if (applicationService != null) {
+				for (Map.Entry<String, CacheStatistics> entry : applicationService
+						.getCacheStatistics().entrySet()) {
+					CacheStatistics cache = entry.getValue();
+					log.info("application cache " + entry.getKey() + ": hits="
+							+ cache.getHits() + " misses=" + cache.getMisses()
+							+ " hitRatio="
+							+ ratio(cache.getHits(), cache.getMisses())
+							+ " evictions=" + cache.getEvictions());
+				}
+			}
+		} catch (RuntimeException e) {
+			log.warn("Unable to log the Hibernate statistics", e);
+		}
+	}
+
+	private static String ratio(long hits, long misses) {
+		long total = hits + misses;
+		if (total == 0) {
+			return "n/a";
+		}
+		return String.format("%.1f%%", 100.0 * hits / total);
+	}
+
+	public void setSessionFactory(SessionFactory sessionFactory) {
+		this.sessionFactory = sessionFactory;
+	}
+
+	public void setApplicationService(ApplicationService applicationService) {
+		this.applicationService = applicationService;
+	}
+}
@@ -18,6 +18,8 @@ import java.lang.reflect.Method;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.LinkedList;
@@ -225,6 +227,27 @@ public class ImportExportUtils {
         }
         
         
+		// the nested objects of the whole list, a few queries instead of one
+		// by object and type of nested object
+		Map<Integer, List<ACNO>> nestedByParent = new HashMap<Integer, List<ACNO>>();
+		if (!metadataNestedLevel.isEmpty()) {
+			Map<Class<ACNO>, List<Integer>> idsByNestedClass = new HashMap<Class<ACNO>, List<Integer>>();
+			for (ACO rp : rps) {
+				if (rp != null) {
+					List<Integer> ids = idsByNestedClass.get(rp.getClassNested());
+					if (ids == null) {
+						ids = new ArrayList<Integer>();
+						idsByNestedClass.put(rp.getClassNested(), ids);
+					}
+					ids.add(rp.getId());
+				}
+			}
+			for (Map.Entry<Class<ACNO>, List<Integer>> entry : idsByNestedClass.entrySet()) {
+				nestedByParent.putAll(applicationService.getNestedObjectsByParentIDs(entry.getKey(),
+						entry.getValue()));
+			}
+		}
+
 		// row index
 		int i = 1;
 		int ii = 1;
@@ -253,10 +276,9 @@ public class ImportExportUtils {
     
                 for (IContainable nestedContainable : metadataNestedLevel)
                 {
-                    List<ACNO> nestedObject = applicationService
-                            .getNestedObjectsByParentIDAndShortname(rp.getId(),
-                                    nestedContainable.getShortName(),
-                                    rp.getClassNested());                
+                    List<ACNO> nestedObject = getNestedObjectsByShortname(
+                            nestedByParent.get(rp.getId()),
+                            nestedContainable.getShortName());
                     for (ACNO rpn : nestedObject)
                     {
     
@@ -300,6 +322,33 @@ public class ImportExportUtils {
 		workbook.write(os);
 	}
 
+	/**
+	 * The nested objects of a type, by position, among the nested objects
+	 * of a CRIS object.
+	 */
+	private static <ACNO extends ACrisNestedObject> List<ACNO> getNestedObjectsByShortname(
+			List<ACNO> nestedObjects, String shortName) {
+		List<ACNO> result = new ArrayList<ACNO>();
+		if (nestedObjects != null) {
+			for (ACNO nested : nestedObjects) {
+				if (shortName.equals(nested.getTypo().getShortName())) {
+					result.add(nested);
+				}
+			}
+		}
+		Collections.sort(result, new Comparator<ACNO>() {
+			public int compare(ACNO o1, ACNO o2) {
+				Integer p1 = o1.getPositionDef();
+				Integer p2 = o2.getPositionDef();
+				if (p1 == null || p2 == null) {
+					return p1 == null ? (p2 == null ? 0 : 1) : -1;
+				}
+				return p1.compareTo(p2);
+			}
+		});
+		return result;
+	}
+
 	private static <P extends Property<TP>, TP extends PropertiesDefinition, NP extends ANestedProperty<NTP>, NTP extends ANestedPropertiesDefinition, ACNO extends ACrisNestedObject<NP, NTP, P, TP>, ATNO extends ATypeNestedObject<NTP>, ACO extends ACrisObject<P, TP, NP, NTP, ACNO, ATNO>> ACO getCrisObject(
 			ApplicationService applicationService, Class<ACO> objectTypeClass, ACO template, IBulkChange change, boolean status)
 			throws InstantiationException, IllegalAccessException {
@@ -0,0 +1,196 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/CILEA/dspace-cris/wiki/License
+ */
+package org.dspace.app.cris.deduplication.service.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import org.dspace.core.Context;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests of the checkpoints of {@link DedupIndexRebuild}: an interrupted
+ * rebuild must be resumed after the last chunk written, and only when asked
+ * to.  The stages writing to the index are replaced by recording ones.
+ */
+public class DedupIndexRebuildTest
+{
+    private static final List<Integer> IDS = Arrays.asList(7, 3, 10, 1, 5, 9, 2, 8, 6, 4);
+
+    private File checkpointFile;
+
+    /**
+     * A rebuild recording the stages run, and failing on the chunk holding
+     * a given object.
+     */
+    private class RecordingRebuild extends DedupIndexRebuild
+    {
+        private final int failOn;
+
+        private int rejects = 0;
+
+        private int matches = 0;
+
+        private final List<List<Integer>> chunks = new ArrayList<List<Integer>>();
+
+        RecordingRebuild(int failOn)
+        {
+            super(null, 2, 2, 3, 10, 100, checkpointFile);
+            this.failOn = failOn;
+        }
+
+        @Override
+        void writeRejects(Context context, List<Integer> ids)
+        {
+            rejects++;
+        }
+
+        @Override
+        int writeSignatures(ExecutorService executor, List<Integer> chunk) throws Exception
+        {
+            if (chunk.contains(failOn))
+            {
+                throw new IOException("index not available");
+            }
+            chunks.add(new ArrayList<Integer>(chunk));
+            return chunk.size();
+        }
+
+        @Override
+        void writeMatches(ExecutorService executor) throws Exception
+        {
+            if (failOn == -1)
+            {
+                throw new IOException("index not available");
+            }
+            matches++;
+        }
+    }
+
+    @Before
+    public void init() throws IOException
+    {
+        File dir = File.createTempFile("dedup", "");
+        dir.delete();
+        checkpointFile = new File(dir, "rebuild-2.checkpoint");
+    }
+
+    @After
+    public void destroy()
+    {
+        checkpointFile.delete();
+        checkpointFile.getParentFile().delete();
+    }
+
+    /**
+     * A rebuild interrupted in the signatures goes on after the last chunk
+     * written, then does nothing more once done.
+     */
+    @Test
+    public void testResumeSignatures() throws Exception
+    {
+        RecordingRebuild first = new RecordingRebuild(8);
+        try
+        {
+            first.run(null, IDS, false);
+            fail("testResumeSignatures 0");
+        }
+        catch (IOException e)
+        {
+            // expected
+        }
+        assertChunks("testResumeSignatures 1", first, Arrays.asList(1, 2, 3),
+                Arrays.asList(4, 5, 6));
+        assertEquals("testResumeSignatures 2", 0, first.matches);
+
+        RecordingRebuild resumed = new RecordingRebuild(0);
+        resumed.run(null, IDS, true);
+        assertChunks("testResumeSignatures 3", resumed, Arrays.asList(7, 8, 9),
+                Arrays.asList(10));
+        // the rejected pairs are cheap, they are written again
+        assertEquals("testResumeSignatures 4", 1, resumed.rejects);
+        assertEquals("testResumeSignatures 5", 1, resumed.matches);
+
+        RecordingRebuild again = new RecordingRebuild(0);
+        again.run(null, IDS, true);
+        assertChunks("testResumeSignatures 6", again);
+        assertEquals("testResumeSignatures 7", 0, again.rejects);
+        assertEquals("testResumeSignatures 8", 0, again.matches);
+    }
+
+    /**
+     * A rebuild interrupted in the matches only runs the matches again.
+     */
+    @Test
+    public void testResumeMatches() throws Exception
+    {
+        RecordingRebuild first = new RecordingRebuild(-1);
+        try
+        {
+            first.run(null, IDS, false);
+            fail("testResumeMatches 0");
+        }
+        catch (IOException e)
+        {
+            // expected
+        }
+        assertEquals("testResumeMatches 1", 4, first.chunks.size());
+
+        RecordingRebuild resumed = new RecordingRebuild(0);
+        resumed.run(null, IDS, true);
+        assertChunks("testResumeMatches 2", resumed);
+        assertEquals("testResumeMatches 3", 0, resumed.rejects);
+        assertEquals("testResumeMatches 4", 1, resumed.matches);
+    }
+
+    /**
+     * Without resume, or without a checkpoint, the rebuild starts over.
+     */
+    @Test
+    public void testNoResume() throws Exception
+    {
+        RecordingRebuild first = new RecordingRebuild(5);
+        try
+        {
+            first.run(null, IDS, false);
+            fail("testNoResume 0");
+        }
+        catch (IOException e)
+        {
+            // expected
+        }
+        assertChunks("testNoResume 1", first, Arrays.asList(1, 2, 3));
+
+        RecordingRebuild restarted = new RecordingRebuild(0);
+        restarted.run(null, IDS, false);
+        assertChunks("testNoResume 2", restarted, Arrays.asList(1, 2, 3),
+                Arrays.asList(4, 5, 6), Arrays.asList(7, 8, 9), Arrays.asList(10));
+        assertEquals("testNoResume 3", 1, restarted.matches);
+
+        // a rebuild done and forgotten
+        assertTrue("testNoResume 4", checkpointFile.delete());
+        RecordingRebuild fresh = new RecordingRebuild(0);
+        fresh.run(null, IDS, true);
+        assertEquals("testNoResume 5", 4, fresh.chunks.size());
+        assertEquals("testNoResume 6", 1, fresh.matches);
+    }
+
+    private static void assertChunks(String message, RecordingRebuild rebuild,
+            List<?>... expected)
+    {
+        assertEquals(message, Arrays.asList(expected), rebuild.chunks);
+    }
+}
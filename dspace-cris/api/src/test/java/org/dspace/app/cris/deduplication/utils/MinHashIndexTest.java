@@ -0,0 +1,130 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/CILEA/dspace-cris/wiki/License
+ */
+package org.dspace.app.cris.deduplication.utils;
+
+import java.util.List;
+import java.util.Random;
+
+import org.dspace.app.cris.deduplication.utils.MinHashIndex.Match;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests of {@link MinHashIndex}, with the parameters of
+ * {@link MinHashSignature}: 64 hashes in 16 bands, threshold 0.6.
+ */
+public class MinHashIndexTest
+{
+    private final MinHash minHash = new MinHash(64, 16, 3);
+
+    /**
+     * A near-duplicate pair is found, by both searches, and a different
+     * text is not.
+     */
+    @Test
+    public void testNearDuplicate()
+    {
+        MinHashIndex index = new MinHashIndex(minHash, 0.6, 500);
+        index.add(1, minHash.sketch("Measurement of the top quark mass in proton collisions"));
+        index.add(2, minHash.sketch("Measurment of the top-quark mass in proton collisions."));
+        index.add(3, minHash.sketch("A survey of graph databases for digital libraries"));
+        index.add(4, minHash.sketch("Top quark"));
+
+        List<Match> all = index.findAll();
+        assertEquals("testNearDuplicate 0", 1, all.size());
+        assertEquals("testNearDuplicate 1", 1, all.get(0).getFirstId());
+        assertEquals("testNearDuplicate 2", 2, all.get(0).getSecondId());
+        assertTrue("testNearDuplicate 3", all.get(0).getSimilarity() >= 0.6);
+
+        List<Match> found = index.find(minHash.sketch(
+                "Measurement of the top quark mass in proton-proton collisions"));
+        assertEquals("testNearDuplicate 4", 2, found.size());
+        for (Match match : found)
+        {
+            assertEquals("testNearDuplicate 5", -1, match.getFirstId());
+            assertTrue("testNearDuplicate 6", match.getSecondId() == 1 || match.getSecondId() == 2);
+        }
+        assertTrue("testNearDuplicate 7", index.find(minHash.sketch(
+                "Graph databases")).isEmpty());
+    }
+
+    /**
+     * The near-duplicates, one word of ten changed, are nearly all found,
+     * though only the objects of the same buckets are compared.
+     */
+    @Test
+    public void testRecall()
+    {
+        MinHashIndex index = new MinHashIndex(minHash, 0.6, 500);
+        Random random = new Random(7);
+        int pairs = 200;
+        for (int i = 0; i < pairs; i++)
+        {
+            String text = MinHashTest.text(random, 10);
+            String[] words = text.split(" ");
+            words[random.nextInt(words.length)] = "changed";
+            StringBuilder duplicate = new StringBuilder();
+            for (String word : words)
+            {
+                duplicate.append(word).append(' ');
+            }
+            index.add(2 * i, minHash.sketch(text));
+            index.add(2 * i + 1, minHash.sketch(duplicate.toString()));
+        }
+
+        int found = 0;
+        for (Match match : index.findAll())
+        {
+            if (match.getFirstId() % 2 == 0 && match.getSecondId() == match.getFirstId() + 1)
+            {
+                found++;
+            }
+        }
+        // a pair of similarity 0.8 shares a band with probability 0.9998
+        assertTrue("testRecall 0 " + found, found >= pairs * 0.95);
+    }
+
+    /**
+     * A bucket grown larger than the maximum size is not searched and keeps
+     * no IDs, whatever is added to it later.
+     */
+    @Test
+    public void testOversizeBucket()
+    {
+        MinHashIndex index = new MinHashIndex(minHash, 0.6, 3);
+        int[] editorial = minHash.sketch("Editorial");
+        for (int id = 1; id <= 3; id++)
+        {
+            index.add(id, editorial);
+        }
+        assertEquals("testOversizeBucket 0", 3, index.findAll().size());
+        assertEquals("testOversizeBucket 1", 16 * 3, index.bucketEntries());
+
+        index.add(4, editorial);
+        assertTrue("testOversizeBucket 2", index.findAll().isEmpty());
+        assertTrue("testOversizeBucket 3", index.find(editorial).isEmpty());
+        assertEquals("testOversizeBucket 4", 0, index.bucketEntries());
+
+        for (int id = 5; id <= 100; id++)
+        {
+            index.add(id, editorial);
+        }
+        assertEquals("testOversizeBucket 5", 0, index.bucketEntries());
+        assertEquals("testOversizeBucket 6", 100, index.size());
+
+        // another sketch of the same object is not counted twice
+        MinHashIndex other = new MinHashIndex(minHash, 0.6, 3);
+        other.add(1, editorial);
+        other.add(1, editorial);
+        other.add(2, editorial);
+        other.add(3, editorial);
+        assertEquals("testOversizeBucket 7", 16 * 3, other.bucketEntries());
+        assertEquals("testOversizeBucket 8", 3, other.findAll().size());
+    }
+}
@@ -0,0 +1,129 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/CILEA/dspace-cris/wiki/License
+ */
+package org.dspace.app.cris.deduplication.utils;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests of {@link MinHash}: the similarity of two sketches must
+ * estimate the Jaccard similarity of the shingles of the texts.
+ */
+public class MinHashTest
+{
+    private static final String[] WORDS = { "analysis", "network", "protein",
+            "quantum", "river", "model", "learning", "dynamics", "soil", "climate",
+            "cancer", "graph", "theory", "market", "energy", "language", "neural",
+            "ocean", "policy", "crystal", "virus", "galaxy", "memory", "urban" };
+
+    /**
+     * The estimate is close to the exact Jaccard similarity, over texts of
+     * all similarities.
+     */
+    @Test
+    public void testJaccardEstimate()
+    {
+        MinHash minHash = new MinHash(256, 32, 3);
+        Random random = new Random(42);
+        double totalError = 0;
+        int pairs = 200;
+        for (int i = 0; i < pairs; i++)
+        {
+            String first = text(random, 8);
+            String second = text(random, 8);
+            double exact = jaccard(minHash.shingles(first), minHash.shingles(second));
+            double estimate = MinHash.similarity(minHash.sketch(first), minHash.sketch(second));
+            // the standard deviation is below sqrt(0.25 / 256) = 0.031
+            assertEquals("testJaccardEstimate 0 " + first + " / " + second,
+                    exact, estimate, 0.13);
+            totalError += Math.abs(exact - estimate);
+        }
+        assertTrue("testJaccardEstimate 1", totalError / pairs < 0.03);
+    }
+
+    /**
+     * Equal texts, up to accents, case, punctuation and the order of the
+     * words, have equal sketches; texts without a common shingle have
+     * nearly nothing in common.
+     */
+    @Test
+    public void testNormalization()
+    {
+        MinHash minHash = new MinHash(64, 16, 3);
+        int[] sketch = minHash.sketch("Études sur la dynamique des fluides");
+        assertArrayEquals("testNormalization 0", sketch,
+                minHash.sketch("des FLUIDES: etudes sur la dynamique..."));
+        assertEquals("testNormalization 1", 1.0, MinHash.similarity(sketch,
+                minHash.sketch("la dynamique des fluides, études sur")), 0);
+        assertTrue("testNormalization 2", MinHash.similarity(sketch,
+                minHash.sketch("Kvantová kryptografie pomocí polarizace")) < 0.1);
+        assertNull("testNormalization 3", minHash.sketch(" -- ! "));
+        assertNull("testNormalization 4", minHash.sketch(null));
+    }
+
+    /**
+     * A sketch is encoded and decoded back, and its band keys are stable.
+     */
+    @Test
+    public void testEncode()
+    {
+        MinHash minHash = new MinHash(64, 16, 3);
+        int[] sketch = minHash.sketch("Encoding the sketches in the signature field");
+        String encoded = MinHash.encode(sketch);
+        assertEquals("testEncode 0", 64 * 8, encoded.length());
+        assertArrayEquals("testEncode 1", sketch, MinHash.decode(encoded));
+        assertNull("testEncode 2", MinHash.decode(encoded.substring(1)));
+        assertNull("testEncode 3", MinHash.decode(encoded.replace('0', 'x')));
+
+        // a new instance computes the same sketch and keys
+        MinHash other = new MinHash(64, 16, 3);
+        assertArrayEquals("testEncode 4", sketch,
+                other.sketch("Encoding the sketches in the signature field"));
+        long[] keys = minHash.bandKeys(sketch);
+        assertEquals("testEncode 5", 16, keys.length);
+        assertArrayEquals("testEncode 6", keys, other.bandKeys(sketch));
+        for (int band = 0; band < keys.length; band++)
+        {
+            assertEquals("testEncode 7", band, keys[band] >>> 32);
+        }
+    }
+
+    /**
+     * A random text of words of the list, each word changed at random to
+     * vary the similarities.
+     */
+    static String text(Random random, int words)
+    {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++)
+        {
+            String word = WORDS[random.nextInt(WORDS.length)];
+            if (random.nextBoolean())
+            {
+                word = word.substring(0, 1 + random.nextInt(word.length() - 1))
+                        + (char) ('a' + random.nextInt(26));
+            }
+            text.append(word).append(' ');
+        }
+        return text.toString();
+    }
+
+    private static double jaccard(Set<String> first, Set<String> second)
+    {
+        Set<String> union = new HashSet<String>(first);
+        union.addAll(second);
+        Set<String> intersection = new HashSet<String>(first);
+        intersection.retainAll(second);
+        return union.isEmpty() ? 0 : (double) intersection.size() / union.size();
+    }
+}
@@ -0,0 +1,212 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/CILEA/dspace-cris/wiki/License
+ */
+package org.dspace.app.cris.network;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.solr.common.SolrDocument;
+import org.dspace.app.cris.network.NetworkGraphStore.Graph;
+import org.dspace.app.cris.network.NetworkGraphStore.GraphBuilder;
+import org.dspace.app.cris.network.NetworkGraphStore.Neighbour;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests of the neighbourhood queries of {@link NetworkGraphStore}: they
+ * must count the connection documents as the facets on the focus field of
+ * the network core did.
+ */
+public class NetworkGraphStoreTest
+{
+    private static final String PALMER = "Palmer|||rp00001";
+
+    private static final String PALMER_J = "Palmer J.|||rp00001";
+
+    private static final String ROSSI = "Rossi|||rp00002";
+
+    private static final String BIANCHI = "Bianchi|||rp00003";
+
+    private static final String EXTERNAL = "External|||null";
+
+    private Map<String, GraphBuilder> builders;
+
+    @Before
+    public void init()
+    {
+        builders = new HashMap<String, GraphBuilder>();
+        // Palmer, under two names, and Rossi wrote three papers together
+        connect("coauthors", 1, PALMER, "rp00001", "dept1", ROSSI, "rp00002", "dept1");
+        connect("coauthors", 1, PALMER, "rp00001", "dept1", ROSSI, "rp00002", "dept1");
+        connect("coauthors", 1, ROSSI, "rp00002", "dept1", PALMER_J, "rp00001", "dept1");
+        connect("coauthors", 1, PALMER, "rp00001", "dept1", BIANCHI, "rp00003", "dept2");
+        connect("coauthors", 1, PALMER, "rp00001", "dept1", EXTERNAL, null, null);
+        connect("coauthors", 1, ROSSI, "rp00002", "dept1", EXTERNAL, null, null);
+        connect("coauthors", 1, BIANCHI, "rp00003", "dept2", EXTERNAL, null, null);
+        // the name of a node linked to itself is not an edge
+        connect("coauthors", 1, PALMER, "rp00001", "dept1", PALMER, "rp00001", "dept1");
+        // another connection and another entity have their own graphs
+        connect("interests", 1, PALMER, "rp00001", "dept1", ROSSI, "rp00002", "dept1");
+        connect("coauthors", 2, PALMER, "rp00001", "dept1", BIANCHI, "rp00003", "dept2");
+    }
+
+    /**
+     * The neighbours of an authority, including its own nodes, sorted by
+     * number of documents.
+     */
+    @Test
+    public void testByAuthority()
+    {
+        Graph graph = graph("coauthors", 1);
+        List<Neighbour> result = NetworkGraphStore.neighbours(graph, "rp00001", null,
+                false, null, 0);
+        assertNeighbours("testByAuthority 0", result,
+                ROSSI, 3, PALMER, 4, BIANCHI, 1, EXTERNAL, 1, PALMER_J, 1);
+        assertEquals("testByAuthority 1", PALMER, result.get(0).getNode());
+        assertEquals("testByAuthority 2", ROSSI, result.get(1).getNode());
+
+        assertNeighbours("testByAuthority 3", NetworkGraphStore.neighbours(
+                graph("coauthors", 2), "rp00001", null, false, null, 0),
+                PALMER, 1, BIANCHI, 1);
+        assertNeighbours("testByAuthority 4", NetworkGraphStore.neighbours(
+                graph("interests", 1), "rp00002", null, false, null, 0),
+                PALMER, 1, ROSSI, 1);
+    }
+
+    /**
+     * A node without authority is found by its name.
+     */
+    @Test
+    public void testByName()
+    {
+        List<Neighbour> result = NetworkGraphStore.neighbours(graph("coauthors", 1),
+                "", "External", false, null, 0);
+        assertNeighbours("testByName 0", result,
+                EXTERNAL, 3, PALMER, 1, ROSSI, 1, BIANCHI, 1);
+        assertEquals("testByName 1", EXTERNAL, result.get(0).getNode());
+        // the other nodes are sorted by name
+        assertEquals("testByName 2", BIANCHI, result.get(1).getNode());
+    }
+
+    /**
+     * The documents are filtered on the researchers and on the department,
+     * and the result is limited.
+     */
+    @Test
+    public void testFilters()
+    {
+        Graph graph = graph("coauthors", 1);
+        assertNeighbours("testFilters 0", NetworkGraphStore.neighbours(graph,
+                "rp00001", null, true, null, 0),
+                ROSSI, 3, PALMER, 3, BIANCHI, 1, PALMER_J, 1);
+        assertNeighbours("testFilters 1", NetworkGraphStore.neighbours(graph,
+                "rp00001", null, true, "dept1", 0),
+                ROSSI, 3, PALMER, 2, PALMER_J, 1);
+
+        List<Neighbour> limited = NetworkGraphStore.neighbours(graph, "rp00001", null,
+                false, null, 2);
+        assertEquals("testFilters 2", 2, limited.size());
+        assertEquals("testFilters 3", PALMER, limited.get(0).getNode());
+        assertEquals("testFilters 4", ROSSI, limited.get(1).getNode());
+
+        assertTrue("testFilters 5", NetworkGraphStore.neighbours(graph,
+                "rp99999", null, false, null, 0).isEmpty());
+        assertTrue("testFilters 6", NetworkGraphStore.neighbours(graph,
+                "rp00001", null, false, "dept3", 0).isEmpty());
+    }
+
+    /**
+     * The graphs saved to a file and loaded back give the same neighbours.
+     */
+    @Test
+    public void testSaveAndLoad() throws Exception
+    {
+        Map<String, Graph> graphs = NetworkGraphStore.build(builders);
+        File file = File.createTempFile("graphstore", ".bin");
+        try
+        {
+            NetworkGraphStore.save(graphs, file);
+            Map<String, Graph> loaded = NetworkGraphStore.load(file);
+            assertEquals("testSaveAndLoad 0", graphs.keySet(), loaded.keySet());
+            for (String key : graphs.keySet())
+            {
+                for (String authority : new String[] { "rp00001", "rp00002", "rp00003" })
+                {
+                    assertEquals("testSaveAndLoad 1 " + key + " " + authority,
+                            toString(NetworkGraphStore.neighbours(graphs.get(key),
+                                    authority, null, false, null, 0)),
+                            toString(NetworkGraphStore.neighbours(loaded.get(key),
+                                    authority, null, false, null, 0)));
+                }
+            }
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+
+    private void connect(String type, int entity, String a, String aAuth, String aDept,
+            String b, String bAuth, String bDept)
+    {
+        SolrDocument doc = new SolrDocument();
+        doc.setField("type", type);
+        doc.setField("entity", entity);
+        doc.setField("a", a);
+        doc.setField("a_auth", aAuth);
+        doc.setField("a_val", a.substring(0, a.indexOf("|||")));
+        doc.setField("a_dept", aDept);
+        doc.setField("b", b);
+        doc.setField("b_auth", bAuth);
+        doc.setField("b_val", b.substring(0, b.indexOf("|||")));
+        doc.setField("b_dept", bDept);
+        NetworkGraphStore.add(builders, doc);
+    }
+
+    private Graph graph(String connection, int entity)
+    {
+        Graph graph = NetworkGraphStore.build(builders).get(NetworkGraphStore.key(connection, entity));
+        assertNotNull(connection + " " + entity, graph);
+        return graph;
+    }
+
+    /**
+     * Assert the nodes and counts of a result, in any order.
+     */
+    private static void assertNeighbours(String message, List<Neighbour> result,
+            Object... expected)
+    {
+        Map<String, Integer> expectedCounts = new HashMap<String, Integer>();
+        for (int i = 0; i < expected.length; i += 2)
+        {
+            expectedCounts.put((String) expected[i], (Integer) expected[i + 1]);
+        }
+        Map<String, Integer> counts = new HashMap<String, Integer>();
+        for (Neighbour neighbour : result)
+        {
+            counts.put(neighbour.getNode(), neighbour.getCount());
+        }
+        assertEquals(message, expectedCounts, counts);
+        assertEquals(message + " duplicates", counts.size(), result.size());
+    }
+
+    private static List<String> toString(List<Neighbour> neighbours)
+    {
+        List<String> result = new ArrayList<String>();
+        for (Neighbour neighbour : neighbours)
+        {
+            result.add(neighbour.getNode() + "=" + neighbour.getCount());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,124 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/CILEA/dspace-cris/wiki/License
+ */
+package org.dspace.app.cris.util;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests of {@link CacheDependencyGraph}.
+ */
+public class CacheDependencyGraphTest
+{
+    /**
+     * The objects depending on a removed object, directly or not, are
+     * returned once.
+     */
+    @Test
+    public void testRemoveTransitive()
+    {
+        CacheDependencyGraph<String> graph = new CacheDependencyGraph<String>();
+        // publication -> researcher -> orgunit, project -> orgunit
+        graph.register("publication", keys("researcher"));
+        graph.register("researcher", keys("orgunit"));
+        graph.register("project", keys("orgunit", "researcher"));
+
+        assertEquals("testRemoveTransitive 0", keys("publication", "researcher", "project"),
+                graph.remove("orgunit"));
+        assertEquals("testRemoveTransitive 1", 0, graph.size());
+        assertEquals("testRemoveTransitive 2", keys(), graph.remove("orgunit"));
+        assertEquals("testRemoveTransitive 3", keys(), graph.remove("researcher"));
+    }
+
+    /**
+     * Removing an object in the middle leaves the objects it does not reach.
+     */
+    @Test
+    public void testRemoveMiddle()
+    {
+        CacheDependencyGraph<String> graph = new CacheDependencyGraph<String>();
+        graph.register("publication", keys("researcher"));
+        graph.register("researcher", keys("orgunit"));
+        graph.register("project", keys("orgunit"));
+
+        assertEquals("testRemoveMiddle 0", keys("publication"), graph.remove("researcher"));
+        assertEquals("testRemoveMiddle 1", keys(), graph.getReferences("researcher"));
+        assertEquals("testRemoveMiddle 2", keys("orgunit"), graph.getReferences("project"));
+        assertEquals("testRemoveMiddle 3", keys("project"), graph.remove("orgunit"));
+    }
+
+    /**
+     * Registering an object again replaces its references.
+     */
+    @Test
+    public void testRegisterAgain()
+    {
+        CacheDependencyGraph<String> graph = new CacheDependencyGraph<String>();
+        graph.register("publication", keys("first", "second"));
+        graph.register("publication", keys("second", "third"));
+
+        assertEquals("testRegisterAgain 0", keys("second", "third"),
+                graph.getReferences("publication"));
+        assertEquals("testRegisterAgain 1", keys(), graph.remove("first"));
+        assertEquals("testRegisterAgain 2", keys("publication"), graph.remove("third"));
+        assertEquals("testRegisterAgain 3", keys(), graph.remove("second"));
+
+        // no references: nothing is kept
+        graph.register("publication", keys("publication"));
+        graph.register("project", Collections.<String> emptySet());
+        assertEquals("testRegisterAgain 4", 0, graph.size());
+    }
+
+    /**
+     * Objects embedding each other do not loop, and the removed object is
+     * not returned.
+     */
+    @Test
+    public void testCycle()
+    {
+        CacheDependencyGraph<String> graph = new CacheDependencyGraph<String>();
+        graph.register("a", keys("b"));
+        graph.register("b", keys("c"));
+        graph.register("c", keys("a"));
+
+        assertEquals("testCycle 0", keys("c", "b"), graph.remove("a"));
+        assertEquals("testCycle 1", 0, graph.size());
+    }
+
+    /**
+     * The copy of the references is not changed by later registrations.
+     */
+    @Test
+    public void testGetReferences()
+    {
+        CacheDependencyGraph<String> graph = new CacheDependencyGraph<String>();
+        graph.register("publication", keys("researcher"));
+        Set<String> references = graph.getReferences("publication");
+        references.add("project");
+        graph.register("publication", keys("orgunit"));
+
+        assertEquals("testGetReferences 0", keys("researcher", "project"), references);
+        assertEquals("testGetReferences 1", keys("orgunit"), graph.getReferences("publication"));
+        assertEquals("testGetReferences 2", keys(), graph.getReferences("unknown"));
+
+        graph.clear();
+        assertEquals("testGetReferences 3", 0, graph.size());
+        assertEquals("testGetReferences 4", keys(), graph.remove("orgunit"));
+    }
+
+    private static Set<String> keys(String... keys)
+    {
+        return new HashSet<String>(Arrays.asList(keys));
+    }
+}
@@ -11,7 +11,7 @@ import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -137,13 +137,7 @@ public class ExportFormController extends BaseFormController
                 searchService.commit();
                 QueryResponse qresponse = searchService.search(query);
                 SolrDocumentList docList = qresponse.getResults();
-                Iterator<SolrDocument> solrDoc = docList.iterator();
-                while (solrDoc.hasNext())
-                {
-                    SolrDocument doc = solrDoc.next();
-                    String uuid = (String) doc.getFirstValue("cris-uuid");
-                    list.add(applicationService.getEntityByUUID(uuid));
-                }
+                list.addAll(getListWithAnagrafica(docList));
             }
             catch (SearchServiceException e)
             {
@@ -229,6 +223,83 @@ public class ExportFormController extends BaseFormController
         return null;
     }
 
+    /**
+     * Load the CRIS objects of the search results with their properties, a
+     * few queries by class of object instead of one query for each object
+     * and its properties.
+     * 
+     * @return the objects, in the order of the results
+     */
+    private List<ACrisObject> getListWithAnagrafica(SolrDocumentList docList)
+    {
+        Map<Class<? extends ACrisObject>, List<Integer>> idsByModel = new LinkedHashMap<Class<? extends ACrisObject>, List<Integer>>();
+        List<String> keys = new ArrayList<String>();
+        for (SolrDocument doc : docList)
+        {
+            Object type = doc.getFirstValue("search.resourcetype");
+            Object id = doc.getFirstValue("search.resourceid");
+            Class<? extends ACrisObject> model = type != null
+                    ? getModel(Integer.parseInt(type.toString())) : null;
+            if (model == null || id == null)
+            {
+                continue;
+            }
+            List<Integer> ids = idsByModel.get(model);
+            if (ids == null)
+            {
+                ids = new ArrayList<Integer>();
+                idsByModel.put(model, ids);
+            }
+            ids.add(Integer.parseInt(id.toString()));
+            keys.add(model.getName() + "#" + id);
+        }
+
+        Map<String, ACrisObject> loaded = new HashMap<String, ACrisObject>();
+        for (Map.Entry<Class<? extends ACrisObject>, List<Integer>> entry : idsByModel
+                .entrySet())
+        {
+            for (ACrisObject object : applicationService
+                    .getListWithAnagrafica(entry.getKey(), entry.getValue()))
+            {
+                loaded.put(entry.getKey().getName() + "#" + object.getId(),
+                        object);
+            }
+        }
+        List<ACrisObject> result = new ArrayList<ACrisObject>();
+        for (String key : keys)
+        {
+            ACrisObject object = loaded.get(key);
+            if (object != null)
+            {
+                result.add(object);
+            }
+        }
+        return result;
+    }
+
+    private Class<? extends ACrisObject> getModel(int type)
+    {
+        if (type == CrisConstants.RP_TYPE_ID)
+        {
+            return ResearcherPage.class;
+        }
+        if (type == CrisConstants.PROJECT_TYPE_ID)
+        {
+            return Project.class;
+        }
+        if (type == CrisConstants.OU_TYPE_ID)
+        {
+            return OrganizationUnit.class;
+        }
+        if (type > CrisConstants.CRIS_DYNAMIC_TYPE_ID_START
+                && type < CrisConstants.CRIS_NDYNAMIC_TYPE_ID_START)
+        {
+            return ResearchObject.class;
+        }
+        // nested objects
+        return null;
+    }
+
     private void addToTempQuery(String fieldName, String value, List<String> f,
             List<String> q, boolean escape)
     {
@@ -79,7 +79,7 @@ public class CrisValuePairsIndexPlugin implements CrisServiceIndexPlugin,
             for (Locale locale : I18nUtil.getSupportedLocales())
             {
                 dcInputsReader.put(locale.getLanguage(),
-                    new DCInputsReader(I18nUtil.getInputFormsFileName(locale)));
+                    DCInputsReader.getInstance(I18nUtil.getInputFormsFileName(locale)));
             }
         }
 
@@ -26,6 +26,7 @@ import org.dspace.authorize.AuthorizeException;
 import org.dspace.authorize.AuthorizeManager;
 import org.dspace.content.Collection;
 import org.dspace.content.Community;
+import org.dspace.content.CommunityHierarchy;
 import org.dspace.core.ConfigurationManager;
 import org.dspace.core.Constants;
 import org.dspace.core.Context;
@@ -48,6 +49,14 @@ public class CommunityListServlet extends DSpaceServlet
 
     // This will map communityIDs to arrays of sub-communities
     private Map<Integer, Community[]> commMap;
+
+    // The snapshot of the hierarchy, null to query each community
+    private CommunityHierarchy hierarchy;
+
+    // All the communities and collections by ID, with the snapshot
+    private Map<Integer, Community> allCommunities;
+
+    private Map<Integer, Collection> allCollections;
     private static final Object staticLock = new Object();
     
     /** log4j category */
@@ -70,6 +79,7 @@ public class CommunityListServlet extends DSpaceServlet
             log.info(LogManager.getHeader(context, "view_community_list", ""));
 
             Community[] communities = Community.findAllTop(context);
+            loadHierarchy(context);
 
             String showCrisComm = ConfigurationManager.getProperty("community-list.topcommunity.show");
 
@@ -125,6 +135,30 @@ public class CommunityListServlet extends DSpaceServlet
             JSPManager.showJSP(request, response, "/community-list.jsp");
            }
     }
+    /*
+     * Load all the communities and collections at once, if the snapshot of
+     * the hierarchy is available, instead of walking down the tree
+     */
+    private void loadHierarchy(Context context) throws SQLException
+    {
+        hierarchy = CommunityHierarchy.getSnapshot(context);
+        if (hierarchy == null)
+        {
+            return;
+        }
+
+        allCommunities = new HashMap<Integer, Community>();
+        for (Community community : Community.findAll(context))
+        {
+            allCommunities.put(community.getID(), community);
+        }
+        allCollections = new HashMap<Integer, Collection>();
+        for (Collection collection : Collection.findAll(context))
+        {
+            allCollections.put(collection.getID(), collection);
+        }
+    }
+
     /*
      * Get all subcommunities and collections from a community
      */
@@ -132,6 +166,37 @@ public class CommunityListServlet extends DSpaceServlet
 
         Integer comID = Integer.valueOf(c.getID());
 
+        if (hierarchy != null && hierarchy.contains(Constants.COMMUNITY, comID))
+        {
+            List<Collection> colls = new ArrayList<Collection>();
+            for (int id : hierarchy.getCollectionIDs(comID))
+            {
+                if (allCollections.containsKey(id))
+                {
+                    colls.add(allCollections.get(id));
+                }
+            }
+            colMap.put(comID, colls.toArray(new Collection[colls.size()]));
+
+            List<Community> comms = new ArrayList<Community>();
+            for (int id : hierarchy.getSubcommunityIDs(comID))
+            {
+                if (allCommunities.containsKey(id))
+                {
+                    comms.add(allCommunities.get(id));
+                }
+            }
+            if (comms.size() > 0)
+            {
+                commMap.put(comID, comms.toArray(new Community[comms.size()]));
+                for (Community sub : comms)
+                {
+                    build(sub);
+                }
+            }
+            return;
+        }
+
         // Find collections in community
         Collection[] colls = c.getCollections();
         colMap.put(comID, colls);
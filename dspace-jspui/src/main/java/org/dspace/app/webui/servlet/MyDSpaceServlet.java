@@ -612,7 +612,7 @@ public class MyDSpaceServlet extends DSpaceServlet
             // Load the Submission Process for the collection this WSI is
             // associated with
             Collection c = wsi.getCollection();
-            SubmissionConfigReader subConfigReader = new SubmissionConfigReader();
+            SubmissionConfigReader subConfigReader = SubmissionConfigReader.getInstance();
             SubmissionConfig subConfig = subConfigReader.getSubmissionConfig(c
                     .getHandle(), false);
 
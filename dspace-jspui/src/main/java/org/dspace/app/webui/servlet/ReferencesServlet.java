@@ -496,7 +496,7 @@ public class ReferencesServlet extends DSpaceServlet
                     }
 
                     // Read the input form file for the specific collection
-                    DCInputsReader inputsReader = new DCInputsReader(formFileName);
+                    DCInputsReader inputsReader = DCInputsReader.getInstance(formFileName);
 
                     DCInputSet inputSet = inputsReader.getInputs(col_handle);
                     type = inputSet.getFormName();
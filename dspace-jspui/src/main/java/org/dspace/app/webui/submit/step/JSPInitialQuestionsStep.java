@@ -200,7 +200,7 @@ public class JSPInitialQuestionsStep extends JSPStep
         try
         {
             // read configurable submissions forms data
-            DCInputsReader inputsReader = new DCInputsReader();
+            DCInputsReader inputsReader = DCInputsReader.getInstance();
              
             // load the proper submission inputs to be used by the JSP
             request.setAttribute("submission.inputs", inputsReader.getInputs(c
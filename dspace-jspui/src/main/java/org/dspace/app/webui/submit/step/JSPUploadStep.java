@@ -141,7 +141,7 @@ public class JSPUploadStep extends JSPStep
             Collection c = subInfo.getSubmissionItem().getCollection();
             try
             {
-                DCInputsReader inputsReader = new DCInputsReader();
+                DCInputsReader inputsReader = DCInputsReader.getInstance();
                 request.setAttribute("submission.inputs", inputsReader.getInputs(c
                         .getHandle()));
             }
@@ -289,7 +289,7 @@ public class JSPUploadStep extends JSPStep
                         try
                         {
                             Collection c = subInfo.getSubmissionItem().getCollection();
-                            DCInputsReader inputsReader = new DCInputsReader();
+                            DCInputsReader inputsReader = DCInputsReader.getInstance();
                             request.setAttribute("submission.inputs", inputsReader
                                     .getInputs(c.getHandle()));
                         }
@@ -310,7 +310,7 @@ public class JSPUploadStep extends JSPStep
                     try
                     {
                         Collection c = subInfo.getSubmissionItem().getCollection();
-                        DCInputsReader inputsReader = new DCInputsReader();
+                        DCInputsReader inputsReader = DCInputsReader.getInstance();
                         request.setAttribute("submission.inputs", inputsReader
                                 .getInputs(c.getHandle()));
                     }
@@ -330,7 +330,7 @@ public class JSPUploadStep extends JSPStep
                     try
                     {
                         Collection c = subInfo.getSubmissionItem().getCollection();
-                        DCInputsReader inputsReader = new DCInputsReader();
+                        DCInputsReader inputsReader = DCInputsReader.getInstance();
                         request.setAttribute("submission.inputs", inputsReader
                                 .getInputs(c.getHandle()));
                     }
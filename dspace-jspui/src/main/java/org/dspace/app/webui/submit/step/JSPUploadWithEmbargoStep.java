@@ -230,7 +230,7 @@ public class JSPUploadWithEmbargoStep extends JSPUploadStep
                         try
                         {
                             Collection c = subInfo.getSubmissionItem().getCollection();
-                            DCInputsReader inputsReader = new DCInputsReader();
+                            DCInputsReader inputsReader = DCInputsReader.getInstance();
                             request.setAttribute("submission.inputs", inputsReader
                                     .getInputs(c.getHandle()));
                         }
@@ -251,7 +251,7 @@ public class JSPUploadWithEmbargoStep extends JSPUploadStep
                     try
                     {
                         Collection c = subInfo.getSubmissionItem().getCollection();
-                        DCInputsReader inputsReader = new DCInputsReader();
+                        DCInputsReader inputsReader = DCInputsReader.getInstance();
                         request.setAttribute("submission.inputs", inputsReader
                                 .getInputs(c.getHandle()));
                     }
@@ -271,7 +271,7 @@ public class JSPUploadWithEmbargoStep extends JSPUploadStep
                     try
                     {
                         Collection c = subInfo.getSubmissionItem().getCollection();
-                        DCInputsReader inputsReader = new DCInputsReader();
+                        DCInputsReader inputsReader = DCInputsReader.getInstance();
                         request.setAttribute("submission.inputs", inputsReader
                                 .getInputs(c.getHandle()));
                     }
@@ -50,7 +50,7 @@ public class ValuePairsDisplayStrategy extends ASimpleDisplayStrategy
             for (Locale locale : I18nUtil.getSupportedLocales())
             {
                 dcInputsReader.put(locale.getLanguage(),
-                    new DCInputsReader(I18nUtil.getInputFormsFileName(locale)));
+                    DCInputsReader.getInstance(I18nUtil.getInputFormsFileName(locale)));
             }
         }
     }
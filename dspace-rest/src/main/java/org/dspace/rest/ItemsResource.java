@@ -47,7 +47,9 @@ import org.dspace.rest.common.Bitstream;
 import org.dspace.rest.common.Item;
 import org.dspace.rest.common.MetadataEntry;
 import org.dspace.rest.common.ResourcePolicy;
+import org.dspace.rest.common.Upload;
 import org.dspace.rest.exceptions.ContextException;
+import org.dspace.storage.bitstore.ChunkedUploadManager;
 import org.dspace.storage.rdbms.DatabaseManager;
 import org.dspace.storage.rdbms.TableRow;
 import org.dspace.storage.rdbms.TableRowIterator;
@@ -456,125 +458,331 @@ public class ItemsResource extends Resource
 
             writeStats(dspaceItem, UsageEvent.Action.UPDATE, user_ip, user_agent, xforwardedfor, headers, request, context);
 
-            // Is better to add bitstream to ORIGINAL bundle or to item own?
-            log.trace("Creating bitstream in item.");
-            org.dspace.content.Bundle bundle = null;
-            org.dspace.content.Bitstream dspaceBitstream = null;
-            Bundle[] bundles = dspaceItem.getBundles("ORIGINAL");
-			if(bundles != null && bundles.length != 0)
-			{
-				bundle = bundles[0]; // There should be only one bundle ORIGINAL.
-			}
-            if (bundle == null)
-            {
-                log.trace("Creating bundle in item.");
-                dspaceBitstream = dspaceItem.createSingleBitstream(inputStream);
-            }
-            else
+            org.dspace.content.Bitstream dspaceBitstream = createBitstream(context, dspaceItem, inputStream,
+                    name, description, groupId, year, month, day);
+            bitstream = new Bitstream(dspaceBitstream, "", servletContext);
+
+            context.complete();
+
+        }
+        catch (SQLException e)
+        {
+            processException("Could not create bitstream in item(id=" + itemId + "), SQLException. Message: " + e, context);
+        }
+        catch (AuthorizeException e)
+        {
+            processException("Could not create bitstream in item(id=" + itemId + "), AuthorizeException. Message: " + e, context);
+        }
+        catch (IOException e)
+        {
+            processException("Could not create bitstream in item(id=" + itemId + "), IOException Message: " + e, context);
+        }
+        catch (ContextException e)
+        {
+            processException(
+                    "Could not create bitstream in item(id=" + itemId + "), ContextException Message: " + e.getMessage(), context);
+        }
+        finally
+        {
+            processFinally(context);
+        }
+
+        log.info("Bitstream(id=" + bitstream.getId() + ") was successfully added into item(id=" + itemId + ").");
+        return bitstream;
+    }
+
+    /**
+     * Start the upload of a bitstream in several chunks, e.g. for very big
+     * files: each chunk is sent with method PUT, and the bitstream is created
+     * with method POST once the last chunk is sent. An interrupted upload is
+     * resumed from its offset, returned by method GET.
+     * 
+     * @param itemId
+     *            Id of item in DSpace.
+     * @param name
+     *            Name of the bitstream.
+     * @param headers
+     *            If you want to access to item under logged user into context.
+     *            In headers must be set header "rest-dspace-token" with passed
+     *            token from login method.
+     * @return Returns the upload with status code OK(200). If id of item is
+     *         invalid , it returns status code NOT_FOUND(404). If user is not
+     *         allowed to write to item, UNAUTHORIZED(401).
+     * @throws WebApplicationException
+     *             It is thrown by these exceptions: SQLException, when was
+     *             problem with reading from database. IOException, when was
+     *             problem with creating the upload. ContextException. When was
+     *             problem with creating context of DSpace.
+     */
+    @POST
+    @Path("/{item_id}/bitstreams/uploads")
+    public Upload startItemBitstreamUpload(@PathParam("item_id") Integer itemId, @QueryParam("name") String name,
+            @Context HttpHeaders headers) throws WebApplicationException
+    {
+
+        log.info("Starting upload of bitstream to item(id=" + itemId + ").");
+        org.dspace.core.Context context = null;
+        Upload upload = null;
+
+        try
+        {
+            context = createContext(getUser(headers));
+            findItem(context, itemId, org.dspace.core.Constants.WRITE);
+            if (context.getCurrentUser() == null)
             {
-                log.trace("Getting bundle from item.");
-                dspaceBitstream = bundle.createBitstream(inputStream);
+                context.abort();
+                throw new WebApplicationException(Response.Status.UNAUTHORIZED);
             }
 
-            dspaceBitstream.setSource("DSpace Rest api");
+            upload = new Upload(ChunkedUploadManager.start(context, itemId, name));
+
+            context.complete();
+        }
+        catch (SQLException e)
+        {
+            processException("Could not start upload to item(id=" + itemId + "), SQLException. Message: " + e, context);
+        }
+        catch (IOException e)
+        {
+            processException("Could not start upload to item(id=" + itemId + "), IOException. Message: " + e, context);
+        }
+        catch (ContextException e)
+        {
+            processException("Could not start upload to item(id=" + itemId + "), ContextException. Message: " + e.getMessage(),
+                    context);
+        }
+        finally
+        {
+            processFinally(context);
+        }
+
+        log.info("Upload(id=" + upload.getId() + ") to item(id=" + itemId + ") was successfully started.");
+        return upload;
+    }
 
-            // Set bitstream name and description
-            if (name != null)
+    /**
+     * Return the upload of a bitstream, with the offset of the next chunk.
+     * 
+     * @param itemId
+     *            Id of item in DSpace.
+     * @param uploadId
+     *            Id of the upload, returned when it was started.
+     * @param headers
+     *            If you want to access to item under logged user into context.
+     *            In headers must be set header "rest-dspace-token" with passed
+     *            token from login method.
+     * @return Returns the upload with status code OK(200). If the upload was
+     *         not started by user in item, or is completed, it returns status
+     *         code NOT_FOUND(404).
+     * @throws WebApplicationException
+     *             It is thrown by these exceptions: SQLException, when was
+     *             problem with reading from database. IOException, when was
+     *             problem with reading the upload. ContextException. When was
+     *             problem with creating context of DSpace.
+     */
+    @GET
+    @Path("/{item_id}/bitstreams/uploads/{upload_id}")
+    @Produces({ MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML })
+    public Upload getItemBitstreamUpload(@PathParam("item_id") Integer itemId, @PathParam("upload_id") String uploadId,
+            @Context HttpHeaders headers) throws WebApplicationException
+    {
+
+        log.info("Reading upload(id=" + uploadId + ") to item(id=" + itemId + ").");
+        org.dspace.core.Context context = null;
+        Upload upload = null;
+
+        try
+        {
+            context = createContext(getUser(headers));
+            upload = new Upload(findUpload(context, itemId, uploadId));
+
+            context.complete();
+        }
+        catch (SQLException e)
+        {
+            processException("Could not read upload(id=" + uploadId + "), SQLException. Message: " + e, context);
+        }
+        catch (IOException e)
+        {
+            processException("Could not read upload(id=" + uploadId + "), IOException. Message: " + e, context);
+        }
+        catch (ContextException e)
+        {
+            processException("Could not read upload(id=" + uploadId + "), ContextException. Message: " + e.getMessage(),
+                    context);
+        }
+        finally
+        {
+            processFinally(context);
+        }
+
+        return upload;
+    }
+
+    /**
+     * Send a chunk of the upload of a bitstream. The chunks must be sent in
+     * order, at the offset returned for the previous chunk.
+     * 
+     * @param itemId
+     *            Id of item in DSpace.
+     * @param uploadId
+     *            Id of the upload, returned when it was started.
+     * @param offset
+     *            Offset of the chunk in the bitstream.
+     * @param inputStream
+     *            Data of the chunk in inputStream.
+     * @param headers
+     *            If you want to access to item under logged user into context.
+     *            In headers must be set header "rest-dspace-token" with passed
+     *            token from login method.
+     * @return Returns the upload with status code OK(200). If the upload was
+     *         not started by user in item, or is completed, it returns status
+     *         code NOT_FOUND(404). If offset is not the offset of the next
+     *         chunk, e.g. the chunk was already sent, CONFLICT(409). If the
+     *         chunk would make the bitstream larger than the upload limit,
+     *         REQUEST_ENTITY_TOO_LARGE(413).
+     * @throws WebApplicationException
+     *             It is thrown by these exceptions: SQLException, when was
+     *             problem with reading from database. IOException, when was
+     *             problem with reading from inpustream or writing the chunk.
+     *             ContextException. When was problem with creating context of
+     *             DSpace.
+     */
+    @PUT
+    @Path("/{item_id}/bitstreams/uploads/{upload_id}")
+    @Produces({ MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML })
+    public Upload addItemBitstreamChunk(@PathParam("item_id") Integer itemId, @PathParam("upload_id") String uploadId,
+            @QueryParam("offset") @DefaultValue("0") Long offset, InputStream inputStream,
+            @Context HttpHeaders headers) throws WebApplicationException
+    {
+
+        log.info("Adding chunk at offset " + offset + " to upload(id=" + uploadId + ").");
+        org.dspace.core.Context context = null;
+        Upload upload = null;
+
+        try
+        {
+            context = createContext(getUser(headers));
+            ChunkedUploadManager.Upload dspaceUpload = findUpload(context, itemId, uploadId);
+            try
             {
-            	BitstreamFormat format = FormatIdentifier.guessFormat(context, name);
-                if (format == null)
-                {
-                    dspaceBitstream.setFormat(BitstreamFormat.findUnknown(context));
-                }
-                else
-                {
-                    dspaceBitstream.setFormat(format);
-                }
-                dspaceBitstream.setName(name);
+                upload = new Upload(ChunkedUploadManager.append(dspaceUpload, offset, inputStream));
             }
-            if (description != null)
+            catch (IllegalArgumentException e)
             {
-                dspaceBitstream.setDescription(description);
+                context.abort();
+                log.warn(e.getMessage());
+                throw new WebApplicationException(Response.Status.CONFLICT);
             }
+            catch (ChunkedUploadManager.UploadTooLargeException e)
+            {
+                context.abort();
+                log.warn(e.getMessage());
+                throw new WebApplicationException(Response.Status.REQUEST_ENTITY_TOO_LARGE);
+            }
+
+            context.complete();
+        }
+        catch (SQLException e)
+        {
+            processException("Could not add chunk to upload(id=" + uploadId + "), SQLException. Message: " + e, context);
+        }
+        catch (IOException e)
+        {
+            processException("Could not add chunk to upload(id=" + uploadId + "), IOException. Message: " + e, context);
+        }
+        catch (ContextException e)
+        {
+            processException("Could not add chunk to upload(id=" + uploadId + "), ContextException. Message: "
+                    + e.getMessage(), context);
+        }
+        finally
+        {
+            processFinally(context);
+        }
 
-            dspaceBitstream.update();
+        return upload;
+    }
 
-            // Create policy for bitstream
-            if (groupId != null)
-            {
-                bundles = dspaceBitstream.getBundles();
-                for (Bundle dspaceBundle : bundles)
-                {
-                    List<org.dspace.authorize.ResourcePolicy> bitstreamsPolicies = dspaceBundle.getBitstreamPolicies();
+    /**
+     * Complete the upload of a bitstream: create the bitstream in item from
+     * the chunks sent, as with method POST on the bitstreams of item.
+     * 
+     * @param itemId
+     *            Id of item in DSpace.
+     * @param uploadId
+     *            Id of the upload, returned when it was started.
+     * @param headers
+     *            If you want to access to item under logged user into context.
+     *            In headers must be set header "rest-dspace-token" with passed
+     *            token from login method.
+     * @return Returns bitstream with status code OK(200). If the upload was
+     *         not started by user in item, or is completed, it returns status
+     *         code NOT_FOUND(404). If user is not allowed to write to item,
+     *         UNAUTHORIZED(401).
+     * @throws WebApplicationException
+     *             It is thrown by these exceptions: SQLException, when was
+     *             problem with reading/writing from/to database.
+     *             AuthorizeException, when was problem with authorization to
+     *             item and add bitstream to item. IOException, when was problem
+     *             with creating file or reading the chunks. ContextException.
+     *             When was problem with creating context of DSpace.
+     */
+    @POST
+    @Path("/{item_id}/bitstreams/uploads/{upload_id}")
+    public Bitstream completeItemBitstreamUpload(@PathParam("item_id") Integer itemId,
+            @PathParam("upload_id") String uploadId, @QueryParam("name") String name,
+            @QueryParam("description") String description, @QueryParam("groupId") Integer groupId,
+            @QueryParam("year") Integer year, @QueryParam("month") Integer month, @QueryParam("day") Integer day,
+            @QueryParam("userIP") String user_ip, @QueryParam("userAgent") String user_agent,
+            @QueryParam("xforwardedfor") String xforwardedfor, @Context HttpHeaders headers,
+            @Context HttpServletRequest request) throws WebApplicationException
+    {
 
-                    // Remove default bitstream policies
-                    List<org.dspace.authorize.ResourcePolicy> policiesToRemove = new ArrayList<org.dspace.authorize.ResourcePolicy>();
-                    for (org.dspace.authorize.ResourcePolicy policy : bitstreamsPolicies)
-                    {
-                        if (policy.getResourceID() == dspaceBitstream.getID())
-                        {
-                            policiesToRemove.add(policy);
-                        }
-                    }
-                    for (org.dspace.authorize.ResourcePolicy policy : policiesToRemove)
-                    {
-                        bitstreamsPolicies.remove(policy);
-                    }
+        log.info("Completing upload(id=" + uploadId + ") to item(id=" + itemId + ").");
+        org.dspace.core.Context context = null;
+        Bitstream bitstream = null;
 
-                    org.dspace.authorize.ResourcePolicy dspacePolicy = org.dspace.authorize.ResourcePolicy.create(context);
-                    dspacePolicy.setAction(org.dspace.core.Constants.READ);
-                    dspacePolicy.setGroup(Group.find(context, groupId));
-                    dspacePolicy.setResourceID(dspaceBitstream.getID());
-                    dspacePolicy.setResource(dspaceBitstream);
-                    dspacePolicy.setResourceType(org.dspace.core.Constants.BITSTREAM);
-                    if ((year != null) || (month != null) || (day != null))
-                    {
-                        Date date = new Date();
-                        if (year != null)
-                        {
-                            date.setYear(year - 1900);
-                        }
-                        if (month != null)
-                        {
-                            date.setMonth(month - 1);
-                        }
-                        if (day != null)
-                        {
-                            date.setDate(day);
-                        }
-                        date.setHours(0);
-                        date.setMinutes(0);
-                        date.setSeconds(0);
-                        dspacePolicy.setStartDate(date);
-                    }
+        try
+        {
+            context = createContext(getUser(headers));
+            ChunkedUploadManager.Upload dspaceUpload = findUpload(context, itemId, uploadId);
+            org.dspace.content.Item dspaceItem = findItem(context, itemId, org.dspace.core.Constants.WRITE);
 
-                    dspacePolicy.update();
-                    dspaceBitstream.updateLastModified();
-                }
-            }
+            writeStats(dspaceItem, UsageEvent.Action.UPDATE, user_ip, user_agent, xforwardedfor, headers, request, context);
 
-            dspaceBitstream = org.dspace.content.Bitstream.find(context, dspaceBitstream.getID());
+            org.dspace.content.Bitstream dspaceBitstream;
+            InputStream inputStream = ChunkedUploadManager.open(dspaceUpload);
+            try
+            {
+                dspaceBitstream = createBitstream(context, dspaceItem, inputStream,
+                        (name != null) ? name : dspaceUpload.getName(), description, groupId, year, month, day);
+            }
+            finally
+            {
+                inputStream.close();
+            }
             bitstream = new Bitstream(dspaceBitstream, "", servletContext);
 
             context.complete();
-
+            ChunkedUploadManager.delete(dspaceUpload);
         }
         catch (SQLException e)
         {
-            processException("Could not create bitstream in item(id=" + itemId + "), SQLException. Message: " + e, context);
+            processException("Could not complete upload(id=" + uploadId + "), SQLException. Message: " + e, context);
         }
         catch (AuthorizeException e)
         {
-            processException("Could not create bitstream in item(id=" + itemId + "), AuthorizeException. Message: " + e, context);
+            processException("Could not complete upload(id=" + uploadId + "), AuthorizeException. Message: " + e, context);
         }
         catch (IOException e)
         {
-            processException("Could not create bitstream in item(id=" + itemId + "), IOException Message: " + e, context);
+            processException("Could not complete upload(id=" + uploadId + "), IOException. Message: " + e, context);
         }
         catch (ContextException e)
         {
-            processException(
-                    "Could not create bitstream in item(id=" + itemId + "), ContextException Message: " + e.getMessage(), context);
+            processException("Could not complete upload(id=" + uploadId + "), ContextException. Message: "
+                    + e.getMessage(), context);
         }
         finally
         {
@@ -585,6 +793,182 @@ public class ItemsResource extends Resource
         return bitstream;
     }
 
+    /**
+     * Cancel the upload of a bitstream, and delete the chunks sent.
+     * 
+     * @param itemId
+     *            Id of item in DSpace.
+     * @param uploadId
+     *            Id of the upload, returned when it was started.
+     * @param headers
+     *            If you want to access to item under logged user into context.
+     *            In headers must be set header "rest-dspace-token" with passed
+     *            token from login method.
+     * @return Returns status code OK(200). If the upload was not started by
+     *         user in item, or is completed, it returns status code
+     *         NOT_FOUND(404).
+     * @throws WebApplicationException
+     *             It is thrown by these exceptions: SQLException, when was
+     *             problem with reading from database. IOException, when was
+     *             problem with reading the upload. ContextException. When was
+     *             problem with creating context of DSpace.
+     */
+    @DELETE
+    @Path("/{item_id}/bitstreams/uploads/{upload_id}")
+    public Response deleteItemBitstreamUpload(@PathParam("item_id") Integer itemId,
+            @PathParam("upload_id") String uploadId, @Context HttpHeaders headers) throws WebApplicationException
+    {
+
+        log.info("Cancelling upload(id=" + uploadId + ") to item(id=" + itemId + ").");
+        org.dspace.core.Context context = null;
+
+        try
+        {
+            context = createContext(getUser(headers));
+            ChunkedUploadManager.delete(findUpload(context, itemId, uploadId));
+
+            context.complete();
+        }
+        catch (SQLException e)
+        {
+            processException("Could not cancel upload(id=" + uploadId + "), SQLException. Message: " + e, context);
+        }
+        catch (IOException e)
+        {
+            processException("Could not cancel upload(id=" + uploadId + "), IOException. Message: " + e, context);
+        }
+        catch (ContextException e)
+        {
+            processException("Could not cancel upload(id=" + uploadId + "), ContextException. Message: "
+                    + e.getMessage(), context);
+        }
+        finally
+        {
+            processFinally(context);
+        }
+
+        log.info("Upload(id=" + uploadId + ") was successfully cancelled.");
+        return Response.status(Status.OK).build();
+    }
+
+    /**
+     * Create bitstream in the ORIGINAL bundle of item, with its name,
+     * description, format and read policy.
+     * 
+     * @param context
+     *            Context of the request, with the user writing to item.
+     * @param dspaceItem
+     *            Item to which the bitstream is added.
+     * @param inputStream
+     *            Data of bitstream.
+     * @return Returns the created bitstream.
+     */
+    private org.dspace.content.Bitstream createBitstream(org.dspace.core.Context context,
+            org.dspace.content.Item dspaceItem, InputStream inputStream, String name, String description,
+            Integer groupId, Integer year, Integer month, Integer day)
+            throws SQLException, AuthorizeException, IOException
+    {
+        // Is better to add bitstream to ORIGINAL bundle or to item own?
+        log.trace("Creating bitstream in item.");
+        org.dspace.content.Bundle bundle = null;
+        org.dspace.content.Bitstream dspaceBitstream = null;
+        Bundle[] bundles = dspaceItem.getBundles("ORIGINAL");
+			if(bundles != null && bundles.length != 0)
+			{
+				bundle = bundles[0]; // There should be only one bundle ORIGINAL.
+			}
+        if (bundle == null)
+        {
+            log.trace("Creating bundle in item.");
+            dspaceBitstream = dspaceItem.createSingleBitstream(inputStream);
+        }
+        else
+        {
+            log.trace("Getting bundle from item.");
+            dspaceBitstream = bundle.createBitstream(inputStream);
+        }
+
+        dspaceBitstream.setSource("DSpace Rest api");
+
+        // Set bitstream name and description
+        if (name != null)
+        {
+            dspaceBitstream.setName(name);
+        }
+        // Identify the format, by name or else by content
+        BitstreamFormat format = FormatIdentifier.identifyFormat(context, dspaceBitstream);
+        if (format == null)
+        {
+            dspaceBitstream.setFormat(BitstreamFormat.findUnknown(context));
+        }
+        else
+        {
+            dspaceBitstream.setFormat(format);
+        }
+        if (description != null)
+        {
+            dspaceBitstream.setDescription(description);
+        }
+
+        dspaceBitstream.update();
+
+        // Create policy for bitstream
+        if (groupId != null)
+        {
+            bundles = dspaceBitstream.getBundles();
+            for (Bundle dspaceBundle : bundles)
+            {
+                List<org.dspace.authorize.ResourcePolicy> bitstreamsPolicies = dspaceBundle.getBitstreamPolicies();
+
+                // Remove default bitstream policies
+                List<org.dspace.authorize.ResourcePolicy> policiesToRemove = new ArrayList<org.dspace.authorize.ResourcePolicy>();
+                for (org.dspace.authorize.ResourcePolicy policy : bitstreamsPolicies)
+                {
+                    if (policy.getResourceID() == dspaceBitstream.getID())
+                    {
+                        policiesToRemove.add(policy);
+                    }
+                }
+                for (org.dspace.authorize.ResourcePolicy policy : policiesToRemove)
+                {
+                    bitstreamsPolicies.remove(policy);
+                }
+
+                org.dspace.authorize.ResourcePolicy dspacePolicy = org.dspace.authorize.ResourcePolicy.create(context);
+                dspacePolicy.setAction(org.dspace.core.Constants.READ);
+                dspacePolicy.setGroup(Group.find(context, groupId));
+                dspacePolicy.setResourceID(dspaceBitstream.getID());
+                dspacePolicy.setResource(dspaceBitstream);
+                dspacePolicy.setResourceType(org.dspace.core.Constants.BITSTREAM);
+                if ((year != null) || (month != null) || (day != null))
+                {
+                    Date date = new Date();
+                    if (year != null)
+                    {
+                        date.setYear(year - 1900);
+                    }
+                    if (month != null)
+                    {
+                        date.setMonth(month - 1);
+                    }
+                    if (day != null)
+                    {
+                        date.setDate(day);
+                    }
+                    date.setHours(0);
+                    date.setMinutes(0);
+                    date.setSeconds(0);
+                    dspacePolicy.setStartDate(date);
+                }
+
+                dspacePolicy.update();
+                dspaceBitstream.updateLastModified();
+            }
+        }
+
+        return org.dspace.content.Bitstream.find(context, dspaceBitstream.getID());
+    }
+
     /**
      * Replace all metadata in item with new passed metadata.
      * 
@@ -1329,4 +1713,33 @@ public class ItemsResource extends Resource
         DatabaseManager.updateQuery(context, "DELETE FROM resourcepolicy WHERE POLICY_ID = ? AND RESOURCE_ID = ?", policyID,itemID);
     }
 
+    /**
+     * Find upload of a bitstream started by the user logged into context. It
+     * is encapsulation of method ChunkedUploadManager.find with checking if
+     * the upload exists and is to the passed item.
+     * 
+     * @param context
+     *            Context of actual logged user.
+     * @param itemId
+     *            Id of item in DSpace.
+     * @param uploadId
+     *            Id of the upload.
+     * @return It returns the upload.
+     * @throws WebApplicationException
+     *             Is thrown when the upload does not exist, or is to another
+     *             item.
+     */
+    private ChunkedUploadManager.Upload findUpload(org.dspace.core.Context context, int itemId, String uploadId)
+            throws IOException, WebApplicationException
+    {
+        ChunkedUploadManager.Upload upload = ChunkedUploadManager.find(context, uploadId);
+        if (upload == null || upload.getItemID() != itemId)
+        {
+            context.abort();
+            log.warn("Upload(id=" + uploadId + ") to item(id=" + itemId + ") was not found!");
+            throw new WebApplicationException(Response.Status.NOT_FOUND);
+        }
+        return upload;
+    }
+
 }
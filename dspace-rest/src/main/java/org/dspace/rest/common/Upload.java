@@ -0,0 +1,78 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.rest.common;
+
+import javax.xml.bind.annotation.XmlRootElement;
+
+import org.dspace.storage.bitstore.ChunkedUploadManager;
+
+/**
+ * Bitstream uploaded in several chunks, which is not created yet. The next
+ * chunk must be sent at offset, the number of bytes received so far.
+ *
+ */
+@XmlRootElement(name = "upload")
+public class Upload
+{
+    private String id;
+    private Integer itemId;
+    private String name;
+    private long offset;
+
+    public Upload()
+    {
+    }
+
+    public Upload(ChunkedUploadManager.Upload upload)
+    {
+        setId(upload.getID());
+        setItemId(upload.getItemID());
+        setName(upload.getName());
+        setOffset(upload.getOffset());
+    }
+
+    public String getId()
+    {
+        return id;
+    }
+
+    public void setId(String id)
+    {
+        this.id = id;
+    }
+
+    public Integer getItemId()
+    {
+        return itemId;
+    }
+
+    public void setItemId(Integer itemId)
+    {
+        this.itemId = itemId;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public void setName(String name)
+    {
+        this.name = name;
+    }
+
+    public long getOffset()
+    {
+        return offset;
+    }
+
+    public void setOffset(long offset)
+    {
+        this.offset = offset;
+    }
+}
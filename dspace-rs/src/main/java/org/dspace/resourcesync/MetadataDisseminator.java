@@ -11,11 +11,8 @@ import org.dspace.authorize.AuthorizeException;
 import org.dspace.content.Item;
 import org.dspace.content.crosswalk.CrosswalkException;
 import org.dspace.content.crosswalk.DisseminationCrosswalk;
+import org.dspace.content.crosswalk.XMLStreamCrosswalkUtils;
 import org.dspace.core.PluginManager;
-import org.jdom.Document;
-import org.jdom.Element;
-import org.jdom.output.Format;
-import org.jdom.output.XMLOutputter;
 
 import java.io.IOException;
 import java.io.OutputStream;
@@ -31,12 +28,9 @@ public class MetadataDisseminator
             throws IOException, CrosswalkException, AuthorizeException, SQLException
     {
         DisseminationCrosswalk dc = (DisseminationCrosswalk) PluginManager.getNamedPlugin(DisseminationCrosswalk.class, formatPrefix);
-        Element element = dc.disseminateElement(item);
 
-        // serialise the element out to the zip output stream
-        element.detach();
-        Document doc = new Document(element);
-        XMLOutputter out = new XMLOutputter(Format.getPrettyFormat());
-        out.output(doc, os);
+        // write the document straight to the zip output stream, without
+        // building it first when the crosswalk supports streaming
+        XMLStreamCrosswalkUtils.disseminate(dc, item, os);
     }
 }
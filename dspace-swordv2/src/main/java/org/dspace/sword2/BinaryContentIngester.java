@@ -13,6 +13,7 @@ import org.dspace.content.BitstreamFormat;
 import org.dspace.content.Bundle;
 import org.dspace.content.Collection;
 import org.dspace.content.DSpaceObject;
+import org.dspace.content.FormatIdentifier;
 import org.dspace.content.Item;
 import org.dspace.content.WorkspaceItem;
 import org.dspace.core.Context;
@@ -53,6 +54,10 @@ public class BinaryContentIngester extends AbstractSwordContentIngester
 
 			Bitstream bs = item.createSingleBitstream(deposit.getInputStream());
 			BitstreamFormat format = this.getFormat(context, deposit.getFilename());
+			if (format == null)
+			{
+				format = FormatIdentifier.sniffFormat(context, bs);
+			}
 			bs.setName(deposit.getFilename());
 			bs.setFormat(format);
 			bs.update();
@@ -126,6 +131,10 @@ public class BinaryContentIngester extends AbstractSwordContentIngester
 
             Bitstream bs = original.createBitstream(deposit.getInputStream());
             BitstreamFormat format = this.getFormat(context, deposit.getFilename());
+            if (format == null)
+            {
+                format = FormatIdentifier.sniffFormat(context, bs);
+            }
             bs.setFormat(format);
 			bs.setName(deposit.getFilename());
 			bs.update();
@@ -86,36 +86,19 @@ public class DescribeStep extends AbstractSubmissionStep
     protected static final Message T_report_no=
         message("xmlui.Submission.submit.DescribeStep.report_no");
         
-        /**
-     * A shared resource of the inputs reader. The 'inputs' are the
-     * questions we ask the user to describe an item during the
-     * submission process. The reader is a utility class to read
-     * that configuration file.
-     */
-    private static DCInputsReader INPUTS_READER = null;
     private static final Message T_vocabulary_link = message("xmlui.Submission.submit.DescribeStep.controlledvocabulary.link");
 
     /**
-     * Ensure that the inputs reader has been initialized, this method may be
-     * called multiple times with no ill-effect.
-     */
-    private static void initializeInputsReader() throws DCInputsReaderException
-    {
-        if (INPUTS_READER == null)
-        {
-            INPUTS_READER = new DCInputsReader();
-        }
-    }
-    
-    /**
-     * Return the inputs reader. Note, the reader must have been
-     * initialized before the reader can be accessed.
+     * Return the inputs reader. The 'inputs' are the questions we ask the
+     * user to describe an item during the submission process. The reader is
+     * a utility class to read that configuration file, shared and reloaded
+     * when the file changes.
      *
      * @return The input reader.
      */
-    private static DCInputsReader getInputsReader()
+    private static DCInputsReader getInputsReader() throws DCInputsReaderException
     {
-        return INPUTS_READER;
+        return DCInputsReader.getInstance();
     }
     
 
@@ -127,10 +110,10 @@ public class DescribeStep extends AbstractSubmissionStep
                 this.requireSubmission = true;
                 this.requireStep = true;
                 
-                // Ensure that the InputsReader is initialized.
+                // Ensure that the inputs can be read.
                 try
                 {
-                    initializeInputsReader();
+                    getInputsReader();
                 }
                 catch (DCInputsReaderException e)
                 {
@@ -20,6 +20,9 @@ import org.dspace.content.Community;
 import org.dspace.content.Metadatum;
 import org.dspace.content.DSpaceObject;
 import org.dspace.content.Item;
+import org.dspace.content.ObjectStamps;
+import org.dspace.core.ConfigurationManager;
+import org.dspace.core.Constants;
 import org.dspace.eperson.EPerson;
 import org.dspace.eperson.Group;
 
@@ -40,6 +43,10 @@ import org.dspace.eperson.Group;
  * serialize all those objects to a string, take a hash of the string and compare
  * the hash of the string for any updates.
  * 
+ * When <code>xmlui.cache.validity.stamps</code> is enabled, objects are
+ * represented by their version stamps (see {@link ObjectStamps}) instead of
+ * their contents, so that checking a cached page does not load the objects'
+ * metadata, bundles or bitstreams.
  * 
  * @author Scott Phillips
  */
@@ -64,6 +71,10 @@ public class DSpaceValidity implements SourceValidity
     /** The length of time that a cache is assumed to be valid */
     protected long assumedValidityDelay = 0;
 
+    /** Represent objects by their version stamps instead of their contents */
+    private static final boolean useStamps =
+            ConfigurationManager.getBooleanProperty("xmlui.cache.validity.stamps", false);
+
     /**
      * Create a new DSpace validity object. 
      * 
@@ -233,6 +244,10 @@ public class DSpaceValidity implements SourceValidity
         {
           this.validityKey.append("null");  
         }
+        else if (useStamps)
+        {
+            addStamp(dso);
+        }
         else if (dso instanceof Community)
         {
             Community community = (Community) dso;
@@ -366,6 +381,41 @@ public class DSpaceValidity implements SourceValidity
         }    
     }
     
+    /**
+     * Add a DSpace object to the validity by its version stamp. Changes to
+     * an object's parts (bundles, bitstreams, logo) are included in the
+     * stamp of the object; the last modification date of items is added to
+     * see changes made outside of this web application.
+     *
+     * @param dso
+     *          The object to add to the validity.
+     */
+    private void addStamp(DSpaceObject dso)
+    {
+        if (dso instanceof BrowseItem)
+        {
+            validityKey.append("BrowseItem:");
+            validityKey.append(dso.getID());
+            validityKey.append(ObjectStamps.getStamp(Constants.ITEM, dso.getID()));
+        }
+        else if (dso instanceof Community || dso instanceof Collection || dso instanceof Item
+                || dso instanceof Bundle || dso instanceof Bitstream
+                || dso instanceof EPerson || dso instanceof Group)
+        {
+            validityKey.append(dso.getTypeText()).append(":");
+            validityKey.append(dso.getID());
+            validityKey.append(ObjectStamps.getStamp(dso));
+            if (dso instanceof Item)
+            {
+                validityKey.append(((Item) dso).getLastModified());
+            }
+        }
+        else
+        {
+            throw new IllegalArgumentException("DSpaceObject of type '"+dso.getClass().getName()+"' is not supported by the DSpaceValidity object.");
+        }
+    }
+
     /**
      * Add a non-DSpaceObject to the validity, the object should be 
      * serialized into a string form. The order in which objects 